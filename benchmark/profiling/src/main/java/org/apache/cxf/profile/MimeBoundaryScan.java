@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.profile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.cxf.attachment.AttachmentDeserializer;
+import org.apache.cxf.message.Attachment;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+
+/**
+ * Measures the throughput of multipart parsing in AttachmentDeserializer
+ * against a plain copy of the same bytes.
+ * <p>
+ * Arguments: attachment size in MB (default 64), iterations (default 10)
+ */
+public final class MimeBoundaryScan {
+    private static final String BOUNDARY = "uuid:1b4d9b2c-5c1f-4a6e-9f0e-3e8d7a2b1c0d";
+    private static final String CONTENT_TYPE = "multipart/related; type=\"application/xop+xml\"; "
+        + "boundary=\"" + BOUNDARY + "\"; start=\"<root.message@cxf.apache.org>\"; "
+        + "start-info=\"text/xml\"";
+
+    private final byte[] message;
+    private final byte[] buffer = new byte[8192];
+
+    private MimeBoundaryScan(int size) throws IOException {
+        message = createMessage(size);
+    }
+
+    private static byte[] createMessage(int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 1024);
+        out.write(("--" + BOUNDARY + "\r\n"
+            + "Content-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n"
+            + "Content-Transfer-Encoding: binary\r\n"
+            + "Content-ID: <root.message@cxf.apache.org>\r\n\r\n"
+            + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body/>"
+            + "</soap:Envelope>\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Type: application/octet-stream\r\n"
+            + "Content-Transfer-Encoding: binary\r\n"
+            + "Content-ID: <data@cxf.apache.org>\r\n\r\n").getBytes("UTF-8"));
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        out.write(data);
+        out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes("UTF-8"));
+        return out.toByteArray();
+    }
+
+    private long copy() throws IOException {
+        return consume(new ByteArrayInputStream(message));
+    }
+
+    private long parse() throws IOException {
+        Message msg = new MessageImpl();
+        msg.put(Message.CONTENT_TYPE, CONTENT_TYPE);
+        msg.setContent(InputStream.class, new ByteArrayInputStream(message));
+        AttachmentDeserializer deserializer = new AttachmentDeserializer(msg);
+        deserializer.initializeAttachments();
+        long total = consume(msg.getContent(InputStream.class));
+        for (Attachment a : msg.getAttachments()) {
+            total += consume(a.getDataHandler().getInputStream());
+        }
+        return total;
+    }
+
+    private long consume(InputStream in) throws IOException {
+        long total = 0;
+        int n = in.read(buffer);
+        while (n != -1) {
+            total += n;
+            n = in.read(buffer);
+        }
+        in.close();
+        return total;
+    }
+
+    private void run(int iterations) throws IOException {
+        double mb = message.length / (1024.0 * 1024.0);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            copy();
+            long copied = System.nanoTime() - start;
+            start = System.nanoTime();
+            parse();
+            long parsed = System.nanoTime() - start;
+            System.out.printf("copy: %8.1f MB/s   parse: %8.1f MB/s%n",
+                              mb * 1e9 / copied, mb * 1e9 / parsed);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        new MimeBoundaryScan(size * 1024 * 1024).run(iterations);
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.cxf.attachment;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,9 +29,10 @@ import javax.activation.DataSource;
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.io.CacheSizeExceededException;
 import org.apache.cxf.io.CachedOutputStream;
+import org.apache.cxf.io.Transferable;
 import org.apache.cxf.message.Message;
 
-public class AttachmentDataSource implements DataSource {
+public class AttachmentDataSource implements DataSource, Transferable {
 
     private final String ct;    
     private CachedOutputStream cache;
@@ -102,6 +104,23 @@ public class AttachmentDataSource implements DataSource {
         }
     }
 
+    /**
+     * Moves the content of the part into the given file. A part that has not
+     * been cached yet is streamed from the message straight into the file, and
+     * a cached part that was spilled to disk is renamed where possible.
+     */
+    public void transferTo(File file) throws IOException {
+        InputStream in = getInputStream();
+        if (in == null) {
+            throw new IOException("Attachment content is no longer available");
+        }
+        try {
+            IOUtils.transferTo(in, file);
+        } finally {
+            in.close();
+        }
+    }
+
     public String getName() {
         return name;
     }
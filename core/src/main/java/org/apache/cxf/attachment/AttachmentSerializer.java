@@ -19,11 +19,15 @@
 
 package org.apache.cxf.attachment;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -31,7 +35,10 @@ import java.util.List;
 import java.util.Map;
 
 import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 
+import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Message;
 
@@ -261,7 +268,7 @@ public class AttachmentSerializer {
                 writeHeaders(handler.getContentType(), a.getId(),
                              headers, writer);
                 out.write(writer.getBuffer().toString().getBytes(encoding));
-                handler.writeTo(out);
+                writeData(handler);
             }
         }
         StringWriter writer = new StringWriter();                
@@ -273,6 +280,48 @@ public class AttachmentSerializer {
         out.flush();
     }
 
+    /**
+     * Writes the content of an attachment. When both the attachment and the message
+     * are written to files, as when a message is serialized to disk, the bytes are
+     * handed to {@link FileChannel#transferTo} so they need not be copied through the
+     * heap. Transport streams, such as the HTTP ones, do not expose a channel and are
+     * always written with {@link DataHandler#writeTo}.
+     */
+    private void writeData(DataHandler handler) throws IOException {
+        FileChannel target = out instanceof FileOutputStream ? ((FileOutputStream)out).getChannel() : null;
+        DataSource ds = handler.getDataSource();
+        if (ds instanceof LazyDataSource) {
+            ds = ((LazyDataSource)ds).getDataSource();
+        }
+        if (target == null || !(ds instanceof FileDataSource || ds instanceof AttachmentDataSource)) {
+            handler.writeTo(out);
+            return;
+        }
+        InputStream in = ds.getInputStream();
+        if (in == null) {
+            throw new IOException("No content available for attachment " + ds.getName());
+        }
+        try {
+            if (in instanceof FileInputStream) {
+                // headers may still be buffered in front of the channel
+                out.flush();
+                transfer(((FileInputStream)in).getChannel(), target);
+            } else {
+                IOUtils.copy(in, out);
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    private static void transfer(FileChannel source, FileChannel target) throws IOException {
+        long position = source.position();
+        long size = source.size();
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
     public boolean isXop() {
         return xop;
     }
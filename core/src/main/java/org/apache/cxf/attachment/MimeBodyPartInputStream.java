@@ -22,6 +22,7 @@ package org.apache.cxf.attachment;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.util.Arrays;
 
 public class MimeBodyPartInputStream extends InputStream {
 
@@ -31,6 +32,7 @@ public class MimeBodyPartInputStream extends InputStream {
     int pbAmount;
     byte[] boundary;
     byte[] boundaryBuffer;
+    int[] skipTable;
 
     private boolean closed;
 
@@ -103,105 +105,116 @@ public class MimeBodyPartInputStream extends InputStream {
         return i;
     }
 
-    //Has Data after encountering CRLF
-    private boolean hasData(byte[] b, int initialPointer, int pointer, int off, int len)
-        throws IOException {
-        if (pointer < (off + len)) {
-            return true;
-        } else if (pointer >= 1000000000) {
-            inStream.unread(b, initialPointer, (off + len) - initialPointer);
-            return false;            
-        } else {
+    /**
+     * Scans the buffer for the boundary with a Boyer-Moore-Horspool search.
+     * Returns the number of bytes that belong to the part. Data behind them is
+     * pushed back: a boundary found further in is left for the next call, and a
+     * possible start of a boundary at the end of the buffer is retried once more
+     * data has been read.
+     */
+    protected int processBuffer(byte[] buffer, int off, int len) throws IOException {
+        int end = off + len;
+        int idx = indexOfBoundary(buffer, off, end);
+        if (idx == -1) {
+            int partial = partialBoundaryLength(buffer, off, end);
+            if (partial == 0) {
+                return len;
+            }
             int x = inStream.read();
-            if (x != -1) {
-                inStream.unread(x);
-                inStream.unread(b, initialPointer, (off + len) - initialPointer);
-                return false;
+            if (x == -1) {
+                // end of stream, so this cannot be a boundary after all
+                return len;
             }
-            return true;
+            inStream.unread(x);
+            inStream.unread(buffer, end - partial, partial);
+            return len - partial;
+        }
+        int contentEnd = idx;
+        if (idx - off >= 2 && buffer[idx - 2] == 13 && buffer[idx - 1] == 10) {
+            contentEnd -= 2;
+        }
+        if (contentEnd > off) {
+            // return the content first, the boundary is picked up by the next read
+            inStream.unread(buffer, contentEnd, end - contentEnd);
+            return contentEnd - off;
+        }
+        boundaryFound = true;
+        int i = idx + boundary.length;
+        if (i < end) {
+            inStream.unread(buffer, i, end - i);
         }
+        // read the end of line, or the "--" and end of line after the last boundary
+        int value = inStream.read();
+        int dashNext = inStream.read();
+        if (value == 45 && dashNext == 45) {
+            inStream.read();
+            inStream.read();
+        }
+        return 0;
     }
 
-    protected int processBuffer(byte[] buffer, int off, int len) throws IOException {
-        for (int i = off; i < (off + len); i++) {
-            boolean needUnread0d0a = false;
-            int value = buffer[i];
-            int initialI = i;
-            if (value == 13) {
-                if (!hasData(buffer, initialI, initialI + 1, off, len)) {
-                    return initialI - off;
+    private int indexOfBoundary(byte[] buffer, int off, int end) {
+        if (skipTable == null) {
+            skipTable = createSkipTable(boundary);
+        }
+        int last = boundary.length - 1;
+        byte lastByte = boundary[last];
+        int i = off;
+        while (i + last < end) {
+            byte b = buffer[i + last];
+            if (b == lastByte) {
+                int j = last - 1;
+                while (j >= 0 && buffer[i + j] == boundary[j]) {
+                    j--;
                 }
-                value = buffer[initialI + 1];
-                if (value != 10) {
-                    continue;
-                } else {  //if it comes here then 13, 10 are values and will try to match boundaries
-                    if (!hasData(buffer, initialI, initialI + 2, off, len)) {
-                        return initialI - off;
-                    }
-                    value = buffer[initialI + 2];
-                    if ((byte) value != boundary[0]) {
-                        i++;
-                        continue;
-                    } else { //13, 10, boundaries first value matched
-                        needUnread0d0a = true;
-                        i += 2; //i after this points to boundary[0] element
-                    }
+                if (j < 0) {
+                    return i;
                 }
-            } else if (value != boundary[0]) {
-                continue;
             }
+            i += skipTable[b & 0xff];
+        }
+        return -1;
+    }
 
-            int boundaryIndex = 0;
-            while ((boundaryIndex < boundary.length) && (value == boundary[boundaryIndex])) {
-                if (!hasData(buffer, initialI, i + 1, off, len)) {
-                    return initialI - off;
-                }                
-                value = buffer[++i];
-                boundaryIndex++;
-            }
-            if (boundaryIndex == boundary.length) {
-                // read the end of line character
-                if (initialI != off) {
-                    i = 1000000000;
-                }
-                if (initialI - off != 0 
-                    && !hasData(buffer, initialI, i + 1, off, len)) {
-                    return initialI - off;
-                }
-                boundaryFound = true;
-                int j = i + 1;
-                if (j < len && buffer[j] == 45 && value == 45) {
-                    // Last mime boundary should have a succeeding "--"
-                    // as we are on it, read the terminating CRLF
-                    i += 2;
-                    //last mime boundary
-                }
+    private static int[] createSkipTable(byte[] pattern) {
+        int[] table = new int[256];
+        int last = pattern.length - 1;
+        Arrays.fill(table, pattern.length);
+        for (int i = 0; i < last; i++) {
+            table[pattern[i] & 0xff] = last - i;
+        }
+        return table;
+    }
 
-                //boundary matched (may or may not be last mime boundary)
-                int processed = initialI - off;
-                if ((len - ((i - off) + 2)) > 0) {
-                    inStream.unread(buffer, i + 2, len - (i + 2) + off);
+    /**
+     * Returns the length of the longest tail of the buffer that may be the start
+     * of a boundary, including the CRLF in front of it.
+     */
+    private int partialBoundaryLength(byte[] buffer, int off, int end) {
+        int max = Math.min(boundary.length + 1, end - off);
+        for (int n = max; n > 0; n--) {
+            int start = end - n;
+            if (buffer[start] == 13) {
+                if (n == 1 || buffer[start + 1] == 10 && startsBoundary(buffer, start + 2, n - 2)) {
+                    return n;
                 }
-                return processed;
+            } else if (startsBoundary(buffer, start, n)) {
+                return n;
             }
+        }
+        return 0;
+    }
 
-            // Boundary not found. Restoring bytes skipped.
-            // write first skipped byte, push back the rest
-            if (value != -1) { //pushing back first byte of boundary
-                // Stream might have ended
-                i--;
-            }
-            if (needUnread0d0a) { //Pushing all,  returning 13
-                i = i - boundaryIndex;
-                i--; //for 10
-                value = 13;
-            } else {
-                i = i - boundaryIndex;
-                i++;
-                value = boundary[0];
+    private boolean startsBoundary(byte[] buffer, int start, int n) {
+        if (n > boundary.length) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (buffer[start + i] != boundary[i]) {
+                return false;
             }
         }
-        return len;
+        return true;
     }
 
     public int read() throws IOException {
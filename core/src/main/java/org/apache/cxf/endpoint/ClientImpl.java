@@ -25,13 +25,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -86,6 +86,12 @@ public class ClientImpl
 
     public static final String FINISHED = "exchange.finished";
 
+    /**
+     * The latch counted down once the response to a synchronous invocation has been
+     * processed, so that the invoking thread does not have to wait on the exchange monitor.
+     */
+    public static final String RESPONSE_LATCH = "exchange.response.latch";
+
     private static final Logger LOG = LogUtils.getL7dLogger(ClientImpl.class);
 
     protected Bus bus;
@@ -97,11 +103,9 @@ public class ClientImpl
     protected PhaseChainCache inboundChainCache = new PhaseChainCache();
 
     protected Map<String, Object> currentRequestContext = new ConcurrentHashMap<String, Object>(8, 0.75f, 4);
-    protected Map<Thread, EchoContext> requestContext 
-        = Collections.synchronizedMap(new WeakHashMap<Thread, EchoContext>());
+    protected ThreadLocal<EchoContext> requestContext = new ThreadLocal<EchoContext>();
 
-    protected Map<Thread, Map<String, Object>> responseContext 
-        = Collections.synchronizedMap(new WeakHashMap<Thread, Map<String, Object>>());
+    protected ThreadLocal<Map<String, Object>> responseContext = new ThreadLocal<Map<String, Object>>();
 
     protected Executor executor;
 
@@ -184,9 +188,9 @@ public class ClientImpl
         inboundChainCache = null;
 
         currentRequestContext = null;
-        requestContext.clear();
+        requestContext.remove();
         requestContext = null;
-        responseContext.clear();
+        responseContext.remove();
         responseContext = null;
         executor = null;            
     }
@@ -243,19 +247,22 @@ public class ClientImpl
 
     public Map<String, Object> getRequestContext() {
         if (isThreadLocalRequestContext()) {
-            if (!requestContext.containsKey(Thread.currentThread())) {
-                requestContext.put(Thread.currentThread(), new EchoContext(currentRequestContext));
+            EchoContext ctx = requestContext.get();
+            if (ctx == null) {
+                ctx = new EchoContext(currentRequestContext);
+                requestContext.set(ctx);
             }
-            return requestContext.get(Thread.currentThread());
+            return ctx;
         }
         return currentRequestContext;
     }
     public Map<String, Object> getResponseContext() {
-        if (!responseContext.containsKey(Thread.currentThread())) {
-            responseContext.put(Thread.currentThread(), new HashMap<String, Object>());
+        Map<String, Object> ctx = responseContext.get();
+        if (ctx == null) {
+            ctx = new HashMap<String, Object>();
+            responseContext.set(ctx);
         }
-        return responseContext.get(Thread.currentThread());
-
+        return ctx;
     }
     public boolean isThreadLocalRequestContext() {
         Object o = currentRequestContext.get(THREAD_LOCAL_REQUEST_CONTEXT);
@@ -326,7 +333,7 @@ public class ClientImpl
             return invoke(oi, params, context, exchange);
         } finally {
             if (responseContext != null) {
-                responseContext.put(Thread.currentThread(), resp);
+                responseContext.set(resp);
             }
         }
     }
@@ -339,7 +346,7 @@ public class ClientImpl
             if (context != null) {
                 Map<String, Object> resp = CastUtils.cast((Map<?, ?>)context.get(RESPONSE_CONTEXT));
                 if (resp != null && responseContext != null) {
-                    responseContext.put(Thread.currentThread(), resp);
+                    responseContext.set(resp);
                 }
             }
         }
@@ -477,6 +484,9 @@ public class ClientImpl
 
             exchange.setOutMessage(message);
             exchange.put(ClientCallback.class, callback);
+            if (callback == null) {
+                exchange.put(RESPONSE_LATCH, new CountDownLatch(1));
+            }
             
             setOutMessageProperties(message, oi);
             setExchangeProperties(exchange, endpoint, oi);
@@ -497,7 +507,7 @@ public class ClientImpl
                                 // handle the right response
                                 List<Object> resList = null;
                                 Message inMsg = message.getExchange().getInMessage();
-                                Map<String, Object> ctx = responseContext.get(Thread.currentThread());
+                                Map<String, Object> ctx = responseContext.get();
                                 resList = CastUtils.cast(inMsg.getContent(List.class));
                                 Object[] result = resList == null ? null : resList.toArray();
                                 callback.handleResponse(ctx, result);
@@ -628,7 +638,7 @@ public class ClientImpl
                 resContext.putAll(inMsg);
                 // remove the recursive reference if present
                 resContext.remove(Message.INVOCATION_CONTEXT);
-                responseContext.put(Thread.currentThread(), resContext);
+                responseContext.set(resContext);
             }
             resList = CastUtils.cast(inMsg.getContent(List.class));
         }
@@ -667,31 +677,41 @@ public class ClientImpl
     }
 
     protected void waitResponse(Exchange exchange) throws IOException {
-        synchronized (exchange) {
-            long remaining = synchronousTimeout;
-            Long o = PropertyUtils.getLong(exchange.getOutMessage(), SYNC_TIMEOUT);
-            if (o != null) {
-                remaining = o;
-            }
-            while (!Boolean.TRUE.equals(exchange.get(FINISHED)) && remaining > 0) {
-                long start = System.currentTimeMillis();
-                try {
-                    exchange.wait(remaining);
-                } catch (InterruptedException ex) {
-                    // ignore
+        long remaining = synchronousTimeout;
+        Long o = PropertyUtils.getLong(exchange.getOutMessage(), SYNC_TIMEOUT);
+        if (o != null) {
+            remaining = o;
+        }
+        while (!Boolean.TRUE.equals(exchange.get(FINISHED)) && remaining > 0) {
+            long start = System.currentTimeMillis();
+            Object latch = exchange.get(RESPONSE_LATCH);
+            try {
+                if (latch instanceof CountDownLatch) {
+                    // the latch may have been replaced by a retry on the same exchange
+                    if (((CountDownLatch)latch).await(remaining, TimeUnit.MILLISECONDS)
+                        && latch == exchange.get(RESPONSE_LATCH)) {
+                        break;
+                    }
+                } else {
+                    synchronized (exchange) {
+                        if (!Boolean.TRUE.equals(exchange.get(FINISHED))) {
+                            exchange.wait(remaining);
+                        }
+                    }
                 }
-                long end = System.currentTimeMillis();
-                remaining -= (int)(end - start);
-            }
-            if (!Boolean.TRUE.equals(exchange.get(FINISHED))) {
-                LogUtils.log(LOG, Level.WARNING, "RESPONSE_TIMEOUT",
-                    exchange.get(OperationInfo.class).getName().toString());
-                String msg = new org.apache.cxf.common.i18n.Message("RESPONSE_TIMEOUT", LOG, 
-                                                                    exchange.get(OperationInfo.class)
-                                                                        .getName().toString())
-                    .toString();
-                throw new IOException(msg);
+            } catch (InterruptedException ex) {
+                // ignore
             }
+            remaining -= System.currentTimeMillis() - start;
+        }
+        if (!Boolean.TRUE.equals(exchange.get(FINISHED))) {
+            LogUtils.log(LOG, Level.WARNING, "RESPONSE_TIMEOUT",
+                exchange.get(OperationInfo.class).getName().toString());
+            String msg = new org.apache.cxf.common.i18n.Message("RESPONSE_TIMEOUT", LOG, 
+                                                                exchange.get(OperationInfo.class)
+                                                                    .getName().toString())
+                .toString();
+            throw new IOException(msg);
         }
     }
 
@@ -716,6 +736,8 @@ public class ClientImpl
         }
         message = endpoint.getBinding().createMessage(message);
         message.getExchange().setInMessage(message);
+        // a failover retry may replace the latch while the chain runs
+        Object latch = message.getExchange().get(RESPONSE_LATCH);
         message.put(Message.REQUESTOR_ROLE, Boolean.TRUE);
         message.put(Message.INBOUND_MESSAGE, Boolean.TRUE);
         PhaseManager pm = bus.getExtension(PhaseManager.class);
@@ -793,7 +815,7 @@ public class ClientImpl
                         resCtx = CastUtils.cast((Map<?, ?>) resCtx
                                 .get(RESPONSE_CONTEXT));
                         if (resCtx != null) {
-                            responseContext.put(Thread.currentThread(), resCtx);
+                            responseContext.set(resCtx);
                         }
                         callback.handleException(resCtx, error);
 
@@ -814,7 +836,7 @@ public class ClientImpl
                                                                 .get(Message.INVOCATION_CONTEXT));
                 resCtx = CastUtils.cast((Map<?, ?>)resCtx.get(RESPONSE_CONTEXT));
                 if (resCtx != null && responseContext != null) {
-                    responseContext.put(Thread.currentThread(), resCtx);
+                    responseContext.set(resCtx);
                 }
                 try {
                     Object obj[] = processResult(message, message.getExchange(),
@@ -829,13 +851,26 @@ public class ClientImpl
             if (origBus != bus) {
                 BusFactory.setThreadDefaultBus(origBus);
             }
-            synchronized (message.getExchange()) {
-                if (!isPartialResponse(message) 
-                    || message.getContent(Exception.class) != null) {
-                    message.getExchange().put(FINISHED, Boolean.TRUE);
-                    message.getExchange().setInMessage(message);
-                    message.getExchange().notifyAll();
-                }
+            if (!isPartialResponse(message) 
+                || message.getContent(Exception.class) != null) {
+                completeResponse(message, latch);
+            }
+        }
+    }
+
+    private static void completeResponse(Message message, Object latch) {
+        Exchange exchange = message.getExchange();
+        exchange.setInMessage(message);
+        exchange.put(FINISHED, Boolean.TRUE);
+        Object current = exchange.get(RESPONSE_LATCH);
+        if (latch instanceof CountDownLatch) {
+            ((CountDownLatch)latch).countDown();
+        }
+        if (current instanceof CountDownLatch) {
+            ((CountDownLatch)current).countDown();
+        } else if (!(latch instanceof CountDownLatch)) {
+            synchronized (exchange) {
+                exchange.notifyAll();
             }
         }
     }
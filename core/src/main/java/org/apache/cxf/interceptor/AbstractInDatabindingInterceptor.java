@@ -21,8 +21,12 @@ package org.apache.cxf.interceptor;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 import javax.xml.namespace.QName;
@@ -33,6 +37,7 @@ import org.w3c.dom.Node;
 
 import org.apache.cxf.annotations.SchemaValidation.SchemaValidationType;
 import org.apache.cxf.common.i18n.BundleUtils;
+import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.databinding.DataReader;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.helpers.ServiceUtils;
@@ -40,9 +45,11 @@ import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.service.Service;
+import org.apache.cxf.service.model.BindingInfo;
 import org.apache.cxf.service.model.BindingMessageInfo;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.service.model.InterfaceInfo;
 import org.apache.cxf.service.model.MessageInfo;
 import org.apache.cxf.service.model.MessagePartInfo;
 import org.apache.cxf.service.model.OperationInfo;
@@ -58,6 +65,10 @@ public abstract class AbstractInDatabindingInterceptor extends AbstractPhaseInte
                                                     + ".novalidate-parts";
     private static final ResourceBundle BUNDLE = BundleUtils
         .getBundle(AbstractInDatabindingInterceptor.class);
+    private static final String FIRST_PART_INDEX 
+        = AbstractInDatabindingInterceptor.class.getName() + ".FIRST_PART_INDEX";
+    private static final String FIRST_PART_OUT_INDEX 
+        = AbstractInDatabindingInterceptor.class.getName() + ".FIRST_PART_OUT_INDEX";
 
     
     public AbstractInDatabindingInterceptor(String phase) {
@@ -210,6 +221,32 @@ public abstract class AbstractInDatabindingInterceptor extends AbstractPhaseInte
         return lastChoice;
     }
     
+    /**
+     * Returns the operations of the endpoint that may take an element with the given name
+     * as their first message part, in the order of the interface. The result can be passed
+     * to {@link #findMessagePart} instead of all operations of the interface. Operations
+     * whose first part is an xsd:anyType accept any element and are always returned.
+     * 
+     * @param ep
+     * @param name
+     * @param client
+     */
+    protected Collection<OperationInfo> getFirstPartOperations(Endpoint ep, QName name, boolean client) {
+        InterfaceInfo intf = ep.getEndpointInfo().getService().getInterface();
+        if (StringUtils.isEmpty(name.getNamespaceURI())) {
+            // the part name gets the namespace of each message, so every operation may match
+            return new ArrayList<OperationInfo>(intf.getOperations());
+        }
+        BindingInfo binding = ep.getEndpointInfo().getBinding();
+        String key = client ? FIRST_PART_OUT_INDEX : FIRST_PART_INDEX;
+        FirstPartIndex index = binding.getOperationIndex(key);
+        if (index == null) {
+            index = new FirstPartIndex(binding, intf.getOperations(), client);
+            binding.setOperationIndex(key, index);
+        }
+        return new ArrayList<OperationInfo>(index.getOperations(name));
+    }
+
     protected MessageInfo setMessage(Message message, BindingOperationInfo operation,
                                    boolean requestor, ServiceInfo si,
                                    MessageInfo msgInfo) {
@@ -300,4 +337,45 @@ public abstract class AbstractInDatabindingInterceptor extends AbstractPhaseInte
         }
         return msgInfo;
     }
+
+    /**
+     * Maps the element name of the first body part to the operations that have it.
+     */
+    private static final class FirstPartIndex {
+        final Map<QName, List<OperationInfo>> operations = new HashMap<QName, List<OperationInfo>>();
+        final List<OperationInfo> anyTypeOperations = new ArrayList<OperationInfo>();
+
+        FirstPartIndex(BindingInfo binding, Collection<OperationInfo> ops, boolean client) {
+            for (OperationInfo op : ops) {
+                BindingOperationInfo boi = binding.getOperation(op);
+                if (boi == null) {
+                    continue;
+                }
+                BindingMessageInfo msgInfo = client ? boi.getOutput() : boi.getInput();
+                if (msgInfo == null || msgInfo.getMessageParts().isEmpty()) {
+                    continue;
+                }
+                MessagePartInfo p = msgInfo.getMessageParts().get(0);
+                if (Constants.XSD_ANYTYPE.equals(p.getTypeQName())) {
+                    // keeps every list in interface order
+                    anyTypeOperations.add(op);
+                    for (List<OperationInfo> list : operations.values()) {
+                        list.add(op);
+                    }
+                } else if (p.getConcreteName() != null) {
+                    List<OperationInfo> list = operations.get(p.getConcreteName());
+                    if (list == null) {
+                        list = new ArrayList<OperationInfo>(anyTypeOperations);
+                        operations.put(p.getConcreteName(), list);
+                    }
+                    list.add(op);
+                }
+            }
+        }
+
+        List<OperationInfo> getOperations(QName name) {
+            List<OperationInfo> list = operations.get(name);
+            return list == null ? anyTypeOperations : list;
+        }
+    }
 }
@@ -47,6 +47,12 @@ public class StaxOutInterceptor extends AbstractPhaseInterceptor<Message> {
     public static final String OUTPUT_STREAM_HOLDER = StaxOutInterceptor.class.getName() + ".outputstream";
     public static final String WRITER_HOLDER = StaxOutInterceptor.class.getName() + ".writer";
     public static final String FORCE_START_DOCUMENT = "org.apache.cxf.stax.force-start-document";
+    /**
+     * Holds the XMLStreamWriter if it was created straight on the OutputStream of the
+     * message. As long as that writer is still the content of the message, bytes written
+     * to the OutputStream after flushing the writer end up in document order.
+     */
+    public static final String DIRECT_WRITER = StaxOutInterceptor.class.getName() + ".directwriter";
     public static final StaxOutEndingInterceptor ENDING 
         = new StaxOutEndingInterceptor(OUTPUT_STREAM_HOLDER, WRITER_HOLDER);
     
@@ -79,6 +85,7 @@ public class StaxOutInterceptor extends AbstractPhaseInterceptor<Message> {
                 if (writer == null) {
                     os = setupOutputStream(message, os);
                     xwriter = StaxUtils.createXMLStreamWriter(os, encoding);
+                    message.put(DIRECT_WRITER, xwriter);
                 } else {
                     xwriter = StaxUtils.createXMLStreamWriter(writer);
                 }
@@ -178,13 +178,14 @@ public abstract class AbstractInvoker implements Invoker {
                                                                   m,
                                                                   Arrays.asList(paramArray)});
         }
-        return m.invoke(serviceObject, paramArray);
+        return DirectMethodInvoker.getInvoker(m).invoke(serviceObject, paramArray);
     }
 
     public Object[] insertExchange(Method method, Object[] params, Exchange context) {
         Object[] newParams = params;
-        for (int i = 0; i < method.getParameterTypes().length; i++) {
-            if (method.getParameterTypes()[i].equals(Exchange.class)) {
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].equals(Exchange.class)) {
                 newParams = new Object[params.length + 1];
 
                 for (int j = 0; j < newParams.length; j++) {
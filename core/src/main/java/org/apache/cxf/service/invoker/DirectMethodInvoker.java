@@ -0,0 +1,183 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.service.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.SystemPropertyAction;
+
+/**
+ * Invokes a service method through a {@link MethodHandle} created once per method
+ * instead of going through {@link Method#invoke} on every request.
+ * <p>
+ * The handles are cached per declaring class, so they go away together with the class
+ * and its loader. If a handle can not be created, for example because of a security
+ * manager or a restrictive class loader, or if the arguments of a call would need a
+ * conversion the handle does not perform, the call falls back to reflection. Setting
+ * the {@link #USE_REFLECTION} system property to true disables the handles altogether.
+ * <p>
+ * Exceptions thrown by the method are wrapped in an {@link InvocationTargetException}
+ * just like reflection does.
+ */
+public abstract class DirectMethodInvoker {
+    public static final String USE_REFLECTION = "org.apache.cxf.service.invoker.useReflection";
+
+    private static final Logger LOG = LogUtils.getL7dLogger(DirectMethodInvoker.class);
+    private static final boolean REFLECTION_ONLY =
+        Boolean.parseBoolean(SystemPropertyAction.getPropertyOrNull(USE_REFLECTION));
+    private static final MethodType GENERIC_TYPE =
+        MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private static final ClassValue<ConcurrentMap<Method, DirectMethodInvoker>> INVOKERS =
+        new ClassValue<ConcurrentMap<Method, DirectMethodInvoker>>() {
+            protected ConcurrentMap<Method, DirectMethodInvoker> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<Method, DirectMethodInvoker>(8, 0.75f, 2);
+            }
+        };
+
+    protected final Method method;
+
+    DirectMethodInvoker(Method method) {
+        this.method = method;
+    }
+
+    /**
+     * Returns the cached invoker for the method, creating it on first use.
+     */
+    public static DirectMethodInvoker getInvoker(Method method) {
+        ConcurrentMap<Method, DirectMethodInvoker> invokers = INVOKERS.get(method.getDeclaringClass());
+        DirectMethodInvoker invoker = invokers.get(method);
+        if (invoker == null) {
+            invoker = createInvoker(method);
+            DirectMethodInvoker existing = invokers.putIfAbsent(method, invoker);
+            if (existing != null) {
+                invoker = existing;
+            }
+        }
+        return invoker;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Invokes the method with the same semantics as {@link Method#invoke(Object, Object...)}.
+     */
+    public abstract Object invoke(Object target, Object[] args)
+        throws IllegalAccessException, InvocationTargetException;
+
+    private static DirectMethodInvoker createInvoker(Method method) {
+        if (!REFLECTION_ONLY) {
+            try {
+                MethodHandle handle = MethodHandles.lookup().unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    handle = MethodHandles.dropArguments(handle, 0, Object.class);
+                }
+                int count = method.getParameterTypes().length;
+                handle = handle.asType(MethodType.genericMethodType(count + 1))
+                    .asSpreader(Object[].class, count);
+                return new HandleInvoker(method, handle.asType(GENERIC_TYPE));
+            } catch (IllegalAccessException ex) {
+                logFallback(method, ex);
+            } catch (SecurityException ex) {
+                logFallback(method, ex);
+            }
+        }
+        return new ReflectionInvoker(method);
+    }
+
+    private static void logFallback(Method method, Exception ex) {
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Using reflection to invoke " + method, ex);
+        }
+    }
+
+    private static final class ReflectionInvoker extends DirectMethodInvoker {
+        ReflectionInvoker(Method method) {
+            super(method);
+        }
+
+        public Object invoke(Object target, Object[] args)
+            throws IllegalAccessException, InvocationTargetException {
+            return method.invoke(target, args);
+        }
+    }
+
+    private static final class HandleInvoker extends DirectMethodInvoker {
+        private static final Object[] NO_ARGS = new Object[0];
+
+        private final MethodHandle handle;
+        private final Class<?> targetType;
+        private final Class<?>[] parameterTypes;
+        private final boolean[] primitive;
+
+        HandleInvoker(Method method, MethodHandle handle) {
+            super(method);
+            this.handle = handle;
+            targetType = Modifier.isStatic(method.getModifiers()) ? null : method.getDeclaringClass();
+            Class<?>[] types = method.getParameterTypes();
+            parameterTypes = new Class<?>[types.length];
+            primitive = new boolean[types.length];
+            for (int i = 0; i < types.length; i++) {
+                primitive[i] = types[i].isPrimitive();
+                parameterTypes[i] = primitive[i]
+                    ? MethodType.methodType(types[i]).wrap().returnType() : types[i];
+            }
+        }
+
+        public Object invoke(Object target, Object[] args)
+            throws IllegalAccessException, InvocationTargetException {
+            Object[] params = args == null ? NO_ARGS : args;
+            if (!accepts(target, params)) {
+                // let reflection deal with widening conversions and report the mismatch
+                return method.invoke(target, params);
+            }
+            try {
+                return (Object)handle.invokeExact(target, params);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        private boolean accepts(Object target, Object[] args) {
+            if (targetType != null && !targetType.isInstance(target)
+                || args.length != parameterTypes.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null ? primitive[i] : !parameterTypes[i].isInstance(args[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.cxf.service.model;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
@@ -33,6 +34,7 @@ import org.apache.cxf.common.logging.LogUtils;
 public class BindingInfo extends AbstractDescriptionElement implements NamedItem {
     
     private static final Logger LOG = LogUtils.getL7dLogger(BindingInfo.class);
+    private static final String OPERATION_INFO_INDEX = BindingInfo.class.getName() + ".OperationInfoIndex";
     
     QName name;
     ServiceInfo service;
@@ -41,6 +43,9 @@ public class BindingInfo extends AbstractDescriptionElement implements NamedItem
     Map<QName, BindingOperationInfo> operations 
         = new ConcurrentHashMap<QName, BindingOperationInfo>(4, 0.75f, 2);
     
+    Map<String, Object> operationIndexes 
+        = new ConcurrentHashMap<String, Object>(4, 0.75f, 2);
+    
     public BindingInfo(ServiceInfo service, String bindingId) {
         this.service = service;
         this.bindingId = bindingId;
@@ -111,6 +116,7 @@ public class BindingInfo extends AbstractDescriptionElement implements NamedItem
         }
         
         operations.put(operation.getName(), operation);
+        clearOperationIndexes();
     }
     
     /**
@@ -125,6 +131,7 @@ public class BindingInfo extends AbstractDescriptionElement implements NamedItem
         } 
         
         operations.remove(operation.getName());
+        clearOperationIndexes();
     }
 
     /**
@@ -147,6 +154,22 @@ public class BindingInfo extends AbstractDescriptionElement implements NamedItem
     }
 
     public BindingOperationInfo getOperation(OperationInfo oi) {
+        Map<OperationInfo, BindingOperationInfo> index = getOperationIndex(OPERATION_INFO_INDEX);
+        if (index == null) {
+            index = new IdentityHashMap<OperationInfo, BindingOperationInfo>();
+            for (BindingOperationInfo b : operations.values()) {
+                index.put(b.getOperationInfo(), b);
+                if (b.isUnwrappedCapable() && b.getUnwrappedOperation() != null) {
+                    index.put(b.getUnwrappedOperation().getOperationInfo(), b.getUnwrappedOperation());
+                }
+            }
+            setOperationIndex(OPERATION_INFO_INDEX, index);
+        }
+        BindingOperationInfo boi = index.get(oi);
+        if (boi != null) {
+            return boi;
+        }
+        // the unwrapped form of an operation may have been attached after the index was built
         for (BindingOperationInfo b : operations.values()) {
             if (b.getOperationInfo() == oi) {
                 return b;
@@ -158,6 +181,36 @@ public class BindingInfo extends AbstractDescriptionElement implements NamedItem
         return null;
     }
     
+    /**
+     * Returns a lookup table previously stored with {@link #setOperationIndex(String, Object)}.
+     * Indexes are derived from the operations of this binding and are discarded whenever
+     * an operation is added or removed, so callers should rebuild them when this returns
+     * <code>null</code>.
+     *
+     * @param key the key identifying the index
+     * @return the index; or <code>null</code> if it has not been built yet
+     */
+    public <T> T getOperationIndex(String key) {
+        @SuppressWarnings("unchecked")
+        T index = (T)operationIndexes.get(key);
+        return index;
+    }
+
+    /**
+     * Stores a lookup table derived from the operations of this binding. The index must
+     * not be modified once it has been stored.
+     *
+     * @param key the key identifying the index
+     * @param index the index
+     */
+    public void setOperationIndex(String key, Object index) {
+        operationIndexes.put(key, index);
+    }
+
+    void clearOperationIndexes() {
+        operationIndexes.clear();
+    }
+    
     @Override
     public String toString() {
         return "[BindingInfo " + getBindingId() + "]";
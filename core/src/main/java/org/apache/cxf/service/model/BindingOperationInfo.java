@@ -81,6 +81,7 @@ public class BindingOperationInfo extends AbstractPropertiesHolder {
         if (opInfo.isUnwrappedCapable()
             && opHolder == null) {
             opHolder = new BindingOperationInfo(bindingInfo, opInfo.getUnwrappedOperation(), this);
+            clearOperationIndexes();
         }        
     }
     
@@ -125,6 +126,7 @@ public class BindingOperationInfo extends AbstractPropertiesHolder {
     }
     public void setUnwrappedOperation(BindingOperationInfo op) {
         opHolder = op;
+        clearOperationIndexes();
     }
     public boolean isUnwrapped() {
         return opInfo.isUnwrapped();
@@ -132,6 +134,12 @@ public class BindingOperationInfo extends AbstractPropertiesHolder {
     public BindingOperationInfo getWrappedOperation() {
         return opHolder;
     }
+    
+    private void clearOperationIndexes() {
+        if (bindingInfo != null) {
+            bindingInfo.clearOperationIndexes();
+        }
+    }
 
     @Override
     public String toString() {
@@ -21,6 +21,7 @@ package org.apache.cxf.service.model;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,7 +29,6 @@ import java.util.Map;
 import javax.xml.namespace.QName;
 
 import org.apache.cxf.endpoint.Endpoint;
-import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.service.Service;
 import org.apache.ws.commons.schema.XmlSchemaAnnotated;
@@ -37,6 +37,9 @@ import org.apache.ws.commons.schema.XmlSchemaElement;
 import org.apache.ws.commons.schema.XmlSchemaSequence;
 
 public final class ServiceModelUtil {
+    private static final String LOCAL_NAME_INDEX = "ServiceModel.LOCAL_NAME.MAP";
+    private static final String WRAPPER_INDEX = "ServiceModel.WRAPPER.MAP";
+    private static final String WRAPPER_OUT_INDEX = "ServiceModel.WRAPPER.MAP_OUT";
 
     private ServiceModelUtil() {
     }
@@ -51,18 +54,37 @@ public final class ServiceModelUtil {
     }
 
     public static BindingOperationInfo getOperation(Exchange exchange, String opName) {
+        List<BindingOperationInfo> bops = getOperations(exchange, opName);
+        return bops.isEmpty() ? null : bops.get(0);
+    }
+
+    /**
+     * Returns all operations of the exchange's binding whose name has the given local part.
+     */
+    public static List<BindingOperationInfo> getOperations(Exchange exchange, String opName) {
         Endpoint ep = exchange.get(Endpoint.class);
         if (ep == null) {
-            return null;
+            return Collections.emptyList();
         }
         BindingInfo service = ep.getEndpointInfo().getBinding();
-
-        for (BindingOperationInfo b : service.getOperations()) {
-            if (b.getName().getLocalPart().equals(opName)) {
-                return b;
+        Map<String, List<BindingOperationInfo>> localNameMap = service.getOperationIndex(LOCAL_NAME_INDEX);
+        if (localNameMap == null) {
+            localNameMap = new HashMap<String, List<BindingOperationInfo>>();
+            for (BindingOperationInfo b : service.getOperations()) {
+                List<BindingOperationInfo> bops = localNameMap.get(b.getName().getLocalPart());
+                if (bops == null) {
+                    bops = new ArrayList<BindingOperationInfo>(1);
+                    localNameMap.put(b.getName().getLocalPart(), bops);
+                }
+                bops.add(b);
             }
+            service.setOperationIndex(LOCAL_NAME_INDEX, localNameMap);
+        }
+        List<BindingOperationInfo> bops = localNameMap.get(opName);
+        if (bops == null) {
+            return Collections.emptyList();
         }
-        return null;
+        return Collections.unmodifiableList(bops);
     }
 
     public static BindingOperationInfo getOperation(Exchange exchange, QName opName) {
@@ -82,8 +104,8 @@ public final class ServiceModelUtil {
             return null;
         }
         BindingInfo service = ep.getEndpointInfo().getBinding();
-        Map<QName, BindingOperationInfo> wrapperMap = CastUtils.cast(service.getProperty(output
-            ? "ServiceModel.WRAPPER.MAP_OUT" : "ServiceModel.WRAPPER.MAP", Map.class));
+        Map<QName, BindingOperationInfo> wrapperMap 
+            = service.getOperationIndex(output ? WRAPPER_OUT_INDEX : WRAPPER_INDEX);
 
         if (wrapperMap == null) {
             wrapperMap = new HashMap<QName, BindingOperationInfo>();
@@ -109,7 +131,7 @@ public final class ServiceModelUtil {
                     }
                 }
             }
-            service.setProperty(output ? "ServiceModel.WRAPPER.MAP_OUT" : "ServiceModel.WRAPPER.MAP", wrapperMap);
+            service.setOperationIndex(output ? WRAPPER_OUT_INDEX : WRAPPER_INDEX, wrapperMap);
         }
         return wrapperMap.get(opName);
     }
@@ -20,6 +20,8 @@ package org.apache.cxf.attachment;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
@@ -37,6 +39,7 @@ import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.helpers.DefaultHandler;
 
+import org.apache.cxf.helpers.FileUtils;
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Exchange;
@@ -167,6 +170,42 @@ public class AttachmentDeserializerTest extends Assert {
 //        assertTrue(attIs instanceof ByteArrayInputStream);
     }
 
+    @Test
+    public void testTransferAttachmentToFile() throws Exception {
+        InputStream is = getClass().getResourceAsStream("mimedata");
+        String ct = "multipart/related; type=\"application/xop+xml\"; "
+                    + "start=\"<soap.xml@xfire.codehaus.org>\"; "
+                    + "start-info=\"text/xml; charset=utf-8\"; "
+                    + "boundary=\"----=_Part_4_701508.1145579811786\"";
+        
+        msg.put(Message.CONTENT_TYPE, ct);
+        msg.setContent(InputStream.class, is);
+        
+        AttachmentDeserializer deserializer = new AttachmentDeserializer(msg);
+        deserializer.initializeAttachments();
+        InputStream attBody = msg.getContent(InputStream.class);
+        Iterator<Attachment> itr = msg.getAttachments().iterator();
+        assertTrue(itr.hasNext());
+        DataSource ds = itr.next().getDataHandler().getDataSource();
+        IOUtils.consume(attBody);
+        assertTrue(ds instanceof AttachmentDataSource);
+        assertFalse(((AttachmentDataSource)ds).isCached());
+        
+        File file = FileUtils.createTempFile("att", ".bin");
+        try {
+            ((AttachmentDataSource)ds).transferTo(file);
+            InputStream in = new FileInputStream(file);
+            try {
+                assertEquals(255, in.read());
+                assertEquals(216, in.read());
+            } finally {
+                in.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
     @Test
     public void testDeserializerMtomWithAxis2StyleBoundaries() throws Exception {
         InputStream is = getClass().getResourceAsStream("axis2_mimedata");
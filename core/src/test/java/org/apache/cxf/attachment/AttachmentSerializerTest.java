@@ -20,6 +20,10 @@ package org.apache.cxf.attachment;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -28,12 +32,14 @@ import java.util.Properties;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.mail.Session;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.util.ByteArrayDataSource;
 
+import org.apache.cxf.helpers.FileUtils;
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.message.Message;
@@ -192,4 +198,59 @@ public class AttachmentSerializerTest extends Assert {
         assertEquals("<test.xml>", part2.getHeader("Content-ID")[0]);
         
     }
+
+    @Test
+    public void testFileAttachmentToFileOutput() throws Exception {
+        doTestFileAttachment(false);
+    }
+
+    @Test
+    public void testFileAttachmentToWrappedFileOutput() throws Exception {
+        // a wrapping stream, like the transport ones, does not expose the file channel
+        doTestFileAttachment(true);
+    }
+
+    private void doTestFileAttachment(boolean wrapOutput) throws Exception {
+        byte[] data = IOUtils.readBytesFromStream(getClass().getResourceAsStream("my.wav"));
+        File attFile = FileUtils.createTempFile("att", ".wav");
+        File outFile = FileUtils.createTempFile("mtom", ".out");
+        try {
+            FileOutputStream fout = new FileOutputStream(attFile);
+            fout.write(data);
+            fout.close();
+            
+            MessageImpl msg = new MessageImpl();
+            Collection<Attachment> atts = new ArrayList<Attachment>();
+            AttachmentImpl a = new AttachmentImpl("test.wav");
+            a.setDataHandler(new DataHandler(new FileDataSource(attFile)));
+            atts.add(a);
+            msg.setAttachments(atts);
+            msg.put(Message.CONTENT_TYPE, "application/soap+xml");
+            
+            OutputStream out = new FileOutputStream(outFile);
+            if (wrapOutput) {
+                out = new FilterOutputStream(out);
+            }
+            msg.setContent(OutputStream.class, out);
+            AttachmentSerializer serializer = new AttachmentSerializer(msg);
+            serializer.writeProlog();
+            String ct = (String) msg.get(Message.CONTENT_TYPE);
+            out.write("<soap:Body/>".getBytes());
+            serializer.writeAttachments();
+            out.close();
+            
+            InputStream in = new FileInputStream(outFile);
+            DataSource source = new ByteArrayDataSource(in, ct);
+            in.close();
+            MimeMultipart multipart = new MimeMultipart(source);
+            MimeBodyPart part = (MimeBodyPart) multipart.getBodyPart(1);
+            assertEquals("<test.wav>", part.getHeader("Content-ID")[0]);
+            in = part.getDataHandler().getInputStream();
+            assertArrayEquals(data, IOUtils.readBytesFromStream(in));
+            in.close();
+        } finally {
+            attFile.delete();
+            outFile.delete();
+        }
+    }
 }
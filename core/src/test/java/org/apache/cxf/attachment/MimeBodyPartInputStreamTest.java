@@ -0,0 +1,287 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.attachment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MimeBodyPartInputStreamTest extends Assert {
+    private static final byte[] BOUNDARY = "------=_Part_1".getBytes();
+    private static final int PB_SIZE = 2048;
+
+    @Test
+    public void testBoundarySplitAcrossReads() throws Exception {
+        byte[] content = "some content of the part".getBytes();
+        byte[] message = message(content, false, "trailer");
+        for (int max = 1; max <= message.length; max++) {
+            PushbackInputStream in = trickle(message, max);
+            assertPart(content, "trailer", in, 4096);
+        }
+    }
+
+    @Test
+    public void testBoundaryAfterTrailingCrlf() throws Exception {
+        byte[] content = "line one\r\nline two\r\n".getBytes();
+        byte[] message = message(content, false, "trailer");
+        // every chunk size puts the CR, the LF or the boundary start at a different read edge
+        for (int max = 1; max <= message.length; max++) {
+            assertPart(content, "trailer", trickle(message, max), 4096);
+        }
+        content = "ends with a CR\r".getBytes();
+        message = message(content, false, "trailer");
+        for (int max = 1; max <= message.length; max++) {
+            assertPart(content, "trailer", trickle(message, max), 4096);
+        }
+    }
+
+    @Test
+    public void testFinalBoundary() throws Exception {
+        byte[] content = "last part".getBytes();
+        byte[] message = message(content, true, "epilogue");
+        for (int max = 1; max <= message.length; max++) {
+            assertPart(content, "epilogue", trickle(message, max), 4096);
+        }
+    }
+
+    @Test
+    public void testBoundaryLikeContent() throws Exception {
+        byte[] content = ("\r\n------=_Part_\r\n------=_Part_2\r\n-------=_Part\r\n--"
+            + "\r\r\n\r\n-\r\n------=_Part_").getBytes();
+        byte[] message = message(content, false, "trailer");
+        for (int max = 1; max <= message.length; max++) {
+            assertPart(content, "trailer", trickle(message, max), 4096);
+        }
+    }
+
+    @Test
+    public void testSmallReads() throws Exception {
+        byte[] content = "\r\nsmall\r\n------=_Part reads\r\n".getBytes();
+        byte[] message = message(content, false, "trailer");
+        for (int readSize = 1; readSize <= 2 * BOUNDARY.length + 1; readSize++) {
+            assertPart(content, "trailer", trickle(message, message.length), readSize);
+            assertPart(content, "trailer", trickle(message, 3), readSize);
+        }
+    }
+
+    @Test
+    public void testCompareWithLegacyScan() throws Exception {
+        byte[] alphabet = "\r\n-=_Part1a".getBytes();
+        Random random = new Random(20261019L);
+        for (int n = 0; n < 5000; n++) {
+            byte[] content = randomContent(random, alphabet, random.nextInt(200));
+            boolean last = random.nextBoolean();
+            byte[] message = message(content, last, "trailer");
+            int max = 1 + random.nextInt(message.length);
+            int readSize = 1 + random.nextInt(64);
+
+            PushbackInputStream in = trickle(message, max);
+            byte[] part = readPart(new MimeBodyPartInputStream(in, BOUNDARY, PB_SIZE), readSize);
+            byte[] rest = readPart(in, readSize);
+            PushbackInputStream legacyIn = trickle(message, max);
+            byte[] legacyPart = readPart(new LegacyMimeBodyPartInputStream(legacyIn, BOUNDARY, PB_SIZE),
+                                         readSize);
+            byte[] legacyRest = readPart(legacyIn, readSize);
+
+            String msg = "content " + Arrays.toString(content) + ", last " + last
+                + ", chunk " + max + ", read " + readSize;
+            assertArrayEquals(msg, content, part);
+            assertArrayEquals(msg, legacyPart, part);
+            assertArrayEquals(msg, legacyRest, rest);
+        }
+    }
+
+    private static byte[] randomContent(Random random, byte[] alphabet, int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        if (indexOf(content, BOUNDARY) != -1) {
+            // the boundary must not appear in the part itself
+            return new byte[0];
+        }
+        return content;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= data.length; i++) {
+            int j = 0;
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] message(byte[] content, boolean last, String trailer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(content);
+        out.write("\r\n".getBytes());
+        out.write(BOUNDARY);
+        out.write((last ? "--\r\n" : "\r\n").getBytes());
+        out.write(trailer.getBytes());
+        return out.toByteArray();
+    }
+
+    private static void assertPart(byte[] content, String trailer, PushbackInputStream in, int readSize)
+        throws IOException {
+        MimeBodyPartInputStream part = new MimeBodyPartInputStream(in, BOUNDARY, PB_SIZE);
+        assertEquals(new String(content), new String(readPart(part, readSize)));
+        assertEquals(-1, part.read(new byte[readSize]));
+        assertEquals(trailer, new String(readPart(in, readSize)));
+    }
+
+    private static byte[] readPart(InputStream in, int readSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[readSize];
+        int zeroReads = 0;
+        int n = in.read(buf);
+        while (n != -1) {
+            if (n == 0 && ++zeroReads > 100) {
+                fail("stream keeps returning 0 bytes");
+            }
+            out.write(buf, 0, n);
+            n = in.read(buf);
+        }
+        return out.toByteArray();
+    }
+
+    private static PushbackInputStream trickle(byte[] data, final int max) {
+        InputStream in = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, max));
+            }
+        };
+        return new PushbackInputStream(in, PB_SIZE);
+    }
+
+    /**
+     * The byte by byte scan MimeBodyPartInputStream used before the
+     * Boyer-Moore-Horspool search, kept to compare the results of both.
+     */
+    private static class LegacyMimeBodyPartInputStream extends MimeBodyPartInputStream {
+        LegacyMimeBodyPartInputStream(PushbackInputStream in, byte[] boundary, int pbsize) {
+            super(in, boundary, pbsize);
+        }
+
+        private boolean hasData(byte[] b, int initialPointer, int pointer, int off, int len)
+            throws IOException {
+            if (pointer < (off + len)) {
+                return true;
+            } else if (pointer >= 1000000000) {
+                inStream.unread(b, initialPointer, (off + len) - initialPointer);
+                return false;
+            } else {
+                int x = inStream.read();
+                if (x != -1) {
+                    inStream.unread(x);
+                    inStream.unread(b, initialPointer, (off + len) - initialPointer);
+                    return false;
+                }
+                return true;
+            }
+        }
+
+        @Override
+        protected int processBuffer(byte[] buffer, int off, int len) throws IOException {
+            for (int i = off; i < (off + len); i++) {
+                boolean needUnread0d0a = false;
+                int value = buffer[i];
+                int initialI = i;
+                if (value == 13) {
+                    if (!hasData(buffer, initialI, initialI + 1, off, len)) {
+                        return initialI - off;
+                    }
+                    value = buffer[initialI + 1];
+                    if (value != 10) {
+                        continue;
+                    } else {
+                        if (!hasData(buffer, initialI, initialI + 2, off, len)) {
+                            return initialI - off;
+                        }
+                        value = buffer[initialI + 2];
+                        if ((byte) value != boundary[0]) {
+                            i++;
+                            continue;
+                        } else {
+                            needUnread0d0a = true;
+                            i += 2;
+                        }
+                    }
+                } else if (value != boundary[0]) {
+                    continue;
+                }
+
+                int boundaryIndex = 0;
+                while ((boundaryIndex < boundary.length) && (value == boundary[boundaryIndex])) {
+                    if (!hasData(buffer, initialI, i + 1, off, len)) {
+                        return initialI - off;
+                    }
+                    value = buffer[++i];
+                    boundaryIndex++;
+                }
+                if (boundaryIndex == boundary.length) {
+                    if (initialI != off) {
+                        i = 1000000000;
+                    }
+                    if (initialI - off != 0
+                        && !hasData(buffer, initialI, i + 1, off, len)) {
+                        return initialI - off;
+                    }
+                    boundaryFound = true;
+                    int j = i + 1;
+                    if (j < len && buffer[j] == 45 && value == 45) {
+                        i += 2;
+                    }
+                    int processed = initialI - off;
+                    if ((len - ((i - off) + 2)) > 0) {
+                        inStream.unread(buffer, i + 2, len - (i + 2) + off);
+                    }
+                    return processed;
+                }
+
+                if (value != -1) {
+                    i--;
+                }
+                if (needUnread0d0a) {
+                    i = i - boundaryIndex;
+                    i--;
+                    value = 13;
+                } else {
+                    i = i - boundaryIndex;
+                    i++;
+                    value = boundary[0];
+                }
+            }
+            return len;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.service.invoker;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DirectMethodInvokerTest extends Assert {
+
+    @Test
+    public void testInvoke() throws Exception {
+        Method m = Service.class.getMethod("echo", String.class, int.class);
+        DirectMethodInvoker invoker = DirectMethodInvoker.getInvoker(m);
+        assertSame(invoker, DirectMethodInvoker.getInvoker(m));
+        assertEquals("hihi", invoker.invoke(new ServiceImpl(), new Object[] {"hi", 2}));
+    }
+
+    @Test
+    public void testInvokeStaticAndVoid() throws Exception {
+        Method m = ServiceImpl.class.getMethod("twice", long.class);
+        // the int argument needs a widening conversion which reflection takes care of
+        assertEquals(6L, DirectMethodInvoker.getInvoker(m).invoke(null, new Object[] {3}));
+        m = Service.class.getMethod("ping");
+        assertNull(DirectMethodInvoker.getInvoker(m).invoke(new ServiceImpl(), null));
+    }
+
+    @Test
+    public void testExceptionIsWrapped() throws Exception {
+        Method m = Service.class.getMethod("fail");
+        try {
+            DirectMethodInvoker.getInvoker(m).invoke(new ServiceImpl(), new Object[0]);
+            fail("InvocationTargetException expected");
+        } catch (InvocationTargetException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testArgumentMismatch() throws Exception {
+        Method m = Service.class.getMethod("echo", String.class, int.class);
+        try {
+            DirectMethodInvoker.getInvoker(m).invoke(new ServiceImpl(), new Object[] {"hi", null});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public interface Service {
+        String echo(String s, int times);
+
+        void ping();
+
+        void fail() throws IOException;
+    }
+
+    public static class ServiceImpl implements Service {
+        public String echo(String s, int times) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < times; i++) {
+                sb.append(s);
+            }
+            return sb.toString();
+        }
+
+        public void ping() {
+        }
+
+        public void fail() throws IOException {
+            throw new IOException("failed");
+        }
+
+        public static long twice(long l) {
+            return 2 * l;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.service.model;
+
+import javax.xml.namespace.QName;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BindingInfoTest extends Assert {
+    private static final String TEST_NS = "urn:test:ns";
+    private BindingInfo bindingInfo;
+    private InterfaceInfo interfaceInfo;
+
+    @Before
+    public void setUp() throws Exception {
+        ServiceInfo serviceInfo = new ServiceInfo();
+        interfaceInfo = new InterfaceInfo(serviceInfo, new QName(TEST_NS, "testInterface"));
+        bindingInfo = new BindingInfo(serviceInfo, "http://schemas.xmlsoap.org/wsdl/soap/");
+    }
+
+    @Test
+    public void testGetOperationByOperationInfo() throws Exception {
+        BindingOperationInfo first = addOperation("first");
+        BindingOperationInfo second = addOperation("second");
+        assertSame(first, bindingInfo.getOperation(first.getOperationInfo()));
+        assertSame(second, bindingInfo.getOperation(second.getOperationInfo()));
+
+        // the lookup table is dropped when the operations change
+        bindingInfo.removeOperation(first);
+        assertNull(bindingInfo.getOperation(first.getOperationInfo()));
+        BindingOperationInfo third = addOperation("third");
+        assertSame(third, bindingInfo.getOperation(third.getOperationInfo()));
+    }
+
+    @Test
+    public void testGetUnwrappedOperationByOperationInfo() throws Exception {
+        BindingOperationInfo wrapped = addOperation("wrapped");
+        assertSame(wrapped, bindingInfo.getOperation(wrapped.getOperationInfo()));
+
+        OperationInfo unwrappedInfo = new UnwrappedOperationInfo(wrapped.getOperationInfo());
+        wrapped.getOperationInfo().setUnwrappedOperation(unwrappedInfo);
+        wrapped.updateUnwrappedOperation();
+        BindingOperationInfo unwrapped = bindingInfo.getOperation(unwrappedInfo);
+        assertNotNull(unwrapped);
+        assertSame(unwrapped, wrapped.getUnwrappedOperation());
+        assertSame(wrapped, bindingInfo.getOperation(wrapped.getOperationInfo()));
+    }
+
+    @Test
+    public void testOperationIndex() throws Exception {
+        assertNull(bindingInfo.getOperationIndex("index"));
+        bindingInfo.setOperationIndex("index", "value");
+        assertEquals("value", bindingInfo.<String>getOperationIndex("index"));
+        BindingOperationInfo op = addOperation("op");
+        assertNull(bindingInfo.getOperationIndex("index"));
+
+        bindingInfo.setOperationIndex("index", "value");
+        op.setUnwrappedOperation(null);
+        assertNull(bindingInfo.getOperationIndex("index"));
+    }
+
+    private BindingOperationInfo addOperation(String name) {
+        OperationInfo operationInfo = interfaceInfo.addOperation(new QName(TEST_NS, name));
+        BindingOperationInfo boi = new BindingOperationInfo(bindingInfo, operationInfo);
+        bindingInfo.addOperation(boi);
+        return boi;
+    }
+}
@@ -39,7 +39,6 @@ import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageContentsList;
 import org.apache.cxf.phase.Phase;
-import org.apache.cxf.service.model.BindingInfo;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.service.model.MessageInfo;
@@ -63,24 +62,18 @@ public class RPCInInterceptor extends AbstractInDatabindingInterceptor {
     private BindingOperationInfo getOperation(Message message, QName opName) {
         BindingOperationInfo bop = ServiceModelUtil.getOperation(message.getExchange(), opName);
         if (bop == null) {
-            Endpoint ep = message.getExchange().get(Endpoint.class);
-            if (ep == null) {
-                return null;
-            }
-            BindingInfo service = ep.getEndpointInfo().getBinding();
             boolean output = !isRequestor(message);
-            for (BindingOperationInfo info : service.getOperations()) {
-                if (info.getName().getLocalPart().equals(opName.getLocalPart())) {
-                    SoapBody body = null;
-                    if (output) {
-                        body = info.getOutput().getExtensor(SoapBody.class);
-                    } else {
-                        body = info.getInput().getExtensor(SoapBody.class);
-                    }        
-                    if (body != null 
-                        && opName.getNamespaceURI().equals(body.getNamespaceURI())) {
-                        return info;
-                    }
+            for (BindingOperationInfo info 
+                : ServiceModelUtil.getOperations(message.getExchange(), opName.getLocalPart())) {
+                SoapBody body = null;
+                if (output) {
+                    body = info.getOutput().getExtensor(SoapBody.class);
+                } else {
+                    body = info.getInput().getExtensor(SoapBody.class);
+                }        
+                if (body != null 
+                    && opName.getNamespaceURI().equals(body.getNamespaceURI())) {
+                    return info;
                 }
             }
         }
@@ -19,9 +19,14 @@
 
 package org.apache.cxf.binding.soap.interceptor;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.apache.cxf.binding.soap.Soap11;
@@ -38,6 +43,7 @@ import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingInfo;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.OperationInfo;
 import org.apache.cxf.ws.addressing.JAXWSAConstants;
@@ -47,6 +53,7 @@ public class SoapActionInInterceptor extends AbstractSoapInterceptor {
     private static final Logger LOG = LogUtils.getL7dLogger(SoapActionInInterceptor.class);
     private static final String ALLOW_NON_MATCHING_TO_DEFAULT = "allowNonMatchingToDefaultSoapAction";
     private static final String CALCULATED_WSA_ACTION = SoapActionInInterceptor.class.getName() + ".ACTION";
+    private static final String ACTION_INDEX = SoapActionInInterceptor.class.getName() + ".ACTION_INDEX";
     
     public SoapActionInInterceptor() {
         super(Phase.READ);
@@ -126,26 +133,24 @@ public class SoapActionInInterceptor extends AbstractSoapInterceptor {
         
         BindingOperationInfo bindingOp = null;
         
-        Collection<BindingOperationInfo> bops = ep.getEndpointInfo()
-            .getBinding().getOperations();
-        if (bops != null) {
-            for (BindingOperationInfo boi : bops) {
-                if (isActionMatch(message, boi, action)) {
-                    if (bindingOp != null) {
-                        //more than one op with the same action, will need to parse normally
-                        return;
-                    }
-                    bindingOp = boi;
-                }
-                if (matchWSAAction(boi, action)) {
-                    if (bindingOp != null && bindingOp != boi) {
-                        //more than one op with the same action, will need to parse normally
-                        return;
-                    }
+        ActionIndex index = getActionIndex(ep.getEndpointInfo().getBinding());
+        Collection<BindingOperationInfo> bops = index.getOperations(action);
+        if (bops.size() == 1) {
+            bindingOp = bops.iterator().next();
+        }
+        int matches = bops.size();
+        if (!index.defaultActionOperations.isEmpty() && isDefaultActionMatch(message)) {
+            for (BindingOperationInfo boi : index.defaultActionOperations) {
+                if (!bops.contains(boi)) {
                     bindingOp = boi;
+                    matches++;
                 }
             }
         }
+        if (matches > 1) {
+            //more than one op with the same action, will need to parse normally
+            return;
+        }
         
         if (bindingOp == null) {
             if (strict) {
@@ -250,12 +255,77 @@ public class SoapActionInInterceptor extends AbstractSoapInterceptor {
         if (soi == null) {
             return false;
         }
-        boolean allowNoMatchingToDefault = MessageUtils.getContextualBoolean(message,
-                                                                    ALLOW_NON_MATCHING_TO_DEFAULT,
-                                                                    false);
         return action.equals(soi.getAction())
-               || (allowNoMatchingToDefault && StringUtils.isEmpty(soi.getAction())
-               || (message.getVersion() instanceof Soap12) && StringUtils.isEmpty(soi.getAction()));
+               || StringUtils.isEmpty(soi.getAction()) && isDefaultActionMatch(message);
+    }
+
+    /**
+     * Whether an operation that declares no soapAction matches any action sent by the client.
+     */
+    private static boolean isDefaultActionMatch(SoapMessage message) {
+        return message.getVersion() instanceof Soap12
+            || MessageUtils.getContextualBoolean(message, ALLOW_NON_MATCHING_TO_DEFAULT, false);
+    }
+
+    private static ActionIndex getActionIndex(BindingInfo binding) {
+        ActionIndex index = binding.getOperationIndex(ACTION_INDEX);
+        if (index == null) {
+            index = new ActionIndex(binding.getOperations());
+            binding.setOperationIndex(ACTION_INDEX, index);
+        }
+        return index;
+    }
+
+    /**
+     * Maps each SOAPAction and WS-Addressing action of a binding to the operations it selects,
+     * so the operation can be found without visiting every operation of the binding.
+     */
+    private static final class ActionIndex {
+        final Map<String, Set<BindingOperationInfo>> operations 
+            = new HashMap<String, Set<BindingOperationInfo>>();
+        final List<BindingOperationInfo> defaultActionOperations = new ArrayList<BindingOperationInfo>();
+
+        ActionIndex(Collection<BindingOperationInfo> bops) {
+            for (BindingOperationInfo boi : bops) {
+                SoapOperationInfo soi = boi.getExtensor(SoapOperationInfo.class);
+                if (soi != null) {
+                    if (StringUtils.isEmpty(soi.getAction())) {
+                        defaultActionOperations.add(boi);
+                    } else {
+                        add(soi.getAction(), boi);
+                    }
+                }
+                if (boi.getOperationInfo().getInput() == null) {
+                    continue;
+                }
+                String wsaAction = getWSAAction(boi);
+                if (wsaAction != null) {
+                    // same variants as matchWSAAction
+                    add(wsaAction, boi);
+                    add(wsaAction + "Request", boi);
+                    if (wsaAction.endsWith("Request")) {
+                        add(wsaAction.substring(0, wsaAction.length() - 7), boi);
+                    }
+                }
+            }
+        }
+
+        private void add(String action, BindingOperationInfo boi) {
+            Set<BindingOperationInfo> set = operations.get(action);
+            if (set == null) {
+                set = new LinkedHashSet<BindingOperationInfo>(2);
+                operations.put(action, set);
+            }
+            set.add(boi);
+        }
+
+        Collection<BindingOperationInfo> getOperations(String action) {
+            Set<BindingOperationInfo> set = operations.get(action);
+            if (set == null) {
+                return Collections.emptySet();
+            }
+            return set;
+        }
     }
 
 }
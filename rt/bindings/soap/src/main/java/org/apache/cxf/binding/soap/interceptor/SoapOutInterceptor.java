@@ -21,10 +21,15 @@ package org.apache.cxf.binding.soap.interceptor;
 
 
 import java.io.EOFException;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
@@ -48,6 +53,7 @@ import org.apache.cxf.headers.HeaderManager;
 import org.apache.cxf.headers.HeaderProcessor;
 import org.apache.cxf.helpers.ServiceUtils;
 import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.StaxOutInterceptor;
 import org.apache.cxf.io.WriteOnCloseOutputStream;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
@@ -68,6 +74,9 @@ public class SoapOutInterceptor extends AbstractSoapInterceptor {
     public static final String WROTE_ENVELOPE_START = "wrote.envelope.start";
     
     private static final ResourceBundle BUNDLE = BundleUtils.getBundle(SoapOutInterceptor.class);
+    private static final String ENVELOPE_TEMPLATE = SoapOutInterceptor.class.getName() + ".envelopeTemplate";
+    private static final ConcurrentMap<String, EnvelopeTemplate> TEMPLATES
+        = new ConcurrentHashMap<String, EnvelopeTemplate>();
     
     private Bus bus;
     
@@ -84,20 +93,117 @@ public class SoapOutInterceptor extends AbstractSoapInterceptor {
         // Yes this is ugly, but it avoids us from having to implement any kind of caching strategy
         boolean wroteStart = MessageUtils.isTrue(message.get(WROTE_ENVELOPE_START));
         if (!wroteStart) {
-            writeSoapEnvelopeStart(message);
-            
             OutputStream os = message.getContent(OutputStream.class);
+            message.remove(ENVELOPE_TEMPLATE);
+            if (!writeSoapEnvelopeTemplate(message, os)) {
+                writeSoapEnvelopeStart(message);
+            }
+            
             // Unless we're caching the whole message in memory skip the envelope writing
             // if there's a fault later.
             if (!(os instanceof WriteOnCloseOutputStream) && !MessageUtils.isDOMPresent(message)) {
                 message.put(WROTE_ENVELOPE_START, Boolean.TRUE);
             }
+        } else if (message.get(ENVELOPE_TEMPLATE) != null && message.getContent(Exception.class) != null) {
+            startFaultWriter(message);
         }
 
         // Add a final interceptor to write end elements
         message.getInterceptorChain().add(new SoapOutEndingInterceptor());
     }
     
+    /**
+     * Writes the envelope and body start tags as pre-encoded bytes if nothing in
+     * front of the body content depends on the message: no headers, no extra
+     * envelope namespaces and a single element in the body. The XMLStreamWriter
+     * has to write straight into the OutputStream, so anything that replaced it
+     * (SAAJ, caching for validation, ...) makes us fall back to the writer.
+     */
+    private boolean writeSoapEnvelopeTemplate(SoapMessage message, OutputStream os) {
+        XMLStreamWriter xtw = message.getContent(XMLStreamWriter.class);
+        if (os == null || xtw == null || message.get(StaxOutInterceptor.DIRECT_WRITER) != xtw
+            || message.hasHeaders() || message.hasAdditionalEnvNs()
+            || message.getContent(Exception.class) != null || !hasSingleBodyElement(message)) {
+            return false;
+        }
+        SoapVersion soapVersion = message.getVersion();
+        EnvelopeTemplate template = getEnvelopeTemplate(soapVersion, (String)message.get(Message.ENCODING));
+        try {
+            if (template == null || !StringUtils.isEmpty(xtw.getPrefix(soapVersion.getNamespace()))) {
+                return false;
+            }
+            xtw.flush();
+            os.write(template.start);
+        } catch (XMLStreamException e) {
+            throw new SoapFault(
+                new org.apache.cxf.common.i18n.Message("XML_WRITE_EXC", BUNDLE), e, soapVersion.getSender());
+        } catch (IOException e) {
+            throw new SoapFault(
+                new org.apache.cxf.common.i18n.Message("XML_WRITE_EXC", BUNDLE), e, soapVersion.getSender());
+        }
+        message.put(ENVELOPE_TEMPLATE, template);
+        return true;
+    }
+
+    /**
+     * A fault is written to a message whose envelope start came from the template.
+     * The writer never saw the envelope, so it can't take the fault next to the body
+     * content it already wrote. Close that content and let a new writer on the same
+     * OutputStream write the fault; the template still supplies the end tags.
+     */
+    private void startFaultWriter(SoapMessage message) {
+        XMLStreamWriter xtw = message.getContent(XMLStreamWriter.class);
+        OutputStream os = message.getContent(OutputStream.class);
+        if (xtw == null || os == null) {
+            message.remove(ENVELOPE_TEMPLATE);
+            return;
+        }
+        try {
+            xtw.writeEndDocument();
+            xtw.flush();
+        } catch (XMLStreamException e) {
+            throw new SoapFault(new org.apache.cxf.common.i18n.Message("XML_WRITE_EXC", BUNDLE), e,
+                                message.getVersion().getSender());
+        }
+        XMLStreamWriter faultWriter = StaxUtils.createXMLStreamWriter(os, (String)message.get(Message.ENCODING));
+        message.setContent(XMLStreamWriter.class, faultWriter);
+        message.put(StaxOutInterceptor.DIRECT_WRITER, faultWriter);
+    }
+
+    private boolean hasSingleBodyElement(SoapMessage message) {
+        BindingOperationInfo bop = (BindingOperationInfo)message.getExchange()
+            .get(BindingOperationInfo.class.getName());
+        if (bop == null) {
+            return false;
+        }
+        // an unwrapped operation is written inside its wrapper element
+        BindingOperationInfo op = bop.isUnwrapped() ? bop.getWrappedOperation() : bop;
+        BindingMessageInfo bmi = isRequestor(message) ? op.getInput() : op.getOutput();
+        if (bmi == null) {
+            return false;
+        }
+        List<SoapHeaderInfo> headers = bmi.getExtensors(SoapHeaderInfo.class);
+        return (headers == null || headers.isEmpty()) && bmi.getMessageParts().size() <= 1;
+    }
+
+    private static EnvelopeTemplate getEnvelopeTemplate(SoapVersion soapVersion, String encoding) {
+        String enc = encoding == null ? "UTF-8" : encoding;
+        String key = soapVersion.getNamespace() + ' ' + enc;
+        EnvelopeTemplate template = TEMPLATES.get(key);
+        if (template == null) {
+            try {
+                if (!Charset.isSupported(enc)) {
+                    return null;
+                }
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            template = new EnvelopeTemplate(soapVersion, Charset.forName(enc));
+            TEMPLATES.putIfAbsent(key, template);
+        }
+        return template.start == null ? null : template;
+    }
+
     private void writeSoapEnvelopeStart(final SoapMessage message) {
         final SoapVersion soapVersion = message.getVersion();
         try {            
@@ -296,7 +402,13 @@ public class SoapOutInterceptor extends AbstractSoapInterceptor {
         public void handleMessage(SoapMessage message) throws Fault {
             try {
                 XMLStreamWriter xtw = message.getContent(XMLStreamWriter.class);
-                if (xtw != null) {
+                EnvelopeTemplate template = (EnvelopeTemplate)message.get(ENVELOPE_TEMPLATE);
+                if (xtw != null && template != null) {
+                    // the writer never saw the envelope, so write its end tags the same way
+                    xtw.writeEndDocument();
+                    xtw.flush();
+                    message.getContent(OutputStream.class).write(template.end);
+                } else if (xtw != null) {
                     // Write body end
                     xtw.writeEndElement();            
                     // Write Envelope end element
@@ -305,6 +417,10 @@ public class SoapOutInterceptor extends AbstractSoapInterceptor {
                     
                     xtw.flush();
                 }
+            } catch (IOException e) {
+                SoapVersion soapVersion = message.getVersion();
+                throw new SoapFault(new org.apache.cxf.common.i18n.Message("XML_WRITE_EXC", BUNDLE), e,
+                                    soapVersion.getSender());
             } catch (XMLStreamException e) {
                 if (e.getCause() instanceof EOFException) {
                     //Nothing we can do about this, some clients will close the connection early if 
@@ -318,6 +434,39 @@ public class SoapOutInterceptor extends AbstractSoapInterceptor {
         }
     }
     
+    /**
+     * The envelope and body tags of a message without headers, encoded once per
+     * SOAP version and character encoding. Only encodings that write these tags
+     * as plain ASCII get a template: the bytes have to match what the writer would
+     * produce, and UTF-16 or UTF-32 would also start every array with a BOM.
+     * For any other encoding start and end are null.
+     */
+    private static final class EnvelopeTemplate {
+        private static final Charset ASCII = Charset.forName("US-ASCII");
+
+        final byte[] start;
+        final byte[] end;
+
+        EnvelopeTemplate(SoapVersion soapVersion, Charset charset) {
+            String ns = soapVersion.getNamespace();
+            String envelope = "soap:" + soapVersion.getEnvelope().getLocalPart();
+            String body = "soap:" + soapVersion.getBody().getLocalPart();
+            String startTags = "<" + envelope + " xmlns:soap=\"" + ns + "\"><" + body + ">";
+            String endTags = "</" + body + "></" + envelope + ">";
+            if (isAsciiCompatible(charset, startTags + endTags)) {
+                start = startTags.getBytes(ASCII);
+                end = endTags.getBytes(ASCII);
+            } else {
+                start = null;
+                end = null;
+            }
+        }
+
+        private static boolean isAsciiCompatible(Charset charset, String tags) {
+            return Arrays.equals(tags.getBytes(ASCII), tags.getBytes(charset));
+        }
+    }
+
     public static class SOAPHeaderWriter extends DelegatingXMLStreamWriter {
         final SoapHeader soapHeader;
         final SoapVersion soapVersion;
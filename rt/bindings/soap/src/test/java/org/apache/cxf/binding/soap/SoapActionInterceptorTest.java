@@ -19,25 +19,40 @@
 
 package org.apache.cxf.binding.soap;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import javax.xml.namespace.QName;
 
+import org.apache.cxf.binding.soap.interceptor.SoapActionInInterceptor;
 import org.apache.cxf.binding.soap.interceptor.SoapPreProtocolOutInterceptor;
 import org.apache.cxf.binding.soap.model.SoapOperationInfo;
+import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.service.model.BindingInfo;
 import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.service.model.InterfaceInfo;
+import org.apache.cxf.service.model.MessageInfo;
+import org.apache.cxf.service.model.OperationInfo;
 import org.apache.cxf.service.model.ServiceInfo;
+import org.apache.cxf.ws.addressing.JAXWSAConstants;
+import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class SoapActionInterceptorTest extends Assert {
+    private static final String NS = "http://apache.org/hello_world_soap_http";
 
     
     @Test
@@ -80,6 +95,140 @@ public class SoapActionInterceptorTest extends Assert {
         assertEquals("application/soap+xml; action=\"foo\"", ct);
     }
 
+    @Test
+    public void testOperationBySoapAction() throws Exception {
+        BindingInfo binding = createBinding();
+        BindingOperationInfo sayHi = addOperation(binding, "sayHi", "urn:sayHi");
+        BindingOperationInfo greetMe = addOperation(binding, "greetMe", "urn:greetMe");
+
+        assertSame(greetMe, getOperation(binding, Soap11.getInstance(), "urn:greetMe"));
+        assertSame(sayHi, getOperation(binding, Soap11.getInstance(), "urn:sayHi"));
+        assertNull(getOperation(binding, Soap11.getInstance(), "urn:unknown"));
+
+        // the index follows operations added to the binding later on
+        addOperation(binding, "greetMeAgain", "urn:greetMe");
+        assertNull(getOperation(binding, Soap11.getInstance(), "urn:greetMe"));
+        assertSame(sayHi, getOperation(binding, Soap11.getInstance(), "urn:sayHi"));
+    }
+
+    @Test
+    public void testAmbiguousSoapAction() throws Exception {
+        BindingInfo binding = createBinding();
+        addOperation(binding, "sayHi", "urn:hello");
+        addOperation(binding, "greetMe", "urn:hello");
+
+        SoapMessage message = createMessage(binding, Soap11.getInstance());
+        SoapActionInInterceptor.getAndSetOperation(message, "urn:hello");
+        assertNull(message.getExchange().getBindingOperationInfo());
+        // left to the body to decide, so no second check of the action is needed
+        assertFalse(hasAttemptTwo(message));
+    }
+
+    @Test
+    public void testUnknownSoapActionChecksAgainLater() throws Exception {
+        BindingInfo binding = createBinding();
+        addOperation(binding, "sayHi", "urn:sayHi");
+
+        SoapMessage message = createMessage(binding, Soap11.getInstance());
+        SoapActionInInterceptor.getAndSetOperation(message, "urn:unknown");
+        assertNull(message.getExchange().getBindingOperationInfo());
+        assertTrue(hasAttemptTwo(message));
+
+        message = createMessage(binding, Soap11.getInstance());
+        SoapActionInInterceptor.getAndSetOperation(message, "urn:unknown", false);
+        assertFalse(hasAttemptTwo(message));
+    }
+
+    @Test
+    public void testOperationByWSAAction() throws Exception {
+        BindingInfo binding = createBinding();
+        BindingOperationInfo sayHi = addOperation(binding, "sayHi", null);
+        sayHi.getOperationInfo().getInput().addExtensionAttribute(JAXWSAConstants.WSAM_ACTION_QNAME,
+                                                                  "urn:sayHiAction");
+        BindingOperationInfo greetMe = addOperation(binding, "greetMe", null);
+
+        assertSame(sayHi, getOperation(binding, Soap11.getInstance(), "urn:sayHiAction"));
+        assertSame(sayHi, getOperation(binding, Soap11.getInstance(), "urn:sayHiActionRequest"));
+        // the default WS-Addressing action is the namespace, port type and input name
+        assertSame(greetMe, getOperation(binding, Soap11.getInstance(), NS + "/Greeter/greetMeRequest"));
+    }
+
+    @Test
+    public void testDefaultSoapAction() throws Exception {
+        BindingInfo binding = createBinding();
+        BindingOperationInfo sayHi = addOperation(binding, "sayHi", "");
+
+        // SOAP 1.1 only falls back to an operation without soapAction when configured to
+        assertNull(getOperation(binding, Soap11.getInstance(), "urn:anything"));
+        SoapMessage message = createMessage(binding, Soap11.getInstance());
+        message.put("allowNonMatchingToDefaultSoapAction", Boolean.TRUE);
+        SoapActionInInterceptor.getAndSetOperation(message, "urn:anything");
+        assertSame(sayHi, message.getExchange().getBindingOperationInfo());
+
+        // SOAP 1.2 always does
+        assertSame(sayHi, getOperation(binding, Soap12.getInstance(), "urn:anything"));
+
+        // but an operation that declares the action makes it ambiguous
+        BindingOperationInfo greetMe = addOperation(binding, "greetMe", "urn:greetMe");
+        assertNull(getOperation(binding, Soap12.getInstance(), "urn:greetMe"));
+        assertSame(greetMe, getOperation(binding, Soap11.getInstance(), "urn:greetMe"));
+    }
+
+    private BindingInfo createBinding() {
+        ServiceInfo s = new ServiceInfo();
+        InterfaceInfo ii = s.createInterface(new QName(NS, "Greeter"));
+        s.setInterface(ii);
+        return new BindingInfo(s, "http://schemas.xmlsoap.org/wsdl/soap/");
+    }
+
+    private BindingOperationInfo addOperation(BindingInfo binding, String name, String action) {
+        OperationInfo op = binding.getInterface().addOperation(new QName(NS, name));
+        MessageInfo input = op.createMessage(new QName(NS, name + "Request"), MessageInfo.Type.INPUT);
+        op.setInput(name + "Request", input);
+        BindingOperationInfo bop = binding.buildOperation(op.getName(), name + "Request", null);
+        if (action != null) {
+            SoapOperationInfo soapInfo = new SoapOperationInfo();
+            soapInfo.setAction(action);
+            bop.addExtensor(soapInfo);
+        }
+        binding.addOperation(bop);
+        return bop;
+    }
+
+    private BindingOperationInfo getOperation(BindingInfo binding, SoapVersion version, String action) {
+        SoapMessage message = createMessage(binding, version);
+        SoapActionInInterceptor.getAndSetOperation(message, action);
+        return message.getExchange().getBindingOperationInfo();
+    }
+
+    private SoapMessage createMessage(BindingInfo binding, SoapVersion version) {
+        EndpointInfo endpointInfo = new EndpointInfo(binding.getService(), "");
+        endpointInfo.setBinding(binding);
+        Endpoint endpoint = EasyMock.createNiceMock(Endpoint.class);
+        EasyMock.expect(endpoint.getEndpointInfo()).andReturn(endpointInfo).anyTimes();
+        EasyMock.replay(endpoint);
+
+        Exchange exchange = new ExchangeImpl();
+        exchange.put(Endpoint.class, endpoint);
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        message.setVersion(version);
+        message.setExchange(exchange);
+        SortedSet<Phase> phases = new TreeSet<Phase>();
+        phases.add(new Phase(Phase.PRE_LOGICAL, 1));
+        message.setInterceptorChain(new PhaseInterceptorChain(phases));
+        return message;
+    }
+
+    private boolean hasAttemptTwo(SoapMessage message) {
+        Iterator<Interceptor<? extends Message>> it = message.getInterceptorChain().iterator();
+        while (it.hasNext()) {
+            if (it.next() instanceof SoapActionInInterceptor.SoapActionInAttemptTwoInterceptor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private BindingOperationInfo createBindingOperation() {
         ServiceInfo s = new ServiceInfo();
         InterfaceInfo ii = s.createInterface(new QName("FooInterface"));
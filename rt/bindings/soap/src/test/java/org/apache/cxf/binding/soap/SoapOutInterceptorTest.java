@@ -24,15 +24,39 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.w3c.dom.Element;
+
 import org.apache.cxf.BusFactory;
+import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
 import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.binding.soap.interceptor.Soap11FaultOutInterceptor;
 import org.apache.cxf.binding.soap.interceptor.SoapOutInterceptor;
 import org.apache.cxf.binding.soap.interceptor.StartBodyInterceptor;
+import org.apache.cxf.headers.Header;
+import org.apache.cxf.helpers.DOMUtils;
+import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.StaxInInterceptor;
+import org.apache.cxf.interceptor.StaxOutInterceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.service.model.BindingInfo;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.InterfaceInfo;
+import org.apache.cxf.service.model.MessageInfo;
+import org.apache.cxf.service.model.OperationInfo;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.apache.cxf.staxutils.DelegatingXMLStreamWriter;
 import org.apache.cxf.staxutils.StaxUtils;
 import org.junit.Before;
 import org.junit.Test;
@@ -101,6 +125,163 @@ public class SoapOutInterceptorTest extends TestBase {
         assertInputStream(xmlReader, Soap12.getInstance());
     }
 
+    @Test
+    public void testEnvelopeTemplate() throws Exception {
+        doTestEnvelopeTemplate(Soap11.getInstance());
+        doTestEnvelopeTemplate(Soap12.getInstance());
+    }
+
+    private void doTestEnvelopeTemplate(SoapVersion version) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingWriter writer = new RecordingWriter(StaxUtils.createXMLStreamWriter(out));
+        prepareTemplateMessage(version, out, writer, writer);
+
+        soapMessage.getInterceptorChain().doIntercept(soapMessage);
+        assertNull(soapMessage.getContent(Exception.class));
+
+        assertEquals("<soap:Envelope xmlns:soap=\"" + version.getNamespace() + "\"><soap:Body>"
+                     + "<ns:greetMeResponse xmlns:ns=\"urn:test\">hello</ns:greetMeResponse>"
+                     + "</soap:Body></soap:Envelope>", out.toString("UTF-8"));
+        assertFalse(writer.started.contains("Envelope"));
+    }
+
+    @Test
+    public void testEnvelopeTemplateNotUsedWithHeaders() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingWriter writer = new RecordingWriter(StaxUtils.createXMLStreamWriter(out));
+        prepareTemplateMessage(Soap11.getInstance(), out, writer, writer);
+        Element token = DOMUtils.createDocument().createElementNS("urn:test", "token");
+        token.setTextContent("abc");
+        soapMessage.getHeaders().add(new Header(new QName("urn:test", "token"), token));
+
+        soapMessage.getInterceptorChain().doIntercept(soapMessage);
+        assertNull(soapMessage.getContent(Exception.class));
+
+        assertTrue(writer.started.contains("Envelope"));
+        Element envelope = StaxUtils.read(new ByteArrayInputStream(out.toByteArray())).getDocumentElement();
+        Element header = DOMUtils.getFirstElement(envelope);
+        assertEquals(Soap11.getInstance().getHeader().getLocalPart(), header.getLocalName());
+        assertEquals("token", DOMUtils.getFirstElement(header).getLocalName());
+        Element body = DOMUtils.getNextElement(header);
+        assertEquals("greetMeResponse", DOMUtils.getFirstElement(body).getLocalName());
+    }
+
+    @Test
+    public void testEnvelopeTemplateNotUsedWithWrappedWriter() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XMLStreamWriter direct = StaxUtils.createXMLStreamWriter(out);
+        RecordingWriter writer = new RecordingWriter(direct);
+        prepareTemplateMessage(Soap12.getInstance(), out, writer, direct);
+
+        soapMessage.getInterceptorChain().doIntercept(soapMessage);
+        assertNull(soapMessage.getContent(Exception.class));
+
+        assertTrue(writer.started.contains("Envelope"));
+        Element envelope = StaxUtils.read(new ByteArrayInputStream(out.toByteArray())).getDocumentElement();
+        assertEquals(Soap12.getInstance().getEnvelope().getLocalPart(), envelope.getLocalName());
+        Element body = DOMUtils.getFirstElement(envelope);
+        assertEquals("greetMeResponse", DOMUtils.getFirstElement(body).getLocalName());
+    }
+
+    @Test
+    public void testEnvelopeTemplateNotUsedForUtf16() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingWriter writer = new RecordingWriter(StaxUtils.createXMLStreamWriter(out, "UTF-16"));
+        prepareTemplateMessage(Soap11.getInstance(), out, writer, writer);
+        soapMessage.put(Message.ENCODING, "UTF-16");
+
+        soapMessage.getInterceptorChain().doIntercept(soapMessage);
+        assertNull(soapMessage.getContent(Exception.class));
+
+        assertTrue(writer.started.contains("Envelope"));
+        assertTrue(out.toString("UTF-16").startsWith("<soap:Envelope"));
+    }
+
+    @Test
+    public void testFaultAfterEnvelopeTemplate() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingWriter writer = new RecordingWriter(StaxUtils.createXMLStreamWriter(out));
+        prepareTemplateMessage(Soap11.getInstance(), out, writer, writer);
+        // fail once the body content has been written, before the end tags
+        chain.add(new AbstractSoapInterceptor("phase3") {
+            {
+                addAfter("payload");
+            }
+            public void handleMessage(SoapMessage message) throws Fault {
+                throw new Fault(new IllegalStateException("after the body"));
+            }
+        });
+
+        assertFalse(soapMessage.getInterceptorChain().doIntercept(soapMessage));
+        assertFalse(writer.started.contains("Envelope"));
+
+        // run the fault chain on the same message, as the fault observer does
+        SortedSet<Phase> phases = new TreeSet<Phase>();
+        phases.add(new Phase(Phase.PREPARE_SEND, 1));
+        phases.add(new Phase("phase3", 2));
+        phases.add(new Phase(Phase.MARSHAL, 3));
+        phases.add(new Phase(Phase.WRITE_ENDING, 4));
+        PhaseInterceptorChain faultChain = new PhaseInterceptorChain(phases);
+        faultChain.add(new Soap11FaultOutInterceptor());
+        faultChain.add(new SoapOutInterceptor(BusFactory.getDefaultBus(), "phase3"));
+        soapMessage.setInterceptorChain(faultChain);
+        assertTrue(faultChain.doIntercept(soapMessage));
+
+        Element envelope = StaxUtils.read(new ByteArrayInputStream(out.toByteArray())).getDocumentElement();
+        Element body = DOMUtils.getFirstElement(envelope);
+        assertEquals(Soap11.getInstance().getBody().getLocalPart(), body.getLocalName());
+        Element response = DOMUtils.getFirstElement(body);
+        assertEquals("greetMeResponse", response.getLocalName());
+        Element fault = DOMUtils.getNextElement(response);
+        assertEquals("Fault", fault.getLocalName());
+        assertEquals(Soap11.getInstance().getNamespace(), fault.getNamespaceURI());
+        assertNull(DOMUtils.getNextElement(fault));
+    }
+
+    private void prepareTemplateMessage(SoapVersion version, OutputStream out,
+                                        XMLStreamWriter writer, XMLStreamWriter directWriter) {
+        // only the outbound side, the inbound interceptors of setUp need an InputStream
+        SortedSet<Phase> phases = new TreeSet<Phase>();
+        phases.add(new Phase("phase3", 3));
+        phases.add(new Phase(Phase.WRITE_ENDING, 4));
+        chain = new PhaseInterceptorChain(phases);
+        chain.add(new SoapOutInterceptor(BusFactory.getDefaultBus(), "phase3"));
+        chain.add(new AbstractSoapInterceptor("payload", "phase3") {
+            {
+                addAfter(SoapOutInterceptor.class.getName());
+            }
+            public void handleMessage(SoapMessage message) throws Fault {
+                try {
+                    XMLStreamWriter w = message.getContent(XMLStreamWriter.class);
+                    w.writeStartElement("ns", "greetMeResponse", "urn:test");
+                    w.writeNamespace("ns", "urn:test");
+                    w.writeCharacters("hello");
+                    w.writeEndElement();
+                } catch (XMLStreamException e) {
+                    throw new Fault(e);
+                }
+            }
+        });
+        soapMessage = TestUtil.createEmptySoapMessage(version, chain);
+        soapMessage.getExchange().put(BindingOperationInfo.class, createOperation());
+        soapMessage.put(Message.ENCODING, "UTF-8");
+        soapMessage.setContent(OutputStream.class, out);
+        soapMessage.setContent(XMLStreamWriter.class, writer);
+        soapMessage.put(StaxOutInterceptor.DIRECT_WRITER, directWriter);
+    }
+
+    private BindingOperationInfo createOperation() {
+        QName opName = new QName("urn:test", "greetMe");
+        ServiceInfo si = new ServiceInfo();
+        InterfaceInfo ii = new InterfaceInfo(si, new QName("urn:test", "Greeter"));
+        OperationInfo op = ii.addOperation(opName);
+        MessageInfo out = op.createMessage(new QName("urn:test", "greetMeResponse"), MessageInfo.Type.OUTPUT);
+        out.addMessagePart("out");
+        op.setOutput("greetMeResponse", out);
+        BindingInfo bi = new BindingInfo(si, "http://schemas.xmlsoap.org/soap/");
+        return bi.buildOperation(opName, null, "greetMeResponse");
+    }
+
     private void assertInputStream(XMLStreamReader xmlReader, SoapVersion version) throws Exception {
         assertEquals(XMLStreamReader.START_ELEMENT, xmlReader.nextTag());
         assertEquals(version.getEnvelope(), xmlReader.getName());
@@ -129,4 +310,17 @@ public class SoapOutInterceptorTest extends TestBase {
         soapMessage.setContent(InputStream.class, getClass().getResourceAsStream(payloadFileName));
     }
 
+
+    private static class RecordingWriter extends DelegatingXMLStreamWriter {
+        final List<String> started = new ArrayList<String>();
+
+        RecordingWriter(XMLStreamWriter writer) {
+            super(writer);
+        }
+
+        public void writeStartElement(String prefix, String local, String ns) throws XMLStreamException {
+            started.add(local);
+            super.writeStartElement(prefix, local, ns);
+        }
+    }
 }
@@ -47,6 +47,7 @@ import org.apache.cxf.common.classloader.ClassLoaderUtils;
 import org.apache.cxf.common.xmlschema.XmlSchemaUtils;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.service.invoker.DirectMethodInvoker;
 import org.apache.ws.commons.schema.XmlSchema;
 import org.apache.ws.commons.schema.XmlSchemaAny;
 import org.apache.ws.commons.schema.XmlSchemaAnyAttribute;
@@ -68,6 +69,8 @@ import org.apache.ws.commons.schema.XmlSchemaSequence;
  * 'info' field.
  */
 public class BeanType extends AegisType {
+    private static final Object[] NO_ARGS = new Object[0];
+
     private BeanTypeInfo info;
 
     private boolean isInterface;
@@ -284,7 +287,7 @@ public class BeanType extends AegisType {
                 }
                 if (m == null && property instanceof List) {
                     m = desc.getReadMethod();
-                    List<Object> l = CastUtils.cast((List<?>)m.invoke(object));
+                    List<Object> l = CastUtils.cast((List<?>)invoke(m, object, NO_ARGS));
                     List<Object> p = CastUtils.cast((List<?>)property);
                     l.addAll(p);
                     return;
@@ -297,7 +300,7 @@ public class BeanType extends AegisType {
 
             Class<?> propertyType = desc.getPropertyType();
             if ((property == null && !propertyType.isPrimitive()) || (property != null)) {
-                m.invoke(object, new Object[] {
+                invoke(m, object, new Object[] {
                     property
                 });
             }
@@ -457,12 +460,20 @@ public class BeanType extends AegisType {
                                                + object.getClass().getName());
             }
 
-            return m.invoke(object, new Object[0]);
+            return invoke(m, object, NO_ARGS);
         } catch (Exception e) {
             throw new DatabindingException("Couldn't get property " + name + " from bean " + object, e);
         }
     }
 
+    private static Object invoke(Method m, Object object, Object[] args) throws Exception {
+        if (!Modifier.isPublic(m.getDeclaringClass().getModifiers())) {
+            // the access to the accessors of a non-public bean class is checked against this class
+            return m.invoke(object, args);
+        }
+        return DirectMethodInvoker.getInvoker(m).invoke(object, args);
+    }
+
     private AegisType getType(BeanTypeInfo inf, QName name) {
         AegisType type = inf.getType(name);
 
@@ -31,6 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.namespace.QName;
 
@@ -44,6 +45,7 @@ public class BeanTypeInfo {
     private Map<QName, QName> mappedName2typeName = new HashMap<QName, QName>();
     private Map<QName, String> mappedName2pdName = new HashMap<QName, String>();
     private Map<QName, AegisType> mappedName2type = new HashMap<QName, AegisType>();
+    private Map<QName, PropertyDescriptor> mappedName2pd = new ConcurrentHashMap<QName, PropertyDescriptor>();
     private Class<?> beanClass;
     private List<QName> attributes = new ArrayList<QName>();
     private List<QName> elements = new ArrayList<QName>();
@@ -248,11 +250,13 @@ public class BeanTypeInfo {
 
     public void mapAttribute(String property, QName mappedName) {
         mappedName2pdName.put(mappedName, property);
+        mappedName2pd.remove(mappedName);
         attributes.add(mappedName);
     }
 
     public void mapElement(String property, QName mappedName) {
         mappedName2pdName.put(mappedName, property);
+        mappedName2pd.remove(mappedName);
         elements.add(mappedName);
     }
 
@@ -361,7 +365,15 @@ public class BeanTypeInfo {
     }
 
     public PropertyDescriptor getPropertyDescriptorFromMappedName(QName name) {
-        return getPropertyDescriptor(getPropertyNameFromMappedName(name));
+        // looked up for every property of every bean read or written, so avoid the linear search
+        PropertyDescriptor pd = mappedName2pd.get(name);
+        if (pd == null) {
+            pd = getPropertyDescriptor(getPropertyNameFromMappedName(name));
+            if (pd != null) {
+                mappedName2pd.put(name, pd);
+            }
+        }
+        return pd;
     }
 
     protected boolean isAttribute(PropertyDescriptor desc) {
@@ -170,6 +170,42 @@ public class BeanTest extends AbstractAegisTest {
         assertValid("/b:root/b:howdycustom[text()='howdy']", element);
     }
 
+    @Test
+    public void testNonPublicBeanRoundTrip() throws Exception {
+        defaultContext();
+        String ns = "urn:Bean";
+        BeanTypeInfo info = new BeanTypeInfo(NonPublicBean.class, ns, false);
+        QName fullName = new QName(ns, "fullName");
+        info.mapElement("name", fullName);
+        info.mapElement("inherited", new QName(ns, "inherited"));
+        info.setTypeMapping(mapping);
+
+        assertEquals("name", info.getPropertyDescriptorFromMappedName(fullName).getName());
+        assertNull(info.getPropertyDescriptorFromMappedName(new QName(ns, "name")));
+
+        BeanType type = new BeanType(info);
+        type.setTypeClass(NonPublicBean.class);
+        type.setTypeMapping(mapping);
+        type.setSchemaType(new QName(ns, "bean"));
+
+        NonPublicBean bean = new NonPublicBean();
+        bean.setName("Aegis");
+        bean.setInherited("base");
+        Element element = writeObjectToElement(type, bean, getContext());
+        assertValid("/b:root/b:fullName[text()='Aegis']", element);
+        assertValid("/b:root/b:inherited[text()='base']", element);
+        assertInvalid("/b:root/b:name", element);
+
+        XMLStreamReader sreader = StaxUtils.createXMLStreamReader(element);
+        NonPublicBean read = (NonPublicBean)type.readObject(new ElementReader(sreader), getContext());
+        assertEquals("Aegis", read.getName());
+        assertEquals("base", read.getInherited());
+        // the cached descriptor lookup follows a remapped name
+        QName otherName = new QName(ns, "otherName");
+        info.mapElement("inherited", otherName);
+        assertEquals("inherited", info.getPropertyDescriptorFromMappedName(otherName).getName());
+    }
+
     @Test
     public void testAttributeMap() throws Exception {
         defaultContext();
@@ -746,6 +782,30 @@ public class BeanTest extends AbstractAegisTest {
         }
     }
 
+    static class NonPublicBase {
+        private String inherited;
+
+        public String getInherited() {
+            return inherited;
+        }
+
+        public void setInherited(String inherited) {
+            this.inherited = inherited;
+        }
+    }
+
+    static class NonPublicBean extends NonPublicBase {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
     public static class ExtendedBean extends SimpleBean {
         private String howdy;
 
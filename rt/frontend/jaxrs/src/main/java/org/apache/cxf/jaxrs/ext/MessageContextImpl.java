@@ -24,6 +24,7 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,7 @@ import org.apache.cxf.interceptor.AttachmentOutInterceptor;
 import org.apache.cxf.io.CacheSizeExceededException;
 import org.apache.cxf.jaxrs.ext.multipart.Attachment;
 import org.apache.cxf.jaxrs.ext.multipart.MultipartBody;
+import org.apache.cxf.jaxrs.ext.multipart.StreamingMultipartBody;
 import org.apache.cxf.jaxrs.impl.MetadataMap;
 import org.apache.cxf.jaxrs.impl.ProvidersImpl;
 import org.apache.cxf.jaxrs.interceptor.AttachmentInputInterceptor;
@@ -79,6 +81,9 @@ public class MessageContextImpl implements MessageContext {
                 throw new WebApplicationException(e, 413);
             }
         }
+        if (StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS.equals(keyValue)) {
+            return createStreamingAttachments();
+        }
         if (keyValue.equals("WRITE-" + Message.ATTACHMENTS)) {
             return m.getExchange().getOutMessage().get(Message.ATTACHMENTS);
         }
@@ -248,6 +253,14 @@ public class MessageContextImpl implements MessageContext {
             return (MultipartBody)o;
         }
         
+        StreamingMultipartBody streamingBody = 
+            (StreamingMultipartBody)inMessage.get(StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        if (streamingBody != null && !embeddedAttachment) {
+            MultipartBody body = streamingBody.toMultipartBody();
+            inMessage.put(propertyName, body);
+            return body;
+        }
+        
         if (embeddedAttachment) {
             inMessage = new MessageImpl();
             inMessage.setExchange(new ExchangeImpl());
@@ -267,18 +280,7 @@ public class MessageContextImpl implements MessageContext {
         new AttachmentInputInterceptor().handleMessage(inMessage);
     
         List<Attachment> newAttachments = new LinkedList<Attachment>();
-        try {
-            Map<String, List<String>> headers 
-                = CastUtils.cast((Map<?, ?>)inMessage.get(AttachmentDeserializer.ATTACHMENT_PART_HEADERS));
-            Attachment first = new Attachment(AttachmentUtil.createAttachment(
-                                     inMessage.getContent(InputStream.class), 
-                                     headers),
-                                     new ProvidersImpl(inMessage));
-            newAttachments.add(first);
-        } catch (IOException ex) {
-            throw new WebApplicationException(500);
-        }
-        
+        newAttachments.add(createRootAttachment(inMessage));
     
         Collection<org.apache.cxf.message.Attachment> childAttachments = inMessage.getAttachments();
         if (childAttachments == null) {
@@ -295,5 +297,67 @@ public class MessageContextImpl implements MessageContext {
         inMessage.put(propertyName, body);
         return body;
     }
+    
+    private StreamingMultipartBody createStreamingAttachments() {
+        final Message inMessage = m.getExchange().getInMessage();
+        Object o = inMessage.get(StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        if (o != null) {
+            return (StreamingMultipartBody)o;
+        }
+        
+        StreamingMultipartBody body = null;
+        MultipartBody multipartBody = (MultipartBody)inMessage.get(MultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        if (multipartBody != null) {
+            body = new StreamingMultipartBody(multipartBody.getAllAttachments().iterator(), 
+                                              multipartBody.getType());
+        } else {
+            new AttachmentInputInterceptor().handleMessage(inMessage);
+            final Attachment first = createRootAttachment(inMessage);
+            Collection<org.apache.cxf.message.Attachment> childAttachments = inMessage.getAttachments();
+            final Iterator<org.apache.cxf.message.Attachment> children = childAttachments == null 
+                ? Collections.<org.apache.cxf.message.Attachment>emptyList().iterator() 
+                : childAttachments.iterator();
+            Iterator<Attachment> parts = new Iterator<Attachment>() {
+                private boolean firstRead;
+                
+                public boolean hasNext() {
+                    try {
+                        return !firstRead || children.hasNext();
+                    } catch (CacheSizeExceededException e) {
+                        m.getExchange().put("cxf.io.cacheinput", Boolean.FALSE);
+                        throw new WebApplicationException(e, 413);
+                    }
+                }
+
+                public Attachment next() {
+                    if (!firstRead) {
+                        firstRead = true;
+                        return first;
+                    }
+                    return new Attachment(children.next(), new ProvidersImpl(inMessage));
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+            body = new StreamingMultipartBody(parts, getHttpHeaders().getMediaType());
+        }
+        inMessage.put(StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS, body);
+        return body;
+    }
+    
+    private static Attachment createRootAttachment(Message inMessage) {
+        try {
+            Map<String, List<String>> headers 
+                = CastUtils.cast((Map<?, ?>)inMessage.get(AttachmentDeserializer.ATTACHMENT_PART_HEADERS));
+            return new Attachment(AttachmentUtil.createAttachment(
+                                      inMessage.getContent(InputStream.class), 
+                                      headers),
+                                  new ProvidersImpl(inMessage));
+        } catch (IOException ex) {
+            throw new WebApplicationException(500);
+        }
+    }
        
 }
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.multipart;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Gives access to the parts of an inbound multipart payload in the order
+ * they are read from the transport. 
+ * <p>
+ * A resource method parameter of this type lets the method consume large parts,
+ * typically file uploads, directly from the request input stream. A part is only
+ * cached (in memory or in a temporary file, subject to the usual attachment
+ * threshold and size limits) if the next part is requested before the current one
+ * has been read, so it can still be read later. Parts which have been read
+ * completely are never cached.
+ * <p>
+ * Unlike {@link MultipartBody} this class does not read the whole payload
+ * before the resource method is invoked. Instances are not thread-safe.
+ */
+public class StreamingMultipartBody implements Iterable<Attachment> {
+    
+    public static final String INBOUND_MESSAGE_ATTACHMENTS = 
+        MultipartBody.INBOUND_MESSAGE_ATTACHMENTS + ".streaming";
+    
+    private final Iterator<Attachment> parts;
+    private final List<Attachment> readParts = new ArrayList<Attachment>();
+    private final MediaType mt;
+    
+    public StreamingMultipartBody(Iterator<Attachment> parts, MediaType mt) {
+        this.parts = parts;
+        this.mt = mt;
+    }
+    
+    public MediaType getType() {
+        return mt;
+    }
+    
+    /**
+     * Returns an iterator over all the parts. Iterating again starts with the parts
+     * which have already been read and continues with the ones still on the wire.
+     */
+    public Iterator<Attachment> iterator() {
+        return new Iterator<Attachment>() {
+            private int index;
+            
+            public boolean hasNext() {
+                return index < readParts.size() || parts.hasNext();
+            }
+
+            public Attachment next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return getPart(index++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    /**
+     * Returns the first part with the given content id or content disposition name,
+     * caching the parts preceding it
+     * @param contentId the content id or the name
+     * @return the part, null if there is no such part
+     */
+    public Attachment getAttachment(String contentId) {
+        for (Attachment a : this) {
+            if (contentId.equalsIgnoreCase(a.getContentId())) {
+                return a;
+            }
+            ContentDisposition cd = a.getContentDisposition();
+            if (cd != null && contentId.equals(cd.getParameter("name"))) {
+                return a;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Reads the remaining parts, caching them, and returns all the parts
+     * @return the multipart body
+     */
+    public MultipartBody toMultipartBody() {
+        while (parts.hasNext()) {
+            readParts.add(parts.next());
+        }
+        return new MultipartBody(new ArrayList<Attachment>(readParts), mt, false);
+    }
+    
+    private Attachment getPart(int index) {
+        if (index == readParts.size()) {
+            readParts.add(parts.next());
+        }
+        return readParts.get(index);
+    }
+}
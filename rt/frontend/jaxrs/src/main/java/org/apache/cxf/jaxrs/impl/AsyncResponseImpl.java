@@ -23,10 +23,18 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.container.AsyncResponse;
@@ -37,27 +45,53 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 
+import org.apache.cxf.Bus;
 import org.apache.cxf.continuations.Continuation;
 import org.apache.cxf.continuations.ContinuationCallback;
 import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.jaxrs.utils.HttpUtils;
+import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.workqueue.SynchronousExecutor;
+import org.apache.cxf.workqueue.WorkQueueManager;
 
-
+/**
+ * AsyncResponse implementation.
+ * <p>
+ * The state is kept in atomic fields rather than guarded by a monitor: the first
+ * resume or cancel wins by setting the response object, and the suspension of the
+ * transport continuation by the invoker is coordinated with a concurrent resume through
+ * the state transitions. Timeouts are not delegated to the transport continuation,
+ * which is always suspended without a timeout, but run on a scheduler shared by all 
+ * the suspended responses. A registered TimeoutHandler is run on the executor of the
+ * endpoint, or the default work queue of the bus, so a slow handler does not hold up
+ * the other timeouts.
+ */
 public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
     
+    // the resource method is still running
+    private static final int INITIAL = 0;
+    // the invoker is suspending the continuation
+    private static final int SUSPENDING = 1;
+    private static final int SUSPENDED = 2;
+    private static final int RESUMED = 3;
+    
     private Continuation cont;
     private Message inMessage;
-    private boolean initialSuspend;
-    private boolean cancelled;
+    private final AtomicInteger state = new AtomicInteger(INITIAL);
+    private final AtomicReference<Object> responseObject = new AtomicReference<Object>();
+    private final AtomicReference<ScheduledFuture<?>> timeoutFuture = new AtomicReference<ScheduledFuture<?>>();
+    private volatile boolean cancelled;
     private volatile boolean done;
-    private boolean resumedByApplication;
-    private TimeoutHandler timeoutHandler;
+    private volatile TimeoutHandler timeoutHandler;
+    // incremented by every setTimeout call, so a timeout handler updating it can be detected
+    private final AtomicInteger timeoutUpdates = new AtomicInteger();
     
-    private List<CompletionCallback> completionCallbacks = new LinkedList<CompletionCallback>();
-    private List<ConnectionCallback> connectionCallbacks = new LinkedList<ConnectionCallback>();
-    private Throwable unmappedThrowable;
+    private Queue<CompletionCallback> completionCallbacks = new ConcurrentLinkedQueue<CompletionCallback>();
+    private Queue<ConnectionCallback> connectionCallbacks = new ConcurrentLinkedQueue<ConnectionCallback>();
+    private volatile Throwable unmappedThrowable;
     
     public AsyncResponseImpl(Message inMessage) {
         inMessage.put(AsyncResponse.class, this);
@@ -69,31 +103,36 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
     
     @Override
     public boolean resume(Object response) {
-        return doResume(response);
+        return doResume(response, false);
     }
 
     @Override
     public boolean resume(Throwable response) {
-        return doResume(response);
-    }
-    
-    private boolean isCancelledOrNotSuspended() {
-        return isCancelled() || !isSuspended();
+        return doResume(response, false);
     }
     
-    private synchronized boolean doResume(Object response) {
-        if (isCancelledOrNotSuspended()) {
+    private boolean doResume(Object response, boolean cancel) {
+        if (done || !responseObject.compareAndSet(null, response == null ? NullResponse.INSTANCE : response)) {
             return false;
         }
+        if (cancel) {
+            cancelled = true;
+        }
+        cancelTimeout();
         inMessage.getExchange().put(AsyncResponse.class, this);
-        cont.setObject(response);
-        resumedByApplication = true;
-        if (!initialSuspend) {
-            cont.resume();
-        } else {
-            initialSuspend = false;
+        while (true) {
+            int current = state.get();
+            if (current == SUSPENDED) {
+                if (state.compareAndSet(SUSPENDED, RESUMED)) {
+                    cont.resume();
+                    return true;
+                }
+            } else if (current == RESUMED || state.compareAndSet(current, RESUMED)) {
+                // the invoker picks the response up once the resource method returns
+                // or once it has finished suspending the continuation
+                return true;
+            }
         }
-        return true;
     }
     
     @Override
@@ -111,7 +150,7 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
         return doCancel(HttpUtils.getHttpDateFormat().format(retryAfter));
     }
     
-    private synchronized boolean doCancel(String retryAfterHeader) {
+    private boolean doCancel(String retryAfterHeader) {
         if (!isSuspended()) {
             return false;
         }
@@ -119,18 +158,16 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
         if (retryAfterHeader != null) {
             rb.header(HttpHeaders.RETRY_AFTER, retryAfterHeader);
         }
-        doResume(rb.build());
-        cancelled = true;
-        return cancelled;
+        return doResume(rb.build(), true);
     }
 
     @Override
-    public synchronized boolean isSuspended() {
-        return initialSuspend || cont.isPending();
+    public boolean isSuspended() {
+        return !done && responseObject.get() == null;
     }
 
     @Override
-    public synchronized boolean isCancelled() {
+    public boolean isCancelled() {
         return cancelled;
     }
 
@@ -140,14 +177,27 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
     }
 
     @Override
-    public synchronized boolean setTimeout(long time, TimeUnit unit) throws IllegalStateException {
-        if (isCancelledOrNotSuspended()) {
+    public boolean setTimeout(long time, TimeUnit unit) throws IllegalStateException {
+        if (!isSuspended()) {
             return false;
         }
-        inMessage.getExchange().put(AsyncResponse.class, this);
-        long timeout = TimeUnit.MILLISECONDS.convert(time, unit);
-        initialSuspend = false;
-        cont.suspend(timeout);
+        timeoutUpdates.incrementAndGet();
+        ScheduledFuture<?> future = null;
+        if (time > 0) {
+            future = TimeoutScheduler.SCHEDULER.schedule(new Runnable() {
+                public void run() {
+                    onTimeout();
+                }
+            }, time, unit);
+        }
+        ScheduledFuture<?> previous = timeoutFuture.getAndSet(future);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        if (!isSuspended()) {
+            // resumed concurrently
+            cancelTimeout();
+        }
         return true;
     }
 
@@ -189,7 +239,7 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
     
         Object[] allCallbacks = new Object[1 + callbacks.length];
         allCallbacks[0] = callback;
-        System.arraycopy(allCallbacks, 1, callbacks, 0, callbacks.length);
+        System.arraycopy(callbacks, 0, allCallbacks, 1, callbacks.length);
         
         for (int i = 0; i < allCallbacks.length; i++) {
             if (allCallbacks[i] == null) {
@@ -216,6 +266,7 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
     @Override
     public void onComplete() {
         done = true;
+        cancelTimeout();
         updateCompletionCallbacks(unmappedThrowable);
     }
 
@@ -238,43 +289,102 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
         }
     }
     
-    public synchronized boolean suspendContinuationIfNeeded() {
-        if (!cont.isPending() && !resumedByApplication) {
-            initialSuspend = false;
-            cont.suspend(AsyncResponse.NO_TIMEOUT);
-            return true;
-        } else {
+    public boolean suspendContinuationIfNeeded() {
+        if (!state.compareAndSet(INITIAL, SUSPENDING)) {
             return false;
         }
+        cont.suspend(AsyncResponse.NO_TIMEOUT);
+        if (!state.compareAndSet(SUSPENDING, SUSPENDED)) {
+            // resumed while the continuation was being suspended
+            cont.resume();
+        }
+        return true;
     }
     
-    public synchronized Object getResponseObject() {
-        Object obj = cont.getObject();
+    public Object getResponseObject() {
+        Object obj = responseObject.get();
+        if (obj == NullResponse.INSTANCE) {
+            obj = null;
+        }
         if (!(obj instanceof Response) && !(obj instanceof Throwable)) {
             obj = Response.ok().entity(obj).build();    
         }
         return obj;
     }
     
-    public synchronized boolean isResumedByApplication() {
-        return resumedByApplication;
+    public boolean isResumedByApplication() {
+        return responseObject.get() != null;
+    }
+    
+    public void handleTimeout() {
+        // the continuation has been resumed without the response being set, 
+        // for example, if it has been timed out by the container  
+        responseObject.compareAndSet(null, new ServiceUnavailableException());
     }
     
-    public synchronized void handleTimeout() {
-        if (!resumedByApplication) {
-            if (timeoutHandler != null) {
-                timeoutHandler.handleTimeout(this);
-            } else {
-                cont.setObject(new ServiceUnavailableException());
+    private void onTimeout() {
+        timeoutFuture.set(null);
+        if (!isSuspended()) {
+            return;
+        }
+        final TimeoutHandler handler = timeoutHandler;
+        if (handler == null) {
+            doResume(new ServiceUnavailableException(), false);
+            return;
+        }
+        Runnable task = new Runnable() {
+            public void run() {
+                runTimeoutHandler(handler);
+            }
+        };
+        Executor executor = getTimeoutHandlerExecutor();
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException ex) {
+            task.run();
+        }
+    }
+    
+    private void runTimeoutHandler(TimeoutHandler handler) {
+        int updates = timeoutUpdates.get();
+        try {
+            handler.handleTimeout(this);
+        } finally {
+            // the default response applies unless the handler resumed, cancelled 
+            // or set a new timeout
+            if (isSuspended() && timeoutUpdates.get() == updates) {
+                doResume(new ServiceUnavailableException(), false);
             }
         }
     }
+    
+    private Executor getTimeoutHandlerExecutor() {
+        Exchange exchange = inMessage.getExchange();
+        Endpoint endpoint = exchange.getEndpoint();
+        Executor executor = endpoint == null ? null : endpoint.getExecutor();
+        if (executor == null || executor instanceof SynchronousExecutor) {
+            Bus bus = exchange.getBus();
+            WorkQueueManager manager = bus == null ? null : bus.getExtension(WorkQueueManager.class);
+            executor = manager == null ? null : manager.getAutomaticWorkQueue();
+        }
+        return executor;
+    }
+    
+    private void cancelTimeout() {
+        ScheduledFuture<?> future = timeoutFuture.getAndSet(null);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
 
     private void initContinuation() {
         ContinuationProvider provider = 
             (ContinuationProvider)inMessage.get(ContinuationProvider.class.getName());
         cont = provider.getContinuation();
-        initialSuspend = true;
     }
     
     public void prepareContinuation() {
@@ -288,4 +398,23 @@ public class AsyncResponseImpl implements AsyncResponse, ContinuationCallback {
         cont.reset();
     }
     
+    private static final class NullResponse {
+        static final NullResponse INSTANCE = new NullResponse();
+    }
+    
+    private static final class TimeoutScheduler {
+        static final ScheduledExecutorService SCHEDULER = createScheduler();
+        
+        private static ScheduledExecutorService createScheduler() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "AsyncResponse timeouts");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
 }
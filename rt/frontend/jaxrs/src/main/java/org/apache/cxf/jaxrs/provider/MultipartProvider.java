@@ -62,6 +62,7 @@ import org.apache.cxf.jaxrs.ext.multipart.ContentDisposition;
 import org.apache.cxf.jaxrs.ext.multipart.InputStreamDataSource;
 import org.apache.cxf.jaxrs.ext.multipart.Multipart;
 import org.apache.cxf.jaxrs.ext.multipart.MultipartBody;
+import org.apache.cxf.jaxrs.ext.multipart.StreamingMultipartBody;
 import org.apache.cxf.jaxrs.impl.MetadataMap;
 import org.apache.cxf.jaxrs.utils.AnnotationUtils;
 import org.apache.cxf.jaxrs.utils.ExceptionUtils;
@@ -87,6 +88,7 @@ public class MultipartProvider extends AbstractConfigurableProvider
         WELL_KNOWN_MULTIPART_CLASSES = new HashSet<Class<?>>();
         WELL_KNOWN_MULTIPART_CLASSES.add(MultipartBody.class);
         WELL_KNOWN_MULTIPART_CLASSES.add(Attachment.class);
+        WELL_KNOWN_MULTIPART_CLASSES.add(StreamingMultipartBody.class);
         
         MULTIPART_SUBTYPES = new HashSet<String>();
         MULTIPART_SUBTYPES.add("form-data");
@@ -148,6 +150,15 @@ public class MultipartProvider extends AbstractConfigurableProvider
                            MultivaluedMap<String, String> headers, InputStream is) 
         throws IOException, WebApplicationException {
         checkContentLength();
+        if (StreamingMultipartBody.class.isAssignableFrom(c)) {
+            return AttachmentUtils.getStreamingMultipartBody(
+                mc, attachmentDir, attachmentThreshold, attachmentMaxSize);
+        }
+        return readAttachments(c, t, anns, mt);
+    }
+    
+    private Object readAttachments(Class<Object> c, Type t, Annotation[] anns, MediaType mt) 
+        throws IOException {
         List<Attachment> infos = AttachmentUtils.getAttachments(
                 mc, attachmentDir, attachmentThreshold, attachmentMaxSize);
         
@@ -26,6 +26,7 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -34,9 +35,12 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import javax.ws.rs.Produces;
@@ -60,6 +64,7 @@ import org.apache.cxf.common.util.ClassHelper;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.jaxrs.ext.ContextProvider;
+import org.apache.cxf.jaxrs.ext.DynamicEntityProvider;
 import org.apache.cxf.jaxrs.impl.MetadataMap;
 import org.apache.cxf.jaxrs.impl.ReaderInterceptorMBR;
 import org.apache.cxf.jaxrs.impl.WriterInterceptorMBW;
@@ -90,6 +95,8 @@ public abstract class ProviderFactory {
     private static final String JAXB_PROVIDER_NAME = "org.apache.cxf.jaxrs.provider.JAXBElementProvider";
     private static final String JSON_PROVIDER_NAME = "org.apache.cxf.jaxrs.provider.json.JSONProvider";
     private static final String BUS_PROVIDERS_ALL = "org.apache.cxf.jaxrs.bus.providers";
+    private static final int MAX_SELECTION_CACHE_SIZE = 1000;
+    private static final Object NO_SELECTION = new Object();
     
     protected Map<NameKey, ProviderInfo<ReaderInterceptor>> readerInterceptors = 
         new NameKeyMap<ProviderInfo<ReaderInterceptor>>(true);
@@ -105,6 +112,17 @@ public abstract class ProviderFactory {
     private List<ProviderInfo<ContextProvider<?>>> contextProviders = 
         new ArrayList<ProviderInfo<ContextProvider<?>>>(1);
     
+    // Selected readers and writers per entity type, invalidated whenever the providers change
+    private final Map<SelectionKey, Object> readerSelections = createSelectionCache();
+    private final Map<SelectionKey, Object> writerSelections = createSelectionCache();
+    // The media type parameters the readers and writers declare, no other parameter affects a selection
+    private volatile Set<String> readerSelectionParameters = Collections.emptySet();
+    private volatile Set<String> writerSelectionParameters = Collections.emptySet();
+    private final ConcurrentMap<Set<String>, List<ProviderInfo<ReaderInterceptor>>> boundReaderInterceptors = 
+        new ConcurrentHashMap<Set<String>, List<ProviderInfo<ReaderInterceptor>>>();
+    private final ConcurrentMap<Set<String>, List<ProviderInfo<WriterInterceptor>>> boundWriterInterceptors = 
+        new ConcurrentHashMap<Set<String>, List<ProviderInfo<WriterInterceptor>>>();
+    
     private Set<ParamConverterProvider> newParamConverters;
     
     // List of injected providers
@@ -350,7 +368,7 @@ public abstract class ProviderFactory {
             if (size > 0) {
                 interceptors = new ArrayList<ReaderInterceptor>(size + 1);
                 List<ProviderInfo<ReaderInterceptor>> readers =
-                    getBoundFilters(readerInterceptors, names);
+                    getBoundInterceptors(boundReaderInterceptors, readerInterceptors, names);
                 for (ProviderInfo<ReaderInterceptor> p : readers) {
                     InjectionUtils.injectContexts(p.getProvider(), p, m);
                     interceptors.add(p.getProvider());
@@ -389,7 +407,7 @@ public abstract class ProviderFactory {
             if (size > 0) {
                 interceptors = new ArrayList<WriterInterceptor>(size + 1);
                 List<ProviderInfo<WriterInterceptor>> writers =
-                    getBoundFilters(writerInterceptors, names);
+                    getBoundInterceptors(boundWriterInterceptors, writerInterceptors, names);
                 for (ProviderInfo<WriterInterceptor> p : writers) {
                     InjectionUtils.injectContexts(p.getProvider(), p, m);
                     interceptors.add(p.getProvider());
@@ -407,6 +425,21 @@ public abstract class ProviderFactory {
     
     
     
+    private static <T> List<ProviderInfo<T>> getBoundInterceptors(
+        ConcurrentMap<Set<String>, List<ProviderInfo<T>>> cache,
+        Map<NameKey, ProviderInfo<T>> interceptors, 
+        Set<String> names) {
+        Set<String> key = names == null ? Collections.<String>emptySet() : names;
+        List<ProviderInfo<T>> list = cache.get(key);
+        if (list == null) {
+            list = Collections.unmodifiableList(getBoundFilters(interceptors, names));
+            if (cache.size() < MAX_SELECTION_CACHE_SIZE) {
+                cache.put(new HashSet<String>(key), list);
+            }
+        }
+        return list;
+    }
+    
     public <T> MessageBodyReader<T> createMessageBodyReader(Class<T> bodyType,
                                                             Type parameterType,
                                                             Annotation[] parameterAnnotations,
@@ -536,6 +569,7 @@ public abstract class ProviderFactory {
         
         mapInterceptorFilters(readerInterceptors, readInts, ReaderInterceptor.class, true);
         mapInterceptorFilters(writerInterceptors, writeInts, WriterInterceptor.class, true);
+        clearSelectionCache();
         
         injectContextProxies(messageReaders, messageWriters, contextResolvers, 
             readerInterceptors.values(), writerInterceptors.values());
@@ -630,20 +664,37 @@ public abstract class ProviderFactory {
                                                          Annotation[] annotations,
                                                          MediaType mediaType,
                                                          Message m) {
+        // a lookup made by a provider while it is active, e.g. by a caching provider for its
+        // delegate, must skip that provider, the cached selection may be the provider itself
+        boolean cacheable = m.get(ACTIVE_JAXRS_PROVIDER_KEY) == null;
+        SelectionKey key = null;
+        if (cacheable) {
+            key = new SelectionKey(type, genericType, annotations, 
+                                   getSelectionMediaType(mediaType, readerSelectionParameters));
+            Object selected = readerSelections.get(key);
+            if (selected != null) {
+                return (MessageBodyReader<T>)getCachedSelection(selected, m);
+            }
+        }
+        
         List<MessageBodyReader<?>> candidates = new LinkedList<MessageBodyReader<?>>();
         for (ProviderInfo<MessageBodyReader<?>> ep : readers) {
+            cacheable &= !isDynamicEntityProvider(ep);
             if (matchesReaderCriterias(ep, type, genericType, annotations, mediaType, m)) {
                 if (isBaseFactory()) {
+                    cacheSelection(readerSelections, key, ep, cacheable);
                     return (MessageBodyReader<T>) ep.getProvider();
                 }
                 handleMapper(candidates, ep, type, m, MessageBodyReader.class, false);
                 if (!candidates.isEmpty()) {
+                    cacheSelection(readerSelections, key, ep, cacheable);
                     break;
                 }
             }
         }     
         
         if (candidates.isEmpty()) {
+            cacheSelection(readerSelections, key, null, cacheable);
             return null;
         }
         return (MessageBodyReader<T>) candidates.get(0);
@@ -688,24 +739,131 @@ public abstract class ProviderFactory {
                                                          Annotation[] annotations,
                                                          MediaType mediaType,
                                                          Message m) {
+        // a lookup made by a provider while it is active, e.g. by a caching provider for its
+        // delegate, must skip that provider, the cached selection may be the provider itself
+        boolean cacheable = m.get(ACTIVE_JAXRS_PROVIDER_KEY) == null;
+        SelectionKey key = null;
+        if (cacheable) {
+            key = new SelectionKey(type, genericType, annotations, 
+                                   getSelectionMediaType(mediaType, writerSelectionParameters));
+            Object selected = writerSelections.get(key);
+            if (selected != null) {
+                return (MessageBodyWriter<T>)getCachedSelection(selected, m);
+            }
+        }
+        
         List<MessageBodyWriter<?>> candidates = new LinkedList<MessageBodyWriter<?>>();
         for (ProviderInfo<MessageBodyWriter<?>> ep : writers) {
+            cacheable &= !isDynamicEntityProvider(ep);
             if (matchesWriterCriterias(ep, type, genericType, annotations, mediaType, m)) {
                 if (isBaseFactory()) {
+                    cacheSelection(writerSelections, key, ep, cacheable);
                     return (MessageBodyWriter<T>) ep.getProvider();
                 }
                 handleMapper(candidates, ep, type, m, MessageBodyWriter.class, false);
                 if (!candidates.isEmpty()) {
+                    cacheSelection(writerSelections, key, ep, cacheable);
                     break;
                 }
             }
         }     
         if (candidates.isEmpty()) {
+            cacheSelection(writerSelections, key, null, cacheable);
             return null;
         }
         return (MessageBodyWriter<T>) candidates.get(0);
     }
     
+    private Object getCachedSelection(Object selected, Message m) {
+        if (selected == NO_SELECTION) {
+            return null;
+        }
+        ProviderInfo<?> pi = (ProviderInfo<?>)selected;
+        Object provider = pi.getProvider();
+        if (m.get(ACTIVE_JAXRS_PROVIDER_KEY) != provider) {
+            injectContextValues(pi, m);
+        }
+        return provider;
+    }
+    
+    private static void cacheSelection(Map<SelectionKey, Object> selections,
+                                       SelectionKey key,
+                                       ProviderInfo<?> pi,
+                                       boolean cacheable) {
+        if (cacheable) {
+            selections.put(key, pi == null ? NO_SELECTION : pi);
+        }
+    }
+    
+    /**
+     * Creates a selection cache which drops the least recently used selections once 
+     * it is full, most likely the annotations or generic types are then created per call.
+     */
+    private static Map<SelectionKey, Object> createSelectionCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<SelectionKey, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SelectionKey, Object> eldest) {
+                return size() > MAX_SELECTION_CACHE_SIZE;
+            }
+        });
+    }
+    
+    /**
+     * Returns the media type a selection is cached for. Per-request parameters such as 
+     * a multipart boundary would otherwise make every request miss the cache, so only 
+     * the parameters declared by the providers, which the media type matching compares, are kept.
+     */
+    private static MediaType getSelectionMediaType(MediaType mediaType, Set<String> parameterNames) {
+        if (mediaType == null || mediaType.getParameters().isEmpty()) {
+            return mediaType;
+        }
+        Map<String, String> parameters = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, String> entry : mediaType.getParameters().entrySet()) {
+            if (parameterNames.contains(entry.getKey().toLowerCase(Locale.ENGLISH))) {
+                parameters.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return parameters.size() == mediaType.getParameters().size() 
+            ? mediaType : new MediaType(mediaType.getType(), mediaType.getSubtype(), parameters);
+    }
+    
+    private static void addParameterNames(Set<String> names, List<MediaType> mediaTypes) {
+        for (MediaType mt : mediaTypes) {
+            for (String name : mt.getParameters().keySet()) {
+                names.add(name.toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+    
+    private boolean isDynamicEntityProvider(ProviderInfo<?> pi) {
+        return ClassHelper.getRealClass(bus, pi.getProvider()).isAnnotationPresent(DynamicEntityProvider.class);
+    }
+    
+    /**
+     * Drops the cached reader and writer selections. The cache is cleared automatically when
+     * the providers are registered or re-sorted, this method needs to be called only if 
+     * the configuration of the already registered providers has changed in a way which 
+     * affects their isReadable or isWriteable results.  
+     */
+    public void clearSelectionCache() {
+        Set<String> names = new HashSet<String>();
+        for (ProviderInfo<MessageBodyReader<?>> pi : messageReaders) {
+            addParameterNames(names, JAXRSUtils.getProviderConsumeTypes(pi.getProvider()));
+        }
+        readerSelectionParameters = names;
+        names = new HashSet<String>();
+        for (ProviderInfo<MessageBodyWriter<?>> pi : messageWriters) {
+            addParameterNames(names, JAXRSUtils.getProviderProduceTypes(pi.getProvider()));
+        }
+        writerSelectionParameters = names;
+        readerSelections.clear();
+        writerSelections.clear();
+        boundReaderInterceptors.clear();
+        boundWriterInterceptors.clear();
+    }
+    
     private <T> boolean matchesWriterCriterias(ProviderInfo<MessageBodyWriter<?>> pi,
                                                Class<T> type,
                                                Type genericType,
@@ -837,6 +995,7 @@ public abstract class ProviderFactory {
         contextProviders.clear();
         readerInterceptors.clear();
         writerInterceptors.clear();
+        clearSelectionCache();
     }
     
     public void setBus(Bus bus) {
@@ -846,6 +1005,7 @@ public abstract class ProviderFactory {
         for (ProviderInfo<MessageBodyReader<?>> r : messageReaders) {
             injectProviderProperty(r.getProvider(), "setBus", Bus.class, bus);
         }
+        clearSelectionCache();
     }
     
     private boolean injectProviderProperty(Object provider, String mName, Class<?> pClass, 
@@ -873,6 +1033,7 @@ public abstract class ProviderFactory {
                 injectProviderProperty(r.getProvider(), "setSchemaLocations", List.class, schemas);
             }
         }
+        clearSelectionCache();
     }
 
     protected static <T> List<ProviderInfo<T>> getBoundFilters(Map<NameKey, ProviderInfo<T>> boundFilters,
@@ -1259,5 +1420,55 @@ public abstract class ProviderFactory {
 
     public void setProviderComparator(Comparator<?> providerComparator) {
         this.providerComparator = providerComparator;
+        clearSelectionCache();
+    }
+    
+    /**
+     * Identifies a reader or writer selection. Annotation arrays are usually 
+     * shared by the resource model so they are compared by identity first.
+     */
+    private static class SelectionKey {
+        private final Class<?> type;
+        private final Type genericType;
+        private final Annotation[] annotations;
+        private final MediaType mediaType;
+        private final int hashCode;
+        
+        SelectionKey(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            this.type = type;
+            this.genericType = genericType;
+            this.annotations = annotations;
+            this.mediaType = mediaType;
+            int h = type == null ? 0 : type.hashCode();
+            h = 31 * h + (genericType == null ? 0 : genericType.hashCode());
+            h = 31 * h + (mediaType == null ? 0 : mediaType.hashCode());
+            if (annotations != null) {
+                for (Annotation a : annotations) {
+                    h = 31 * h + a.annotationType().hashCode();
+                }
+            }
+            hashCode = h;
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SelectionKey)) {
+                return false;
+            }
+            SelectionKey other = (SelectionKey)o;
+            return hashCode == other.hashCode
+                && type == other.type
+                && (genericType == null ? other.genericType == null : genericType.equals(other.genericType))
+                && (mediaType == null ? other.mediaType == null : mediaType.equals(other.mediaType))
+                && (annotations == other.annotations || Arrays.equals(annotations, other.annotations));
+        }
     }
 }
@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.sse;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base {@link SseEventSink} which formats the events according to the 
+ * <code>text/event-stream</code> format. 
+ * <p>
+ * The formatting is separated from the writing so that {@link SseBroadcaster} can format an event 
+ * once and write the same bytes to all the sinks sharing the same encoding key. 
+ */
+public abstract class AbstractSseEventSink implements SseEventSink {
+    private static final String UTF_8 = "UTF-8";
+    
+    private final AtomicBoolean closed = new AtomicBoolean();
+    
+    public void send(OutboundSseEvent event) throws IOException {
+        sendEncoded(encode(event));
+    }
+    
+    /**
+     * Writes the formatted event
+     * @param bytes the event as returned from {@link #encode(OutboundSseEvent)}
+     * @throws IOException if the event can not be written, the sink is closed in this case
+     */
+    public void sendEncoded(byte[] bytes) throws IOException {
+        if (isClosed()) {
+            throw new IOException("Event sink is closed");
+        }
+        try {
+            write(bytes);
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        } catch (RuntimeException ex) {
+            close();
+            throw new IOException(ex);
+        }
+    }
+    
+    /**
+     * Formats the event
+     * @param event the event
+     * @return the formatted event
+     * @throws IOException if the event data can not be serialized
+     */
+    public byte[] encode(OutboundSseEvent event) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (event.getComment() != null) {
+            appendLines(sb, "", event.getComment());
+        }
+        if (event.getName() != null) {
+            appendField(sb, "event", event.getName());
+        }
+        if (event.getId() != null) {
+            appendField(sb, "id", event.getId());
+        }
+        if (event.getReconnectDelay() >= 0) {
+            appendField(sb, "retry", Long.toString(event.getReconnectDelay()));
+        }
+        if (event.getData() != null) {
+            String data = event.getData() instanceof String 
+                ? (String)event.getData() : new String(encodeData(event), UTF_8);
+            appendLines(sb, "data", data);
+        }
+        sb.append('\n');
+        return toBytes(sb.toString());
+    }
+    
+    public boolean isClosed() {
+        return closed.get();
+    }
+    
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            doClose();
+        }
+    }
+    
+    /**
+     * Returns the key identifying sinks which encode events identically, 
+     * typically sinks sharing the same providers
+     */
+    protected Object getEncodingKey() {
+        return getClass();
+    }
+    
+    /**
+     * Serializes the event data 
+     */
+    protected abstract byte[] encodeData(OutboundSseEvent event) throws IOException;
+    
+    /**
+     * Writes and flushes the bytes
+     */
+    protected abstract void write(byte[] bytes) throws IOException;
+    
+    protected abstract void doClose();
+    
+    private static void appendField(StringBuilder sb, String name, String value) {
+        if (value.indexOf('\n') != -1 || value.indexOf('\r') != -1) {
+            throw new IllegalArgumentException("Field " + name + " can not span multiple lines");
+        }
+        sb.append(name).append(": ").append(value).append('\n');
+    }
+    
+    private static void appendLines(StringBuilder sb, String name, String value) {
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i == length ? '\n' : value.charAt(i);
+            if (c == '\n' || c == '\r') {
+                sb.append(name).append(": ").append(value, start, i).append('\n');
+                if (c == '\r' && i + 1 < length && value.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+    }
+    
+    private static byte[] toBytes(String value) {
+        try {
+            return value.getBytes(UTF_8);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.sse;
+
+import java.lang.reflect.Type;
+
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Server-Sent Event to be sent with {@link SseEventSink} or {@link SseBroadcaster}.
+ * Events are immutable and can be shared between sinks, use {@link #builder()} to create them.
+ */
+public final class OutboundSseEvent {
+    private final String id;
+    private final String name;
+    private final String comment;
+    private final long reconnectDelay;
+    private final Object data;
+    private final Class<?> type;
+    private final Type genericType;
+    private final MediaType mediaType;
+    
+    private OutboundSseEvent(Builder b) {
+        this.id = b.id;
+        this.name = b.name;
+        this.comment = b.comment;
+        this.reconnectDelay = b.reconnectDelay;
+        this.data = b.data;
+        this.type = b.type;
+        this.genericType = b.genericType;
+        this.mediaType = b.mediaType;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getComment() {
+        return comment;
+    }
+    
+    /**
+     * @return the reconnection delay in milliseconds the client should use, or -1 if not set 
+     */
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+    
+    public Object getData() {
+        return data;
+    }
+    
+    public Class<?> getType() {
+        return type;
+    }
+    
+    public Type getGenericType() {
+        return genericType;
+    }
+    
+    /**
+     * @return the media type used to select the MessageBodyWriter for the data,
+     *         text/plain by default
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+    
+    public static class Builder {
+        private String id;
+        private String name;
+        private String comment;
+        private long reconnectDelay = -1;
+        private Object data;
+        private Class<?> type;
+        private Type genericType;
+        private MediaType mediaType = MediaType.TEXT_PLAIN_TYPE;
+        
+        Builder() {
+        }
+        
+        public Builder id(String value) {
+            this.id = value;
+            return this;
+        }
+        
+        public Builder name(String value) {
+            this.name = value;
+            return this;
+        }
+        
+        public Builder comment(String value) {
+            this.comment = value;
+            return this;
+        }
+        
+        public Builder reconnectDelay(long milliseconds) {
+            this.reconnectDelay = milliseconds;
+            return this;
+        }
+        
+        public Builder mediaType(MediaType value) {
+            this.mediaType = value == null ? MediaType.TEXT_PLAIN_TYPE : value;
+            return this;
+        }
+        
+        public Builder data(Object value) {
+            if (value instanceof GenericEntity) {
+                GenericEntity<?> entity = (GenericEntity<?>)value;
+                return data(entity.getRawType(), entity.getType(), entity.getEntity());
+            }
+            return data(value == null ? null : value.getClass(), null, value);
+        }
+        
+        public Builder data(Class<?> cls, Type genType, Object value) {
+            this.data = value;
+            this.type = cls;
+            this.genericType = genType == null ? cls : genType;
+            return this;
+        }
+        
+        public OutboundSseEvent build() {
+            if (data == null && comment == null) {
+                throw new IllegalStateException("Either data or comment must be set");
+            }
+            return new OutboundSseEvent(this);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.sse;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * Sends the same Server-Sent Events to all the registered sinks.
+ * <p>
+ * An event is formatted and its data serialized once per group of sinks sharing the same 
+ * providers, typically once per endpoint, and the resulting bytes are written to every sink. 
+ * Sinks which are closed or fail to accept an event are unregistered. Events are written 
+ * on the calling thread unless an executor is set, in which case every sink is written 
+ * to in a separate task so that a slow client can not delay the others.
+ * <p>
+ * If a heartbeat interval is set then an empty comment is periodically sent to all the sinks 
+ * which keeps the idle connections open and detects the disconnected clients.
+ */
+public class SseBroadcaster {
+    private static final Logger LOG = LogUtils.getL7dLogger(SseBroadcaster.class);
+    private static final OutboundSseEvent HEARTBEAT = OutboundSseEvent.builder().comment("").build();
+    
+    private final Set<SseEventSink> sinks = 
+        Collections.newSetFromMap(new ConcurrentHashMap<SseEventSink, Boolean>());
+    private Executor executor;
+    private ScheduledExecutorService scheduler;
+    private boolean ownScheduler;
+    private ScheduledFuture<?> heartbeat;
+    private volatile boolean closed;
+    
+    public SseBroadcaster() {
+    }
+    
+    public SseBroadcaster(Executor executor) {
+        this.executor = executor;
+    }
+    
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Sets the scheduler used for sending heartbeats, a single daemon thread 
+     * is started if none is set. It has to be set before the heartbeat interval.
+     * @param heartbeatScheduler the scheduler
+     */
+    public synchronized void setHeartbeatScheduler(ScheduledExecutorService heartbeatScheduler) {
+        if (heartbeat != null) {
+            throw new IllegalStateException("Heartbeat is already scheduled");
+        }
+        if (ownScheduler) {
+            scheduler.shutdownNow();
+            ownScheduler = false;
+        }
+        this.scheduler = heartbeatScheduler;
+    }
+    
+    /**
+     * Sets the heartbeat interval
+     * @param interval the interval in milliseconds, heartbeats are disabled if it is not positive
+     */
+    public synchronized void setHeartbeatInterval(long interval) {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        if (interval <= 0 || closed) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "SseBroadcaster heartbeat");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            ownScheduler = true;
+        }
+        heartbeat = scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                broadcast(HEARTBEAT);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Registers the sink
+     * @param sink the sink
+     * @return false if the sink is already registered
+     * @throws IllegalStateException if the broadcaster has been closed
+     */
+    public boolean register(SseEventSink sink) {
+        if (closed) {
+            throw new IllegalStateException("Broadcaster is closed");
+        }
+        return sinks.add(sink);
+    }
+    
+    public boolean unregister(SseEventSink sink) {
+        return sinks.remove(sink);
+    }
+    
+    public int getSinkCount() {
+        return sinks.size();
+    }
+    
+    /**
+     * Sends the event to all the registered sinks
+     * @param event the event
+     */
+    public void broadcast(OutboundSseEvent event) {
+        Map<Object, byte[]> encoded = new HashMap<Object, byte[]>(4);
+        for (SseEventSink sink : sinks) {
+            if (sink.isClosed()) {
+                sinks.remove(sink);
+            } else if (sink instanceof AbstractSseEventSink) {
+                AbstractSseEventSink s = (AbstractSseEventSink)sink;
+                Object key = s.getEncodingKey();
+                byte[] bytes = encoded.get(key);
+                if (bytes == null && !encoded.containsKey(key)) {
+                    bytes = encode(s, event);
+                    encoded.put(key, bytes);
+                }
+                if (bytes != null) {
+                    deliver(s, event, bytes);
+                }
+            } else {
+                deliver(sink, event, null);
+            }
+        }
+    }
+    
+    /**
+     * Unregisters and closes all the sinks and stops the heartbeat
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+                heartbeat = null;
+            }
+            if (ownScheduler) {
+                scheduler.shutdownNow();
+                scheduler = null;
+                ownScheduler = false;
+            }
+        }
+        for (SseEventSink sink : sinks) {
+            sinks.remove(sink);
+            sink.close();
+        }
+    }
+    
+    private static byte[] encode(AbstractSseEventSink sink, OutboundSseEvent event) {
+        try {
+            return sink.encode(event);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "SSE_EVENT_ENCODING_FAILED", ex);
+            return null;
+        }
+    }
+    
+    private void deliver(final SseEventSink sink, final OutboundSseEvent event, final byte[] bytes) {
+        Runnable task = new Runnable() {
+            public void run() {
+                try {
+                    if (bytes != null) {
+                        ((AbstractSseEventSink)sink).sendEncoded(bytes);
+                    } else {
+                        sink.send(event);
+                    }
+                } catch (IOException ex) {
+                    LOG.log(Level.FINE, "SSE_EVENT_DELIVERY_FAILED", ex);
+                    sinks.remove(sink);
+                    sink.close();
+                }
+            }
+        };
+        Executor ex = executor;
+        if (ex != null) {
+            try {
+                ex.execute(task);
+                return;
+            } catch (RejectedExecutionException rex) {
+                // write on the current thread
+            }
+        }
+        task.run();
+    }
+}
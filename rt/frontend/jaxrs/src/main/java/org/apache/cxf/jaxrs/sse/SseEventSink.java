@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.sse;
+
+import java.io.IOException;
+
+/**
+ * The stream of Server-Sent Events of a single client connection. 
+ * <p>
+ * It can be injected into resource methods with the <code>@Context</code> annotation, the method 
+ * typically registers it with a {@link SseBroadcaster} or hands it over to a background task and 
+ * returns immediately. The connection remains open without occupying the request thread
+ * until the sink is closed or the client disconnects. 
+ */
+public interface SseEventSink {
+    String SERVER_SENT_EVENTS = "text/event-stream";
+    
+    /**
+     * Writes and flushes the event
+     * @param event the event
+     * @throws IOException if the event can not be written, the sink is closed in this case
+     */
+    void send(OutboundSseEvent event) throws IOException;
+    
+    boolean isClosed();
+    
+    /**
+     * Closes the sink and completes the response
+     */
+    void close();
+}
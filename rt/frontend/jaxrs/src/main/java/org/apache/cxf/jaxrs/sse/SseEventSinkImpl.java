@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.sse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.jaxrs.impl.AsyncResponseImpl;
+import org.apache.cxf.jaxrs.impl.MetadataMap;
+import org.apache.cxf.jaxrs.provider.ServerProviderFactory;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
+
+/**
+ * {@link SseEventSink} writing to the HTTP response of the current request.
+ * <p>
+ * The request is suspended with the transport continuation once the resource method returns, 
+ * so no thread is held while the connection stays open; the events are written directly to the 
+ * servlet output stream from whichever thread sends them. Closing the sink resumes and completes 
+ * the request. 
+ */
+public class SseEventSinkImpl extends AbstractSseEventSink {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[]{};
+    
+    private final Message message;
+    private final HttpServletResponse response;
+    private final ServerProviderFactory providerFactory;
+    private final AsyncResponseImpl asyncResponse;
+    private boolean headersSent;
+    
+    public SseEventSinkImpl(Message m) {
+        response = (HttpServletResponse)m.get(AbstractHTTPDestination.HTTP_RESPONSE);
+        if (response == null || m.get(ContinuationProvider.class.getName()) == null) {
+            throw new IllegalStateException("Server-Sent Events require an HTTP transport supporting continuations");
+        }
+        message = m;
+        providerFactory = ServerProviderFactory.getInstance(m);
+        asyncResponse = new AsyncResponseImpl(m);
+        asyncResponse.register(new CompletionCallback() {
+            public void onComplete(Throwable throwable) {
+                close();
+            }
+        });
+    }
+    
+    @Override
+    protected Object getEncodingKey() {
+        return providerFactory;
+    }
+    
+    @Override
+    protected byte[] encodeData(OutboundSseEvent event) throws IOException {
+        @SuppressWarnings("unchecked")
+        MessageBodyWriter<Object> writer = (MessageBodyWriter<Object>)providerFactory.createMessageBodyWriter(
+            event.getType(), event.getGenericType(), NO_ANNOTATIONS, event.getMediaType(), message);
+        if (writer == null) {
+            throw new IOException("No MessageBodyWriter is available for " + event.getType().getName()
+                                  + " and " + event.getMediaType());
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            writer.writeTo(event.getData(), event.getType(), event.getGenericType(), NO_ANNOTATIONS,
+                           event.getMediaType(), new MetadataMap<String, Object>(), bos);
+        } finally {
+            providerFactory.clearThreadLocalProxies();
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    protected synchronized void write(byte[] bytes) throws IOException {
+        if (!headersSent) {
+            response.setStatus(200);
+            response.setContentType(SERVER_SENT_EVENTS);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            headersSent = true;
+        }
+        OutputStream os = response.getOutputStream();
+        os.write(bytes);
+        os.flush();
+    }
+
+    @Override
+    protected void doClose() {
+        asyncResponse.resume(Response.ok().build());
+    }
+}
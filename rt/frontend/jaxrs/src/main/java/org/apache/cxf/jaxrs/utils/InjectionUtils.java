@@ -108,6 +108,14 @@ public final class InjectionUtils {
     
     private static final String IGNORE_MATRIX_PARAMETERS = "ignore.matrix.parameters";
     
+    // ClassValue keeps the resolved members with the class itself so the class loaders are not pinned
+    private static final ClassValue<TypeMembers> TYPE_MEMBERS = new ClassValue<TypeMembers>() {
+        @Override
+        protected TypeMembers computeValue(Class<?> type) {
+            return new TypeMembers(type);
+        }
+    };
+    
     private InjectionUtils() {
         
     }
@@ -386,28 +394,25 @@ public final class InjectionUtils {
         if (pClass == String.class && !adapterHasToBeUsed) {
             return pClass.cast(value);
         }
+        TypeMembers members = TYPE_MEMBERS.get(cls);
         // check constructors accepting a single String value
-        try {
-            Constructor<?> c = cls.getConstructor(new Class<?>[]{String.class});
-            result = c.newInstance(new Object[]{value});
-        } catch (NoSuchMethodException ex) {
-            // try valueOf
-        } catch (WebApplicationException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            Throwable t = getOrThrowActualException(ex);
-            LOG.severe(new org.apache.cxf.common.i18n.Message("CLASS_CONSTRUCTOR_FAILURE", 
-                                                               BUNDLE, 
-                                                               pClass.getName()).toString());
-            Response r = JAXRSUtils.toResponse(HttpUtils.getParameterFailureStatus(pType));
-            throw ExceptionUtils.toHttpException(t, r);
+        if (members.stringConstructor != null) {
+            try {
+                result = members.stringConstructor.newInstance(new Object[]{value});
+            } catch (WebApplicationException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                Throwable t = getOrThrowActualException(ex);
+                LOG.severe(new org.apache.cxf.common.i18n.Message("CLASS_CONSTRUCTOR_FAILURE", 
+                                                                   BUNDLE, 
+                                                                   pClass.getName()).toString());
+                Response r = JAXRSUtils.toResponse(HttpUtils.getParameterFailureStatus(pType));
+                throw ExceptionUtils.toHttpException(t, r);
+            }
         }
         if (result == null) {
             // check for valueOf(String) static methods
-            String[] methodNames = cls.isEnum() 
-                ? new String[] {"fromString", "fromValue", "valueOf"} 
-                : new String[] {"valueOf", "fromString"};
-            result = evaluateFactoryMethods(value, pType, result, cls, methodNames);
+            result = evaluateFactoryMethods(value, pType, result, cls, members.factoryMethods);
         }
         
         if (adapterHasToBeUsed) {
@@ -473,11 +478,11 @@ public final class InjectionUtils {
     }
 
     private static Object evaluateFactoryMethods(String value, ParameterType pType, Object result,
-                                                 Class<?> cls, String[] methodNames) {
+                                                 Class<?> cls, List<Method> methods) {
         Exception factoryMethodEx = null; 
-        for (String mName : methodNames) {
+        for (Method m : methods) {
             try {
-                result = evaluateFactoryMethod(value, cls, pType, mName);
+                result = evaluateFactoryMethod(value, cls, m);
                 if (result != null) {
                     factoryMethodEx = null;
                     break;
@@ -486,7 +491,7 @@ public final class InjectionUtils {
                 // If it is enum and the method name is "fromValue" then don't throw 
                 // the exception immediately but try the next factory method
                 factoryMethodEx = ex;
-                if (!cls.isEnum() || !"fromValue".equals(mName)) {
+                if (!cls.isEnum() || !"fromValue".equals(m.getName())) {
                     break;
                 }
             }            
@@ -504,16 +509,10 @@ public final class InjectionUtils {
 
     private static <T> T evaluateFactoryMethod(String value,
                                                Class<T> pClass,
-                                               ParameterType pType,
-                                               String methodName) 
+                                               Method m) 
         throws InvocationTargetException {
         try {
-            Method m = pClass.getMethod(methodName, new Class<?>[]{String.class});
-            if (Modifier.isStatic(m.getModifiers())) {
-                return pClass.cast(m.invoke(null, new Object[]{value}));
-            }
-        } catch (NoSuchMethodException ex) {
-            // no luck: try another factory methods
+            return pClass.cast(m.invoke(null, new Object[]{value}));
         } catch (IllegalAccessException ex) {
             // factory method is not accessible: try another
         }
@@ -579,13 +578,17 @@ public final class InjectionUtils {
 
                 Object setter = null;
                 Object getter = null;
-                for (Method m : paramType.getMethods()) {
-                    if (m.getName().equalsIgnoreCase("set" + memberKey)
+                TypeMembers members = TYPE_MEMBERS.get(paramType);
+                String setterName = "set" + memberKey;
+                String getterName = "get" + memberKey;
+                String isName = "is" + memberKey;
+                for (Method m : members.methods) {
+                    if (m.getName().equalsIgnoreCase(setterName)
                         && m.getParameterTypes().length == 1) {
                         setter = m;
-                    } else if (m.getName().equalsIgnoreCase("get" + memberKey)
+                    } else if (m.getName().equalsIgnoreCase(getterName)
                         || isBooleanType(m.getReturnType()) 
-                           && m.getName().equalsIgnoreCase("is" + memberKey)) {
+                           && m.getName().equalsIgnoreCase(isName)) {
                         getter = m;
                     }
                     if (setter != null && getter != null) {
@@ -593,7 +596,7 @@ public final class InjectionUtils {
                     }
                 }
                 if (setter == null) {
-                    for (Field f : paramType.getFields()) {
+                    for (Field f : members.fields) {
                         if (f.getName().equalsIgnoreCase(memberKey)) {
                             setter = f;
                             getter = f;
@@ -751,15 +754,17 @@ public final class InjectionUtils {
                 String memberKey = entry.getKey();
                 Class<?> memberType = null;
 
-                for (Method m : realType.getMethods()) {
-                    if (m.getName().equalsIgnoreCase("set" + memberKey)
+                TypeMembers members = TYPE_MEMBERS.get(realType);
+                String setterName = "set" + memberKey;
+                for (Method m : members.methods) {
+                    if (m.getName().equalsIgnoreCase(setterName)
                         && m.getParameterTypes().length == 1) {
                         memberType = m.getParameterTypes()[0];
                         break;
                     }
                 }
                 if (memberType == null) {
-                    for (Field f : realType.getFields()) {
+                    for (Field f : members.fields) {
                         if (f.getName().equalsIgnoreCase(memberKey)) {
                             memberType = f.getType();
                             break;
@@ -1405,4 +1410,46 @@ public final class InjectionUtils {
     public static Object getEntity(Object o) {
         return o instanceof GenericEntity ? ((GenericEntity<?>)o).getEntity() : o;
     }
+
+    /**
+     * The members of a parameter or bean class which are otherwise looked up reflectively 
+     * on every request: the String constructor, the static String factory methods in the order
+     * they are tried, and the public methods and fields used to populate the beans.
+     */
+    private static final class TypeMembers {
+        private final Constructor<?> stringConstructor;
+        private final List<Method> factoryMethods;
+        private final Method[] methods;
+        private final Field[] fields;
+        
+        TypeMembers(Class<?> cls) {
+            stringConstructor = getStringConstructor(cls);
+            String[] methodNames = cls.isEnum() 
+                ? new String[] {"fromString", "fromValue", "valueOf"} 
+                : new String[] {"valueOf", "fromString"};
+            List<Method> list = new ArrayList<Method>(methodNames.length);
+            for (String methodName : methodNames) {
+                try {
+                    Method m = cls.getMethod(methodName, new Class<?>[]{String.class});
+                    if (Modifier.isStatic(m.getModifiers())) {
+                        list.add(m);
+                    }
+                } catch (NoSuchMethodException ex) {
+                    // no luck: try another factory methods
+                }
+            }
+            factoryMethods = Collections.unmodifiableList(list);
+            methods = cls.getMethods();
+            fields = cls.getFields();
+        }
+
+        private static Constructor<?> getStringConstructor(Class<?> cls) {
+            try {
+                return cls.getConstructor(new Class<?>[]{String.class});
+            } catch (NoSuchMethodException ex) {
+                // try valueOf
+                return null;
+            }
+        }
+    }
 }
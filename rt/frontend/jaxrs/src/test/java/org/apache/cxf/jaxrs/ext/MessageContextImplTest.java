@@ -19,6 +19,14 @@
 
 package org.apache.cxf.jaxrs.ext;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -33,6 +41,10 @@ import javax.ws.rs.ext.Providers;
 import javax.xml.bind.JAXBContext;
 
 import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.jaxrs.ext.multipart.Attachment;
+import org.apache.cxf.jaxrs.ext.multipart.MultipartBody;
+import org.apache.cxf.jaxrs.ext.multipart.StreamingMultipartBody;
 import org.apache.cxf.jaxrs.impl.HttpHeadersImpl;
 import org.apache.cxf.jaxrs.impl.HttpServletResponseFilter;
 import org.apache.cxf.jaxrs.impl.ProvidersImpl;
@@ -162,6 +174,52 @@ public class MessageContextImplTest extends Assert {
         assertSame(resolver2, resolver);
     }
     
+    @Test
+    public void testStreamingAttachments() throws Exception {
+        Message m = createMultipartMessage();
+        MessageContext mc = new MessageContextImpl(m);
+        StreamingMultipartBody body = 
+            (StreamingMultipartBody)mc.get(StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        assertSame(body, mc.get(StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS));
+        assertEquals("multipart/form-data", body.getType().getType() + "/" + body.getType().getSubtype());
+        
+        Iterator<Attachment> it = body.iterator();
+        assertTrue(it.hasNext());
+        Attachment first = it.next();
+        assertEquals("field1", first.getContentDisposition().getParameter("name"));
+        assertEquals("value1", IOUtils.readStringFromStream(first.getDataHandler().getInputStream()));
+        
+        // the second part is skipped and has to be cached when the third one is read
+        assertTrue(it.hasNext());
+        Attachment second = it.next();
+        assertTrue(it.hasNext());
+        Attachment third = it.next();
+        assertEquals("file", third.getContentDisposition().getParameter("name"));
+        assertEquals("the file content", IOUtils.readStringFromStream(third.getDataHandler().getInputStream()));
+        assertFalse(it.hasNext());
+        
+        assertEquals("value2", IOUtils.readStringFromStream(second.getDataHandler().getInputStream()));
+        assertSame(second, body.getAttachment("field2"));
+        
+        MultipartBody multipartBody = (MultipartBody)mc.get(MultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        assertEquals(3, multipartBody.getAllAttachments().size());
+        assertSame(third, multipartBody.getAttachment("file"));
+    }
+    
+    @Test
+    public void testStreamingAttachmentsAfterMultipartBody() throws Exception {
+        Message m = createMultipartMessage();
+        MessageContext mc = new MessageContextImpl(m);
+        MultipartBody multipartBody = (MultipartBody)mc.get(MultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        StreamingMultipartBody body = 
+            (StreamingMultipartBody)mc.get(StreamingMultipartBody.INBOUND_MESSAGE_ATTACHMENTS);
+        Iterator<Attachment> it = body.iterator();
+        for (Attachment a : multipartBody.getAllAttachments()) {
+            assertSame(a, it.next());
+        }
+        assertFalse(it.hasNext());
+    }
+    
     @Test
     public void testNoContext() {
         MessageContext mc = new MessageContextImpl(createMessage());
@@ -191,6 +249,31 @@ public class MessageContextImplTest extends Assert {
         return m;
     }
     
+    private Message createMultipartMessage() {
+        String contentType = "multipart/form-data;boundary=bqJky99mlBWa-ZuqjC53mG6EzbmlxB";
+        String payload = "--bqJky99mlBWa-ZuqjC53mG6EzbmlxB\r\n"
+            + "Content-Disposition: form-data; name=\"field1\"\r\n\r\n"
+            + "value1\r\n"
+            + "--bqJky99mlBWa-ZuqjC53mG6EzbmlxB\r\n"
+            + "Content-Disposition: form-data; name=\"field2\"\r\n\r\n"
+            + "value2\r\n"
+            + "--bqJky99mlBWa-ZuqjC53mG6EzbmlxB\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"file.txt\"\r\n"
+            + "Content-Type: text/plain\r\n\r\n"
+            + "the file content\r\n"
+            + "--bqJky99mlBWa-ZuqjC53mG6EzbmlxB--\r\n";
+        Message m = new MessageImpl();
+        Exchange e = new ExchangeImpl();
+        m.setExchange(e);
+        e.setInMessage(m);
+        m.put(Message.CONTENT_TYPE, contentType);
+        Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        headers.put("Content-Type", Collections.singletonList(contentType));
+        m.put(Message.PROTOCOL_HEADERS, headers);
+        m.setContent(InputStream.class, new ByteArrayInputStream(payload.getBytes()));
+        return m;
+    }
+    
     public static class CustomContextResolver implements ContextResolver<JAXBContext> {
 
         public JAXBContext getContext(Class<?> type) {
@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncResponseImplTest extends Assert {
+    
+    private TestContinuation cont;
+    private Message message;
+    private Exchange exchange;
+    
+    @Before
+    public void setUp() {
+        cont = new TestContinuation();
+        message = new MessageImpl();
+        exchange = new ExchangeImpl();
+        exchange.setInMessage(message);
+        message.put(ContinuationProvider.class.getName(), new ContinuationProvider() {
+            public Continuation getContinuation() {
+                return cont;
+            }
+            public void complete() {
+            }
+        });
+    }
+    
+    @Test
+    public void testResumeBeforeMethodReturns() {
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        assertTrue(ar.isSuspended());
+        assertTrue(ar.resume("book"));
+        assertFalse(ar.resume("another book"));
+        assertFalse(ar.isSuspended());
+        assertFalse(ar.suspendContinuationIfNeeded());
+        assertEquals(0, cont.suspends);
+        assertEquals(0, cont.resumes);
+        assertEquals("book", ((Response)ar.getResponseObject()).getEntity());
+    }
+    
+    @Test
+    public void testResumeAfterSuspend() {
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        assertTrue(ar.suspendContinuationIfNeeded());
+        assertEquals(1, cont.suspends);
+        assertTrue(ar.isSuspended());
+        assertTrue(ar.resume(new IllegalStateException()));
+        assertEquals(1, cont.resumes);
+        assertTrue(ar.getResponseObject() instanceof IllegalStateException);
+    }
+    
+    @Test
+    public void testCancel() {
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.suspendContinuationIfNeeded();
+        assertTrue(ar.cancel(10));
+        assertTrue(ar.isCancelled());
+        assertFalse(ar.cancel());
+        Response r = (Response)ar.getResponseObject();
+        assertEquals(503, r.getStatus());
+        assertEquals("10", r.getHeaderString("Retry-After"));
+        assertEquals(1, cont.resumes);
+    }
+    
+    @Test
+    public void testTimeoutWithoutHandler() throws Exception {
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.suspendContinuationIfNeeded();
+        assertTrue(ar.setTimeout(20, TimeUnit.MILLISECONDS));
+        assertTrue(cont.resumed.await(5, TimeUnit.SECONDS));
+        assertTrue(ar.getResponseObject() instanceof ServiceUnavailableException);
+        assertFalse(ar.setTimeout(20, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testTimeoutHandlerCanExtendTimeout() throws Exception {
+        final AtomicInteger timeouts = new AtomicInteger();
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.setTimeoutHandler(new TimeoutHandler() {
+            public void handleTimeout(AsyncResponse asyncResponse) {
+                if (timeouts.incrementAndGet() == 1) {
+                    asyncResponse.setTimeout(20, TimeUnit.MILLISECONDS);
+                } else {
+                    asyncResponse.resume("late");
+                }
+            }
+        });
+        ar.suspendContinuationIfNeeded();
+        ar.setTimeout(20, TimeUnit.MILLISECONDS);
+        assertTrue(cont.resumed.await(5, TimeUnit.SECONDS));
+        assertEquals(2, timeouts.get());
+        assertEquals("late", ((Response)ar.getResponseObject()).getEntity());
+    }
+    
+    @Test
+    public void testTimeoutHandlerWithoutResume() throws Exception {
+        final AtomicInteger timeouts = new AtomicInteger();
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.setTimeoutHandler(new TimeoutHandler() {
+            public void handleTimeout(AsyncResponse asyncResponse) {
+                timeouts.incrementAndGet();
+            }
+        });
+        ar.suspendContinuationIfNeeded();
+        ar.setTimeout(20, TimeUnit.MILLISECONDS);
+        assertTrue(cont.resumed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, timeouts.get());
+        assertEquals(1, cont.resumes);
+        assertTrue(ar.getResponseObject() instanceof ServiceUnavailableException);
+        assertFalse(ar.isSuspended());
+    }
+    
+    @Test
+    public void testTimeoutHandlerRunsOnEndpointExecutor() throws Exception {
+        final AtomicInteger executed = new AtomicInteger();
+        final Thread[] handlerThread = new Thread[1];
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                executed.incrementAndGet();
+                Thread t = new Thread(command, "endpoint-executor");
+                t.start();
+            }
+        };
+        Endpoint endpoint = EasyMock.createMock(Endpoint.class);
+        EasyMock.expect(endpoint.getExecutor()).andReturn(executor).anyTimes();
+        EasyMock.replay(endpoint);
+        exchange.put(Endpoint.class, endpoint);
+        
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.setTimeoutHandler(new TimeoutHandler() {
+            public void handleTimeout(AsyncResponse asyncResponse) {
+                handlerThread[0] = Thread.currentThread();
+                asyncResponse.resume("late");
+            }
+        });
+        ar.suspendContinuationIfNeeded();
+        ar.setTimeout(20, TimeUnit.MILLISECONDS);
+        assertTrue(cont.resumed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executed.get());
+        assertEquals("endpoint-executor", handlerThread[0].getName());
+        assertEquals("late", ((Response)ar.getResponseObject()).getEntity());
+    }
+    
+    @Test
+    public void testResumeCancelsTimeout() throws Exception {
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.suspendContinuationIfNeeded();
+        ar.setTimeout(50, TimeUnit.MILLISECONDS);
+        ar.resume("book");
+        Thread.sleep(100);
+        assertEquals(1, cont.resumes);
+        assertEquals("book", ((Response)ar.getResponseObject()).getEntity());
+    }
+    
+    @Test
+    public void testCompletionCallbacks() {
+        final AtomicInteger completed = new AtomicInteger();
+        AsyncResponseImpl ar = new AsyncResponseImpl(message);
+        ar.register(new CompletionCallback() {
+            public void onComplete(Throwable throwable) {
+                completed.incrementAndGet();
+            }
+        });
+        ar.resume("book");
+        ar.onComplete();
+        assertTrue(ar.isDone());
+        assertEquals(1, completed.get());
+        assertFalse(ar.resume("another book"));
+    }
+    
+    private static class TestContinuation implements Continuation {
+        private final CountDownLatch resumed = new CountDownLatch(1);
+        private volatile int suspends;
+        private volatile int resumes;
+        private volatile boolean pending;
+        private volatile Object object;
+        
+        public boolean suspend(long timeout) {
+            suspends++;
+            pending = true;
+            return true;
+        }
+        public void resume() {
+            resumes++;
+            pending = false;
+            resumed.countDown();
+        }
+        public void reset() {
+        }
+        public boolean isNew() {
+            return suspends == 0;
+        }
+        public boolean isPending() {
+            return pending;
+        }
+        public boolean isResumed() {
+            return resumes > 0;
+        }
+        public Object getObject() {
+            return object;
+        }
+        public void setObject(Object o) {
+            object = o;
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.cxf.jaxrs.provider;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -55,6 +56,7 @@ import org.apache.cxf.jaxrs.Customer;
 import org.apache.cxf.jaxrs.CustomerParameterHandler;
 import org.apache.cxf.jaxrs.JAXBContextProvider;
 import org.apache.cxf.jaxrs.JAXBContextProvider2;
+import org.apache.cxf.jaxrs.ext.DynamicEntityProvider;
 import org.apache.cxf.jaxrs.impl.MetadataMap;
 import org.apache.cxf.jaxrs.impl.WebApplicationExceptionMapper;
 import org.apache.cxf.jaxrs.model.AbstractResourceInfo;
@@ -712,6 +714,161 @@ public class ProviderFactoryTest extends Assert {
         
     }
     
+    @Test
+    public void testReaderSelectionIsCached() {
+        ProviderFactory pf = ServerProviderFactory.getInstance();
+        CountingReader reader = new CountingReader();
+        pf.registerUserProvider(reader);
+        MediaType mt = MediaType.valueOf("application/counting");
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        assertEquals(1, reader.getCount());
+        
+        reader.setReadable(false);
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        pf.clearSelectionCache();
+        assertNotSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        
+        reader.setReadable(true);
+        pf.registerUserProvider(new WildcardReader());
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        assertEquals(3, reader.getCount());
+    }
+    
+    @Test
+    public void testReaderSelectionIgnoresRequestParameters() {
+        ProviderFactory pf = ServerProviderFactory.getInstance();
+        CountingReader reader = new CountingReader();
+        pf.registerUserProvider(reader);
+        for (String boundary : new String[] {"a", "b", "c"}) {
+            MediaType mt = MediaType.valueOf("application/counting;charset=UTF-8;boundary=" + boundary);
+            assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        }
+        assertEquals(1, reader.getCount());
+    }
+    
+    @Test
+    public void testReaderSelectionKeepsDeclaredParameters() {
+        ProviderFactory pf = ServerProviderFactory.getInstance();
+        VersionedReader reader = new VersionedReader();
+        pf.registerUserProvider(reader);
+        MediaType mt = MediaType.valueOf("application/versioned;version=1;boundary=a");
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        mt = MediaType.valueOf("application/versioned;version=2;boundary=a");
+        assertNotSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+    }
+    
+    @Test
+    public void testReaderSelectionCacheEvictsLeastRecentlyUsed() {
+        ProviderFactory pf = ServerProviderFactory.getInstance();
+        CountingReader reader = new CountingReader();
+        pf.registerUserProvider(reader);
+        pf.registerUserProvider(new VersionedReader());
+        MediaType mt = MediaType.valueOf("application/counting");
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        for (int i = 1; i <= 1100; i++) {
+            // the version parameter is declared by a reader, every version is a new selection
+            MediaType versioned = MediaType.valueOf("application/counting;version=" + i);
+            assertSame(reader, 
+                       pf.createMessageBodyReader(Book.class, Book.class, null, versioned, new MessageImpl()));
+            assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        }
+        assertEquals(1101, reader.getCount());
+        
+        MediaType first = MediaType.valueOf("application/counting;version=1");
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, first, new MessageImpl()));
+        assertEquals(1102, reader.getCount());
+    }
+    
+    @Test
+    public void testDynamicReaderSelectionIsNotCached() {
+        ProviderFactory pf = ServerProviderFactory.getInstance();
+        CountingReader reader = new DynamicCountingReader();
+        pf.registerUserProvider(reader);
+        MediaType mt = MediaType.valueOf("application/counting");
+        assertSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        reader.setReadable(false);
+        assertNotSame(reader, pf.createMessageBodyReader(Book.class, Book.class, null, mt, new MessageImpl()));
+        assertEquals(2, reader.getCount());
+    }
+    
+    @Test
+    public void testReadThroughCachingProviderTwice() throws Exception {
+        ServerProviderFactory pf = ServerProviderFactory.getInstance();
+        BookCachingReader cachingReader = new BookCachingReader();
+        pf.registerUserProvider(cachingReader);
+        pf.registerUserProvider(new BookTextReader());
+        Message m = prepareMessage("text/book", null);
+        Endpoint endpoint = EasyMock.createMock(Endpoint.class);
+        EasyMock.expect(endpoint.get(ServerProviderFactory.class.getName())).andReturn(pf).anyTimes();
+        EasyMock.replay(endpoint);
+        m.getExchange().put(Endpoint.class, endpoint);
+        
+        // the caching reader looks up its delegate through the same factory, the cached
+        // selection of the caching reader itself must not be returned to it
+        MediaType mt = MediaType.valueOf("text/book");
+        for (int i = 0; i < 2; i++) {
+            MessageBodyReader<Book> reader = pf.createMessageBodyReader(Book.class, Book.class, null, mt, m);
+            assertSame(cachingReader, reader);
+            Book book = reader.readFrom(Book.class, Book.class, null, mt, new MetadataMap<String, String>(),
+                                        new ByteArrayInputStream(("book" + i).getBytes()));
+            assertEquals("book" + i, book.getName());
+        }
+    }
+    
+    @Consumes("text/book")
+    private static class BookCachingReader extends CachingMessageBodyReader<Book> {
+    }
+    
+    @Consumes("text/*")
+    private static class BookTextReader implements MessageBodyReader<Book> {
+        
+        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, 
+                                  MediaType mediaType) {
+            return Book.class == type;
+        }
+
+        public Book readFrom(Class<Book> cls, Type type, Annotation[] anns, MediaType mt, 
+                             MultivaluedMap<String, String> headers, InputStream is) 
+            throws IOException, WebApplicationException {
+            return new Book(IOUtils.toString(is), 1L);
+        }
+    }
+    
+    @Consumes("application/counting")
+    private static class CountingReader implements MessageBodyReader<Book> {
+        private int count;
+        private boolean readable = true;
+        
+        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, 
+                                  MediaType mediaType) {
+            count++;
+            return readable;
+        }
+
+        public Book readFrom(Class<Book> arg0, Type arg1, Annotation[] arg2, MediaType arg3, 
+                             MultivaluedMap<String, String> arg4, InputStream arg5) 
+            throws IOException, WebApplicationException {
+            return null;
+        }
+        
+        public void setReadable(boolean readable) {
+            this.readable = readable;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+    }
+    
+    @DynamicEntityProvider
+    private static class DynamicCountingReader extends CountingReader {
+    }
+    
+    @Consumes("application/versioned;version=1")
+    private static class VersionedReader extends CountingReader {
+    }
+    
     @Produces("*/*")
     @Consumes("*/*")
     private static class WildcardReader implements MessageBodyReader<Object> {
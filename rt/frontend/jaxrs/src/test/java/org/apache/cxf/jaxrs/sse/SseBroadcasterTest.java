@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.sse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SseBroadcasterTest extends Assert {
+
+    @Test
+    public void testEncodeEvent() throws Exception {
+        TestSink sink = new TestSink("key");
+        OutboundSseEvent event = OutboundSseEvent.builder()
+            .id("1").name("update").reconnectDelay(500).comment("note").data("line1\nline2").build();
+        sink.send(event);
+        assertEquals(": note\nevent: update\nid: 1\nretry: 500\ndata: line1\ndata: line2\n\n", sink.getOutput());
+    }
+    
+    @Test
+    public void testEncodeSerializedData() throws Exception {
+        TestSink sink = new TestSink("key");
+        sink.send(OutboundSseEvent.builder().data(Integer.valueOf(5)).build());
+        assertEquals("data: <5>\n\n", sink.getOutput());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMultilineIdIsRejected() throws Exception {
+        new TestSink("key").encode(OutboundSseEvent.builder().id("1\n2").data("a").build());
+    }
+    
+    @Test
+    public void testBroadcastEncodesOncePerKey() throws Exception {
+        TestSink sink1 = new TestSink("key1");
+        TestSink sink2 = new TestSink("key1");
+        TestSink sink3 = new TestSink("key2");
+        SseBroadcaster broadcaster = new SseBroadcaster();
+        assertTrue(broadcaster.register(sink1));
+        assertFalse(broadcaster.register(sink1));
+        broadcaster.register(sink2);
+        broadcaster.register(sink3);
+        
+        broadcaster.broadcast(OutboundSseEvent.builder().data(Integer.valueOf(1)).build());
+        
+        assertEquals(1, sink1.encodings + sink2.encodings);
+        assertEquals(1, sink3.encodings);
+        assertEquals("data: <1>\n\n", sink1.getOutput());
+        assertEquals("data: <1>\n\n", sink2.getOutput());
+        assertEquals("data: <1>\n\n", sink3.getOutput());
+    }
+    
+    @Test
+    public void testFailedAndClosedSinksAreRemoved() throws Exception {
+        TestSink sink1 = new TestSink("key");
+        TestSink sink2 = new TestSink("key");
+        TestSink sink3 = new TestSink("key");
+        sink2.failing = true;
+        SseBroadcaster broadcaster = new SseBroadcaster();
+        broadcaster.register(sink1);
+        broadcaster.register(sink2);
+        broadcaster.register(sink3);
+        sink3.close();
+        
+        broadcaster.broadcast(OutboundSseEvent.builder().data("a").build());
+        assertEquals(1, broadcaster.getSinkCount());
+        assertTrue(sink2.isClosed());
+        assertEquals("data: a\n\n", sink1.getOutput());
+        
+        broadcaster.close();
+        assertTrue(sink1.isClosed());
+        assertEquals(0, broadcaster.getSinkCount());
+        try {
+            broadcaster.register(new TestSink("key"));
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testBroadcastWithExecutor() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        SseBroadcaster broadcaster = new SseBroadcaster(new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        });
+        TestSink sink = new TestSink("key");
+        broadcaster.register(sink);
+        broadcaster.register(new TestSink("key"));
+        broadcaster.broadcast(OutboundSseEvent.builder().comment("").build());
+        assertEquals(2, tasks.size());
+        assertEquals("", sink.getOutput());
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        assertEquals(": \n\n", sink.getOutput());
+    }
+    
+    private static class TestSink extends AbstractSseEventSink {
+        private final Object key;
+        private final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        private int encodings;
+        private boolean failing;
+        
+        TestSink(Object key) {
+            this.key = key;
+        }
+        
+        String getOutput() throws IOException {
+            return os.toString("UTF-8");
+        }
+        
+        @Override
+        public byte[] encode(OutboundSseEvent event) throws IOException {
+            encodings++;
+            return super.encode(event);
+        }
+        
+        @Override
+        protected Object getEncodingKey() {
+            return key;
+        }
+        
+        @Override
+        protected byte[] encodeData(OutboundSseEvent event) throws IOException {
+            return ("<" + event.getData() + ">").getBytes("UTF-8");
+        }
+
+        @Override
+        protected void write(byte[] bytes) throws IOException {
+            if (failing) {
+                throw new IOException("disconnected");
+            }
+            os.write(bytes);
+        }
+
+        @Override
+        protected void doClose() {
+        }
+    }
+}
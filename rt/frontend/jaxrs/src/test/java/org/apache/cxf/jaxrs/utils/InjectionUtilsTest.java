@@ -34,6 +34,7 @@ import javax.xml.bind.annotation.adapters.XmlAdapter;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.jaxrs.impl.MetadataMap;
 import org.apache.cxf.jaxrs.model.ParameterType;
 import org.apache.cxf.jaxrs.provider.ProviderFactory;
 import org.apache.cxf.jaxrs.provider.ServerProviderFactory;
@@ -145,6 +146,47 @@ public class InjectionUtilsTest extends Assert {
         assertEquals("Type is wrong", CarType.AUDI, carType);
     }
 
+    @Test
+    public void testHandleParameterWithFactoryMethod() {
+        // the second call uses the factory method resolved by the first one
+        for (int i = 0; i < 2; i++) {
+            Code code = InjectionUtils.handleParameter("id" + i, false, Code.class, Code.class, null,
+                                                   ParameterType.QUERY, null);
+            assertEquals("id" + i, code.getValue());
+        }
+    }
+
+    @Test
+    public void testHandleBean() {
+        MultivaluedMap<String, String> values = new MetadataMap<String, String>();
+        values.add("a", "aValue");
+        values.add("b", "123");
+        values.add("d.a", "dValue");
+        for (int i = 0; i < 2; i++) {
+            CustomerBean1 bean = (CustomerBean1)InjectionUtils.handleBean(CustomerBean1.class, 
+                new Annotation[]{}, values, ParameterType.QUERY, null, false);
+            assertEquals("aValue", bean.getA());
+            assertEquals(Long.valueOf(123), bean.getB());
+            assertEquals("dValue", bean.getD().getA());
+        }
+    }
+
+    public static final class Code {
+        private final String value;
+
+        private Code(String value) {
+            this.value = value;
+        }
+
+        public static Code fromString(String s) {
+            return new Code(s);
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
     static class CustomerBean1 {
         private String a;
         private Long b;
@@ -43,6 +43,8 @@ import javax.xml.ws.handler.MessageContext;
 import javax.xml.ws.handler.soap.SOAPHandler;
 import javax.xml.ws.handler.soap.SOAPMessageContext;
 
+import org.w3c.dom.Element;
+
 import org.apache.cxf.binding.soap.HeaderUtil;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
@@ -52,6 +54,7 @@ import org.apache.cxf.binding.soap.saaj.SAAJInInterceptor;
 import org.apache.cxf.binding.soap.saaj.SAAJOutInterceptor;
 import org.apache.cxf.binding.soap.saaj.SAAJUtils;
 import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.Interceptor;
@@ -254,24 +257,30 @@ public class SOAPHandlerInterceptor extends
         
         Exchange exch = message.getExchange();
         setupBindingOperationInfo(exch, sm);
+        List<Element> params = new ArrayList<Element>();
+        message.put(MessageContext.REFERENCE_PARAMETERS, params);
+        if (isStreaming(message, sm)) {
+            // the SOAPMessage is only created if a handler asks for it, the reference
+            // parameters and the fault check can be served from what the binding has read
+            for (Header h : message.getHeaders()) {
+                if (h.getObject() instanceof Element && isReferenceParameter((Element)h.getObject())) {
+                    params.add((Element)h.getObject());
+                }
+            }
+            if (isRequestor(message) && message.getVersion().getFault().equals(getFirstBodyElement(message))) {
+                return null;
+            }
+            return sm;
+        }
         SOAPMessage msg = sm.getMessage();
         try {            
-            List<SOAPElement> params = new ArrayList<SOAPElement>();
-            message.put(MessageContext.REFERENCE_PARAMETERS, params);
             SOAPHeader head = SAAJUtils.getHeader(msg);
             if (head != null) {
                 Iterator<Node> it = CastUtils.cast(head.getChildElements());
                 while (it != null && it.hasNext()) {
                     Node nd = it.next();
-                    if (nd instanceof SOAPElement) {
-                        SOAPElement el = (SOAPElement)nd;
-                        if (el.hasAttributeNS(Names.WSA_NAMESPACE_NAME, "IsReferenceParameter")
-                            && ("1".equals(el.getAttributeNS(Names.WSA_NAMESPACE_NAME,
-                                                             "IsReferenceParameter"))
-                                || Boolean.parseBoolean(el.getAttributeNS(Names.WSA_NAMESPACE_NAME,
-                                                                          "IsReferenceParameter")))) {
-                            params.add(el);
-                        }
+                    if (nd instanceof SOAPElement && isReferenceParameter((SOAPElement)nd)) {
+                        params.add((SOAPElement)nd);
                     }
                 }
             }
@@ -287,6 +296,40 @@ public class SOAPHandlerInterceptor extends
         return sm;
     }
 
+    private static boolean isReferenceParameter(Element el) {
+        return el.hasAttributeNS(Names.WSA_NAMESPACE_NAME, "IsReferenceParameter")
+            && ("1".equals(el.getAttributeNS(Names.WSA_NAMESPACE_NAME, "IsReferenceParameter"))
+                || Boolean.parseBoolean(el.getAttributeNS(Names.WSA_NAMESPACE_NAME, "IsReferenceParameter")));
+    }
+
+    /**
+     * An inbound message for which nothing has created a SOAPMessage yet is still read
+     * from the stream and only turned into a SOAPMessage if a handler asks for it.
+     */
+    private boolean isStreaming(SoapMessage message, SOAPMessageContextImpl sm) {
+        return !isOutbound(message) && sm.getExistingMessage() == null
+            && message.getContent(XMLStreamReader.class) != null;
+    }
+
+    /**
+     * Moves the reader to the first element in the SOAP body, the same way the
+     * CheckFaultInterceptor would, and returns its name.
+     */
+    private static QName getFirstBodyElement(SoapMessage message) {
+        XMLStreamReader xmlReader = message.getContent(XMLStreamReader.class);
+        try {
+            int x = xmlReader.getEventType();
+            while (x != XMLStreamReader.START_ELEMENT
+                && x != XMLStreamReader.END_ELEMENT
+                && xmlReader.hasNext()) {
+                x = xmlReader.next();
+            }
+            return x == XMLStreamReader.START_ELEMENT ? xmlReader.getName() : null;
+        } catch (XMLStreamException e) {
+            throw new Fault(e);
+        }
+    }
+
     private XMLStreamReader createXMLStreamReaderFromSOAPMessage(SOAPMessage soapMessage) {
         // responseMsg.setContent(SOAPMessage.class, soapMessage);
         XMLStreamReader xmlReader = null;
@@ -318,6 +361,10 @@ public class SOAPHandlerInterceptor extends
 
     protected QName getOpQName(Exchange ex, Object data) {
         SOAPMessageContextImpl sm = (SOAPMessageContextImpl)data;
+        SoapMessage message = (SoapMessage)sm.getWrappedMessage();
+        if (isStreaming(message, sm)) {
+            return getFirstBodyElement(message);
+        }
         try {
             SOAPMessage msg = sm.getMessage();
             if (msg == null) {
@@ -38,8 +38,12 @@ import javax.xml.ws.WebServiceException;
 import javax.xml.ws.handler.MessageContext;
 import javax.xml.ws.handler.soap.SOAPMessageContext;
 
+import org.w3c.dom.Element;
+
+import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.saaj.SAAJInInterceptor;
+import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.jaxws.context.WrappedMessageContext;
 import org.apache.cxf.message.Message;
@@ -63,12 +67,7 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
     }
 
     public SOAPMessage getMessage() {
-        SOAPMessage message = null;
-        if (getWrappedMessage().getContent(Object.class) instanceof SOAPMessage) {
-            message = (SOAPMessage)getWrappedMessage().getContent(Object.class);
-        } else {
-            message = getWrappedMessage().getContent(SOAPMessage.class);
-        }
+        SOAPMessage message = getExistingMessage();
         
         //Only happens to non-Dispatch/Provider case.
         if (null == message) {
@@ -82,7 +81,24 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
         return message;
     }
 
+    /**
+     * Returns the SOAPMessage if it has already been created, without building one from
+     * the incoming stream.
+     */
+    SOAPMessage getExistingMessage() {
+        if (getWrappedMessage().getContent(Object.class) instanceof SOAPMessage) {
+            return (SOAPMessage)getWrappedMessage().getContent(Object.class);
+        }
+        return getWrappedMessage().getContent(SOAPMessage.class);
+    }
+
     public Object[] getHeaders(QName name, JAXBContext context, boolean allRoles) {
+        if (!isOutbound() && getExistingMessage() == null) {
+            Object[] headers = getParsedHeaders(name, context, allRoles);
+            if (headers != null) {
+                return headers;
+            }
+        }
         SOAPMessage msg = getMessage();
         SOAPHeader header;
         try {
@@ -110,6 +126,32 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
         } 
     }
 
+    /**
+     * Unmarshals the headers from the DOM elements the binding has already read, so that
+     * reading a header does not require the whole envelope to be turned into a SOAPMessage.
+     * Returns null if some header is not available as an element.
+     */
+    private Object[] getParsedHeaders(QName name, JAXBContext context, boolean allRoles) {
+        List<Header> headers = getWrappedSoapMessage().getHeaders();
+        for (Header h : headers) {
+            if (!(h instanceof SoapHeader) || !(h.getObject() instanceof Element)) {
+                return null;
+            }
+        }
+        try {
+            List<Object> ret = new ArrayList<Object>();
+            for (Header h : headers) {
+                if ((allRoles || roles.contains(((SoapHeader)h).getActor()))
+                    && name.equals(h.getName())) {
+                    ret.add(context.createUnmarshaller().unmarshal((Element)h.getObject()));
+                }
+            }
+            return ret.toArray(new Object[ret.size()]);
+        } catch (JAXBException e) {
+            throw new WebServiceException(e);
+        }
+    }
+
     public Set<String> getRoles() {
         return roles;
     }
@@ -25,9 +25,12 @@ import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -69,6 +72,23 @@ public class JaxWsServiceConfiguration extends AbstractServiceConfiguration {
 
     private static final Logger LOG = LogUtils.getL7dLogger(JaxWsServiceConfiguration.class); 
 
+    private static final Object NO_SUCH_METHOD = new Object();
+
+    /**
+     * The endpoint and implementor class methods matching the SEI methods are looked up
+     * several times for every parameter of every operation, including the misses, and
+     * again for every endpoint created for the same class. The lookups are kept with the
+     * endpoint class and keyed by method signature, so they neither keep the SEI and its
+     * class loader alive nor the endpoint class once it is unloaded.
+     */
+    private static final ClassValue<ConcurrentMap<String, Object>> DECLARED_METHODS 
+        = new ClassValue<ConcurrentMap<String, Object>>() {
+            @Override
+            protected ConcurrentMap<String, Object> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<String, Object>(16, 0.75f, 2);
+            }
+        };
+
     private JaxWsImplementorInfo implInfo;
     /**
      * We retrieve the wrapper methods more than once
@@ -220,16 +240,54 @@ public class JaxWsServiceConfiguration extends AbstractServiceConfiguration {
 
     private Method getDeclaredMethod(Class<?> endpointClass, Method method) {
         if (!method.getDeclaringClass().equals(endpointClass)) {
-            try {
-                method = endpointClass.getMethod(method.getName(), method.getParameterTypes());
-            } catch (SecurityException e) {
-                throw new ServiceConstructionException(e);
-            } catch (NoSuchMethodException e) {
+            ConcurrentMap<String, Object> methods = DECLARED_METHODS.get(endpointClass);
+            String signature = getSignature(method);
+            Object declared = methods.get(signature);
+            if (declared instanceof Method
+                && !Arrays.equals(((Method)declared).getParameterTypes(), method.getParameterTypes())) {
+                // same type names, but loaded by another class loader 
+                declared = null;
+            }
+            if (declared == null) {
+                declared = findDeclaredMethod(endpointClass, method);
+                if (declared != NO_SUCH_METHOD || !hasMethodWithSignature(endpointClass, signature)) {
+                    methods.putIfAbsent(signature, declared);
+                }
+            }
+            if (declared == NO_SUCH_METHOD) {
                 return isWebMethod(method) ? method : null;
             }
+            return (Method)declared;
         }
         return method;
     }
+    
+    private static Object findDeclaredMethod(Class<?> endpointClass, Method method) {
+        try {
+            return endpointClass.getMethod(method.getName(), method.getParameterTypes());
+        } catch (SecurityException e) {
+            throw new ServiceConstructionException(e);
+        } catch (NoSuchMethodException e) {
+            return NO_SUCH_METHOD;
+        }
+    }
+    
+    private static boolean hasMethodWithSignature(Class<?> endpointClass, String signature) {
+        for (Method m : endpointClass.getMethods()) {
+            if (signature.equals(getSignature(m))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String getSignature(Method method) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        for (Class<?> type : method.getParameterTypes()) {
+            sb.append(type.getName()).append(',');
+        }
+        return sb.append(')').toString();
+    }
 
     @Override
     public QName getInPartName(OperationInfo op, Method method, int paramNumber) {
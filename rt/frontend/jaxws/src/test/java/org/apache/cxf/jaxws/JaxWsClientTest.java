@@ -33,6 +33,7 @@ import javax.xml.ws.WebServiceException;
 
 import org.apache.cxf.endpoint.Client;
 import org.apache.cxf.endpoint.ClientImpl;
+import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.jaxws.support.JaxWsEndpointImpl;
 import org.apache.cxf.jaxws.support.JaxWsServiceFactoryBean;
@@ -143,6 +144,33 @@ public class JaxWsClientTest extends AbstractJaxWsTest {
         assertEquals("main thread does not see removal",
                      "ho", requestContext.get(key));
     }
+
+    @Test
+    public void testResponseContextPerThread() throws Exception {
+        URL url = getClass().getResource("/wsdl/hello_world.wsdl");
+        javax.xml.ws.Service s = javax.xml.ws.Service
+            .create(url, serviceName);
+        final Greeter handler = s.getPort(portName, Greeter.class);
+        final Client client = ClientProxy.getClient(handler);
+
+        client.getResponseContext().put("Hi", "ho");
+        assertSame(client.getResponseContext(), client.getResponseContext());
+
+        final Object[] result = new Object[2];
+        Thread t = new Thread() {
+            public void run() {
+                result[0] = client.getResponseContext().get("Hi");
+                client.getResponseContext().put("Hi", "there");
+                result[1] = client.getResponseContext().get("Hi");
+            }
+        };
+        t.start();
+        t.join();
+
+        assertNull("thread sees the response context of another thread", result[0]);
+        assertEquals("there", result[1]);
+        assertEquals("ho", client.getResponseContext().get("Hi"));
+    }
     @Test
     public void testRequestContextPutAndRemoveEchoDispatch() throws Exception {
         URL url = getClass().getResource("/wsdl/hello_world.wsdl");
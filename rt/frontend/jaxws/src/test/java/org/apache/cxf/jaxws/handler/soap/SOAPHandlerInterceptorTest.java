@@ -447,6 +447,53 @@ public class SOAPHandlerInterceptorTest extends Assert {
         assertEquals("sendReceiveData", qn.getLocalPart());
     }
 
+    @Test
+    public void testInBoundStreamingKeptWhenMessageNotAccessed() throws Exception {
+        @SuppressWarnings("rawtypes")
+        List<Handler> list = new ArrayList<Handler>();
+        list.add(new SOAPHandler<SOAPMessageContext>() {
+            public boolean handleMessage(SOAPMessageContext smc) {
+                return smc.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY) != null;
+            }
+
+            public boolean handleFault(SOAPMessageContext smc) {
+                return true;
+            }
+
+            public Set<QName> getHeaders() {
+                return null;
+            }
+
+            public void close(MessageContext messageContext) {
+            }
+        });
+        HandlerChainInvoker invoker = new HandlerChainInvoker(list);
+
+        IMocksControl control = createNiceControl();
+        Binding binding = control.createMock(Binding.class);
+        Exchange exchange = control.createMock(Exchange.class);
+        expect(binding.getHandlerChain()).andReturn(list).anyTimes();
+        expect(exchange.get(HandlerChainInvoker.class)).andReturn(invoker).anyTimes();
+        // This is to set direction to inbound
+        expect(exchange.getOutMessage()).andReturn(null);
+
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        message.setExchange(exchange);
+
+        XMLStreamReader reader = preparemXMLStreamReader("resources/greetMeRpcLitReq.xml");
+        message.setContent(XMLStreamReader.class, reader);
+        control.replay();
+
+        SOAPHandlerInterceptor li = new SOAPHandlerInterceptor(binding);
+        li.handleMessage(message);
+        control.verify();
+
+        // no SOAPMessage has been built and the body is still read from the original stream
+        assertNull(message.getContent(SOAPMessage.class));
+        assertSame(reader, message.getContent(XMLStreamReader.class));
+        assertEquals("sendReceiveData", reader.getName().getLocalPart());
+    }
+
     @Test
     public void testGetUnderstoodHeadersReturnsNull() {
         @SuppressWarnings("rawtypes")
@@ -144,6 +144,46 @@ public class JaxWsServiceConfigurationTest extends Assert {
         assertEquals("get wrong return partName", new QName("http://cxf.com/", "return"), partName);
     }
 
+    @Test
+    public void testGetDeclaredMethod() throws Exception {
+        JaxWsServiceFactoryBean bean = new JaxWsServiceFactoryBean();
+        bean.setServiceClass(HelloImplementor.class);
+        JaxWsServiceConfiguration jwsc = (JaxWsServiceConfiguration) bean.getServiceConfigurations().get(0);
+        jwsc.setServiceFactory(bean);
+        
+        Method sayHi = Hello.class.getMethod("sayHi");
+        Method declared = jwsc.getDeclaredMethod(sayHi);
+        assertEquals(HelloImplementor.class.getMethod("sayHi"), declared);
+        assertSame(declared, jwsc.getDeclaredMethod(sayHi));
+        
+        Method own = HelloImplementor.class.getMethod("sayHi");
+        assertSame(own, jwsc.getDeclaredMethod(own));
+        
+        // not implemented: a web method is returned as it is, any other method is ignored
+        Method sayHello = Hello.class.getMethod("sayHello", String.class, String.class);
+        assertSame(sayHello, jwsc.getDeclaredMethod(sayHello));
+        assertSame(sayHello, jwsc.getDeclaredMethod(sayHello));
+        Method sayGoodbye = Goodbye.class.getMethod("sayGoodbye");
+        assertNull(jwsc.getDeclaredMethod(sayGoodbye));
+        assertNull(jwsc.getDeclaredMethod(sayGoodbye));
+        
+        // the lookups are shared by the service factories for the same endpoint class
+        bean = new JaxWsServiceFactoryBean();
+        bean.setServiceClass(HelloImplementor.class);
+        JaxWsServiceConfiguration other = (JaxWsServiceConfiguration) bean.getServiceConfigurations().get(0);
+        other.setServiceFactory(bean);
+        assertSame(declared, other.getDeclaredMethod(sayHi));
+        assertNull(other.getDeclaredMethod(sayGoodbye));
+        
+        // and kept apart for other endpoint classes
+        bean = new JaxWsServiceFactoryBean();
+        bean.setServiceClass(GoodbyeImplementor.class);
+        jwsc = (JaxWsServiceConfiguration) bean.getServiceConfigurations().get(0);
+        jwsc.setServiceFactory(bean);
+        assertEquals(GoodbyeImplementor.class.getMethod("sayGoodbye"), jwsc.getDeclaredMethod(sayGoodbye));
+        assertSame(sayHi, jwsc.getDeclaredMethod(sayHi));
+    }
+
     private ServiceInfo getMockedServiceModel(String wsdlUrl) throws Exception {
         WSDLReader wsdlReader = WSDLFactory.newInstance().newWSDLReader();
         wsdlReader.setFeature("javax.wsdl.verbose", false);
@@ -185,6 +225,24 @@ public class JaxWsServiceConfigurationTest extends Assert {
         String sayHello(String asdf1, String asdf2);
     }
 
+    public interface Goodbye {
+        String sayGoodbye();
+    }
+
+    @WebService(name = "Hello", targetNamespace = "http://cxf.com/")
+    public static class HelloImplementor {
+        public String sayHi() {
+            return "hi";
+        }
+    }
+
+    @WebService(name = "Goodbye", targetNamespace = "http://cxf.com/")
+    public static class GoodbyeImplementor {
+        public String sayGoodbye() {
+            return "goodbye";
+        }
+    }
+
     @WebService(name = "Hello", targetNamespace = "http://cxf.com/")
     public interface HelloDefault {
         @WebMethod(operationName = "sayHi", exclude = false)
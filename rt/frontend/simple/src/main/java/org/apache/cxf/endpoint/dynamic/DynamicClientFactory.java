@@ -32,6 +32,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -39,6 +40,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
@@ -136,6 +140,10 @@ public class DynamicClientFactory {
     private Map<String, Object> jaxbContextProperties;
     private String[] schemaCompilerOptions;
     
+    private String classCacheDirectory;
+    private final ConcurrentMap<String, GeneratedClasses> generatedClasses
+        = new ConcurrentHashMap<String, GeneratedClasses>();
+    
     protected DynamicClientFactory(Bus bus) {
         this.bus = bus;
     }
@@ -156,6 +164,19 @@ public class DynamicClientFactory {
         this.schemaCompilerOptions = options;
     }
     
+    /**
+     * Sets the directory in which compiled classes are kept between calls and
+     * JVM restarts. Entries are keyed by a digest of the sources generated for
+     * the WSDL, its schemas, the binding files and the compiler options, so a
+     * changed contract simply results in a new entry. When the directory is not
+     * set the classes are compiled into the temporary directory on every call.
+     * 
+     * @param dir the cache directory, created if it does not exist
+     */
+    public void setClassCacheDirectory(String dir) {
+        classCacheDirectory = dir;
+    }
+    
     /**
      * Create a new instance using a specific <tt>Bus</tt>.
      * 
@@ -355,22 +376,73 @@ public class DynamicClientFactory {
             throw new IllegalStateException("Unable to write generated Java files for schemas: "
                                             + e.getMessage(), e);
         }
-        File classes = new File(tmpdir, stem + "-classes");
-        if (!classes.mkdir()) {
-            throw new IllegalStateException("Unable to create working directory " + classes.getPath());
-        }
-        StringBuilder classPath = new StringBuilder();
-        try {
-            setupClasspath(classPath, classLoader);
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
-        }
+        Map<String, Object> contextProperties = jaxbContextProperties;
         
+        if (contextProperties == null) {
+            contextProperties = Collections.emptyMap();
+        }
+
         List<File> srcFiles = FileUtils.getFilesRecurse(src, ".+\\.java$"); 
-        if (srcFiles.size() > 0 && !compileJavaSrc(classPath.toString(), srcFiles, classes.toString())) {
-            LOG.log(Level.SEVERE , new Message("COULD_NOT_COMPILE_SRC", LOG, wsdlUrl).toString());
+        String digest = null;
+        if (classCacheDirectory != null) {
+            digest = digestSources(src, srcFiles);
+        }
+        GeneratedClasses generated = digest == null ? null : generatedClasses.get(digest);
+        if (generated != null && generated.isCompatible(classLoader, contextProperties)) {
+            LOG.log(Level.FINE, "REUSING_GENERATED_CLASSES", new Object[] {digest, wsdlUrl});
+        } else {
+            generated = createGeneratedClasses(wsdlUrl, stem, srcFiles, digest, packageList, 
+                                               classLoader, contextProperties);
+            if (generated.isCached()) {
+                generatedClasses.put(digest, generated);
+            }
         }
         FileUtils.removeDir(src);
+        ClassLoader cl = generated.loader;
+        JAXBContext context = generated.context;
+         
+        JAXBDataBinding databinding = new JAXBDataBinding();
+        databinding.setContext(context);
+        svc.setDataBinding(databinding);
+
+        ServiceInfo svcfo = client.getEndpoint().getEndpointInfo().getService();
+
+        // Setup the new classloader!
+        ClassLoaderUtils.setThreadContextClassloader(cl);
+
+        TypeClassInitializer visitor = new TypeClassInitializer(svcfo, 
+                                                                intermediateModel,
+                                                                allowWrapperOps());
+        visitor.walk();
+        if (!generated.isCached()) {
+            // delete the classes files
+            FileUtils.removeDir(generated.classes);
+        }
+        return client;
+    }
+    
+    private GeneratedClasses createGeneratedClasses(String wsdlUrl, String stem, List<File> srcFiles,
+                                                    String digest, String packageList, ClassLoader classLoader,
+                                                    Map<String, Object> contextProperties) {
+        File classes = digest == null ? null : new File(classCacheDirectory, digest);
+        if (classes != null && classes.isDirectory()) {
+            LOG.log(Level.FINE, "USING_CACHED_CLASSES", new Object[] {classes.getPath(), wsdlUrl});
+        } else {
+            File tmpClasses = createClassesDirectory(stem, classes);
+            StringBuilder classPath = new StringBuilder();
+            try {
+                setupClasspath(classPath, classLoader);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            
+            boolean compiled = true;
+            if (srcFiles.size() > 0 && !compileJavaSrc(classPath.toString(), srcFiles, tmpClasses.toString())) {
+                LOG.log(Level.SEVERE , new Message("COULD_NOT_COMPILE_SRC", LOG, wsdlUrl).toString());
+                compiled = false;
+            }
+            classes = compiled && classes != null ? storeClasses(tmpClasses, classes) : tmpClasses;
+        }
         URL[] urls = null;
         try {
             urls = new URL[] {classes.toURI().toURL()};
@@ -381,12 +453,6 @@ public class DynamicClientFactory {
         ClassLoader cl = ClassLoaderUtils.getURLClassLoader(urls, classLoader);
 
         JAXBContext context;
-        Map<String, Object> contextProperties = jaxbContextProperties;
-        
-        if (contextProperties == null) {
-            contextProperties = Collections.emptyMap();
-        }
-        
         try {
             if (StringUtils.isEmpty(packageList)) {
                 context = JAXBContext.newInstance(new Class[0], contextProperties);
@@ -397,24 +463,112 @@ public class DynamicClientFactory {
             throw new IllegalStateException("Unable to create JAXBContext for generated packages: "
                                             + jbe.getMessage(), jbe);
         }
-         
-        JAXBDataBinding databinding = new JAXBDataBinding();
-        databinding.setContext(context);
-        svc.setDataBinding(databinding);
-
-        ServiceInfo svcfo = client.getEndpoint().getEndpointInfo().getService();
-
-        // Setup the new classloader!
-        ClassLoaderUtils.setThreadContextClassloader(cl);
+        return new GeneratedClasses(classLoader, cl, context, contextProperties, classes,
+                                    digest != null && classes.getName().equals(digest));
+    }
+    
+    /**
+     * Creates the directory the sources are compiled into. When the classes are
+     * going to be cached it is staged in the cache directory itself, so that storing
+     * them is a rename within one file system rather than a move from the temporary
+     * directory, which fails when the two are on different file systems.
+     */
+    private File createClassesDirectory(String stem, File entry) {
+        File dir = new File(tmpdir, stem + "-classes");
+        if (entry != null) {
+            File cacheDir = entry.getParentFile();
+            if (cacheDir.isDirectory() || cacheDir.mkdirs() || cacheDir.isDirectory()) {
+                dir = new File(cacheDir, "." + stem + "-classes");
+            }
+        }
+        if (!dir.mkdir()) {
+            throw new IllegalStateException("Unable to create working directory " + dir.getPath());
+        }
+        return dir;
+    }
+    
+    /**
+     * Moves freshly compiled classes into the cache. Another factory or JVM may
+     * have stored the same entry in the meantime, in which case that one is used.
+     */
+    static File storeClasses(File tmpClasses, File entry) {
+        File cacheDir = entry.getParentFile();
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+            LOG.log(Level.WARNING, "COULD_NOT_CREATE_CLASS_CACHE_DIR", cacheDir.getPath());
+            return tmpClasses;
+        }
+        if (tmpClasses.renameTo(entry)) {
+            return entry;
+        }
+        if (entry.isDirectory()) {
+            FileUtils.removeDir(tmpClasses);
+            return entry;
+        }
+        LOG.log(Level.WARNING, "COULD_NOT_STORE_GENERATED_CLASSES", entry.getPath());
+        return tmpClasses;
+    }
+    
+    /**
+     * Computes the cache key from the generated sources. These reflect the WSDL,
+     * all imported schemas, the binding files and the schema compiler options,
+     * while being independent of the URLs the contract was loaded from.
+     */
+    static String digestSources(File src, List<File> srcFiles) {
+        Map<String, File> sorted = new TreeMap<String, File>();
+        String base = src.getAbsolutePath();
+        for (File f : srcFiles) {
+            String path = f.getAbsolutePath().substring(base.length()).replace(File.separatorChar, '/');
+            sorted.put(path, f);
+        }
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(StringUtils.toBytesUTF8(SystemPropertyAction.getProperty("java.specification.version")));
+            for (Map.Entry<String, File> entry : sorted.entrySet()) {
+                md.update((byte)0);
+                md.update(StringUtils.toBytesUTF8(entry.getKey()));
+                md.update((byte)0);
+                // line comments are skipped as XJC writes a timestamp into the file header
+                for (String line : FileUtils.readLines(entry.getValue())) {
+                    if (!line.trim().startsWith("//")) {
+                        md.update(StringUtils.toBytesUTF8(line));
+                        md.update((byte)'\n');
+                    }
+                }
+            }
+            return StringUtils.toHexString(md.digest());
+        } catch (Exception ex) {
+            LOG.log(Level.WARNING, "COULD_NOT_DIGEST_GENERATED_SOURCES", ex);
+        }
+        return null;
+    }
 
-        TypeClassInitializer visitor = new TypeClassInitializer(svcfo, 
-                                                                intermediateModel,
-                                                                allowWrapperOps());
-        visitor.walk();
-        // delete the classes files
-        FileUtils.removeDir(classes);
-        return client;
+    private static class GeneratedClasses {
+        final ClassLoader parent;
+        final ClassLoader loader;
+        final JAXBContext context;
+        final Map<String, Object> contextProperties;
+        final File classes;
+        final boolean cached;
+        
+        GeneratedClasses(ClassLoader parent, ClassLoader loader, JAXBContext context,
+                         Map<String, Object> contextProperties, File classes, boolean cached) {
+            this.parent = parent;
+            this.loader = loader;
+            this.context = context;
+            this.contextProperties = contextProperties;
+            this.classes = classes;
+            this.cached = cached;
+        }
+        
+        boolean isCached() {
+            return cached;
+        }
+        
+        boolean isCompatible(ClassLoader cl, Map<String, Object> props) {
+            return parent == cl && contextProperties.equals(props);
+        }
     }
+    
     protected boolean allowWrapperOps() {
         return false;
     }
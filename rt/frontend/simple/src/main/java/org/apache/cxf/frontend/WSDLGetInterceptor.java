@@ -19,15 +19,27 @@
 
 package org.apache.cxf.frontend;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Document;
 
 import org.apache.cxf.binding.soap.interceptor.EndpointSelectionInterceptor;
 import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.common.util.UrlUtils;
+import org.apache.cxf.common.util.crypto.MessageDigestUtils;
 import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.Interceptor;
 import org.apache.cxf.interceptor.MessageSenderInterceptor;
@@ -35,13 +47,23 @@ import org.apache.cxf.interceptor.OutgoingChainInterceptor;
 import org.apache.cxf.interceptor.StaxOutInterceptor;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.staxutils.StaxUtils;
 import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
 
 public class WSDLGetInterceptor extends AbstractPhaseInterceptor<Message> {
     public static final WSDLGetInterceptor INSTANCE = new WSDLGetInterceptor();
     public static final String DOCUMENT_HOLDER = WSDLGetInterceptor.class.getName() + ".documentHolder";
+    public static final String DOCUMENT_BYTES_HOLDER = WSDLGetInterceptor.class.getName() + ".documentBytesHolder";
+    /**
+     * Contextual property which can be set to false to disable caching the generated documents
+     */
+    public static final String DOCUMENT_CACHE_ENABLED = "wsdl.document.cache";
+    private static final String DOCUMENT_CACHE = WSDLGetInterceptor.class.getName() + ".documentCache";
+    private static final int MAX_CACHED_DOCUMENTS = 100;
     private static final String TRANSFORM_SKIP = "transform.skip";
     private Interceptor<Message> wsdlGetOutInterceptor = WSDLGetOutInterceptor.INSTANCE;
     
@@ -74,7 +96,13 @@ public class WSDLGetInterceptor extends AbstractPhaseInterceptor<Message> {
         }
         Map<String, String> map = UrlUtils.parseQueryString(query);
         if (isRecognizedQuery(map)) {
-            Document doc = getDocument(utils, message, baseUri, map, ctx);
+            Document doc = null;
+            CachedDocument cachedDoc = null;
+            if (isDocumentCacheEnabled(message)) {
+                cachedDoc = getCachedDocument(utils, message, baseUri, map, ctx);
+            } else {
+                doc = getDocument(utils, message, baseUri, map, ctx);
+            }
             
             Endpoint e = message.getExchange().get(Endpoint.class);
             Message mout = new MessageImpl();
@@ -83,11 +111,24 @@ public class WSDLGetInterceptor extends AbstractPhaseInterceptor<Message> {
             mout.setInterceptorChain(OutgoingChainInterceptor.getOutInterceptorChain(message.getExchange()));
             message.getExchange().setOutMessage(mout);
 
-            mout.put(DOCUMENT_HOLDER, doc);
+            if (cachedDoc != null) {
+                addHeader(mout, "ETag", cachedDoc.etag);
+                if (isNotModified(message, cachedDoc.etag)) {
+                    mout.put(Message.RESPONSE_CODE, 304);
+                } else {
+                    mout.put(DOCUMENT_BYTES_HOLDER, cachedDoc.bytes);
+                }
+            } else {
+                mout.put(DOCUMENT_HOLDER, doc);
+            }
             mout.put(Message.CONTENT_TYPE, "text/xml");
  
             // just remove the interceptor which should not be used
             cleanUpOutInterceptors(mout);
+            if (cachedDoc != null) {
+                // the cached document is already serialized
+                removeOutInterceptor(mout, StaxOutInterceptor.class);
+            }
             
             // notice this is being added after the purge above, don't swap the order!
             mout.getInterceptorChain().add(wsdlGetOutInterceptor);
@@ -116,6 +157,109 @@ public class WSDLGetInterceptor extends AbstractPhaseInterceptor<Message> {
         
     }
 
+    private static void removeOutInterceptor(Message outMessage, Class<?> cls) {
+        Iterator<Interceptor<? extends Message>> iterator = outMessage.getInterceptorChain().iterator();
+        while (iterator.hasNext()) {
+            Interceptor<? extends Message> interceptor = iterator.next();
+            if (interceptor.getClass().equals(cls)) {
+                outMessage.getInterceptorChain().remove(interceptor);
+            }
+        }
+    }
+
+    private boolean isDocumentCacheEnabled(Message message) {
+        // custom out interceptors expect the document
+        return wsdlGetOutInterceptor != null && wsdlGetOutInterceptor.getClass() == WSDLGetOutInterceptor.class
+            && MessageUtils.getContextualBoolean(message, DOCUMENT_CACHE_ENABLED, true);
+    }
+
+    private CachedDocument getCachedDocument(WSDLGetUtils utils,
+                                             Message message, String base,
+                                             Map<String, String> params, String ctxUri) {
+        EndpointInfo ei = message.getExchange().getEndpoint().getEndpointInfo();
+        ConcurrentMap<List<Object>, CachedDocument> cache = getDocumentCache(ei);
+        boolean repairing = 
+            !MessageUtils.getContextualBoolean(message, StaxOutInterceptor.FORCE_START_DOCUMENT, false);
+        List<Object> key = Arrays.<Object>asList(base, ctxUri, params, ei.getAddress(), 
+            message.getContextualProperty(WSDLGetUtils.PUBLISHED_ENDPOINT_URL), utils.getClass(), repairing);
+        CachedDocument cachedDoc = cache.get(key);
+        if (cachedDoc == null) {
+            synchronized (message.getExchange().getEndpoint()) {
+                cachedDoc = cache.get(key);
+                if (cachedDoc == null) {
+                    Document doc = utils.getDocument(message, base, params, ctxUri, ei);
+                    cachedDoc = new CachedDocument(serialize(doc, repairing));
+                    if (cache.size() >= MAX_CACHED_DOCUMENTS) {
+                        // the base address is client controlled, keep the cache bounded 
+                        cache.clear();
+                    }
+                    cache.put(key, cachedDoc);
+                }
+            }
+        }
+        return cachedDoc;
+    }
+
+    private static ConcurrentMap<List<Object>, CachedDocument> getDocumentCache(EndpointInfo ei) {
+        // the cache is kept with the endpoint info, a new endpoint starts with an empty cache
+        synchronized (ei) {
+            @SuppressWarnings("unchecked")
+            ConcurrentMap<List<Object>, CachedDocument> cache = 
+                (ConcurrentMap<List<Object>, CachedDocument>)ei.getProperty(DOCUMENT_CACHE);
+            if (cache == null) {
+                cache = new ConcurrentHashMap<List<Object>, CachedDocument>();
+                ei.setProperty(DOCUMENT_CACHE, cache);
+            }
+            return cache;
+        }
+    }
+
+    private static byte[] serialize(Document doc, boolean repairing) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(bos, "UTF-8");
+        try {
+            // same flags as WSDLGetOutInterceptor uses for the uncached documents
+            StaxUtils.writeDocument(doc, writer, true, repairing);
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new Fault(e);
+        } finally {
+            StaxUtils.close(writer);
+        }
+        return bos.toByteArray();
+    }
+
+    private static boolean isNotModified(Message message, String etag) {
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        if (headers == null) {
+            return false;
+        }
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if ("If-None-Match".equalsIgnoreCase(entry.getKey()) && entry.getValue() != null) {
+                for (String value : entry.getValue()) {
+                    for (String tag : value.split(",")) {
+                        String t = tag.trim();
+                        if ("*".equals(t) || etag.equals(t) || etag.equals(t.replaceFirst("^W/", ""))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void addHeader(Message message, String name, String value) {
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        if (headers == null) {
+            headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+            message.put(Message.PROTOCOL_HEADERS, headers);
+        }
+        List<String> values = new ArrayList<String>(1);
+        values.add(value);
+        headers.put(name, values);
+    }
+
     private Document getDocument(WSDLGetUtils utils,
                                  Message message, String base,
                                  Map<String, String> params, String ctxUri) {
@@ -138,4 +282,14 @@ public class WSDLGetInterceptor extends AbstractPhaseInterceptor<Message> {
         }
         return false;
     }
+
+    private static final class CachedDocument {
+        private final byte[] bytes;
+        private final String etag;
+
+        CachedDocument(byte[] bytes) {
+            this.bytes = bytes;
+            this.etag = "\"" + MessageDigestUtils.generate(bytes, MessageDigestUtils.ALGO_SHA_1) + "\"";
+        }
+    }
 }
\ No newline at end of file
@@ -19,6 +19,9 @@
 
 package org.apache.cxf.frontend;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
@@ -41,6 +44,12 @@ public class WSDLGetOutInterceptor extends AbstractPhaseInterceptor<Message> {
     }
 
     public void handleMessage(Message message) throws Fault {
+        byte[] bytes = (byte[])message.get(WSDLGetInterceptor.DOCUMENT_BYTES_HOLDER);
+        if (bytes != null) {
+            message.remove(WSDLGetInterceptor.DOCUMENT_BYTES_HOLDER);
+            writeBytes(message, bytes);
+            return;
+        }
         Document doc = (Document)message.get(WSDLGetInterceptor.DOCUMENT_HOLDER);
         if (doc == null) {
             return;
@@ -61,4 +70,18 @@ public class WSDLGetOutInterceptor extends AbstractPhaseInterceptor<Message> {
             throw new Fault(e);
         }
     }
+
+    private void writeBytes(Message message, byte[] bytes) {
+        OutputStream os = message.getContent(OutputStream.class);
+        if (os == null) {
+            return;
+        }
+        message.put(Message.CONTENT_TYPE, "text/xml");
+        try {
+            os.write(bytes);
+            os.flush();
+        } catch (IOException e) {
+            throw new Fault(e);
+        }
+    }
 }
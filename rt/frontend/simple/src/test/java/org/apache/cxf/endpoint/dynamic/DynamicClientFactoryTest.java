@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.endpoint.dynamic;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.helpers.FileUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.service.factory.AbstractSimpleFrontendTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DynamicClientFactoryTest extends AbstractSimpleFrontendTest {
+    private static final String WSDL = "/org/apache/cxf/frontend/spring/simple.wsdl";
+    
+    private File tmpDir;
+    private ClassLoader origLoader;
+
+    @Before
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        tmpDir = FileUtils.createTmpDir();
+        origLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    @After
+    public void cleanUp() {
+        Thread.currentThread().setContextClassLoader(origLoader);
+        FileUtils.removeDir(tmpDir);
+    }
+
+    @Test
+    public void testClassCache() throws Exception {
+        File cacheDir = new File(tmpDir, "cache");
+        String wsdl = getClass().getResource(WSDL).toString();
+        
+        CountingClientFactory factory = new CountingClientFactory(getBus());
+        factory.setClassCacheDirectory(cacheDir.getPath());
+        assertNotNull(factory.createClient(wsdl));
+        assertEquals(1, factory.compiled);
+        assertEquals(1, cacheDir.list().length);
+        
+        // a new factory, like a restarted JVM, finds the compiled classes in the cache
+        factory = new CountingClientFactory(getBus());
+        factory.setClassCacheDirectory(cacheDir.getPath());
+        assertNotNull(factory.createClient(wsdl));
+        assertNotNull(factory.createClient(wsdl));
+        assertEquals(0, factory.compiled);
+        assertEquals(1, cacheDir.list().length);
+        
+        // a changed contract is compiled into a new entry
+        String changed = IOUtils.toString(getClass().getResourceAsStream(WSDL), "UTF-8")
+            .replace("<xsd:element minOccurs=\"0\" name=\"text\" type=\"xsd:string\"/>",
+                     "<xsd:element minOccurs=\"0\" name=\"text\" type=\"xsd:string\"/>"
+                     + "<xsd:element minOccurs=\"0\" name=\"count\" type=\"xsd:int\"/>");
+        File changedWsdl = new File(tmpDir, "changed.wsdl");
+        write(changedWsdl, changed);
+        assertNotNull(factory.createClient(changedWsdl.toURI().toString()));
+        assertEquals(1, factory.compiled);
+        assertEquals(2, cacheDir.list().length);
+    }
+
+    @Test
+    public void testClassCacheOutsideTemporaryDirectory() throws Exception {
+        File workDir = new File(tmpDir, "work");
+        assertTrue(workDir.mkdir());
+        File cacheDir = new File(tmpDir, "cache");
+        String wsdl = getClass().getResource(WSDL).toString();
+        
+        CountingClientFactory factory = new CountingClientFactory(getBus());
+        factory.setTemporaryDirectory(workDir.getPath());
+        factory.setClassCacheDirectory(cacheDir.getPath());
+        assertNotNull(factory.createClient(wsdl));
+        assertEquals(1, factory.compiled);
+        
+        // the classes are staged next to the cache entry, so storing them never 
+        // has to cross from the temporary directory to another file system
+        assertEquals(cacheDir.getCanonicalFile(), new File(factory.lastDest).getParentFile().getCanonicalFile());
+        assertEquals(0, workDir.list().length);
+        String[] entries = cacheDir.list();
+        assertEquals(1, entries.length);
+        assertFalse(entries[0].startsWith("."));
+        assertTrue(new File(cacheDir, entries[0]).isDirectory());
+    }
+
+    @Test
+    public void testDigestSources() throws Exception {
+        File src1 = createSources("src1", "// Generated on: 2015.01.01", "public class Foo { }");
+        File src2 = createSources("src2", "// Generated on: 2016.02.02", "public class Foo { }");
+        File src3 = createSources("src3", "// Generated on: 2015.01.01", "public class Foo { int i; }");
+        
+        String digest = DynamicClientFactory.digestSources(src1, FileUtils.getFilesRecurse(src1, ".+\\.java$"));
+        assertNotNull(digest);
+        assertEquals(digest, 
+            DynamicClientFactory.digestSources(src2, FileUtils.getFilesRecurse(src2, ".+\\.java$")));
+        assertFalse(digest.equals(
+            DynamicClientFactory.digestSources(src3, FileUtils.getFilesRecurse(src3, ".+\\.java$"))));
+    }
+
+    @Test
+    public void testStoreClasses() throws Exception {
+        File entry = new File(new File(tmpDir, "cache"), "entry");
+        File classes = createClasses("classes1");
+        assertEquals(entry, DynamicClientFactory.storeClasses(classes, entry));
+        assertFalse(classes.exists());
+        assertTrue(new File(entry, "Foo.class").isFile());
+        
+        // the entry stored first is used
+        classes = createClasses("classes2");
+        assertEquals(entry, DynamicClientFactory.storeClasses(classes, entry));
+        assertFalse(classes.exists());
+        assertTrue(new File(entry, "Foo.class").isFile());
+    }
+
+    @Test
+    public void testConcurrentStoreClasses() throws Exception {
+        final File entry = new File(new File(tmpDir, "cache"), "entry");
+        final CountDownLatch start = new CountDownLatch(1);
+        List<File> dirs = new ArrayList<File>();
+        List<Future<File>> results = new ArrayList<Future<File>>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 8; i++) {
+                final File classes = createClasses("classes" + i);
+                dirs.add(classes);
+                results.add(executor.submit(new Callable<File>() {
+                    public File call() throws Exception {
+                        start.await();
+                        return DynamicClientFactory.storeClasses(classes, entry);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<File> result : results) {
+                assertEquals(entry, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        for (File dir : dirs) {
+            assertFalse(dir.exists());
+        }
+        assertTrue(new File(entry, "Foo.class").isFile());
+    }
+
+    private File createSources(String name, String header, String body) throws Exception {
+        File src = new File(tmpDir, name);
+        File pkg = new File(src, "org/example");
+        assertTrue(pkg.mkdirs());
+        write(new File(pkg, "Foo.java"), header + "\npackage org.example;\n" + body + "\n");
+        return src;
+    }
+
+    private File createClasses(String name) throws Exception {
+        File classes = new File(tmpDir, name);
+        assertTrue(classes.mkdirs());
+        write(new File(classes, "Foo.class"), "Foo");
+        return classes;
+    }
+
+    private static void write(File file, String content) throws Exception {
+        OutputStream os = new FileOutputStream(file);
+        try {
+            Writer writer = new OutputStreamWriter(os, "UTF-8");
+            writer.write(content);
+            writer.flush();
+        } finally {
+            os.close();
+        }
+    }
+
+    private static class CountingClientFactory extends DynamicClientFactory {
+        private int compiled;
+        private String lastDest;
+        
+        CountingClientFactory(Bus bus) {
+            super(bus);
+        }
+        
+        @Override
+        protected boolean compileJavaSrc(String classPath, List<File> srcList, String dest) {
+            compiled++;
+            lastDest = dest;
+            return super.compileJavaSrc(classPath, srcList, dest);
+        }
+    }
+}
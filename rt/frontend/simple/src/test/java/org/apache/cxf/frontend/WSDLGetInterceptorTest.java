@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.frontend;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.binding.Binding;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.phase.PhaseManager;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.service.factory.AbstractSimpleFrontendTest;
+import org.apache.cxf.service.factory.HelloService;
+import org.apache.cxf.service.factory.HelloServiceImpl;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.junit.Test;
+
+public class WSDLGetInterceptorTest extends AbstractSimpleFrontendTest {
+
+    @Test
+    public void testCachedDocument() throws Exception {
+        Endpoint endpoint = createServer().getEndpoint();
+        CountingWSDLGetUtils utils = new CountingWSDLGetUtils();
+        
+        Message out1 = handleRequest(endpoint, utils, "wsdl", null);
+        byte[] bytes = (byte[])out1.get(WSDLGetInterceptor.DOCUMENT_BYTES_HOLDER);
+        assertNotNull(bytes);
+        assertNull(out1.get(WSDLGetInterceptor.DOCUMENT_HOLDER));
+        String etag = getHeader(out1, "ETag");
+        assertNotNull(etag);
+        
+        Message out2 = handleRequest(endpoint, utils, "wsdl", null);
+        assertSame(bytes, out2.get(WSDLGetInterceptor.DOCUMENT_BYTES_HOLDER));
+        assertEquals(etag, getHeader(out2, "ETag"));
+        assertEquals(1, utils.count);
+        
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        out2.setContent(OutputStream.class, bos);
+        WSDLGetOutInterceptor.INSTANCE.handleMessage(out2);
+        Document doc = StaxUtils.read(new ByteArrayInputStream(bos.toByteArray()));
+        assertEquals("definitions", doc.getDocumentElement().getLocalName());
+    }
+
+    @Test
+    public void testCachedDocumentNotModified() throws Exception {
+        Endpoint endpoint = createServer().getEndpoint();
+        CountingWSDLGetUtils utils = new CountingWSDLGetUtils();
+        
+        String etag = getHeader(handleRequest(endpoint, utils, "wsdl", null), "ETag");
+        Message out = handleRequest(endpoint, utils, "wsdl", etag);
+        assertEquals(304, out.get(Message.RESPONSE_CODE));
+        assertNull(out.get(WSDLGetInterceptor.DOCUMENT_BYTES_HOLDER));
+        assertEquals(etag, getHeader(out, "ETag"));
+        
+        out = handleRequest(endpoint, utils, "wsdl", "\"other\"");
+        assertNull(out.get(Message.RESPONSE_CODE));
+        assertNotNull(out.get(WSDLGetInterceptor.DOCUMENT_BYTES_HOLDER));
+        assertEquals(1, utils.count);
+    }
+
+    @Test
+    public void testCacheInvalidation() throws Exception {
+        Server server = createServer();
+        CountingWSDLGetUtils utils = new CountingWSDLGetUtils();
+        handleRequest(server.getEndpoint(), utils, "wsdl", null);
+        assertEquals(1, utils.count);
+        
+        // a different query is a different document
+        handleRequest(server.getEndpoint(), utils, "wsdl&version=2", null);
+        assertEquals(2, utils.count);
+        
+        // the cache can be disabled
+        server.getEndpoint().put(WSDLGetInterceptor.DOCUMENT_CACHE_ENABLED, Boolean.FALSE);
+        Message out = handleRequest(server.getEndpoint(), utils, "wsdl", null);
+        assertNotNull(out.get(WSDLGetInterceptor.DOCUMENT_HOLDER));
+        assertNull(getHeader(out, "ETag"));
+        assertEquals(3, utils.count);
+        
+        // a redeployed endpoint starts with an empty cache
+        EndpointInfo ei = server.getEndpoint().getEndpointInfo();
+        server.destroy();
+        Endpoint endpoint = createServer().getEndpoint();
+        assertNotSame(ei, endpoint.getEndpointInfo());
+        handleRequest(endpoint, utils, "wsdl", null);
+        assertEquals(4, utils.count);
+        handleRequest(endpoint, utils, "wsdl", null);
+        assertEquals(4, utils.count);
+    }
+
+    private Server createServer() {
+        ServerFactoryBean svrBean = new ServerFactoryBean();
+        svrBean.setAddress("http://localhost/Hello");
+        svrBean.setServiceClass(HelloService.class);
+        svrBean.setServiceBean(new HelloServiceImpl());
+        svrBean.setBus(getBus());
+        return svrBean.create();
+    }
+
+    private Message handleRequest(Endpoint endpoint, WSDLGetUtils utils, String query, String ifNoneMatch) {
+        Exchange exchange = new ExchangeImpl();
+        exchange.put(Bus.class, getBus());
+        exchange.put(Endpoint.class, endpoint);
+        exchange.put(Service.class, endpoint.getService());
+        exchange.put(Binding.class, endpoint.getBinding());
+        Message message = new MessageImpl();
+        message.setExchange(exchange);
+        exchange.setInMessage(message);
+        message.put(Message.HTTP_REQUEST_METHOD, "GET");
+        message.put(Message.QUERY_STRING, query);
+        message.put(Message.REQUEST_URL, "http://localhost/Hello");
+        message.put(Message.PATH_INFO, "/Hello");
+        message.put(WSDLGetUtils.class.getName(), utils);
+        if (ifNoneMatch != null) {
+            message.put(Message.PROTOCOL_HEADERS, 
+                Collections.singletonMap("If-None-Match", Collections.singletonList(ifNoneMatch)));
+        }
+        message.setInterceptorChain(
+            new PhaseInterceptorChain(getBus().getExtension(PhaseManager.class).getInPhases()));
+        
+        new WSDLGetInterceptor().handleMessage(message);
+        return exchange.getOutMessage();
+    }
+
+    private static String getHeader(Message message, String name) {
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        if (headers == null || headers.get(name) == null) {
+            return null;
+        }
+        return headers.get(name).get(0);
+    }
+
+    private static class CountingWSDLGetUtils extends WSDLGetUtils {
+        private int count;
+        
+        @Override
+        public Document getDocument(Message message, String base, Map<String, String> params, 
+                                    String ctxUri, EndpointInfo endpointInfo) {
+            count++;
+            return super.getDocument(message, base, params, ctxUri, endpointInfo);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.client.InvocationCallback;
+
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * The result of an asynchronous client invocation which can be composed with
+ * further actions instead of blocking on {@link #get()}.
+ * <p>
+ * Returned by the <code>WebClient</code> stage methods and by proxy methods which are
+ * declared to return <code>ClientCompletionStage&lt;T&gt;</code>. It mirrors the parts of
+ * <code>java.util.concurrent.CompletionStage</code> typically used by clients
+ * while remaining usable on Java 7.
+ * <p>
+ * Dependent actions run on the thread completing the stage, which is the conduit
+ * thread processing the response (the I/O thread when <code>AsyncHTTPConduit</code> is used),
+ * unless an executor has been configured with {@link ClientConfiguration#setCompletionExecutor(Executor)}.
+ * Actions registered after the stage has completed run immediately, on the same executor
+ * if one is set or on the registering thread otherwise.
+ */
+public class ClientCompletionStage<T> implements Future<T> {
+    private static final Logger LOG = LogUtils.getL7dLogger(ClientCompletionStage.class);
+    
+    private final Executor executor;
+    private final Future<?> source;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final AtomicReference<Outcome<T>> outcome = new AtomicReference<Outcome<T>>();
+    private List<Runnable> actions = new ArrayList<Runnable>(2);
+    
+    public ClientCompletionStage() {
+        this(null, null);
+    }
+    
+    public ClientCompletionStage(Executor executor) {
+        this(executor, null);
+    }
+    
+    ClientCompletionStage(Executor executor, Future<?> source) {
+        this.executor = executor;
+        this.source = source;
+    }
+    
+    /**
+     * Maps a value to a new value 
+     */
+    public interface Function<S, R> {
+        R apply(S value) throws Exception;
+    }
+    
+    /**
+     * Returns a stage which is completed with a value of this stage 
+     * @param value the value
+     * @return the completed stage
+     */
+    public static <T> ClientCompletionStage<T> completed(T value) {
+        ClientCompletionStage<T> stage = new ClientCompletionStage<T>();
+        stage.complete(value);
+        return stage;
+    }
+    
+    /**
+     * Returns a stage which completes once all the given stages have completed, 
+     * with the list of their values in the same order, or exceptionally as soon as
+     * one of them fails
+     * @param stages the stages to wait for
+     * @return the combined stage
+     */
+    public static <T> ClientCompletionStage<List<T>> allOf(final List<? extends ClientCompletionStage<T>> stages) {
+        final ClientCompletionStage<List<T>> all = new ClientCompletionStage<List<T>>();
+        if (stages.isEmpty()) {
+            all.complete(Collections.<T>emptyList());
+            return all;
+        }
+        final Object[] values = new Object[stages.size()];
+        final AtomicInteger remaining = new AtomicInteger(values.length);
+        for (int i = 0; i < values.length; i++) {
+            final int index = i;
+            stages.get(i).whenComplete(new InvocationCallback<T>() {
+                public void completed(T value) {
+                    values[index] = value;
+                    if (remaining.decrementAndGet() == 0) {
+                        all.complete(toList(values));
+                    }
+                }
+                public void failed(Throwable ex) {
+                    all.completeExceptionally(ex);
+                }
+            });
+        }
+        return all;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> toList(Object[] values) {
+        List<T> list = new ArrayList<T>(values.length);
+        for (Object value : values) {
+            list.add((T)value);
+        }
+        return list;
+    }
+    
+    /**
+     * Completes this stage with a value unless it has already been completed
+     * @param value the value
+     * @return true if this call completed the stage
+     */
+    public boolean complete(T value) {
+        return doComplete(new Outcome<T>(value, null));
+    }
+    
+    /**
+     * Completes this stage with an exception unless it has already been completed
+     * @param ex the exception
+     * @return true if this call completed the stage
+     */
+    public boolean completeExceptionally(Throwable ex) {
+        if (ex == null) {
+            throw new IllegalArgumentException("Exception is null");
+        }
+        return doComplete(new Outcome<T>(null, ex));
+    }
+    
+    private boolean doComplete(Outcome<T> result) {
+        if (!outcome.compareAndSet(null, result)) {
+            return false;
+        }
+        latch.countDown();
+        List<Runnable> pending;
+        synchronized (this) {
+            pending = actions;
+            actions = null;
+        }
+        for (Runnable action : pending) {
+            execute(action);
+        }
+        return true;
+    }
+    
+    /**
+     * Returns a stage which is completed with the result of applying the function 
+     * to the value of this stage
+     * @param fn the function
+     * @return the new stage
+     */
+    public <R> ClientCompletionStage<R> thenApply(final Function<? super T, ? extends R> fn) {
+        final ClientCompletionStage<R> next = new ClientCompletionStage<R>(executor);
+        whenComplete(new InvocationCallback<T>() {
+            public void completed(T value) {
+                try {
+                    next.complete(fn.apply(value));
+                } catch (Throwable ex) {
+                    next.completeExceptionally(ex);
+                }
+            }
+            public void failed(Throwable ex) {
+                next.completeExceptionally(ex);
+            }
+        });
+        return next;
+    }
+    
+    /**
+     * Returns a stage which is completed with the result of the stage returned 
+     * by the function applied to the value of this stage, typically another invocation
+     * @param fn the function
+     * @return the new stage
+     */
+    public <R> ClientCompletionStage<R> thenCompose(
+        final Function<? super T, ? extends ClientCompletionStage<R>> fn) {
+        final ClientCompletionStage<R> next = new ClientCompletionStage<R>(executor);
+        whenComplete(new InvocationCallback<T>() {
+            public void completed(T value) {
+                ClientCompletionStage<R> stage = null;
+                try {
+                    stage = fn.apply(value);
+                } catch (Throwable ex) {
+                    next.completeExceptionally(ex);
+                    return;
+                }
+                if (stage == null) {
+                    next.complete(null);
+                } else {
+                    stage.whenComplete(new Relay<R>(next));
+                }
+            }
+            public void failed(Throwable ex) {
+                next.completeExceptionally(ex);
+            }
+        });
+        return next;
+    }
+    
+    /**
+     * Returns a stage which is completed with the value of this stage or, if this stage
+     * completes exceptionally, with the result of applying the function to the exception
+     * @param fn the function
+     * @return the new stage
+     */
+    public ClientCompletionStage<T> exceptionally(final Function<Throwable, ? extends T> fn) {
+        final ClientCompletionStage<T> next = new ClientCompletionStage<T>(executor);
+        whenComplete(new InvocationCallback<T>() {
+            public void completed(T value) {
+                next.complete(value);
+            }
+            public void failed(Throwable ex) {
+                try {
+                    next.complete(fn.apply(ex));
+                } catch (Throwable t) {
+                    next.completeExceptionally(t);
+                }
+            }
+        });
+        return next;
+    }
+    
+    /**
+     * Registers the callback to be notified once this stage completes 
+     * @param callback the callback
+     * @return this stage
+     */
+    public ClientCompletionStage<T> whenComplete(final InvocationCallback<? super T> callback) {
+        Runnable action = new Runnable() {
+            public void run() {
+                Outcome<T> result = outcome.get();
+                if (result.exception == null) {
+                    callback.completed(result.value);
+                } else {
+                    callback.failed(result.exception);
+                }
+            }
+        };
+        synchronized (this) {
+            if (actions != null) {
+                actions.add(action);
+                return this;
+            }
+        }
+        execute(action);
+        return this;
+    }
+    
+    private void execute(Runnable action) {
+        if (executor != null) {
+            try {
+                executor.execute(action);
+                return;
+            } catch (RuntimeException ex) {
+                LOG.log(Level.FINE, "COMPLETION_EXECUTOR_REJECTED", ex);
+            }
+        }
+        try {
+            action.run();
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, "COMPLETION_ACTION_FAILED", ex);
+        }
+    }
+    
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (source != null && !source.cancel(mayInterruptIfRunning)) {
+            return false;
+        }
+        return completeExceptionally(new CancellationException());
+    }
+
+    public boolean isCancelled() {
+        Outcome<T> result = outcome.get();
+        return result != null && result.exception instanceof CancellationException;
+    }
+
+    public boolean isDone() {
+        return outcome.get() != null;
+    }
+    
+    /**
+     * @return true if this stage has completed with an exception
+     */
+    public boolean isCompletedExceptionally() {
+        Outcome<T> result = outcome.get();
+        return result != null && result.exception != null;
+    }
+
+    public T get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getValue();
+    }
+
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+        TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("Timeout Exceeded");
+        }
+        return getValue();
+    }
+    
+    private T getValue() throws ExecutionException {
+        Outcome<T> result = outcome.get();
+        if (result.exception instanceof CancellationException) {
+            throw (CancellationException)result.exception;
+        } else if (result.exception != null) {
+            throw new ExecutionException(result.exception);
+        }
+        return result.value;
+    }
+    
+    private static class Outcome<T> {
+        private final T value;
+        private final Throwable exception;
+        Outcome(T value, Throwable exception) {
+            this.value = value;
+            this.exception = exception;
+        }
+    }
+    
+    private static class Relay<R> implements InvocationCallback<R> {
+        private final ClientCompletionStage<R> target;
+        Relay(ClientCompletionStage<R> target) {
+            this.target = target;
+        }
+        public void completed(R value) {
+            target.complete(value);
+        }
+        public void failed(Throwable ex) {
+            target.completeExceptionally(ex);
+        }
+    }
+}
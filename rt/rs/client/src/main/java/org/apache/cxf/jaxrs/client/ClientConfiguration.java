@@ -21,6 +21,7 @@ package org.apache.cxf.jaxrs.client;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 import org.apache.cxf.Bus;
@@ -61,6 +62,7 @@ public class ClientConfiguration implements InterceptorProvider, ConduitSelector
     private Map<String, Object> requestContext = new HashMap<String, Object>();
     private Map<String, Object> responseContext = new HashMap<String, Object>();
     private long synchronousTimeout = 60000;
+    private Executor completionExecutor;
     
     public long getSynchronousTimeout() {
         Conduit conduit = getConduit();
@@ -79,6 +81,21 @@ public class ClientConfiguration implements InterceptorProvider, ConduitSelector
         this.synchronousTimeout = synchronousTimeout;
     }
     
+    /**
+     * Sets the executor which runs the actions registered with 
+     * {@link ClientCompletionStage} instances returned by this client.
+     * If no executor is set then the actions run on the thread processing 
+     * the response, for example, on the I/O thread of the asynchronous HTTP conduit
+     * @param executor the executor
+     */
+    public void setCompletionExecutor(Executor executor) {
+        this.completionExecutor = executor;
+    }
+    
+    public Executor getCompletionExecutor() {
+        return completionExecutor;
+    }
+    
     /**
      * Indicates if Response may still be expected for oneway requests.
      * For example, 202 in case of HTTP
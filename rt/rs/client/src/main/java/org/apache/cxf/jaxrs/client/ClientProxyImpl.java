@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.ArrayList;
@@ -78,6 +79,8 @@ import org.apache.cxf.jaxrs.utils.InjectionUtils;
 import org.apache.cxf.jaxrs.utils.JAXRSUtils;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
 
 /**
  * Proxy-based client implementation
@@ -118,6 +121,7 @@ public class ClientProxyImpl extends AbstractClient implements
         this.isRoot = isRoot;
         this.inheritHeaders = inheritHeaders;
         initValuesMap(varValues);
+        cfg.getInInterceptors().add(new ClientAsyncResponseInterceptor());
     }
     
     private void initValuesMap(Object... varValues) {
@@ -205,7 +209,8 @@ public class ClientProxyImpl extends AbstractClient implements
         
         headers.putAll(paramHeaders);
         setRequestHeaders(headers, ori, types.containsKey(ParameterType.FORM), 
-            bodyIndex == -1 || params[bodyIndex] == null ? null : params[bodyIndex].getClass(), m.getReturnType());
+            bodyIndex == -1 || params[bodyIndex] == null ? null : params[bodyIndex].getClass(), 
+            getResponseClass(m));
         
         getState().setTemplates(getTemplateParametersMap(ori.getURITemplate(), pathParams));
         
@@ -287,7 +292,7 @@ public class ClientProxyImpl extends AbstractClient implements
         return index;
     }
     
-    private void checkResponse(Method m, Response r, Message inMessage) throws Throwable {
+    private void checkResponse(Method m, Class<?> returnType, Response r, Message inMessage) throws Throwable {
         Throwable t = null;
         int status = r.getStatus();
         
@@ -306,7 +311,7 @@ public class ClientProxyImpl extends AbstractClient implements
                 }
             }
                  
-            if ((t == null) && (m.getReturnType() == Response.class) && (m.getExceptionTypes().length == 0)) {
+            if ((t == null) && (returnType == Response.class) && (m.getExceptionTypes().length == 0)) {
                 return;
             }
 
@@ -670,6 +675,10 @@ public class ClientProxyImpl extends AbstractClient implements
             reqContext.put(OperationResourceInfo.class.getName(), ori);
             reqContext.put("BODY_INDEX", bodyIndex);
             
+            if (isAsyncStage(ori.getMethodToInvoke())) {
+                return doInvokeAsyncStage(outMessage, ori);
+            }
+            
             // execute chain    
             doRunInterceptorChain(outMessage);
             
@@ -699,6 +708,73 @@ public class ClientProxyImpl extends AbstractClient implements
         
     }
     
+    private ClientCompletionStage<Object> doInvokeAsyncStage(Message outMessage, OperationResourceInfo ori) {
+        Method m = ori.getMethodToInvoke();
+        Type outType = getAsyncStageType(m);
+        Class<?> respClass = InjectionUtils.getRawType(outType);
+        
+        outMessage.getExchange().setSynchronous(false);
+        outMessage.getExchange().put(ClientProxyImpl.class, this);
+        JaxrsClientCallback<Object> cb = new JaxrsClientCallback<Object>(null, respClass, outType);
+        ClientCompletionStage<Object> stage = cb.createCompletionStage(getConfiguration().getCompletionExecutor());
+        outMessage.getExchange().put(JaxrsClientCallback.class, cb);
+        
+        doRunInterceptorChain(outMessage);
+        
+        if (outMessage.getExchange().get(Exception.class) != null) {
+            Throwable ex = outMessage.getExchange().get(Exception.class);
+            if (ex instanceof Fault) {
+                ex = ex.getCause();
+            }
+            cb.handleException(outMessage, ex);
+        }
+        return stage;
+    }
+    
+    private void handleAsyncResponse(Message message) {
+        JaxrsClientCallback<?> cb = message.getExchange().get(JaxrsClientCallback.class);
+        Message outMessage = message.getExchange().getOutMessage();
+        Object response = null;
+        try {
+            Object[] results = preProcessResult(message);
+            if (results != null && results.length == 1) {
+                response = results[0];
+            } else {
+                OperationResourceInfo ori = outMessage.getContent(OperationResourceInfo.class);
+                response = handleResponse(outMessage, 
+                                          ori.getClassResourceInfo().getServiceClass(),
+                                          cb.getResponseClass(),
+                                          cb.getOutGenericType());
+            }
+        } catch (Throwable t) {
+            response = t;
+            cb.handleException(message, t);
+            return;
+        } finally {
+            completeExchange(response, message.getExchange(), true);
+        }
+        cb.handleResponse(message, new Object[] {response});
+    }
+    
+    private static boolean isAsyncStage(Method m) {
+        return m.getReturnType() == ClientCompletionStage.class;
+    }
+    
+    private static Type getAsyncStageType(Method m) {
+        Type genericType = m.getGenericReturnType();
+        if (genericType instanceof ParameterizedType) {
+            Type actualType = ((ParameterizedType)genericType).getActualTypeArguments()[0];
+            if (InjectionUtils.getRawType(actualType) != null) {
+                return actualType;
+            }
+        }
+        return Response.class;
+    }
+    
+    private static Class<?> getResponseClass(Method m) {
+        return isAsyncStage(m) ? InjectionUtils.getRawType(getAsyncStageType(m)) : m.getReturnType();
+    }
+    
     @Override
     protected Object retryInvoke(URI newRequestURI, 
                                  MultivaluedMap<String, String> headers,
@@ -716,17 +792,24 @@ public class ClientProxyImpl extends AbstractClient implements
     
     protected Object handleResponse(Message outMessage, Class<?> serviceCls) 
         throws Throwable {
+        Method method = outMessage.getExchange().get(Method.class);
+        return handleResponse(outMessage, serviceCls, method.getReturnType(), method.getGenericReturnType());
+    }
+    
+    private Object handleResponse(Message outMessage, Class<?> serviceCls, 
+                                  Class<?> returnType, Type genericReturnType) 
+        throws Throwable {
         try {
             Response r = setResponseBuilder(outMessage, outMessage.getExchange()).build();
             ((ResponseImpl)r).setOutMessage(outMessage);
             getState().setResponse(r);
             
             Method method = outMessage.getExchange().get(Method.class);
-            checkResponse(method, r, outMessage);
-            if (method.getReturnType() == Void.class || method.getReturnType() == Void.TYPE) { 
+            checkResponse(method, returnType, r, outMessage);
+            if (returnType == Void.class || returnType == Void.TYPE) { 
                 return null;
             }
-            if (method.getReturnType() == Response.class
+            if (returnType == Response.class
                 && (r.getEntity() == null || InputStream.class.isAssignableFrom(r.getEntity().getClass())
                     && ((InputStream)r.getEntity()).available() == 0)) {
                 return r;
@@ -735,15 +818,14 @@ public class ClientProxyImpl extends AbstractClient implements
                 r.bufferEntity();
             }
             
-            Class<?> returnType = method.getReturnType();
             Type genericType = 
                 InjectionUtils.processGenericTypeIfNeeded(serviceCls, 
                                                           returnType,
-                                                          method.getGenericReturnType());
-            returnType = InjectionUtils.updateParamClassToTypeIfNeeded(returnType, genericType);
+                                                          genericReturnType);
+            Class<?> bodyClass = InjectionUtils.updateParamClassToTypeIfNeeded(returnType, genericType);
             return readBody(r, 
                             outMessage, 
-                            returnType, 
+                            bodyClass, 
                             genericType, 
                             method.getDeclaredAnnotations());
         } finally {
@@ -818,6 +900,24 @@ public class ClientProxyImpl extends AbstractClient implements
         
     }
     
+    class ClientAsyncResponseInterceptor extends AbstractPhaseInterceptor<Message> {
+        public ClientAsyncResponseInterceptor() {
+            super(Phase.UNMARSHAL);
+        }
+
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            if (message.getExchange().isSynchronous()) {
+                return;
+            }
+            // subresource proxies share the configuration and thus this interceptor
+            ClientProxyImpl proxy = message.getExchange().get(ClientProxyImpl.class);
+            if (proxy != null) {
+                proxy.handleAsyncResponse(message);
+            }
+        }
+    }
+    
     private static class BeanPair {
         private Object value;
         private Annotation[] anns;
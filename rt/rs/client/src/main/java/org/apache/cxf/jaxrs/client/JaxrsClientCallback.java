@@ -23,6 +23,7 @@ import java.lang.reflect.Type;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -35,6 +36,7 @@ class JaxrsClientCallback<T> extends ClientCallback {
     private final InvocationCallback<T> handler;
     private final Type outType;
     private final Class<?> responseClass;
+    private volatile ClientCompletionStage<T> stage;
     
     public JaxrsClientCallback(final InvocationCallback<T> handler, 
                                Class<?> responseClass, 
@@ -68,6 +70,27 @@ class JaxrsClientCallback<T> extends ClientCallback {
         return new JaxrsResponseCallback<T>(this);
     }
     
+    public ClientCompletionStage<T> createCompletionStage(Executor executor) {
+        ClientCompletionStage<T> s = new ClientCompletionStage<T>(executor, this);
+        stage = s;
+        if (done) {
+            completeStage();
+        }
+        return s;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void completeStage() {
+        ClientCompletionStage<T> s = stage;
+        if (s != null) {
+            if (exception != null) {
+                s.completeExceptionally(exception);
+            } else {
+                s.complete((T)result[0]);
+            }
+        }
+    }
+    
     
     @SuppressWarnings("unchecked")
     public void handleResponse(Map<String, Object> ctx, Object[] res) {
@@ -80,6 +103,7 @@ class JaxrsClientCallback<T> extends ClientCallback {
         synchronized (this) {
             notifyAll();
         }
+        completeStage();
     }
 
     @Override
@@ -93,6 +117,7 @@ class JaxrsClientCallback<T> extends ClientCallback {
         synchronized (this) {
             notifyAll();
         }
+        completeStage();
     }
     
     
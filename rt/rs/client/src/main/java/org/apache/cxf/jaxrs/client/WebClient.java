@@ -631,6 +631,64 @@ public class WebClient extends AbstractClient {
         return doInvokeAsyncCallback(HttpMethod.GET, null, null, null, callback);
     }
     
+    /**
+     * Does HTTP Async invocation and returns a stage which completes 
+     * with the typed response object
+     * @param httpMethod HTTP method 
+     * @param body request body, can be null
+     * @param responseClass expected type of response object
+     * @return the stage
+     */
+    public <T> ClientCompletionStage<T> invokeStage(String httpMethod, Object body, Class<T> responseClass) {
+        return doInvokeAsyncStage(httpMethod, body, body == null ? null : body.getClass(), null, 
+                                  responseClass, responseClass);
+    }
+    
+    /**
+     * Does HTTP Async invocation and returns a stage which completes 
+     * with the typed response object
+     * @param httpMethod HTTP method 
+     * @param body request body, can be null
+     * @param responseType generic response type
+     * @return the stage
+     */
+    public <T> ClientCompletionStage<T> invokeStage(String httpMethod, Object body, GenericType<T> responseType) {
+        return doInvokeAsyncStage(httpMethod, body, body == null ? null : body.getClass(), null, 
+                                  responseType.getRawType(), responseType.getType());
+    }
+    
+    /**
+     * Does HTTP Async GET invocation and returns a stage.
+     * Shortcut for invokeStage("GET", null, responseClass)
+     * @param responseClass expected type of response object
+     * @return the stage
+     */
+    public <T> ClientCompletionStage<T> getStage(Class<T> responseClass) {
+        return invokeStage(HttpMethod.GET, null, responseClass);
+    }
+    
+    /**
+     * Does HTTP Async POST invocation and returns a stage.
+     * Shortcut for invokeStage("POST", body, responseClass)
+     * @param body request body, can be null
+     * @param responseClass expected type of response object
+     * @return the stage
+     */
+    public <T> ClientCompletionStage<T> postStage(Object body, Class<T> responseClass) {
+        return invokeStage(HttpMethod.POST, body, responseClass);
+    }
+    
+    /**
+     * Does HTTP Async PUT invocation and returns a stage.
+     * Shortcut for invokeStage("PUT", body, responseClass)
+     * @param body request body, can be null
+     * @param responseClass expected type of response object
+     * @return the stage
+     */
+    public <T> ClientCompletionStage<T> putStage(Object body, Class<T> responseClass) {
+        return invokeStage(HttpMethod.PUT, body, responseClass);
+    }
+    
     /**
      * Updates the current URI path
      * @param path new relative path segment
@@ -949,6 +1007,31 @@ public class WebClient extends AbstractClient {
                                           Class<?> respClass,
                                           Type outType,
                                           InvocationCallback<T> callback) {
+        JaxrsClientCallback<T> cb = new JaxrsClientCallback<T>(callback, respClass, outType);
+        Future<T> future = cb.createFuture();
+        runAsyncInvocation(httpMethod, body, requestClass, inType, respClass, outType, cb);
+        return future;
+    }
+    
+    protected <T> ClientCompletionStage<T> doInvokeAsyncStage(String httpMethod, 
+                                                              Object body, 
+                                                              Class<?> requestClass,
+                                                              Type inType,
+                                                              Class<?> respClass,
+                                                              Type outType) {
+        JaxrsClientCallback<T> cb = new JaxrsClientCallback<T>(null, respClass, outType);
+        ClientCompletionStage<T> stage = cb.createCompletionStage(getConfiguration().getCompletionExecutor());
+        runAsyncInvocation(httpMethod, body, requestClass, inType, respClass, outType, cb);
+        return stage;
+    }
+    
+    private <T> void runAsyncInvocation(String httpMethod, 
+                                        Object body, 
+                                        Class<?> requestClass,
+                                        Type inType,
+                                        Class<?> respClass,
+                                        Type outType,
+                                        JaxrsClientCallback<T> cb) {
         Annotation[] inAnns = null;
         if (body instanceof Entity) {
             Entity<?> entity = (Entity<?>)body;
@@ -973,12 +1056,10 @@ public class WebClient extends AbstractClient {
                                     inAnns, respClass, outType, null, null);
         
         m.getExchange().setSynchronous(false);
-        JaxrsClientCallback<T> cb = new JaxrsClientCallback<T>(callback, respClass, outType);
         m.getExchange().put(JaxrsClientCallback.class, cb);
         
         doRunInterceptorChain(m);
         
-        Future<T> future = cb.createFuture();
         if (m.getExchange().get(Exception.class) != null) {
             Throwable ex = m.getExchange().get(Exception.class);
             if (ex instanceof Fault) {
@@ -986,7 +1067,6 @@ public class WebClient extends AbstractClient {
             }
             cb.handleException(m, ex);
         }
-        return future;
     }
 
     
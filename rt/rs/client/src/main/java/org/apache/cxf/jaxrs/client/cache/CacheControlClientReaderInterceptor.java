@@ -24,7 +24,9 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.net.URI;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Priority;
@@ -44,6 +46,7 @@ import org.apache.cxf.transport.http.Headers;
 
 @Priority(Priorities.USER - 1)
 public class CacheControlClientReaderInterceptor implements ReaderInterceptor {
+    static final String STALE_WHILE_REVALIDATE = "stale-while-revalidate";
     private Cache<Key, Entry> cache;
 
     @Context
@@ -86,12 +89,24 @@ public class CacheControlClientReaderInterceptor implements ReaderInterceptor {
             // non GET HTTP method or other restriction applies
             return context.proceed();
         }
+        // the in-flight request is released once the cache has been updated below,
+        // not when the message body reader closes the entity stream
+        context.setInputStream(CacheControlClientRequestFilter.unwrapInFlightInputStream(context.getInputStream()));
+        try {
+            return readAndCache(context);
+        } finally {
+            CacheControlClientRequestFilter.releaseInFlightRequest(
+                context.getProperty(CacheControlClientRequestFilter.IN_FLIGHT_PROPERTY));
+        }
+    }
+
+    private Object readAndCache(final ReaderInterceptorContext context) throws IOException {
         final MultivaluedMap<String, String> responseHeaders = context.getHeaders(); 
-        final String cacheControlHeader = responseHeaders.getFirst(HttpHeaders.CACHE_CONTROL);
-        final CacheControl cacheControl = CacheControl.valueOf(cacheControlHeader.toString());
+        final CacheControl cacheControl = getCacheControl(responseHeaders);
         
         byte[] cachedBytes = null;
-        final boolean validCacheControl = isCacheControlValid(context, cacheControl);
+        final boolean validCacheControl = isCacheControlValid(context, cacheControl)
+            && !"*".equals(responseHeaders.getFirst(HttpHeaders.VARY));
         if (validCacheControl && cacheResponseInputStream) {
             // if Cache-Control is set and the stream needs to be cached then do it
             cachedBytes = IOUtils.readBytesFromStream((InputStream)context.getInputStream());
@@ -103,21 +118,6 @@ public class CacheControlClientReaderInterceptor implements ReaderInterceptor {
         if (!validCacheControl) {
             return responseEntity;
         }
-        // if a max-age property is set then it overrides Expires
-        long expiry = cacheControl.getMaxAge();
-        if (expiry == -1) {
-            //TODO: Review if Expires can be supported as an alternative to Cache-Control
-            String expiresHeader = responseHeaders.getFirst(HttpHeaders.EXPIRES);
-            if (expiresHeader.startsWith("'") && expiresHeader.endsWith("'")) {
-                expiresHeader = expiresHeader.substring(1, expiresHeader.length() - 1);
-            }
-            try {
-                expiry = (Headers.getHttpDateFormat().parse(expiresHeader).getTime() 
-                    - System.currentTimeMillis()) / 1000;
-            } catch (final ParseException e) {
-                // TODO: Revisit the possibility of supporting multiple formats 
-            }
-        }
         Serializable ser = null;
         if (cachedBytes != null) {
             // store the cached bytes - they will be parsed again when a client cache will return them
@@ -136,8 +136,13 @@ public class CacheControlClientReaderInterceptor implements ReaderInterceptor {
             ser = new BytesEntity((byte[])responseEntity, false);
         }
         if (ser != null) { 
-            final Entry entry = 
-                new Entry(ser, responseHeaders, computeCacheHeaders(responseHeaders), expiry);
+            final Entry entry = new Entry(ser, responseHeaders, computeCacheHeaders(responseHeaders), 
+                                          getExpiry(cacheControl, responseHeaders));
+            entry.setStaleWhileRevalidate(getStaleWhileRevalidate(cacheControl));
+            @SuppressWarnings("unchecked")
+            final MultivaluedMap<String, String> requestHeaders = (MultivaluedMap<String, String>)context
+                .getProperty(CacheControlClientRequestFilter.CLIENT_REQUEST_HEADERS);
+            entry.setVaryHeaders(computeVaryHeaders(responseHeaders, requestHeaders));
             final URI uri = uriInfo.getRequestUri();
             final String accepts = (String)context.getProperty(CacheControlClientRequestFilter.CLIENT_ACCEPTS);
             cache.put(new Key(uri, accepts), entry);
@@ -145,7 +150,71 @@ public class CacheControlClientReaderInterceptor implements ReaderInterceptor {
         return responseEntity;
     }
 
-    private Map<String, String> computeCacheHeaders(final MultivaluedMap<String, String> responseHeaders) {
+    static CacheControl getCacheControl(final MultivaluedMap<String, String> responseHeaders) {
+        final String cacheControlHeader = responseHeaders.getFirst(HttpHeaders.CACHE_CONTROL);
+        if (cacheControlHeader != null) {
+            return CacheControl.valueOf(cacheControlHeader);
+        }
+        // Expires alone is enough to make the response cacheable
+        return responseHeaders.getFirst(HttpHeaders.EXPIRES) != null ? new CacheControl() : null;
+    }
+
+    static long getExpiry(final CacheControl cacheControl, final MultivaluedMap<String, String> responseHeaders) {
+        // if a max-age property is set then it overrides Expires
+        long expiry = cacheControl == null ? -1 : cacheControl.getMaxAge();
+        if (expiry == -1) {
+            String expiresHeader = responseHeaders.getFirst(HttpHeaders.EXPIRES);
+            if (expiresHeader == null) {
+                return 0;
+            }
+            if (expiresHeader.startsWith("'") && expiresHeader.endsWith("'")) {
+                expiresHeader = expiresHeader.substring(1, expiresHeader.length() - 1);
+            }
+            try {
+                expiry = (Headers.getHttpDateFormat().parse(expiresHeader).getTime() 
+                    - System.currentTimeMillis()) / 1000;
+            } catch (final ParseException e) {
+                // TODO: Revisit the possibility of supporting multiple formats 
+            }
+        }
+        return Math.max(expiry, 0);
+    }
+
+    static long getStaleWhileRevalidate(final CacheControl cacheControl) {
+        if (cacheControl == null || cacheControl.isMustRevalidate()) {
+            return 0;
+        }
+        final String value = cacheControl.getCacheExtension().get(STALE_WHILE_REVALIDATE);
+        if (value != null) {
+            try {
+                return Math.max(Long.parseLong(value.trim()), 0);
+            } catch (final NumberFormatException ex) {
+                // ignore
+            }
+        }
+        return 0;
+    }
+
+    static Map<String, String> computeVaryHeaders(final MultivaluedMap<String, String> responseHeaders,
+                                                  final MultivaluedMap<String, String> requestHeaders) {
+        final List<String> varyHeaders = responseHeaders.get(HttpHeaders.VARY);
+        if (varyHeaders == null || varyHeaders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, String> values = new HashMap<String, String>();
+        for (String varyHeader : varyHeaders) {
+            for (String name : varyHeader.split(",")) {
+                final String headerName = name.trim();
+                if (headerName.length() > 0) {
+                    values.put(headerName, 
+                               CacheControlClientRequestFilter.getHeaderValue(requestHeaders, headerName));
+                }
+            }
+        }
+        return values;
+    }
+
+    static Map<String, String> computeCacheHeaders(final MultivaluedMap<String, String> responseHeaders) {
         final Map<String, String> cacheHeaders = new HashMap<String, String>(2);
 
         final String etagHeader = responseHeaders.getFirst(HttpHeaders.ETAG);
@@ -18,10 +18,16 @@
  */
 package org.apache.cxf.jaxrs.client.cache;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Priority;
 import javax.cache.Cache;
@@ -30,6 +36,7 @@ import javax.ws.rs.Priorities;
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 
 @Priority(Priorities.USER - 1)
@@ -38,7 +45,15 @@ public class CacheControlClientRequestFilter implements ClientRequestFilter {
     static final String CACHED_ENTITY_PROPERTY = "client_cached_entity";
     static final String CLIENT_ACCEPTS = "client_accepts";
     static final String CLIENT_CACHE_CONTROL = "client_cache_control";
+    static final String CLIENT_REQUEST_HEADERS = "client_request_headers";
+    static final String REVALIDATED_ENTRY_PROPERTY = "client_revalidated_entry";
+    static final String IN_FLIGHT_PROPERTY = "client_in_flight_request";
+    static final long DEFAULT_IN_FLIGHT_TIMEOUT = 30000L;
     private Cache<Key, Entry> cache;
+    private final ConcurrentMap<Key, InFlightRequest> inFlightRequests = 
+        new ConcurrentHashMap<Key, InFlightRequest>();
+    private long maxCoalescingWait;
+    private long inFlightTimeout = DEFAULT_IN_FLIGHT_TIMEOUT;
 
     public CacheControlClientRequestFilter(final Cache<Key, Entry> cache) {
         setCache(cache);
@@ -58,34 +73,223 @@ public class CacheControlClientRequestFilter implements ClientRequestFilter {
         }
         final URI uri = request.getUri();
         final String accepts = request.getHeaderString(HttpHeaders.ACCEPT);
+        // Should the map of all request headers shared ?
+        request.setProperty(CLIENT_ACCEPTS, accepts);
+        request.setProperty(CLIENT_CACHE_CONTROL, request.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        request.setProperty(CLIENT_REQUEST_HEADERS, request.getStringHeaders());
+        
         final Key key = new Key(uri, accepts);
-        Entry entry = cache.get(key);
-        if (entry != null) {
-            //TODO: do the extra validation against the conditional headers
-            //      which may be contained in the current request
-            if (entry.isOutDated()) {
-                cache.remove(key, entry);
-            } else {
-                Object cachedEntity = entry.getData();
-                Response.ResponseBuilder ok = Response.ok(cachedEntity);
-                if (entry.getHeaders() != null) {
-                    for (Map.Entry<String, List<String>> h : entry.getHeaders().entrySet()) {
-                        for (final Object instance : h.getValue()) {
-                            ok = ok.header(h.getKey(), instance);
-                        }
+        Entry entry = getEntry(key, request);
+        if (entry != null && !entry.isOutDated()) {
+            abortWith(request, entry);
+            return;
+        }
+        final InFlightRequest inFlightRequest = new InFlightRequest(key);
+        InFlightRequest existing = inFlightRequests.putIfAbsent(key, inFlightRequest);
+        if (existing != null && existing.isExpired() && inFlightRequests.replace(key, existing, inFlightRequest)) {
+            // the request which was expected to refresh the cache has failed or its response
+            // has never been read or closed, let this request refresh the cache instead
+            existing.release();
+            existing = null;
+        }
+        if (existing == null) {
+            // this request will refresh the cache, the response filter, the reader interceptor
+            // or closing the response will let the concurrent requests for the same key know once it is done
+            request.setProperty(IN_FLIGHT_PROPERTY, inFlightRequest);
+        } else {
+            if (entry != null && entry.isStaleWhileRevalidate()) {
+                abortWith(request, entry);
+                return;
+            }
+            if (awaitInFlightRequest(key, existing)) {
+                entry = getEntry(key, request);
+                if (entry != null && !entry.isOutDated()) {
+                    abortWith(request, entry);
+                    return;
+                }
+            }
+        }
+        if (entry != null && !addConditionalHeaders(request, entry)) {
+            cache.remove(key, entry);
+        }
+    }
+
+    private Entry getEntry(final Key key, final ClientRequestContext request) {
+        final Entry entry = cache.get(key);
+        if (entry != null && entry.getVaryHeaders() != null) {
+            // a single variant is kept per key: a request with other values of the headers
+            // listed in Vary misses the entry and its response replaces it
+            for (Map.Entry<String, String> h : entry.getVaryHeaders().entrySet()) {
+                final String value = getHeaderValue(request.getStringHeaders(), h.getKey());
+                if (value == null ? h.getValue() != null : !value.equals(h.getValue())) {
+                    return null;
+                }
+            }
+        }
+        return entry;
+    }
+
+    private static void abortWith(final ClientRequestContext request, final Entry entry) {
+        Object cachedEntity = entry.getData();
+        Response.ResponseBuilder ok = Response.ok(cachedEntity);
+        if (entry.getHeaders() != null) {
+            for (Map.Entry<String, List<String>> h : entry.getHeaders().entrySet()) {
+                for (final Object instance : h.getValue()) {
+                    ok = ok.header(h.getKey(), instance);
+                }
+            }
+        }
+        request.setProperty(CACHED_ENTITY_PROPERTY, cachedEntity);
+        request.abortWith(ok.build());
+    }
+
+    private boolean awaitInFlightRequest(final Key key, final InFlightRequest inFlightRequest) {
+        if (maxCoalescingWait <= 0) {
+            return false;
+        }
+        try {
+            if (inFlightRequest.latch.await(maxCoalescingWait, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // the request which was expected to refresh the cache has most likely failed
+        inFlightRequests.remove(key, inFlightRequest);
+        return false;
+    }
+
+    private static boolean addConditionalHeaders(final ClientRequestContext request, final Entry entry) {
+        final Map<String, String> cacheHeaders = entry.getCacheHeaders();
+        if (cacheHeaders == null || cacheHeaders.isEmpty()) {
+            return false;
+        }
+        final MultivaluedMap<String, Object> headers = request.getHeaders();
+        if (request.getHeaderString(HttpHeaders.IF_NONE_MATCH) != null
+            || request.getHeaderString(HttpHeaders.IF_MODIFIED_SINCE) != null) {
+            // the conditional request is controlled by the client code
+            return false;
+        }
+        for (Map.Entry<String, String> h : cacheHeaders.entrySet()) {
+            headers.putSingle(h.getKey(), h.getValue());
+        }
+        request.setProperty(REVALIDATED_ENTRY_PROPERTY, entry);
+        return true;
+    }
+
+    static String getHeaderValue(final MultivaluedMap<String, String> headers, final String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> h : headers.entrySet()) {
+            if (name.equalsIgnoreCase(h.getKey()) && h.getValue() != null) {
+                final StringBuilder sb = new StringBuilder();
+                for (String value : h.getValue()) {
+                    if (sb.length() > 0) {
+                        sb.append(',');
                     }
+                    sb.append(value);
                 }
-                request.setProperty(CACHED_ENTITY_PROPERTY, cachedEntity);
-                request.abortWith(ok.build());
+                return sb.toString();
             }
         }
-        // Should the map of all request headers shared ?
-        request.setProperty(CLIENT_ACCEPTS, accepts);
-        request.setProperty(CLIENT_CACHE_CONTROL, request.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        return null;
+    }
+
+    static void releaseInFlightRequest(final Object inFlightRequest) {
+        if (inFlightRequest instanceof InFlightRequest) {
+            ((InFlightRequest)inFlightRequest).release();
+        }
+    }
+
+    static InputStream releaseInFlightRequestOnClose(final Object inFlightRequest, final InputStream is) {
+        if (inFlightRequest instanceof InFlightRequest && is != null) {
+            return new InFlightInputStream(is, (InFlightRequest)inFlightRequest);
+        }
+        releaseInFlightRequest(inFlightRequest);
+        return is;
+    }
+
+    static InputStream unwrapInFlightInputStream(final InputStream is) {
+        return is instanceof InFlightInputStream ? ((InFlightInputStream)is).getInputStream() : is;
     }
 
     public CacheControlClientRequestFilter setCache(final Cache<Key, Entry> c) {
         this.cache = c;
         return this;
     }
+
+    public long getMaxCoalescingWait() {
+        return maxCoalescingWait;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds a request for the entry which is currently
+     * being fetched or revalidated by another request will wait for that request 
+     * to complete before going to the server itself. Requests are not coalesced by default.
+     *
+     * @param maxWait the time in milliseconds
+     */
+    public CacheControlClientRequestFilter setMaxCoalescingWait(final long maxWait) {
+        this.maxCoalescingWait = maxWait;
+        return this;
+    }
+
+    public long getInFlightTimeout() {
+        return inFlightTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds after which the request fetching or revalidating the entry 
+     * is considered to have failed if it has not completed yet, for example, if its response 
+     * has never been read or closed. The next request for the same entry will then refresh it.
+     * The default value is 30 seconds.
+     *
+     * @param timeout the time in milliseconds
+     */
+    public CacheControlClientRequestFilter setInFlightTimeout(final long timeout) {
+        this.inFlightTimeout = timeout;
+        return this;
+    }
+
+    private final class InFlightRequest {
+        private final Key key;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final long startTime = System.currentTimeMillis();
+
+        InFlightRequest(final Key key) {
+            this.key = key;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - startTime > inFlightTimeout;
+        }
+
+        void release() {
+            inFlightRequests.remove(key, this);
+            latch.countDown();
+        }
+    }
+
+    private static final class InFlightInputStream extends FilterInputStream {
+        private final InFlightRequest inFlightRequest;
+
+        InFlightInputStream(final InputStream is, final InFlightRequest inFlightRequest) {
+            super(is);
+            this.inFlightRequest = inFlightRequest;
+        }
+
+        InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                inFlightRequest.release();
+            }
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client.cache;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Priority;
+import javax.cache.Cache;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.jaxrs.impl.MetadataMap;
+
+/**
+ * Completes the conditional requests initiated by {@link CacheControlClientRequestFilter}
+ * for the outdated entries: '304 Not Modified' refreshes the cached entry and is
+ * converted to '200 OK' returning the cached entity.
+ */
+@Priority(Priorities.USER - 1)
+public class CacheControlClientResponseFilter implements ClientResponseFilter {
+    private Cache<Key, Entry> cache;
+
+    public CacheControlClientResponseFilter(final Cache<Key, Entry> cache) {
+        setCache(cache);
+    }
+
+    public CacheControlClientResponseFilter() {
+        // no-op: use setCache then
+    }
+
+    @Override
+    public void filter(final ClientRequestContext request, final ClientResponseContext response)
+        throws IOException {
+        final Object inFlightRequest = request.getProperty(CacheControlClientRequestFilter.IN_FLIGHT_PROPERTY);
+        final Entry entry = (Entry)request.getProperty(CacheControlClientRequestFilter.REVALIDATED_ENTRY_PROPERTY);
+        if (entry != null && response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode()) {
+            try {
+                revalidate(request, response, entry);
+            } finally {
+                CacheControlClientRequestFilter.releaseInFlightRequest(inFlightRequest);
+            }
+        } else if (response.getStatus() != Response.Status.OK.getStatusCode()
+            || CacheControlClientReaderInterceptor.getCacheControl(response.getHeaders()) == null) {
+            // the reader interceptor will not update the cache
+            CacheControlClientRequestFilter.releaseInFlightRequest(inFlightRequest);
+        } else if (inFlightRequest != null) {
+            // the reader interceptor will update the cache if the entity is read,
+            // closing the response without reading it has to release the request too
+            response.setEntityStream(CacheControlClientRequestFilter.releaseInFlightRequestOnClose(
+                inFlightRequest, response.getEntityStream()));
+        }
+    }
+
+    private void revalidate(final ClientRequestContext request, final ClientResponseContext response, 
+                            final Entry entry) {
+        final MultivaluedMap<String, String> responseHeaders = response.getHeaders();
+        final MultivaluedMap<String, String> headers = entry.getHeaders() == null 
+            ? new MetadataMap<String, String>() : new MetadataMap<String, String>(entry.getHeaders());
+        for (Map.Entry<String, List<String>> h : responseHeaders.entrySet()) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(h.getKey())) {
+                headers.put(h.getKey(), h.getValue());
+            }
+        }
+        
+        final Key key = new Key(request.getUri(), 
+            (String)request.getProperty(CacheControlClientRequestFilter.CLIENT_ACCEPTS));
+        final CacheControl cacheControl = CacheControlClientReaderInterceptor.getCacheControl(responseHeaders);
+        if (cacheControl != null && (cacheControl.isNoCache() || cacheControl.isNoStore())) {
+            cache.remove(key, entry);
+        } else {
+            final Entry refreshed = new Entry(entry.getData(), headers, 
+                CacheControlClientReaderInterceptor.computeCacheHeaders(headers),
+                cacheControl == null ? entry.getExpiresValue() 
+                    : CacheControlClientReaderInterceptor.getExpiry(cacheControl, responseHeaders));
+            refreshed.setStaleWhileRevalidate(cacheControl == null ? entry.getStaleWhileRevalidate() 
+                : CacheControlClientReaderInterceptor.getStaleWhileRevalidate(cacheControl));
+            refreshed.setVaryHeaders(entry.getVaryHeaders());
+            cache.put(key, refreshed);
+        }
+        
+        responseHeaders.remove(HttpHeaders.CONTENT_LENGTH);
+        for (Map.Entry<String, List<String>> h : headers.entrySet()) {
+            responseHeaders.put(h.getKey(), h.getValue());
+        }
+        response.setStatus(Response.Status.OK.getStatusCode());
+        request.setProperty(CacheControlClientRequestFilter.CACHED_ENTITY_PROPERTY, entry.getData());
+    }
+
+    public CacheControlClientResponseFilter setCache(final Cache<Key, Entry> c) {
+        this.cache = c;
+        return this;
+    }
+}
@@ -22,6 +22,7 @@ import java.io.Closeable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -39,22 +40,43 @@ import javax.ws.rs.core.Feature;
 import javax.ws.rs.core.FeatureContext;
 
 
-
+/**
+ * Client-side HTTP cache backed by JCache. The size bounds and the storage tiers 
+ * (heap, off-heap, disk) of the cache are controlled by the JCache provider 
+ * configuration which can be set with the 'config-uri' property.
+ */
 public class CacheControlFeature implements Feature {
     private CachingProvider provider;
     private CacheManager manager;
     private Cache<Key, Entry> cache;
     private boolean cacheResponseInputStream;
+    private long maxCoalescingWait;
+    private long inFlightTimeout = CacheControlClientRequestFilter.DEFAULT_IN_FLIGHT_TIMEOUT;
     
     @Override
     public boolean configure(final FeatureContext context) {
+        for (Object p : createProviders(context.getConfiguration().getProperties())) {
+            context.register(p);
+        }
+        return true;
+    }
+
+    /**
+     * Creates the cache and the providers working with it. This method can be used
+     * to set up the proxy-based clients which do not support JAX-RS features.
+     *
+     * @param properties the cache properties
+     * @return the providers
+     */
+    public List<Object> createProviders(final Map<String, Object> properties) {
         // TODO: read context properties to exclude some patterns?
-        final Cache<Key, Entry> entryCache = createCache(context.getConfiguration().getProperties());
-        context.register(new CacheControlClientRequestFilter(entryCache));
+        final Cache<Key, Entry> entryCache = createCache(properties);
+        CacheControlClientRequestFilter filter = new CacheControlClientRequestFilter(entryCache);
+        filter.setMaxCoalescingWait(maxCoalescingWait);
+        filter.setInFlightTimeout(inFlightTimeout);
         CacheControlClientReaderInterceptor reader = new CacheControlClientReaderInterceptor(entryCache);
         reader.setCacheResponseInputStream(cacheResponseInputStream);
-        context.register(reader);
-        return true;
+        return Arrays.<Object>asList(filter, new CacheControlClientResponseFilter(entryCache), reader);
     }
 
     @PreDestroy // TODO: check it is called
@@ -134,4 +156,24 @@ public class CacheControlFeature implements Feature {
     public void setCacheResponseInputStream(boolean cacheStream) {
         this.cacheResponseInputStream = cacheStream;
     }
+
+    /**
+     * Lets the concurrent requests for the entry which is being fetched or revalidated 
+     * wait up to the given time in milliseconds for the cache to be updated.
+     * 
+     * @param maxWait the time in milliseconds
+     */
+    public void setMaxCoalescingWait(long maxWait) {
+        this.maxCoalescingWait = maxWait;
+    }
+
+    /**
+     * Sets the time in milliseconds after which the request fetching or revalidating an entry
+     * is considered to have failed and the next request for the entry refreshes it instead.
+     * 
+     * @param timeout the time in milliseconds
+     */
+    public void setInFlightTimeout(long timeout) {
+        this.inFlightTimeout = timeout;
+    }
 }
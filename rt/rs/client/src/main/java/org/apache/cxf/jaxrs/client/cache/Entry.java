@@ -27,9 +27,11 @@ import javax.ws.rs.core.MultivaluedMap;
 public class Entry implements Serializable {
     private static final long serialVersionUID = -3551501551331222546L;
     private Map<String, String> cacheHeaders = Collections.emptyMap();
+    private Map<String, String> varyHeaders = Collections.emptyMap();
     private Serializable data;
     private MultivaluedMap<String, String> headers;
     private long expiresValue;
+    private long staleWhileRevalidate;
     private long initialTimestamp = now();
 
     public Entry(final Serializable data, final MultivaluedMap<String, String> headers,
@@ -48,6 +50,14 @@ public class Entry implements Serializable {
         return now() - initialTimestamp > expiresValue * 1000;
     }
 
+    /**
+     * @return true if the entry is outdated but may still be returned while
+     * it is being revalidated, see the 'stale-while-revalidate' Cache-Control extension
+     */
+    public boolean isStaleWhileRevalidate() {
+        return now() - initialTimestamp <= (expiresValue + staleWhileRevalidate) * 1000;
+    }
+
     public Map<String, String> getCacheHeaders() {
         return cacheHeaders;
     }
@@ -56,6 +66,17 @@ public class Entry implements Serializable {
         this.cacheHeaders = cacheHeaders;
     }
 
+    /**
+     * @return the values of the request headers listed in the response Vary header
+     */
+    public Map<String, String> getVaryHeaders() {
+        return varyHeaders;
+    }
+
+    public void setVaryHeaders(final Map<String, String> varyHeaders) {
+        this.varyHeaders = varyHeaders;
+    }
+
     public Serializable getData() {
         return data;
     }
@@ -80,6 +101,14 @@ public class Entry implements Serializable {
         this.expiresValue = expiresValue;
     }
 
+    public long getStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    public void setStaleWhileRevalidate(final long staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
     public long getInitialTimestamp() {
         return initialTimestamp;
     }
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client.sse;
+
+/**
+ * Server-Sent Event received by {@link SseEventSource}
+ */
+public class InboundSseEvent {
+    private final String id;
+    private final String name;
+    private final String data;
+    private final long reconnectDelay;
+    
+    public InboundSseEvent(String id, String name, String data, long reconnectDelay) {
+        this.id = id;
+        this.name = name;
+        this.data = data;
+        this.reconnectDelay = reconnectDelay;
+    }
+    
+    /**
+     * @return the last event id sent by the server, can be null
+     */
+    public String getId() {
+        return id;
+    }
+    
+    /**
+     * @return the event name, "message" if the server has not set it
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * @return the event data, lines are separated with '\n'
+     */
+    public String getData() {
+        return data;
+    }
+    
+    /**
+     * @return the reconnection delay in milliseconds requested by the server, or -1
+     */
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+    
+    @Override
+    public String toString() {
+        return "InboundSseEvent[id=" + id + ", name=" + name + ", data=" + data + "]";
+    }
+}
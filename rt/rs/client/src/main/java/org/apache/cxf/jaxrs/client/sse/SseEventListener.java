@@ -0,0 +1,34 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client.sse;
+
+/**
+ * Receives the events from {@link SseEventSource}
+ */
+public interface SseEventListener {
+    
+    void onEvent(InboundSseEvent event);
+    
+    /**
+     * Called when the connection fails or the server rejects it, the source 
+     * reconnects after this method returns unless it is closed or the failure is not recoverable  
+     * @param t the failure
+     */
+    void onError(Throwable t);
+}
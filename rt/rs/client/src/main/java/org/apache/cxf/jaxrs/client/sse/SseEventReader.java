@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client.sse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Parses the <code>text/event-stream</code> format, comments such as heartbeats are skipped
+ */
+class SseEventReader {
+    private static final String DEFAULT_NAME = "message";
+    
+    private String lastEventId;
+    private long reconnectDelay = -1;
+    
+    SseEventReader(String lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+    
+    String getLastEventId() {
+        return lastEventId;
+    }
+    
+    long getReconnectDelay() {
+        return reconnectDelay;
+    }
+    
+    /**
+     * Reads the events until the end of the stream
+     */
+    void read(InputStream is, SseEventListener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+        String name = null;
+        StringBuilder data = null;
+        long retry = -1;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.length() == 0) {
+                if (data != null) {
+                    listener.onEvent(new InboundSseEvent(lastEventId, 
+                                                         name == null ? DEFAULT_NAME : name,
+                                                         data.toString(),
+                                                         retry));
+                }
+                name = null;
+                data = null;
+                retry = -1;
+                continue;
+            }
+            int colon = line.indexOf(':');
+            String field = colon == -1 ? line : line.substring(0, colon);
+            String value = colon == -1 ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            if ("data".equals(field)) {
+                data = data == null ? new StringBuilder(value) : data.append('\n').append(value);
+            } else if ("event".equals(field)) {
+                name = value;
+            } else if ("id".equals(field)) {
+                lastEventId = value;
+            } else if ("retry".equals(field)) {
+                retry = parseRetry(value);
+            }
+        }
+    }
+    
+    private long parseRetry(String value) {
+        try {
+            reconnectDelay = Long.parseLong(value);
+            return reconnectDelay;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
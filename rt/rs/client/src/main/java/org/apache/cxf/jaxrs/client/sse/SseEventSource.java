@@ -0,0 +1,255 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client.sse;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.jaxrs.client.WebClient;
+
+/**
+ * Receives Server-Sent Events from the address of the given {@link WebClient}.
+ * <p>
+ * The events are read on a single background thread and delivered to the registered listeners 
+ * in order. If the connection is lost then the source reconnects after the reconnection delay, 
+ * which the server can change with the <code>retry</code> field, and sends the 
+ * <code>Last-Event-ID</code> header so that the server can resume the stream. 
+ * The source stops if the server responds with a status other than 200.  
+ * <p>
+ * The client is used exclusively by the source until it is closed.
+ */
+public class SseEventSource {
+    public static final String SERVER_SENT_EVENTS = "text/event-stream";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    public static final long DEFAULT_RECONNECT_DELAY = 3000L;
+    
+    private final WebClient client;
+    private final List<SseEventListener> listeners = new CopyOnWriteArrayList<SseEventListener>();
+    private ScheduledExecutorService executor;
+    private boolean ownExecutor;
+    private volatile long reconnectDelay = DEFAULT_RECONNECT_DELAY;
+    private volatile String lastEventId;
+    private volatile boolean open;
+    private Response currentResponse;
+    
+    public SseEventSource(WebClient client) {
+        this.client = client;
+    }
+    
+    public void register(SseEventListener listener) {
+        listeners.add(listener);
+    }
+    
+    public void unregister(SseEventListener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Sets the executor which reads the events, a single daemon thread is started if none is set. 
+     * @param executor the executor, it remains busy with this source until it is closed
+     */
+    public synchronized void setExecutor(ScheduledExecutorService executor) {
+        if (open) {
+            throw new IllegalStateException("Event source is open");
+        }
+        this.executor = executor;
+    }
+    
+    /**
+     * Sets the initial reconnection delay
+     * @param delay the delay in milliseconds
+     */
+    public void setReconnectDelay(long delay) {
+        this.reconnectDelay = delay;
+    }
+    
+    public long getReconnectDelay() {
+        return reconnectDelay;
+    }
+    
+    /**
+     * @return the id of the last received event, can be null
+     */
+    public String getLastEventId() {
+        return lastEventId;
+    }
+    
+    public void setLastEventId(String id) {
+        this.lastEventId = id;
+    }
+    
+    public boolean isOpen() {
+        return open;
+    }
+    
+    /**
+     * Connects to the server, the events are delivered asynchronously
+     */
+    public synchronized void open() {
+        if (open) {
+            return;
+        }
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "SseEventSource " + client.getBaseURI());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            ownExecutor = true;
+        }
+        open = true;
+        schedule(0);
+    }
+    
+    /**
+     * Disconnects from the server and stops the reconnection attempts
+     */
+    public void close() {
+        Response r;
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            r = currentResponse;
+            currentResponse = null;
+            if (ownExecutor) {
+                executor.shutdownNow();
+                executor = null;
+                ownExecutor = false;
+            }
+        }
+        if (r != null) {
+            try {
+                r.close();
+            } catch (ProcessingException ex) {
+                // the reading thread will stop anyway
+            }
+        }
+    }
+    
+    private synchronized void schedule(long delay) {
+        if (!open) {
+            return;
+        }
+        try {
+            executor.schedule(new Runnable() {
+                public void run() {
+                    connect();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            open = false;
+        }
+    }
+    
+    private void connect() {
+        SseEventReader reader = new SseEventReader(lastEventId);
+        boolean reconnect = true;
+        Response r = null;
+        try {
+            client.replaceHeader(HttpHeaders.ACCEPT, SERVER_SENT_EVENTS);
+            client.replaceHeader(LAST_EVENT_ID_HEADER, lastEventId);
+            r = client.get();
+            if (!setCurrentResponse(r)) {
+                return;
+            }
+            if (r.getStatus() != 200) {
+                reconnect = false;
+                if (r.getStatus() != 204) {
+                    notifyError(new WebApplicationException(r));
+                }
+                close();
+                return;
+            }
+            reader.read((InputStream)r.getEntity(), new Dispatcher(reader));
+        } catch (Throwable t) {
+            if (open) {
+                notifyError(t);
+            }
+        } finally {
+            if (r != null) {
+                // the stream has ended, release the connection before reconnecting
+                releaseResponse(r);
+            }
+            if (reader.getLastEventId() != null) {
+                lastEventId = reader.getLastEventId();
+            }
+            if (reader.getReconnectDelay() >= 0) {
+                reconnectDelay = reader.getReconnectDelay();
+            }
+            if (reconnect) {
+                schedule(reconnectDelay);
+            }
+        }
+    }
+    
+    private synchronized boolean setCurrentResponse(Response r) {
+        currentResponse = open ? r : null;
+        return open;
+    }
+    
+    private void releaseResponse(Response r) {
+        synchronized (this) {
+            if (currentResponse == r) {
+                currentResponse = null;
+            }
+        }
+        try {
+            r.close();
+        } catch (ProcessingException ex) {
+            // the connection is gone already
+        }
+    }
+    
+    private void notifyError(Throwable t) {
+        for (SseEventListener listener : listeners) {
+            listener.onError(t);
+        }
+    }
+    
+    private class Dispatcher implements SseEventListener {
+        private final SseEventReader reader;
+        Dispatcher(SseEventReader reader) {
+            this.reader = reader;
+        }
+        public void onEvent(InboundSseEvent event) {
+            lastEventId = reader.getLastEventId();
+            for (SseEventListener listener : listeners) {
+                listener.onEvent(event);
+            }
+        }
+        public void onError(Throwable t) {
+            notifyError(t);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.client.InvocationCallback;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClientCompletionStageTest extends Assert {
+
+    @Test
+    public void testThenApply() throws Exception {
+        ClientCompletionStage<String> stage = new ClientCompletionStage<String>();
+        ClientCompletionStage<Integer> length = stage.thenApply(new Length());
+        assertFalse(length.isDone());
+        assertTrue(stage.complete("book"));
+        assertFalse(stage.complete("another book"));
+        assertEquals(Integer.valueOf(4), length.get(1, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testThenCompose() throws Exception {
+        ClientCompletionStage<String> stage = new ClientCompletionStage<String>();
+        final ClientCompletionStage<String> second = new ClientCompletionStage<String>();
+        ClientCompletionStage<String> composed = stage.thenCompose(
+            new ClientCompletionStage.Function<String, ClientCompletionStage<String>>() {
+                public ClientCompletionStage<String> apply(String value) {
+                    return second.thenApply(new Concat(value));
+                }
+            });
+        stage.complete("a");
+        assertFalse(composed.isDone());
+        second.complete("b");
+        assertEquals("ab", composed.get());
+    }
+    
+    @Test
+    public void testExceptionally() throws Exception {
+        ClientCompletionStage<String> stage = new ClientCompletionStage<String>();
+        ClientCompletionStage<Integer> length = stage.thenApply(new Length());
+        ClientCompletionStage<Integer> recovered = length.exceptionally(
+            new ClientCompletionStage.Function<Throwable, Integer>() {
+                public Integer apply(Throwable ex) {
+                    return ex instanceof IllegalStateException ? -1 : -2;
+                }
+            });
+        stage.completeExceptionally(new IllegalStateException());
+        assertTrue(length.isCompletedExceptionally());
+        try {
+            length.get();
+            fail("ExecutionException expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(Integer.valueOf(-1), recovered.get());
+    }
+    
+    @Test
+    public void testFailingFunction() throws Exception {
+        ClientCompletionStage<String> stage = ClientCompletionStage.completed(null);
+        ClientCompletionStage<Integer> length = stage.thenApply(new Length());
+        assertTrue(length.isCompletedExceptionally());
+    }
+    
+    @Test
+    public void testWhenCompleteAfterCompletion() throws Exception {
+        ClientCompletionStage<String> stage = ClientCompletionStage.completed("book");
+        final AtomicReference<String> value = new AtomicReference<String>();
+        stage.whenComplete(new InvocationCallback<String>() {
+            public void completed(String response) {
+                value.set(response);
+            }
+            public void failed(Throwable ex) {
+            }
+        });
+        assertEquals("book", value.get());
+    }
+    
+    @Test
+    public void testExecutor() throws Exception {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        ClientCompletionStage<String> stage = new ClientCompletionStage<String>(executor);
+        ClientCompletionStage<Integer> length = stage.thenApply(new Length());
+        stage.complete("book");
+        assertFalse(length.isDone());
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals(Integer.valueOf(4), length.get());
+    }
+    
+    @Test
+    public void testAllOf() throws Exception {
+        ClientCompletionStage<String> first = new ClientCompletionStage<String>();
+        ClientCompletionStage<String> second = new ClientCompletionStage<String>();
+        @SuppressWarnings("unchecked")
+        ClientCompletionStage<List<String>> all = ClientCompletionStage.allOf(Arrays.asList(first, second));
+        second.complete("2");
+        assertFalse(all.isDone());
+        first.complete("1");
+        assertEquals(Arrays.asList("1", "2"), all.get());
+    }
+    
+    @Test
+    public void testCancelAndTimeout() throws Exception {
+        ClientCompletionStage<String> stage = new ClientCompletionStage<String>();
+        try {
+            stage.get(10, TimeUnit.MILLISECONDS);
+            fail("TimeoutException expected");
+        } catch (TimeoutException ex) {
+            // expected
+        }
+        assertTrue(stage.cancel(false));
+        assertTrue(stage.isCancelled());
+        try {
+            stage.get();
+            fail("CancellationException expected");
+        } catch (CancellationException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testCallbackCompletesStage() throws Exception {
+        JaxrsClientCallback<String> cb = new JaxrsClientCallback<String>(null, String.class, String.class);
+        ClientCompletionStage<String> stage = cb.createCompletionStage(null);
+        cb.handleResponse(null, new Object[] {"book"});
+        assertEquals("book", stage.get());
+        
+        cb = new JaxrsClientCallback<String>(null, String.class, String.class);
+        cb.handleException(null, new IllegalStateException());
+        stage = cb.createCompletionStage(null);
+        assertTrue(stage.isCompletedExceptionally());
+    }
+    
+    private static class Length implements ClientCompletionStage.Function<String, Integer> {
+        public Integer apply(String value) {
+            return value.length();
+        }
+    }
+    
+    private static class Concat implements ClientCompletionStage.Function<String, String> {
+        private final String prefix;
+        Concat(String prefix) {
+            this.prefix = prefix;
+        }
+        public String apply(String value) {
+            return prefix + value;
+        }
+    }
+}
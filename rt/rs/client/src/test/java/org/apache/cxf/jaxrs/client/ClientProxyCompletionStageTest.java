@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxrs.client;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxrs.JAXRSServerFactoryBean;
+import org.apache.cxf.jaxrs.lifecycle.SingletonResourceProvider;
+import org.apache.cxf.transport.local.LocalConduit;
+import org.apache.cxf.transport.local.LocalTransportFactory;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ClientProxyCompletionStageTest extends Assert {
+    public static final String ADDRESS = "local://completionstage";
+    private static Server server;
+
+    @BeforeClass
+    public static void bind() throws Exception {
+        JAXRSServerFactoryBean sf = new JAXRSServerFactoryBean();
+        sf.setResourceClasses(BookServer.class);
+        sf.setResourceProvider(BookServer.class, new SingletonResourceProvider(new BookServer(), false));
+        sf.setTransportId(LocalTransportFactory.TRANSPORT_ID);
+        sf.setAddress(ADDRESS);
+        server = sf.create();
+    }
+
+    @AfterClass
+    public static void unbind() throws Exception {
+        server.stop();
+        server.destroy();
+    }
+
+    @Test
+    public void testGetBookStage() throws Exception {
+        BookStore store = createProxy();
+        ClientCompletionStage<Integer> length = store.getBook("123").thenApply(
+            new ClientCompletionStage.Function<String, Integer>() {
+                public Integer apply(String value) {
+                    return value.length();
+                }
+            });
+        assertEquals(Integer.valueOf(8), length.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testGetBookResponseStage() throws Exception {
+        BookStore store = createProxy();
+        Response r = store.getBookResponse("123").get(10, TimeUnit.SECONDS);
+        assertEquals(200, r.getStatus());
+        assertEquals("Book 123", r.readEntity(String.class));
+    }
+
+    @Test
+    public void testGetBookStageNotFound() throws Exception {
+        BookStore store = createProxy();
+        ClientCompletionStage<String> stage = store.getBook("0");
+        try {
+            stage.get(10, TimeUnit.SECONDS);
+            fail("ExecutionException expected");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof WebApplicationException);
+            assertEquals(404, ((WebApplicationException)ex.getCause()).getResponse().getStatus());
+        }
+        assertTrue(stage.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testSubresourceStage() throws Exception {
+        BookStore store = createProxy();
+        assertEquals("Book 456", store.getSubresource().getBook("456").get(10, TimeUnit.SECONDS));
+    }
+
+    private static BookStore createProxy() {
+        BookStore store = JAXRSClientFactory.create(ADDRESS, BookStore.class);
+        WebClient.getConfig(store).getRequestContext().put(LocalConduit.DIRECT_DISPATCH, Boolean.TRUE);
+        return store;
+    }
+
+    @Path("/bookstore")
+    public interface BookStore {
+        @GET
+        @Path("/books/{id}")
+        @Produces("text/plain")
+        ClientCompletionStage<String> getBook(@PathParam("id") String id);
+
+        @GET
+        @Path("/books/{id}")
+        @Produces("text/plain")
+        ClientCompletionStage<Response> getBookResponse(@PathParam("id") String id);
+
+        @Path("/sub")
+        BookStore getSubresource();
+    }
+
+    @Path("/bookstore")
+    public static class BookServer {
+        @GET
+        @Path("/books/{id}")
+        @Produces("text/plain")
+        public String getBook(@PathParam("id") String id) {
+            if ("0".equals(id)) {
+                throw new NotFoundException();
+            }
+            return "Book " + id;
+        }
+
+        @Path("/sub")
+        public BookServer getSubresource() {
+            return this;
+        }
+    }
+}
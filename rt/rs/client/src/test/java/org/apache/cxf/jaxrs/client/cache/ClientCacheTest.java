@@ -19,17 +19,28 @@
 package org.apache.cxf.jaxrs.client.cache;
 
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.annotation.Priority;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.Produces;
 import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.xml.bind.annotation.XmlRootElement;
 
@@ -159,6 +170,88 @@ public class ClientCacheTest extends Assert {
         }    
     }
     
+    @Test
+    public void testRevalidateOutdatedEntry() {
+        CacheControlFeature feature = new CacheControlFeature();
+        try {
+            final WebTarget base = ClientBuilder.newBuilder().register(feature).build().target(ADDRESS);
+            final Invocation.Builder cached = base.path("etag").request("text/plain");
+            final Response r = cached.get();
+            assertEquals(Response.Status.OK.getStatusCode(), r.getStatus());
+            final String r1 = r.readEntity(String.class);
+            final int notModified = TheServer.NOT_MODIFIED.get();
+            waitABit();
+            // max-age=0: the entry is revalidated with If-None-Match and 304 returns the cached entity
+            final Response r2 = cached.get();
+            assertEquals(Response.Status.OK.getStatusCode(), r2.getStatus());
+            assertEquals(r1, r2.readEntity(String.class));
+            assertEquals(notModified + 1, TheServer.NOT_MODIFIED.get());
+        } finally {
+            feature.close();
+        }
+    }
+    
+    @Test
+    public void testVaryHeader() {
+        CacheControlFeature feature = new CacheControlFeature();
+        try {
+            final WebTarget base = ClientBuilder.newBuilder().register(feature).build().target(ADDRESS);
+            final String en = base.path("vary").request("text/plain")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "en").get().readEntity(String.class);
+            assertTrue(en.startsWith("en"));
+            waitABit();
+            assertEquals(en, base.path("vary").request("text/plain")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "en").get().readEntity(String.class));
+            final String de = base.path("vary").request("text/plain")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "de").get().readEntity(String.class);
+            assertTrue(de.startsWith("de"));
+        } finally {
+            feature.close();
+        }
+    }
+    
+    @Test
+    public void testUnreadResponseReleasesInFlightRequest() {
+        CacheControlFeature feature = new CacheControlFeature();
+        try {
+            final WebTarget base = ClientBuilder.newBuilder().register(feature).build().target(ADDRESS);
+            final String r1 = base.path("stale").request("text/plain").get().readEntity(String.class);
+            waitABit();
+            // the outdated entry is refreshed but the response is closed without reading the entity
+            base.path("stale").request("text/plain").get().close();
+            // stale-while-revalidate must not return the outdated entry as no request is revalidating it
+            final String r3 = base.path("stale").request("text/plain").get().readEntity(String.class);
+            assertFalse(r1.equals(r3));
+        } finally {
+            feature.close();
+        }
+    }
+    
+    @Test
+    public void testFailedRequestDoesNotBlockCoalescedRequests() {
+        CacheControlFeature feature = new CacheControlFeature();
+        feature.setMaxCoalescingWait(10000);
+        feature.setInFlightTimeout(100);
+        try {
+            final WebTarget base = ClientBuilder.newBuilder().register(feature)
+                .register(new FailingRequestFilter()).build().target(ADDRESS);
+            try {
+                base.path("stale").request("text/plain").header(FailingRequestFilter.FAIL, "true").get();
+                fail("ProcessingException expected");
+            } catch (ProcessingException ex) {
+                // expected, the response filter and the reader interceptor are not invoked
+            }
+            waitABit();
+            final long start = System.currentTimeMillis();
+            final Response r = base.path("stale").request("text/plain").get();
+            assertEquals(Response.Status.OK.getStatusCode(), r.getStatus());
+            assertNotNull(r.readEntity(String.class));
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        } finally {
+            feature.close();
+        }
+    }
+    
     private static Invocation.Builder setAsLocal(final Invocation.Builder client) {
         WebClient.getConfig(client).getRequestContext().put(LocalConduit.DIRECT_DISPATCH, Boolean.TRUE);
         return client;
@@ -172,8 +265,22 @@ public class ClientCacheTest extends Assert {
         }
     }
 
+    @Priority(Priorities.USER)
+    public static class FailingRequestFilter implements ClientRequestFilter {
+        static final String FAIL = "X-Fail";
+        @Override
+        public void filter(ClientRequestContext request) throws IOException {
+            if (request.getHeaderString(FAIL) != null) {
+                throw new IOException("Connection refused");
+            }
+        }
+    }
+
     @Path("/")
     public static class TheServer {
+        static final AtomicInteger NOT_MODIFIED = new AtomicInteger();
+        static final AtomicInteger VERSION = new AtomicInteger();
+        
         @GET
         @Produces("text/plain")
         public Response getString() {
@@ -188,6 +295,35 @@ public class ClientCacheTest extends Assert {
             b.setName("JCache");
             return Response.ok(b).tag("123").cacheControl(CacheControl.valueOf("max-age=50000")).build();
         }
+        @GET
+        @Path("etag")
+        @Produces("text/plain")
+        public Response getEtagString(@Context Request request) {
+            final EntityTag tag = new EntityTag("v1");
+            final CacheControl cc = CacheControl.valueOf("max-age=0");
+            Response.ResponseBuilder rb = request.evaluatePreconditions(tag);
+            if (rb != null) {
+                NOT_MODIFIED.incrementAndGet();
+                return rb.cacheControl(cc).build();
+            }
+            return Response.ok(Long.toString(System.currentTimeMillis())).tag(tag).cacheControl(cc).build();
+        }
+        @GET
+        @Path("stale")
+        @Produces("text/plain")
+        public Response getStaleString() {
+            final String version = "v" + VERSION.incrementAndGet();
+            return Response.ok(version).tag(version)
+                .cacheControl(CacheControl.valueOf("max-age=0, stale-while-revalidate=600")).build();
+        }
+        @GET
+        @Path("vary")
+        @Produces("text/plain")
+        public Response getVaryString(@HeaderParam(HttpHeaders.ACCEPT_LANGUAGE) String language) {
+            return Response.ok(language + System.currentTimeMillis())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE)
+                .cacheControl(CacheControl.valueOf("max-age=50000")).build();
+        }
     }
     @XmlRootElement
     public static class Book implements Serializable {
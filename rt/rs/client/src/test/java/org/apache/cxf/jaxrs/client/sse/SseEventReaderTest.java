@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.client.sse;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SseEventReaderTest extends Assert {
+
+    @Test
+    public void testReadEvents() throws Exception {
+        String stream = ": heartbeat\n\n"
+            + "data: first\n\n"
+            + "event: update\nid: 2\nretry: 500\ndata: line1\ndata:line2\n\n"
+            + "data: no terminating empty line";
+        SseEventReader reader = new SseEventReader(null);
+        Listener listener = new Listener();
+        reader.read(new ByteArrayInputStream(stream.getBytes("UTF-8")), listener);
+        
+        assertEquals(2, listener.events.size());
+        InboundSseEvent first = listener.events.get(0);
+        assertEquals("message", first.getName());
+        assertEquals("first", first.getData());
+        assertNull(first.getId());
+        assertEquals(-1, first.getReconnectDelay());
+        
+        InboundSseEvent second = listener.events.get(1);
+        assertEquals("update", second.getName());
+        assertEquals("line1\nline2", second.getData());
+        assertEquals("2", second.getId());
+        assertEquals(500, second.getReconnectDelay());
+        
+        assertEquals("2", reader.getLastEventId());
+        assertEquals(500, reader.getReconnectDelay());
+    }
+    
+    @Test
+    public void testLastEventIdIsRetained() throws Exception {
+        String stream = "data: a\r\n\r\nid: 7\r\n\r\ndata: b\r\n\r\n";
+        SseEventReader reader = new SseEventReader("5");
+        Listener listener = new Listener();
+        reader.read(new ByteArrayInputStream(stream.getBytes("UTF-8")), listener);
+        
+        assertEquals(2, listener.events.size());
+        assertEquals("5", listener.events.get(0).getId());
+        assertEquals("7", listener.events.get(1).getId());
+    }
+    
+    private static class Listener implements SseEventListener {
+        private List<InboundSseEvent> events = new ArrayList<InboundSseEvent>();
+        
+        public void onEvent(InboundSseEvent event) {
+            events.add(event);
+        }
+
+        public void onError(Throwable t) {
+            fail(t.getMessage());
+        }
+    }
+}
@@ -46,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import javax.ws.rs.DefaultValue;
@@ -57,6 +58,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
@@ -89,6 +91,7 @@ import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.common.util.PackageUtils;
 import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.common.util.XmlSchemaPrimitiveUtils;
+import org.apache.cxf.common.util.crypto.MessageDigestUtils;
 import org.apache.cxf.common.xmlschema.SchemaCollection;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.helpers.CastUtils;
@@ -133,6 +136,8 @@ public class WadlGenerator implements ContainerRequestFilter {
     private static final String JAXB_DEFAULT_NAME = "##default";
     private static final String CLASSPATH_PREFIX = "classpath:";
     private static final String DEFAULT_NS_PREFIX = "prefix";
+    private static final String WADL_CACHE = WadlGenerator.class.getName() + ".wadlCache";
+    private static final int MAX_CACHED_WADLS = 100;
     private static final Map<ParameterType, Class<? extends Annotation>> PARAMETER_TYPE_MAP;
     static {
         PARAMETER_TYPE_MAP = new HashMap<ParameterType, Class<? extends Annotation>>();
@@ -156,6 +161,7 @@ public class WadlGenerator implements ContainerRequestFilter {
     private boolean supportJaxbSubstitutions = true;
     private boolean ignoreOverloadedMethods;
     private boolean checkAbsolutePathSlash;
+    private boolean cacheWadl = true;
     
     private List<String> externalSchemasCache;
     private List<URI> externalSchemaLinks;
@@ -225,6 +231,18 @@ public class WadlGenerator implements ContainerRequestFilter {
 
         boolean isJson = type == MediaType.APPLICATION_JSON_TYPE;
 
+        if (cacheWadl) {
+            CachedWadl cached = getCachedWadl(m, ui, type, isJson);
+            if (isNotModified(headers, cached.etag)) {
+                context.abortWith(Response.notModified(cached.etag).build());
+                return;
+            }
+            m.getExchange().put(JAXRSUtils.IGNORE_MESSAGE_WRITERS, !isJson && ignoreMessageWriters);
+            context.abortWith(Response.ok().type(type).tag(cached.etag)
+                              .entity(createResponseEntity(cached.wadl, isJson)).build());
+            return;
+        }
+        
         StringBuilder sbMain = generateWADL(getBaseURI(m, ui), getResourcesList(m, ui), isJson, m, ui);
 
         m.getExchange().put(JAXRSUtils.IGNORE_MESSAGE_WRITERS, !isJson && ignoreMessageWriters);
@@ -232,6 +250,58 @@ public class WadlGenerator implements ContainerRequestFilter {
         context.abortWith(r);
     }
 
+    private CachedWadl getCachedWadl(Message m, UriInfo ui, MediaType type, boolean isJson) {
+        String baseURI = getBaseURI(m, ui);
+        EndpointInfo ei = m.getExchange().get(Endpoint.class).getEndpointInfo();
+        ConcurrentMap<List<Object>, CachedWadl> cache = getWadlCache(ei);
+        List<Object> key = Arrays.<Object>asList(this, m.getExchange().get(Service.class), 
+                                                 baseURI, ui.getRequestUri().toString(), type);
+        CachedWadl cached = cache.get(key);
+        if (cached == null) {
+            String wadl = generateWADL(baseURI, getResourcesList(m, ui), isJson, m, ui).toString();
+            cached = new CachedWadl(wadl);
+            if (cache.size() >= MAX_CACHED_WADLS) {
+                // the request URI is client controlled, keep the cache bounded
+                cache.clear();
+            }
+            cache.put(key, cached);
+        }
+        return cached;
+    }
+
+    private static ConcurrentMap<List<Object>, CachedWadl> getWadlCache(EndpointInfo ei) {
+        // the cache is kept with the endpoint info, a new endpoint starts with an empty cache
+        synchronized (ei) {
+            @SuppressWarnings("unchecked")
+            ConcurrentMap<List<Object>, CachedWadl> cache = 
+                (ConcurrentMap<List<Object>, CachedWadl>)ei.getProperty(WADL_CACHE);
+            if (cache == null) {
+                cache = new ConcurrentHashMap<List<Object>, CachedWadl>();
+                ei.setProperty(WADL_CACHE, cache);
+            }
+            return cache;
+        }
+    }
+
+    private static boolean isNotModified(HttpHeaders headers, EntityTag etag) {
+        List<String> values = headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+        if (values == null) {
+            return false;
+        }
+        for (String value : values) {
+            for (String tag : value.split(",")) {
+                String t = tag.trim();
+                if (t.startsWith("W/")) {
+                    t = t.substring(2);
+                }
+                if ("*".equals(t) || t.equals("\"" + etag.getValue() + "\"")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public StringBuilder generateWADL(String baseURI, 
                                        List<ClassResourceInfo> cris, 
                                        boolean isJson,
@@ -1988,6 +2058,18 @@ public class WadlGenerator implements ContainerRequestFilter {
         this.ignoreRequests = ignoreRequests;
     }
 
+    /**
+     * Controls whether the generated WADL documents are cached per endpoint,
+     * base address, request URI and media type. The cached documents are returned
+     * with an ETag and a matching If-None-Match request gets '304 Not Modified'.
+     * Caching should be disabled if the generated WADL varies between requests.
+     *
+     * @param cacheWadl true if the documents should be cached, the default
+     */
+    public void setCacheWadl(boolean cacheWadl) {
+        this.cacheWadl = cacheWadl;
+    }
+
     public void setSupportCollections(boolean support) {
         this.supportCollections = support;
     }
@@ -2081,4 +2163,15 @@ public class WadlGenerator implements ContainerRequestFilter {
         
     }
     
+
+    private static final class CachedWadl {
+        private final String wadl;
+        private final EntityTag etag;
+
+        CachedWadl(String wadl) {
+            this.wadl = wadl;
+            byte[] bytes = StringUtils.toBytesUTF8(wadl);
+            this.etag = new EntityTag(MessageDigestUtils.generate(bytes, MessageDigestUtils.ALGO_SHA_1));
+        }
+    }
 }
@@ -30,6 +30,7 @@ import javax.ws.rs.Consumes;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -313,6 +314,26 @@ public class WadlGeneratorTest extends Assert {
         assertEquals("/orders", orderResource.getAttribute("path"));
     }
 
+    @Test
+    public void testCachedWadlNotModified() throws Exception {
+        WadlGenerator wg = new WadlGenerator();
+        ClassResourceInfo cri = 
+            ResourceUtils.createClassResourceInfo(BookStore.class, BookStore.class, true, true);
+        Message m = mockMessage("http://localhost:8080/baz", "/bar", WadlGenerator.WADL_QUERY, cri);
+        Response r = handleRequest(wg, m);
+        checkResponse(r);
+        EntityTag etag = r.getEntityTag();
+        assertNotNull(etag);
+        assertSame(r.getEntity(), handleRequest(wg, m).getEntity());
+        
+        m = mockMessage("http://localhost:8080/baz", "/bar", WadlGenerator.WADL_QUERY, cri);
+        m.put(Message.PROTOCOL_HEADERS, Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, 
+            Collections.singletonList("\"" + etag.getValue() + "\"")));
+        r = handleRequest(wg, m);
+        assertEquals(304, r.getStatus());
+        assertNull(r.getEntity());
+    }
+
     private Response handleRequest(WadlGenerator wg, Message m) {
         wg.doFilter(new ContainerRequestContextImpl(m, true, false), m);
         return m.getExchange().get(Response.class);
@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.provider.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.NoContentException;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlType;
+
+import org.apache.cxf.jaxrs.ext.Nullable;
+import org.apache.cxf.jaxrs.provider.AbstractConfigurableProvider;
+import org.apache.cxf.jaxrs.provider.json.streaming.JsonBeanMapper;
+import org.apache.cxf.jaxrs.provider.json.streaming.JsonMappingException;
+import org.apache.cxf.jaxrs.provider.json.streaming.JsonTokenReader;
+import org.apache.cxf.jaxrs.provider.json.streaming.JsonTokenWriter;
+import org.apache.cxf.jaxrs.utils.AnnotationUtils;
+import org.apache.cxf.jaxrs.utils.ExceptionUtils;
+import org.apache.cxf.jaxrs.utils.HttpUtils;
+import org.apache.cxf.jaxrs.utils.InjectionUtils;
+
+/**
+ * JSON provider for JAXB-annotated beans which reads and writes the JSON tokens
+ * directly, without mapping them to XML events and running JAXB over them as 
+ * {@link JSONProvider} does. The properties of every class are introspected 
+ * once, honouring the common JAXB annotations, so existing JAXB models 
+ * can be used as is.
+ * <p>
+ * By default the payload is wrapped in an object with the single property named 
+ * after the root element, which matches the default {@link JSONProvider} output,
+ * while collections and arrays are written as plain JSON arrays. Unlike with 
+ * Jettison, numbers and booleans are written as JSON numbers and booleans and 
+ * single element collections as arrays. XML namespaces are ignored.
+ */
+@Produces({"application/json", "application/*+json" })
+@Consumes({"application/json", "application/*+json" })
+@Provider
+public class StreamingJSONProvider<T> extends AbstractConfigurableProvider 
+    implements MessageBodyReader<T>, MessageBodyWriter<T> {
+    
+    private JsonBeanMapper mapper = new JsonBeanMapper();
+    private boolean dropRootElement;
+    private int maxDepth = -1;
+    
+    /**
+     * Controls whether the root object is wrapped in an object with the single 
+     * property named after the root element, false by default. When set to true
+     * the wrapper is neither written nor expected, otherwise the incoming 
+     * payloads are accepted with or without the wrapper.
+     */
+    public void setDropRootElement(boolean drop) {
+        this.dropRootElement = drop;
+    }
+    
+    /**
+     * Sets the maximum nesting level of the incoming payloads,
+     * -1 (default) means no limit is enforced
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    public void setMapper(JsonBeanMapper mapper) {
+        this.mapper = mapper;
+    }
+    
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] anns, MediaType mt) {
+        return isSupported(type, genericType);
+    }
+    
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] anns, MediaType mt) {
+        return isSupported(type, genericType);
+    }
+    
+    protected boolean isSupported(Class<?> type, Type genericType) {
+        Class<?> cls = type;
+        if (InjectionUtils.isSupportedCollectionOrArray(type)) {
+            cls = InjectionUtils.getActualType(genericType);
+            if (cls == null) {
+                return false;
+            }
+        }
+        return cls.getAnnotation(XmlRootElement.class) != null 
+            || cls.getAnnotation(XmlType.class) != null;
+    }
+    
+    public long getSize(T t, Class<?> type, Type genericType, Annotation[] anns, MediaType mt) {
+        return -1;
+    }
+    
+    public T readFrom(Class<T> type, Type genericType, Annotation[] anns, MediaType mt, 
+                      MultivaluedMap<String, String> headers, InputStream is) throws IOException {
+        if (isPayloadEmpty(headers)) {
+            return handleEmptyPayload(anns);
+        }
+        String enc = HttpUtils.getEncoding(mt, "UTF-8");
+        JsonTokenReader reader = new JsonTokenReader(new InputStreamReader(is, enc));
+        reader.setMaxDepth(maxDepth);
+        try {
+            JsonTokenReader.Token t = reader.next();
+            if (t == JsonTokenReader.Token.END_DOCUMENT) {
+                return handleEmptyPayload(anns);
+            }
+            Object value;
+            if (!dropRootElement && t == JsonTokenReader.Token.START_OBJECT
+                && !InjectionUtils.isSupportedCollectionOrArray(type)
+                && reader.peek() == JsonTokenReader.Token.NAME
+                && mapper.getRootName(type).equals(reader.getText())) {
+                reader.next();
+                value = mapper.readValue(reader, type, genericType);
+                if (reader.next() != JsonTokenReader.Token.END_OBJECT) {
+                    throw new JsonMappingException("Only the root element is expected");
+                }
+            } else {
+                value = mapper.readValue(reader, t, type, genericType);
+            }
+            return type.cast(value);
+        } catch (JsonMappingException ex) {
+            throw ExceptionUtils.toBadRequestException(ex, null);
+        }
+    }
+    
+    private T handleEmptyPayload(Annotation[] anns) throws NoContentException {
+        if (AnnotationUtils.getAnnotation(anns, Nullable.class) != null) {
+            return null;
+        }
+        throw new NoContentException("Empty JSON payload");
+    }
+    
+    public void writeTo(T obj, Class<?> cls, Type genericType, Annotation[] anns, MediaType mt,  
+                        MultivaluedMap<String, Object> headers, OutputStream os) throws IOException {
+        String enc = HttpUtils.getSetEncoding(mt, headers, "UTF-8");
+        OutputStreamWriter out = new OutputStreamWriter(os, enc);
+        JsonTokenWriter writer = new JsonTokenWriter(out);
+        try {
+            if (dropRootElement || InjectionUtils.isSupportedCollectionOrArray(cls)) {
+                mapper.writeValue(writer, obj, genericType);
+            } else {
+                writer.startObject().name(mapper.getRootName(obj.getClass()));
+                mapper.writeValue(writer, obj, genericType);
+                writer.endObject();
+            }
+            writer.flush();
+        } catch (JsonMappingException ex) {
+            throw ExceptionUtils.toInternalServerErrorException(ex, null);
+        }
+    }
+}
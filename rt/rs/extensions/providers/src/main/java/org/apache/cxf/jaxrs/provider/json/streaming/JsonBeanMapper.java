@@ -0,0 +1,884 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.provider.json.streaming;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAccessOrder;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorOrder;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
+import javax.xml.bind.annotation.XmlEnumValue;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.XmlValue;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.apache.cxf.jaxrs.provider.json.streaming.JsonTokenReader.Token;
+
+/**
+ * Maps Java objects to and from JSON tokens. 
+ * <p>
+ * The properties of every bean class are introspected once, following the JAXB rules 
+ * for {@link XmlAccessorType}, {@link XmlTransient}, {@link XmlElement}, {@link XmlAttribute}, 
+ * {@link XmlValue}, {@link XmlElementWrapper}, {@link XmlJavaTypeAdapter}, {@link XmlEnumValue} 
+ * and {@link XmlType#propOrder()}, and the resulting property tables are reused 
+ * for all the subsequent reads and writes. XML namespaces are ignored.
+ */
+public class JsonBeanMapper {
+    private static final String DEFAULT_NAME = "##default";
+    private static final String VALUE_NAME = "$";
+    
+    private final ConcurrentMap<Class<?>, BeanMapping> beans = new ConcurrentHashMap<Class<?>, BeanMapping>();
+    private final ConcurrentMap<Class<?>, EnumMapping> enums = new ConcurrentHashMap<Class<?>, EnumMapping>();
+    private volatile DatatypeFactory datatypeFactory;
+    
+    /**
+     * Returns the name of the JSON property wrapping the root object,
+     * which is the name of the XML root element 
+     */
+    public String getRootName(Class<?> cls) {
+        XmlRootElement root = cls.getAnnotation(XmlRootElement.class);
+        if (root != null && !DEFAULT_NAME.equals(root.name())) {
+            return root.name();
+        }
+        XmlType type = cls.getAnnotation(XmlType.class);
+        if (root == null && type != null && !DEFAULT_NAME.equals(type.name()) && type.name().length() > 0) {
+            return type.name();
+        }
+        return Introspector.decapitalize(cls.getSimpleName());
+    }
+    
+    public void writeValue(JsonTokenWriter w, Object value, Type type) throws IOException {
+        if (value == null) {
+            w.nullValue();
+        } else if (value instanceof String) {
+            w.value((String)value);
+        } else if (value instanceof Boolean) {
+            w.value(((Boolean)value).booleanValue());
+        } else if (value instanceof Number) {
+            w.value((Number)value);
+        } else if (value instanceof Character) {
+            w.value(value.toString());
+        } else if (value instanceof Enum) {
+            w.value(getEnumMapping(value.getClass()).toJson((Enum<?>)value));
+        } else if (value instanceof byte[]) {
+            w.value(DatatypeConverter.printBase64Binary((byte[])value));
+        } else if (value instanceof Calendar) {
+            w.value(DatatypeConverter.printDateTime((Calendar)value));
+        } else if (value instanceof Date) {
+            Calendar c = Calendar.getInstance();
+            c.setTime((Date)value);
+            w.value(DatatypeConverter.printDateTime(c));
+        } else if (value instanceof XMLGregorianCalendar) {
+            w.value(((XMLGregorianCalendar)value).toXMLFormat());
+        } else if (value instanceof JAXBElement) {
+            writeValue(w, ((JAXBElement<?>)value).getValue(), ((JAXBElement<?>)value).getDeclaredType());
+        } else if (value instanceof Collection) {
+            Type elementType = getTypeArgument(type, 0);
+            w.startArray();
+            for (Object o : (Collection<?>)value) {
+                writeValue(w, o, elementType);
+            }
+            w.endArray();
+        } else if (value.getClass().isArray()) {
+            Type componentType = getComponentType(type, value.getClass());
+            w.startArray();
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                writeValue(w, Array.get(value, i), componentType);
+            }
+            w.endArray();
+        } else if (value instanceof Map) {
+            Type valueType = getTypeArgument(type, 1);
+            w.startObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                Object key = entry.getKey();
+                w.name(key instanceof Enum ? getEnumMapping(key.getClass()).toJson((Enum<?>)key) 
+                    : String.valueOf(key));
+                writeValue(w, entry.getValue(), valueType);
+            }
+            w.endObject();
+        } else if (value.getClass().getName().startsWith("java.")) {
+            // URI, UUID, QName-like simple values
+            w.value(value.toString());
+        } else {
+            writeBean(w, value, getBeanMapping(value.getClass()));
+        }
+    }
+    
+    private void writeBean(JsonTokenWriter w, Object bean, BeanMapping mapping) throws IOException {
+        if (mapping.valueProperty != null && mapping.properties.length == 0) {
+            writeProperty(w, mapping.valueProperty, mapping.valueProperty.get(bean));
+            return;
+        }
+        w.startObject();
+        for (BeanProperty p : mapping.properties) {
+            Object value = p.get(bean);
+            if (value != null) {
+                w.name(p.name);
+                writeProperty(w, p, value);
+            }
+        }
+        if (mapping.valueProperty != null) {
+            Object value = mapping.valueProperty.get(bean);
+            if (value != null) {
+                w.name(VALUE_NAME);
+                writeProperty(w, mapping.valueProperty, value);
+            }
+        }
+        w.endObject();
+    }
+    
+    private void writeProperty(JsonTokenWriter w, BeanProperty p, Object value) throws IOException {
+        if (p.adapter != null) {
+            try {
+                writeValue(w, p.adapter.marshal(value), p.adaptedType);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new JsonMappingException("Property " + p.name + " can not be adapted", ex);
+            }
+        } else {
+            writeValue(w, value, p.genericType);
+        }
+    }
+    
+    public Object readValue(JsonTokenReader r, Class<?> cls, Type type) throws IOException {
+        return readValue(r, r.next(), cls, type);
+    }
+    
+    /**
+     * Reads the value which starts with the already consumed token
+     */
+    public Object readValue(JsonTokenReader r, Token t, Class<?> cls, Type type) throws IOException {
+        if (t == Token.NULL) {
+            return cls.isPrimitive() ? readSimpleValue(cls, "0") : null;
+        } else if (t == Token.END_DOCUMENT) {
+            throw new JsonMappingException("Unexpected end of document");
+        }
+        if (cls == Object.class) {
+            return readUntyped(r, t);
+        } else if (Collection.class.isAssignableFrom(cls)) {
+            Collection<Object> c = newCollection(cls);
+            readCollection(r, t, c, getTypeArgument(type, 0));
+            return c;
+        } else if (cls.isArray() && cls != byte[].class) {
+            return readArray(r, t, cls, type);
+        } else if (Map.class.isAssignableFrom(cls)) {
+            return readMap(r, t, cls, type);
+        } 
+        return readObject(r, t, cls);
+    }
+    
+    private Object readArray(JsonTokenReader r, Token t, Class<?> cls, Type type) throws IOException {
+        Type componentType = getComponentType(type, cls);
+        List<Object> list = new ArrayList<Object>();
+        readCollection(r, t, list, componentType);
+        Object array = Array.newInstance(cls.getComponentType(), list.size());
+        for (int i = 0; i < list.size(); i++) {
+            Array.set(array, i, list.get(i));
+        }
+        return array;
+    }
+    
+    private Object readObject(JsonTokenReader r, Token t, Class<?> cls) throws IOException {
+        if (JAXBElement.class.isAssignableFrom(cls)) {
+            throw new JsonMappingException("JAXBElement can not be read");
+        } else if (t == Token.START_OBJECT) {
+            return readBean(r, getBeanMapping(cls));
+        } else if (t == Token.START_ARRAY) {
+            throw new JsonMappingException("Unexpected array for " + cls.getName());
+        } 
+        String text = getScalarText(r, t);
+        Object value = readSimpleValue(cls, text);
+        if (value == null && cls.getName().startsWith("java.")) {
+            value = newInstance(cls, text);
+        } else if (value == null) {
+            // a simple content bean
+            BeanMapping mapping = getBeanMapping(cls);
+            BeanProperty p = mapping.valueProperty;
+            if (p == null) {
+                throw new JsonMappingException("Unexpected value for " + cls.getName());
+            }
+            value = mapping.newInstance();
+            if (p.adapter != null) {
+                setAdapted(value, p, readValue(r, t, p.adaptedType, p.adaptedType));
+            } else {
+                p.set(value, readValue(r, t, p.type, p.genericType));
+            }
+        }
+        return value;
+    }
+    
+    private Object readBean(JsonTokenReader r, BeanMapping mapping) throws IOException {
+        Object bean = mapping.newInstance();
+        for (Token t = r.next(); t != Token.END_OBJECT; t = r.next()) {
+            BeanProperty p = mapping.getProperty(r.getText());
+            if (p == null) {
+                r.skipValue();
+            } else if (p.adapter != null) {
+                setAdapted(bean, p, readValue(r, p.adaptedType, p.adaptedType));
+            } else if (!p.isSettable()) {
+                // JAXB style live collection returned by the getter
+                @SuppressWarnings("unchecked")
+                Collection<Object> c = p.isCollection() ? (Collection<Object>)p.get(bean) : null;
+                if (c == null) {
+                    r.skipValue();
+                } else {
+                    readCollection(r, r.next(), c, getTypeArgument(p.genericType, 0));
+                }
+            } else {
+                p.set(bean, readValue(r, p.type, p.genericType));
+            }
+        }
+        return bean;
+    }
+    
+    private static void setAdapted(Object bean, BeanProperty p, Object value) {
+        try {
+            p.set(bean, p.adapter.unmarshal(value));
+        } catch (JsonMappingException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new JsonMappingException("Property " + p.name + " can not be adapted", ex);
+        }
+    }
+    
+    private void readCollection(JsonTokenReader r, Token t, Collection<Object> c, Type elementType) 
+        throws IOException {
+        Class<?> elementCls = getRawType(elementType);
+        if (t != Token.START_ARRAY) {
+            // a single element may have been written without the array, as Jettison does
+            c.add(readValue(r, t, elementCls, elementType));
+            return;
+        }
+        for (Token next = r.next(); next != Token.END_ARRAY; next = r.next()) {
+            c.add(readValue(r, next, elementCls, elementType));
+        }
+    }
+    
+    private Object readMap(JsonTokenReader r, Token t, Class<?> cls, Type type) throws IOException {
+        if (t != Token.START_OBJECT) {
+            throw new JsonMappingException("Expected an object for " + cls.getName());
+        }
+        Map<Object, Object> map = newMap(cls);
+        Class<?> keyCls = getRawType(getTypeArgument(type, 0));
+        Type valueType = getTypeArgument(type, 1);
+        Class<?> valueCls = getRawType(valueType);
+        for (Token next = r.next(); next != Token.END_OBJECT; next = r.next()) {
+            String name = r.getText();
+            Object key = name;
+            if (keyCls.isEnum()) {
+                key = getEnumMapping(keyCls).fromJson(name);
+            } else if (keyCls != Object.class && keyCls != String.class) {
+                key = readSimpleValue(keyCls, name);
+            }
+            map.put(key, readValue(r, valueCls, valueType));
+        }
+        return map;
+    }
+    
+    private Object readUntyped(JsonTokenReader r, Token t) throws IOException {
+        Object value = null;
+        switch (t) {
+        case START_OBJECT:
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            for (Token next = r.next(); next != Token.END_OBJECT; next = r.next()) {
+                String name = r.getText();
+                map.put(name, readUntyped(r, r.next()));
+            }
+            value = map;
+            break;
+        case START_ARRAY:
+            List<Object> list = new ArrayList<Object>();
+            for (Token next = r.next(); next != Token.END_ARRAY; next = r.next()) {
+                list.add(readUntyped(r, next));
+            }
+            value = list;
+            break;
+        case STRING:
+            value = r.getText();
+            break;
+        case NUMBER:
+            value = readNumber(r.getText());
+            break;
+        case TRUE:
+        case FALSE:
+            value = Boolean.valueOf(t == Token.TRUE);
+            break;
+        case NULL:
+            break;
+        default:
+            throw new JsonMappingException("Unexpected token " + t);
+        }
+        return value;
+    }
+    
+    private static Number readNumber(String text) {
+        if (text.indexOf('.') == -1 && text.indexOf('e') == -1 && text.indexOf('E') == -1) {
+            try {
+                return Long.valueOf(text);
+            } catch (NumberFormatException ex) {
+                return new BigInteger(text);
+            }
+        }
+        return Double.valueOf(text);
+    }
+    
+    private static String getScalarText(JsonTokenReader r, Token t) {
+        switch (t) {
+        case STRING:
+        case NUMBER:
+            return r.getText();
+        case TRUE:
+            return "true";
+        case FALSE:
+            return "false";
+        default:
+            throw new JsonMappingException("Unexpected token " + t);
+        }
+    }
+    
+    /**
+     * Converts the text to the simple type, returns null if the type is not a simple one 
+     */
+    private Object readSimpleValue(Class<?> cls, String text) {
+        Object value = null;
+        try {
+            if (cls == String.class) {
+                value = text;
+            } else if (cls == int.class || cls == Integer.class) {
+                value = Integer.valueOf(text);
+            } else if (cls == long.class || cls == Long.class) {
+                value = Long.valueOf(text);
+            } else if (cls == boolean.class || cls == Boolean.class) {
+                value = "0".equals(text) ? Boolean.FALSE : Boolean.valueOf(text);
+            } else if (cls == double.class || cls == Double.class) {
+                value = Double.valueOf(text);
+            } else if (cls == float.class || cls == Float.class) {
+                value = Float.valueOf(text);
+            } else if (cls == short.class || cls == Short.class) {
+                value = Short.valueOf(text);
+            } else if (cls == byte.class || cls == Byte.class) {
+                value = Byte.valueOf(text);
+            } else if (cls == char.class || cls == Character.class) {
+                value = "0".equals(text) && cls.isPrimitive() ? Character.valueOf((char)0) 
+                    : Character.valueOf(text.charAt(0));
+            } else if (cls == BigDecimal.class) {
+                value = new BigDecimal(text);
+            } else if (cls == BigInteger.class) {
+                value = new BigInteger(text);
+            } else if (cls == byte[].class) {
+                value = DatatypeConverter.parseBase64Binary(text);
+            } else if (Calendar.class.isAssignableFrom(cls)) {
+                value = DatatypeConverter.parseDateTime(text);
+            } else if (cls == Date.class) {
+                value = DatatypeConverter.parseDateTime(text).getTime();
+            } else if (cls == XMLGregorianCalendar.class) {
+                value = getDatatypeFactory().newXMLGregorianCalendar(text);
+            } else if (cls.isEnum()) {
+                value = getEnumMapping(cls).fromJson(text);
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new JsonMappingException("Value \"" + text + "\" can not be converted to " 
+                                           + cls.getName(), ex);
+        } catch (StringIndexOutOfBoundsException ex) {
+            throw new JsonMappingException("Empty value can not be converted to " + cls.getName(), ex);
+        }
+        return value;
+    }
+    
+    private DatatypeFactory getDatatypeFactory() {
+        DatatypeFactory factory = datatypeFactory;
+        if (factory == null) {
+            try {
+                factory = DatatypeFactory.newInstance();
+            } catch (DatatypeConfigurationException ex) {
+                throw new JsonMappingException("DatatypeFactory is not available", ex);
+            }
+            datatypeFactory = factory;
+        }
+        return factory;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Class<?> cls) {
+        if (!cls.isInterface() && !Modifier.isAbstract(cls.getModifiers())) {
+            return (Collection<Object>)newInstance(cls);
+        } else if (SortedSet.class.isAssignableFrom(cls)) {
+            return new TreeSet<Object>();
+        } else if (Set.class.isAssignableFrom(cls)) {
+            return new LinkedHashSet<Object>();
+        } else if (Queue.class.isAssignableFrom(cls)) {
+            return new LinkedList<Object>();
+        }
+        return new ArrayList<Object>();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> cls) {
+        if (!cls.isInterface() && !Modifier.isAbstract(cls.getModifiers())) {
+            return (Map<Object, Object>)newInstance(cls);
+        } else if (SortedMap.class.isAssignableFrom(cls)) {
+            return new TreeMap<Object, Object>();
+        }
+        return new LinkedHashMap<Object, Object>();
+    }
+    
+    private static Object newInstance(Class<?> cls) {
+        try {
+            return cls.newInstance();
+        } catch (Exception ex) {
+            throw new JsonMappingException(cls.getName() + " can not be instantiated", ex);
+        }
+    }
+    
+    private static Object newInstance(Class<?> cls, String text) {
+        try {
+            return cls.getConstructor(String.class).newInstance(text);
+        } catch (Exception ex) {
+            throw new JsonMappingException("Value \"" + text + "\" can not be converted to " 
+                                           + cls.getName(), ex);
+        }
+    }
+    
+    private static Class<?> getRawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>)type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>)((ParameterizedType)type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            Class<?> component = getRawType(((GenericArrayType)type).getGenericComponentType());
+            return Array.newInstance(component, 0).getClass();
+        }
+        return Object.class;
+    }
+    
+    private static Type getTypeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] args = ((ParameterizedType)type).getActualTypeArguments();
+            if (index < args.length) {
+                return args[index];
+            }
+        }
+        return Object.class;
+    }
+    
+    private static Type getComponentType(Type type, Class<?> arrayCls) {
+        if (type instanceof GenericArrayType) {
+            return ((GenericArrayType)type).getGenericComponentType();
+        }
+        return arrayCls.getComponentType();
+    }
+    
+    private EnumMapping getEnumMapping(Class<?> cls) {
+        Class<?> enumCls = cls.isEnum() ? cls : cls.getSuperclass();
+        EnumMapping mapping = enums.get(enumCls);
+        if (mapping == null) {
+            mapping = new EnumMapping(enumCls);
+            enums.putIfAbsent(enumCls, mapping);
+        }
+        return mapping;
+    }
+    
+    BeanMapping getBeanMapping(Class<?> cls) {
+        BeanMapping mapping = beans.get(cls);
+        if (mapping == null) {
+            mapping = new BeanMapping(cls);
+            BeanMapping existing = beans.putIfAbsent(cls, mapping);
+            if (existing != null) {
+                mapping = existing;
+            }
+        }
+        return mapping;
+    }
+    
+    private static final class EnumMapping {
+        private final Map<Object, String> toJson = new LinkedHashMap<Object, String>();
+        private final Map<String, Object> fromJson = new LinkedHashMap<String, Object>();
+        
+        EnumMapping(Class<?> cls) {
+            for (Object constant : cls.getEnumConstants()) {
+                String name = ((Enum<?>)constant).name();
+                String value = name;
+                try {
+                    XmlEnumValue ann = cls.getField(name).getAnnotation(XmlEnumValue.class);
+                    if (ann != null) {
+                        value = ann.value();
+                    }
+                } catch (NoSuchFieldException ex) {
+                    // ignore
+                }
+                toJson.put(constant, value);
+                fromJson.put(value, constant);
+            }
+        }
+        
+        String toJson(Enum<?> value) {
+            return toJson.get(value);
+        }
+        
+        Object fromJson(String value) {
+            Object constant = fromJson.get(value);
+            if (constant == null) {
+                throw new JsonMappingException("Unknown enum value \"" + value + "\"");
+            }
+            return constant;
+        }
+    }
+    
+    static final class BeanMapping {
+        private final Class<?> cls;
+        private final Constructor<?> constructor;
+        private final BeanProperty[] properties;
+        private final BeanProperty valueProperty;
+        private final Map<String, BeanProperty> propertiesByName = new LinkedHashMap<String, BeanProperty>();
+        
+        BeanMapping(Class<?> cls) {
+            this.cls = cls;
+            Constructor<?> ctr = null;
+            try {
+                ctr = cls.getDeclaredConstructor();
+                makeAccessible(ctr);
+            } catch (NoSuchMethodException ex) {
+                // the class can be written but not read
+            }
+            constructor = ctr;
+            
+            List<BeanProperty> all = new ArrayList<BeanProperty>();
+            List<Class<?>> hierarchy = new LinkedList<Class<?>>();
+            for (Class<?> c = cls; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.add(0, c);
+            }
+            for (Class<?> c : hierarchy) {
+                all.addAll(introspect(c));
+            }
+            BeanProperty value = null;
+            List<BeanProperty> props = new ArrayList<BeanProperty>(all.size());
+            for (BeanProperty p : all) {
+                if (p.value) {
+                    value = p;
+                } else if (!propertiesByName.containsKey(p.name)) {
+                    propertiesByName.put(p.name, p);
+                    props.add(p);
+                }
+            }
+            valueProperty = value;
+            properties = props.toArray(new BeanProperty[props.size()]);
+        }
+        
+        BeanProperty[] getProperties() {
+            return properties;
+        }
+        
+        BeanProperty getProperty(String name) {
+            BeanProperty p = propertiesByName.get(name);
+            if (p == null && name.length() > 0) {
+                if (name.charAt(0) == '@') {
+                    // attributes as written by the Jettison mapped convention
+                    p = propertiesByName.get(name.substring(1));
+                } else if (VALUE_NAME.equals(name)) {
+                    p = valueProperty;
+                }
+            }
+            return p;
+        }
+        
+        Object newInstance() {
+            if (constructor == null) {
+                throw new JsonMappingException(cls.getName() + " has no default constructor");
+            }
+            try {
+                return constructor.newInstance();
+            } catch (Exception ex) {
+                throw new JsonMappingException(cls.getName() + " can not be instantiated", ex);
+            }
+        }
+        
+        private static List<BeanProperty> introspect(Class<?> c) {
+            XmlAccessType access = getAccessType(c);
+            Map<String, BeanProperty> props = new LinkedHashMap<String, BeanProperty>();
+            for (Field f : c.getDeclaredFields()) {
+                int mod = f.getModifiers();
+                if (Modifier.isStatic(mod) || Modifier.isTransient(mod) || f.isSynthetic()
+                    || f.isAnnotationPresent(XmlTransient.class)) {
+                    continue;
+                }
+                if (hasXmlAnnotation(f) || access == XmlAccessType.FIELD 
+                    || access == XmlAccessType.PUBLIC_MEMBER && Modifier.isPublic(mod)) {
+                    props.put(f.getName(), new BeanProperty(f.getName(), f, null, null, f));
+                }
+            }
+            
+            Map<String, Method> getters = new LinkedHashMap<String, Method>();
+            Map<String, Method> setters = new LinkedHashMap<String, Method>();
+            for (Method m : c.getDeclaredMethods()) {
+                if (Modifier.isStatic(m.getModifiers()) || m.isBridge() || m.isSynthetic()) {
+                    continue;
+                }
+                String name = m.getName();
+                int params = m.getParameterTypes().length;
+                if (params == 0 && m.getReturnType() != void.class) {
+                    if (name.startsWith("get") && name.length() > 3) {
+                        getters.put(Introspector.decapitalize(name.substring(3)), m);
+                    } else if (name.startsWith("is") && name.length() > 2 
+                        && (m.getReturnType() == boolean.class || m.getReturnType() == Boolean.class)) {
+                        getters.put(Introspector.decapitalize(name.substring(2)), m);
+                    }
+                } else if (params == 1 && name.startsWith("set") && name.length() > 3) {
+                    setters.put(Introspector.decapitalize(name.substring(3)), m);
+                }
+            }
+            for (Map.Entry<String, Method> entry : getters.entrySet()) {
+                String name = entry.getKey();
+                Method getter = entry.getValue();
+                Method setter = setters.get(name);
+                if (setter != null && setter.getParameterTypes()[0] != getter.getReturnType()) {
+                    setter = null;
+                }
+                if (getter.isAnnotationPresent(XmlTransient.class) 
+                    || setter != null && setter.isAnnotationPresent(XmlTransient.class)
+                    || getter.getDeclaringClass() == Object.class) {
+                    continue;
+                }
+                boolean annotated = hasXmlAnnotation(getter) || setter != null && hasXmlAnnotation(setter);
+                boolean collection = Collection.class.isAssignableFrom(getter.getReturnType());
+                boolean isPublic = Modifier.isPublic(getter.getModifiers()) 
+                    && (setter == null || Modifier.isPublic(setter.getModifiers()));
+                boolean accessible = access == XmlAccessType.PROPERTY 
+                    || access == XmlAccessType.PUBLIC_MEMBER && isPublic;
+                if (annotated || accessible && (setter != null || collection)) {
+                    Field f = props.containsKey(name) ? null : findField(c, name);
+                    AccessibleObject annotatedMember = hasXmlAnnotation(getter) || setter == null 
+                        ? getter : setter;
+                    props.put(name, new BeanProperty(name, f, getter, setter, annotatedMember));
+                }
+            }
+            
+            List<BeanProperty> list = new ArrayList<BeanProperty>(props.values());
+            XmlType xmlType = c.getAnnotation(XmlType.class);
+            if (xmlType != null && xmlType.propOrder().length > 0 && xmlType.propOrder()[0].length() > 0) {
+                final List<String> order = Arrays.asList(xmlType.propOrder());
+                Collections.sort(list, new Comparator<BeanProperty>() {
+                    public int compare(BeanProperty p1, BeanProperty p2) {
+                        return position(p1) - position(p2);
+                    }
+                    private int position(BeanProperty p) {
+                        int index = order.indexOf(p.javaName);
+                        return index == -1 ? Integer.MAX_VALUE / 2 : index;
+                    }
+                });
+            } else {
+                XmlAccessorOrder accessorOrder = c.getAnnotation(XmlAccessorOrder.class);
+                if (accessorOrder == null && c.getPackage() != null) {
+                    accessorOrder = c.getPackage().getAnnotation(XmlAccessorOrder.class);
+                }
+                if (accessorOrder != null && accessorOrder.value() == XmlAccessOrder.ALPHABETICAL) {
+                    Collections.sort(list, new Comparator<BeanProperty>() {
+                        public int compare(BeanProperty p1, BeanProperty p2) {
+                            return p1.javaName.compareTo(p2.javaName);
+                        }
+                    });
+                }
+            }
+            return list;
+        }
+        
+        private static XmlAccessType getAccessType(Class<?> c) {
+            XmlAccessorType accessorType = c.getAnnotation(XmlAccessorType.class);
+            if (accessorType == null && c.getPackage() != null) {
+                accessorType = c.getPackage().getAnnotation(XmlAccessorType.class);
+            }
+            return accessorType == null ? XmlAccessType.PUBLIC_MEMBER : accessorType.value();
+        }
+        
+        private static Field findField(Class<?> c, String name) {
+            try {
+                Field f = c.getDeclaredField(name);
+                return Modifier.isStatic(f.getModifiers()) ? null : f;
+            } catch (NoSuchFieldException ex) {
+                return null;
+            }
+        }
+        
+        private static boolean hasXmlAnnotation(AccessibleObject member) {
+            for (Annotation a : member.getAnnotations()) {
+                if (a.annotationType().getName().startsWith("javax.xml.bind.annotation.")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    static final class BeanProperty {
+        private final String javaName;
+        private final String name;
+        private final Class<?> type;
+        private final Type genericType;
+        private final Field field;
+        private final Method getter;
+        private final Method setter;
+        private final boolean value;
+        private final XmlAdapter<Object, Object> adapter;
+        private final Class<?> adaptedType;
+        
+        @SuppressWarnings("unchecked")
+        BeanProperty(String javaName, Field field, Method getter, Method setter, AccessibleObject annotated) {
+            this.javaName = javaName;
+            this.getter = getter;
+            this.setter = setter;
+            // prefer the accessors when available but fall back to the field for the missing ones
+            this.field = field;
+            if (getter != null) {
+                type = getter.getReturnType();
+                genericType = getter.getGenericReturnType();
+            } else {
+                type = field.getType();
+                genericType = field.getGenericType();
+            }
+            makeAccessible(field);
+            makeAccessible(getter);
+            makeAccessible(setter);
+            
+            String xmlName = null;
+            XmlElementWrapper wrapper = annotated.getAnnotation(XmlElementWrapper.class);
+            XmlElement element = annotated.getAnnotation(XmlElement.class);
+            XmlAttribute attribute = annotated.getAnnotation(XmlAttribute.class);
+            if (wrapper != null) {
+                xmlName = wrapper.name();
+            } else if (element != null) {
+                xmlName = element.name();
+            } else if (attribute != null) {
+                xmlName = attribute.name();
+            }
+            name = xmlName == null || DEFAULT_NAME.equals(xmlName) ? javaName : xmlName;
+            value = annotated.isAnnotationPresent(XmlValue.class);
+            
+            XmlJavaTypeAdapter adapterAnn = annotated.getAnnotation(XmlJavaTypeAdapter.class);
+            if (adapterAnn == null) {
+                adapterAnn = type.getAnnotation(XmlJavaTypeAdapter.class);
+            }
+            if (adapterAnn != null) {
+                adapter = (XmlAdapter<Object, Object>)JsonBeanMapper.newInstance(adapterAnn.value());
+                adaptedType = getAdaptedType(adapterAnn.value());
+            } else {
+                adapter = null;
+                adaptedType = null;
+            }
+        }
+        
+        boolean isSettable() {
+            return setter != null || field != null && !Modifier.isFinal(field.getModifiers());
+        }
+        
+        boolean isCollection() {
+            return Collection.class.isAssignableFrom(type);
+        }
+        
+        Object get(Object bean) {
+            try {
+                return getter != null ? getter.invoke(bean) : field.get(bean);
+            } catch (Exception ex) {
+                throw new JsonMappingException("Property " + name + " can not be read", ex);
+            }
+        }
+        
+        void set(Object bean, Object v) {
+            try {
+                if (setter != null) {
+                    setter.invoke(bean, v);
+                } else if (field != null) {
+                    field.set(bean, v);
+                } else {
+                    throw new JsonMappingException("Property " + name + " is read-only");
+                }
+            } catch (JsonMappingException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new JsonMappingException("Property " + name + " can not be set", ex);
+            }
+        }
+        
+        private static Class<?> getAdaptedType(Class<?> adapterCls) {
+            for (Class<?> c = adapterCls; c != null && c != Object.class; c = c.getSuperclass()) {
+                Type superType = c.getGenericSuperclass();
+                if (superType instanceof ParameterizedType 
+                    && ((ParameterizedType)superType).getRawType() == XmlAdapter.class) {
+                    return getRawType(((ParameterizedType)superType).getActualTypeArguments()[0]);
+                }
+            }
+            return Object.class;
+        }
+    }
+    
+    private static void makeAccessible(AccessibleObject member) {
+        if (member != null && !member.isAccessible()) {
+            try {
+                member.setAccessible(true);
+            } catch (SecurityException ex) {
+                // public members still work
+            }
+        }
+    }
+}
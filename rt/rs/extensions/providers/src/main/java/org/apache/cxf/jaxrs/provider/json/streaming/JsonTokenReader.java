@@ -0,0 +1,345 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.provider.json.streaming;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser which reads JSON tokens directly from a character stream.
+ */
+public class JsonTokenReader {
+    public enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, NAME, STRING, NUMBER, 
+        TRUE, FALSE, NULL, END_DOCUMENT
+    }
+    
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+    
+    private final Reader in;
+    private final char[] buffer = new char[4096];
+    private int pos;
+    private int limit;
+    private final StringBuilder sb = new StringBuilder();
+    
+    private int[] stack = new int[32];
+    private int depth = 1;
+    private int maxDepth = -1;
+    
+    private Token peeked;
+    private String text;
+    
+    public JsonTokenReader(Reader in) {
+        this.in = in;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+    
+    /**
+     * Sets the maximum nesting level of objects and arrays,
+     * -1 (default) means no limit is enforced
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    /**
+     * Returns the next token without consuming it
+     */
+    public Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+    
+    public Token next() throws IOException {
+        Token t = peek();
+        peeked = null;
+        return t;
+    }
+    
+    /**
+     * Returns the text of the last read or peeked NAME, STRING or NUMBER token
+     */
+    public String getText() {
+        return text;
+    }
+    
+    /**
+     * Skips the next value including all of its nested values
+     */
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            Token t = next();
+            if (t == Token.START_OBJECT || t == Token.START_ARRAY) {
+                count++;
+            } else if (t == Token.END_OBJECT || t == Token.END_ARRAY) {
+                count--;
+            } else if (t == Token.END_DOCUMENT) {
+                throw syntaxError("Unexpected end of document");
+            }
+        } while (count > 0);
+    }
+    
+    private Token doPeek() throws IOException {
+        int top = stack[depth - 1];
+        if (top == EMPTY_ARRAY || top == NONEMPTY_ARRAY) {
+            return peekInArray(top);
+        } else if (top == EMPTY_OBJECT || top == NONEMPTY_OBJECT) {
+            return peekInObject(top);
+        } else if (top == DANGLING_NAME) {
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            stack[depth - 1] = NONEMPTY_OBJECT;
+            return readValue();
+        }
+        int c = nextNonWhitespace();
+        if (c == -1) {
+            stack[depth - 1] = NONEMPTY_DOCUMENT;
+            return Token.END_DOCUMENT;
+        } else if (top == NONEMPTY_DOCUMENT) {
+            throw syntaxError("Unexpected content after the end of document");
+        }
+        stack[depth - 1] = NONEMPTY_DOCUMENT;
+        pos--;
+        return readValue();
+    }
+    
+    private Token peekInArray(int top) throws IOException {
+        stack[depth - 1] = NONEMPTY_ARRAY;
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            depth--;
+            return Token.END_ARRAY;
+        } else if (c == -1) {
+            throw syntaxError("Unexpected end of document");
+        } 
+        if (top == EMPTY_ARRAY) {
+            pos--;
+        } else if (c != ',') {
+            throw syntaxError("Expected ',' or ']'");
+        }
+        return readValue();
+    }
+    
+    private Token peekInObject(int top) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            depth--;
+            return Token.END_OBJECT;
+        } 
+        if (top == NONEMPTY_OBJECT) {
+            if (c != ',') {
+                throw syntaxError("Expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+        }
+        if (c != '"') {
+            throw syntaxError("Expected a name");
+        }
+        text = readString();
+        stack[depth - 1] = DANGLING_NAME;
+        return Token.NAME;
+    }
+    
+    private Token readValue() throws IOException {
+        int c = nextNonWhitespace();
+        Token t;
+        switch (c) {
+        case '{':
+            push(EMPTY_OBJECT);
+            t = Token.START_OBJECT;
+            break;
+        case '[':
+            push(EMPTY_ARRAY);
+            t = Token.START_ARRAY;
+            break;
+        case '"':
+            text = readString();
+            t = Token.STRING;
+            break;
+        case 't':
+            readLiteral("rue");
+            t = Token.TRUE;
+            break;
+        case 'f':
+            readLiteral("alse");
+            t = Token.FALSE;
+            break;
+        case 'n':
+            readLiteral("ull");
+            t = Token.NULL;
+            break;
+        default:
+            if (c == '-' || c >= '0' && c <= '9') {
+                text = readNumber((char)c);
+                t = Token.NUMBER;
+            } else if (c == -1) {
+                throw syntaxError("Unexpected end of document");
+            } else {
+                throw syntaxError("Unexpected character '" + (char)c + "'");
+            }
+        }
+        return t;
+    }
+    
+    private void push(int state) {
+        if (maxDepth != -1 && depth > maxDepth) {
+            throw syntaxError("Maximum depth of " + maxDepth + " exceeded");
+        }
+        if (depth == stack.length) {
+            int[] newStack = new int[depth * 2];
+            System.arraycopy(stack, 0, newStack, 0, depth);
+            stack = newStack;
+        }
+        stack[depth++] = state;
+    }
+    
+    private String readString() throws IOException {
+        sb.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    if (sb.length() == 0) {
+                        return new String(buffer, start, pos - start - 1);
+                    }
+                    sb.append(buffer, start, pos - start - 1);
+                    return sb.toString();
+                } else if (c == '\\') {
+                    sb.append(buffer, start, pos - start - 1);
+                    sb.append(readEscape());
+                    start = pos;
+                }
+            }
+            sb.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+    
+    private char readEscape() throws IOException {
+        int c = read();
+        char escaped;
+        switch (c) {
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(read(), 16);
+                if (digit == -1) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                value = (value << 4) + digit;
+            }
+            escaped = (char)value;
+            break;
+        case 'n':
+            escaped = '\n';
+            break;
+        case 'r':
+            escaped = '\r';
+            break;
+        case 't':
+            escaped = '\t';
+            break;
+        case 'b':
+            escaped = '\b';
+            break;
+        case 'f':
+            escaped = '\f';
+            break;
+        case '"':
+        case '\\':
+        case '/':
+            escaped = (char)c;
+            break;
+        default:
+            throw syntaxError("Invalid escape sequence");
+        }
+        return escaped;
+    }
+    
+    private String readNumber(char first) throws IOException {
+        sb.setLength(0);
+        sb.append(first);
+        while (true) {
+            int c = read();
+            if (c >= '0' && c <= '9' || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                sb.append((char)c);
+            } else {
+                if (c != -1) {
+                    pos--;
+                }
+                return sb.toString();
+            }
+        }
+    }
+    
+    private void readLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+    
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+    
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+    
+    private boolean fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int count = in.read(buffer, 0, buffer.length);
+        while (count == 0) {
+            count = in.read(buffer, 0, buffer.length);
+        }
+        if (count == -1) {
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+    
+    private JsonMappingException syntaxError(String message) {
+        return new JsonMappingException(message);
+    }
+}
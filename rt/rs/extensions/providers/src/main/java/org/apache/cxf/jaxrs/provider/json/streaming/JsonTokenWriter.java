@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.provider.json.streaming;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON tokens directly to a character stream.
+ * Separators are tracked per nesting level so callers only
+ * need to emit names, values and the structure boundaries.
+ */
+public class JsonTokenWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final Writer out;
+    // true if the value written at a given depth is the first one
+    private boolean[] first = new boolean[32];
+    private int depth;
+    private boolean afterName;
+    
+    public JsonTokenWriter(Writer out) {
+        this.out = out;
+        first[0] = true;
+    }
+    
+    public JsonTokenWriter startObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        push();
+        return this;
+    }
+    
+    public JsonTokenWriter endObject() throws IOException {
+        depth--;
+        out.write('}');
+        return this;
+    }
+    
+    public JsonTokenWriter startArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        push();
+        return this;
+    }
+    
+    public JsonTokenWriter endArray() throws IOException {
+        depth--;
+        out.write(']');
+        return this;
+    }
+    
+    public JsonTokenWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        out.write(':');
+        afterName = true;
+        return this;
+    }
+    
+    public JsonTokenWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+    
+    public JsonTokenWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+    
+    public JsonTokenWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+    
+    public JsonTokenWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = value.doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                // not representable as a JSON number
+                return value(value.toString());
+            }
+        }
+        beforeValue();
+        out.write(value.toString());
+        return this;
+    }
+    
+    public JsonTokenWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+    
+    public void flush() throws IOException {
+        out.flush();
+    }
+    
+    private void push() {
+        depth++;
+        if (depth == first.length) {
+            boolean[] newFirst = new boolean[depth * 2];
+            System.arraycopy(first, 0, newFirst, 0, depth);
+            first = newFirst;
+        }
+        first[depth] = true;
+    }
+    
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separate();
+        }
+    }
+    
+    private void separate() throws IOException {
+        if (first[depth]) {
+            first[depth] = false;
+        } else {
+            out.write(',');
+        }
+    }
+    
+    private void writeString(String s) throws IOException {
+        out.write('"');
+        int len = s.length();
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            String replacement = null;
+            if (c < 0x20 || c == '"' || c == '\\' || c == '\u2028' || c == '\u2029') {
+                switch (c) {
+                case '"':
+                    replacement = "\\\"";
+                    break;
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '\b':
+                    replacement = "\\b";
+                    break;
+                case '\f':
+                    replacement = "\\f";
+                    break;
+                default:
+                    replacement = new String(new char[] {
+                        '\\', 'u', HEX[c >> 12 & 0xF], HEX[c >> 8 & 0xF], HEX[c >> 4 & 0xF], HEX[c & 0xF]
+                    });
+                }
+            }
+            if (replacement != null) {
+                if (start < i) {
+                    out.write(s, start, i - start);
+                }
+                out.write(replacement);
+                start = i + 1;
+            }
+        }
+        if (start < len) {
+            out.write(s, start, len - start);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxrs.provider.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.NoContentException;
+
+import org.apache.cxf.jaxrs.impl.MetadataMap;
+import org.apache.cxf.jaxrs.resources.Book;
+import org.apache.cxf.jaxrs.resources.TagVO;
+import org.apache.cxf.jaxrs.resources.Tags;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StreamingJSONProviderTest extends Assert {
+
+    @Test
+    public void testIsReadableWriteable() throws Exception {
+        StreamingJSONProvider<Object> p = new StreamingJSONProvider<Object>();
+        assertTrue(p.isWriteable(Book.class, Book.class, new Annotation[0], MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(p.isReadable(List.class, getGenericType("getBooks"), new Annotation[0], 
+                                MediaType.APPLICATION_JSON_TYPE));
+        assertFalse(p.isReadable(String.class, String.class, new Annotation[0], 
+                                 MediaType.APPLICATION_JSON_TYPE));
+    }
+    
+    @Test
+    public void testWriteAndReadWithRootElement() throws Exception {
+        StreamingJSONProvider<Book> p = new StreamingJSONProvider<Book>();
+        String json = write(p, new Book("CXF", 123L), Book.class, Book.class);
+        assertTrue(json.startsWith("{\"Book\":{"));
+        assertTrue(json.contains("\"id\":123"));
+        assertTrue(json.contains("\"name\":\"CXF\""));
+        
+        Book book = read(p, json, Book.class, Book.class);
+        assertEquals("CXF", book.getName());
+        assertEquals(123L, book.getId());
+        
+        // unwrapped payloads are accepted too
+        book = read(p, "{\"name\":\"CXF2\",\"id\":124}", Book.class, Book.class);
+        assertEquals("CXF2", book.getName());
+        assertEquals(124L, book.getId());
+    }
+    
+    @Test
+    public void testDropRootElement() throws Exception {
+        StreamingJSONProvider<Tags> p = new StreamingJSONProvider<Tags>();
+        p.setDropRootElement(true);
+        Tags tags = new Tags();
+        tags.addTag(new TagVO("a", "b"));
+        String json = write(p, tags, Tags.class, Tags.class);
+        assertEquals("{\"list\":[{\"group\":\"b\",\"name\":\"a\"}]}".length(), json.length());
+        assertTrue(json.startsWith("{\"list\":[{"));
+        
+        Tags tags2 = read(p, json, Tags.class, Tags.class);
+        assertEquals(1, tags2.getTags().size());
+        assertEquals("a", tags2.getTags().get(0).getName());
+        assertEquals("b", tags2.getTags().get(0).getGroup());
+    }
+    
+    @Test
+    public void testWriteAndReadCollection() throws Exception {
+        StreamingJSONProvider<List<Book>> p = new StreamingJSONProvider<List<Book>>();
+        List<Book> books = new ArrayList<Book>();
+        books.add(new Book("CXF", 123L));
+        books.add(new Book("CXF2", 124L));
+        
+        @SuppressWarnings({"unchecked", "rawtypes" })
+        Class<List<Book>> cls = (Class)List.class;
+        String json = write(p, books, cls, getGenericType("getBooks"));
+        assertTrue(json.startsWith("[{"));
+        
+        List<Book> books2 = read(p, json, cls, getGenericType("getBooks"));
+        assertEquals(books, books2);
+    }
+    
+    @Test
+    public void testReadMalformedJson() throws Exception {
+        StreamingJSONProvider<Book> p = new StreamingJSONProvider<Book>();
+        try {
+            read(p, "{\"Book\":{\"id\":\"abc\"}}", Book.class, Book.class);
+            fail("BadRequestException is expected");
+        } catch (BadRequestException ex) {
+            // expected
+        }
+        try {
+            read(p, "junk", Book.class, Book.class);
+            fail("BadRequestException is expected");
+        } catch (BadRequestException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testReadEmptyPayload() throws Exception {
+        StreamingJSONProvider<Book> p = new StreamingJSONProvider<Book>();
+        try {
+            read(p, "", Book.class, Book.class);
+            fail("NoContentException is expected");
+        } catch (NoContentException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testMaxDepth() throws Exception {
+        StreamingJSONProvider<Book> p = new StreamingJSONProvider<Book>();
+        p.setMaxDepth(2);
+        try {
+            read(p, "{\"Book\":{\"unknown\":{\"a\":1}}}", Book.class, Book.class);
+            fail("BadRequestException is expected");
+        } catch (BadRequestException ex) {
+            // expected
+        }
+    }
+    
+    private static <T> String write(StreamingJSONProvider<T> p, T obj, Class<?> cls, 
+                                    Type type) throws Exception {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        p.writeTo(obj, cls, type, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, 
+                  new MetadataMap<String, Object>(), os);
+        return os.toString("UTF-8");
+    }
+    
+    private static <T> T read(StreamingJSONProvider<T> p, String json, Class<T> cls, 
+                              Type type) throws Exception {
+        return p.readFrom(cls, type, new Annotation[0], MediaType.APPLICATION_JSON_TYPE, 
+                          new MetadataMap<String, String>(), 
+                          new ByteArrayInputStream(json.getBytes("UTF-8")));
+    }
+    
+    private static Type getGenericType(String name) throws Exception {
+        Method m = StreamingJSONProviderTest.class.getDeclaredMethod(name);
+        return m.getGenericReturnType();
+    }
+    
+    @SuppressWarnings("unused")
+    private List<Book> getBooks() {
+        return null;
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxrs.provider.json.streaming;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlEnum;
+import javax.xml.bind.annotation.XmlEnumValue;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.XmlValue;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsonBeanMapperTest extends Assert {
+    
+    private JsonBeanMapper mapper = new JsonBeanMapper();
+    
+    @Test
+    public void testWriteBean() throws Exception {
+        Order order = createOrder();
+        assertEquals("{\"id\":\"o1\",\"quantity\":3,\"express\":true,\"status\":\"in-progress\","
+                     + "\"item\":[{\"sku\":\"a\",\"$\":\"first\"},{\"sku\":\"b\",\"$\":\"second \\\"b\\\"\"}],"
+                     + "\"price\":\"12.50 EUR\"}",
+                     write(order, Order.class));
+    }
+    
+    @Test
+    public void testReadBean() throws Exception {
+        Order order = (Order)read(write(createOrder(), Order.class), Order.class, Order.class);
+        assertEquals("o1", order.id);
+        assertEquals(3, order.quantity);
+        assertTrue(order.express);
+        assertEquals(Status.IN_PROGRESS, order.status);
+        assertEquals(2, order.getItems().size());
+        assertEquals("b", order.getItems().get(1).sku);
+        assertEquals("second \"b\"", order.getItems().get(1).description);
+        assertEquals(Long.valueOf(1250), order.price);
+        assertNull(order.note);
+    }
+    
+    @Test
+    public void testReadJettisonStyleBean() throws Exception {
+        // Jettison writes attributes with '@', numbers as strings 
+        // and single element collections without an array
+        String json = "{\"@id\":\"o1\",\"quantity\":\"3\",\"unknown\":{\"a\":[1,2,{}]},"
+            + "\"item\":{\"@sku\":\"a\",\"$\":\"first\"}}";
+        Order order = (Order)read(json, Order.class, Order.class);
+        assertEquals("o1", order.id);
+        assertEquals(3, order.quantity);
+        assertEquals(1, order.getItems().size());
+        assertEquals("first", order.getItems().get(0).description);
+    }
+    
+    @Test
+    public void testCollectionsAndMaps() throws Exception {
+        Type type = Holder.class.getDeclaredField("items").getGenericType();
+        List<Item> items = Arrays.asList(new Item("a", null), new Item("b", "x"));
+        String json = write(items, type);
+        assertEquals("[{\"sku\":\"a\"},{\"sku\":\"b\",\"$\":\"x\"}]", json);
+        @SuppressWarnings("unchecked")
+        List<Item> list = (List<Item>)read(json, List.class, type);
+        assertEquals(2, list.size());
+        assertEquals("x", list.get(1).description);
+        
+        Map<?, ?> map = (Map<?, ?>)read("{\"a\":[1,2.5,\"s\",null,true],\"b\":{}}", Map.class, Map.class);
+        assertEquals(Arrays.asList(Long.valueOf(1), Double.valueOf(2.5), "s", null, Boolean.TRUE), map.get("a"));
+        assertEquals(Collections.emptyMap(), map.get("b"));
+    }
+    
+    @Test
+    public void testStringEscapes() throws Exception {
+        String value = "\"\\/\n\t\u0001\u00e9\u2028";
+        String json = write(Collections.singletonList(value), List.class);
+        assertEquals("[\"\\\"\\\\/\\n\\t\\u0001\u00e9\\u2028\"]", json);
+        assertEquals(Collections.singletonList(value), read(json, List.class, List.class));
+        assertEquals(Collections.singletonList("\u00e9/"), 
+                     read("[\"\\u00E9\\/\"]", List.class, List.class));
+    }
+    
+    @Test
+    public void testLongStringAcrossBuffers() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append(i % 100 == 0 ? '\n' : (char)('a' + i % 26));
+        }
+        String json = write(Collections.singletonList(sb.toString()), List.class);
+        assertEquals(Collections.singletonList(sb.toString()), read(json, List.class, List.class));
+    }
+    
+    @Test
+    public void testMalformedJson() throws Exception {
+        String[] inputs = {"{\"id\" \"a\"}", "{\"id\":\"a\"", "[1 2]", "{id:1}", "[tru]", "{} {}", "\"abc"};
+        for (String input : inputs) {
+            try {
+                read(input, Object.class, Object.class);
+                fail("Expected JsonMappingException for " + input);
+            } catch (JsonMappingException ex) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void testMaxDepth() throws Exception {
+        JsonTokenReader reader = new JsonTokenReader(new StringReader("[[[[1]]]]"));
+        reader.setMaxDepth(3);
+        try {
+            mapper.readValue(reader, Object.class, Object.class);
+            fail("Expected JsonMappingException");
+        } catch (JsonMappingException ex) {
+            // expected
+        }
+    }
+    
+    @Test
+    public void testRootName() {
+        assertEquals("order", mapper.getRootName(Order.class));
+        assertEquals("theItem", mapper.getRootName(Item.class));
+        assertEquals("holder", mapper.getRootName(Holder.class));
+    }
+    
+    private String write(Object value, Type type) throws IOException {
+        StringWriter sw = new StringWriter();
+        JsonTokenWriter writer = new JsonTokenWriter(sw);
+        mapper.writeValue(writer, value, type);
+        writer.flush();
+        return sw.toString();
+    }
+    
+    private Object read(String json, Class<?> cls, Type type) throws IOException {
+        JsonTokenReader reader = new JsonTokenReader(new StringReader(json));
+        Object value = mapper.readValue(reader, cls, type);
+        if (reader.next() != JsonTokenReader.Token.END_DOCUMENT) {
+            fail("Document has not been fully read");
+        }
+        return value;
+    }
+    
+    private static Order createOrder() {
+        Order order = new Order();
+        order.id = "o1";
+        order.quantity = 3;
+        order.express = true;
+        order.status = Status.IN_PROGRESS;
+        order.getItems().add(new Item("a", "first"));
+        order.getItems().add(new Item("b", "second \"b\""));
+        order.price = 1250L;
+        order.note = "not written";
+        return order;
+    }
+    
+    @XmlRootElement
+    @XmlAccessorType(XmlAccessType.FIELD)
+    @XmlType(propOrder = {"id", "quantity", "express", "status", "items", "price" })
+    public static class Order {
+        @XmlAttribute
+        private String id;
+        private int quantity;
+        private boolean express;
+        private Status status;
+        @XmlElement(name = "item")
+        private List<Item> items;
+        @XmlJavaTypeAdapter(PriceAdapter.class)
+        private Long price;
+        @XmlTransient
+        private String note;
+        
+        public List<Item> getItems() {
+            if (items == null) {
+                items = new ArrayList<Item>();
+            }
+            return items;
+        }
+    }
+    
+    @XmlRootElement(name = "theItem")
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Item {
+        @XmlAttribute
+        private String sku;
+        @XmlValue
+        private String description;
+        
+        public Item() {
+        }
+        
+        public Item(String sku, String description) {
+            this.sku = sku;
+            this.description = description;
+        }
+    }
+    
+    @XmlType
+    public static class Holder {
+        private List<Item> items;
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public void setItems(List<Item> items) {
+            this.items = items;
+        }
+    }
+    
+    @XmlEnum
+    public enum Status {
+        @XmlEnumValue("in-progress")
+        IN_PROGRESS,
+        DONE
+    }
+    
+    public static class PriceAdapter extends XmlAdapter<String, Long> {
+        @Override
+        public Long unmarshal(String v) throws Exception {
+            return Long.valueOf(v.substring(0, v.indexOf(' ')).replace(".", ""));
+        }
+
+        @Override
+        public String marshal(Long v) throws Exception {
+            return v / 100 + "." + String.format("%02d", v % 100) + " EUR";
+        }
+    }
+}
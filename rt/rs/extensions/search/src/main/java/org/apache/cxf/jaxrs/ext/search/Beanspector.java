@@ -158,6 +158,10 @@ public class Beanspector<T> {
         }
     }
 
+    Method getGetter(String getterName) {
+        return getters.get(getterName);
+    }
+
     public Object getValue(String getterName) throws Throwable {
         return getValue(getters.get(getterName));
     }
@@ -0,0 +1,381 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.cxf.jaxrs.utils.InjectionUtils;
+
+/**
+ * Search condition which evaluates a parsed condition tree without introspecting
+ * the checked beans again and again.
+ * <p>
+ * Compiling resolves the getters, converts the comparison values and prepares the
+ * wild card matches of every primitive condition once, so {@link #isMet(Object)} and
+ * {@link #findAll(Collection)} only invoke the getters and compare the values.
+ * Unlike the original tree a compiled condition keeps no per-call state, so it can
+ * be shared between threads and cached, see {@link SearchConditionCache}.
+ * <p>
+ * Conditions other than the ones built by the default parsers are checked by
+ * calling their own isMet implementation. Visitors see the original tree.
+ * 
+ * @param <T> type of search condition.
+ */
+public final class CompiledSearchCondition<T> implements SearchCondition<T> {
+    
+    private final SearchCondition<T> condition;
+    private final Matcher<T> matcher;
+    private final ConcurrentMap<Object, Object> queries = new ConcurrentHashMap<Object, Object>(4);
+    
+    private CompiledSearchCondition(SearchCondition<T> condition) {
+        this.condition = condition;
+        this.matcher = compileCondition(condition);
+    }
+    
+    /**
+     * Compiles the given condition tree
+     * @param condition the condition, typically returned by a {@link SearchConditionParser}
+     * @return the compiled condition
+     */
+    public static <T> CompiledSearchCondition<T> compile(SearchCondition<T> condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("condition is null");
+        }
+        if (condition instanceof CompiledSearchCondition) {
+            return (CompiledSearchCondition<T>)condition;
+        }
+        return new CompiledSearchCondition<T>(condition);
+    }
+    
+    public SearchCondition<T> getOriginalCondition() {
+        return condition;
+    }
+    
+    public boolean isMet(T pojo) {
+        return matcher.matches(pojo);
+    }
+
+    public List<T> findAll(Collection<T> pojos) {
+        List<T> result = new ArrayList<T>();
+        for (T pojo : pojos) {
+            if (matcher.matches(pojo)) {
+                result.add(pojo);
+            }
+        }
+        return result;
+    }
+
+    public T getCondition() {
+        return condition.getCondition();
+    }
+
+    public PrimitiveStatement getStatement() {
+        return condition.getStatement();
+    }
+
+    public List<SearchCondition<T>> getSearchConditions() {
+        return condition.getSearchConditions();
+    }
+
+    public ConditionType getConditionType() {
+        return condition.getConditionType();
+    }
+
+    public void accept(SearchConditionVisitor<T, ?> visitor) {
+        condition.accept(visitor);
+    }
+    
+    /**
+     * Returns the query built by the visitor for this condition. The query is built
+     * once per key, later calls with the same key return it without visiting the
+     * condition again. Only use it with visitors building immutable queries which do
+     * not depend on the current request, such as SQL or JPQL strings or Lucene queries,
+     * and with keys capturing the visitor configuration, such as the table and columns.
+     * 
+     * @param key the key identifying the visitor configuration
+     * @param visitor the visitor which builds the query if it has not been built yet
+     * @return the query
+     */
+    @SuppressWarnings("unchecked")
+    public <Q> Q getQuery(Object key, SearchConditionVisitor<T, Q> visitor) {
+        Object query = queries.get(key);
+        if (query == null) {
+            condition.accept(visitor);
+            query = visitor.getQuery();
+            if (query != null) {
+                Object existing = queries.putIfAbsent(key, query);
+                if (existing != null) {
+                    query = existing;
+                }
+            }
+        }
+        return (Q)query;
+    }
+    
+    private static <T> Matcher<T> compileCondition(SearchCondition<T> sc) {
+        if (sc instanceof CompiledSearchCondition) {
+            return ((CompiledSearchCondition<T>)sc).matcher;
+        } else if (isMetDeclaredBy(sc, AndSearchCondition.class)) {
+            return new AndMatcher<T>(compileConditions(sc.getSearchConditions()));
+        } else if (isMetDeclaredBy(sc, OrSearchCondition.class)) {
+            return new OrMatcher<T>(compileConditions(sc.getSearchConditions()));
+        } else if (isMetDeclaredBy(sc, SimpleSearchCondition.class)) {
+            List<SearchCondition<T>> scts = ((SimpleSearchCondition<T>)sc).getPrimitiveConditions();
+            return scts.size() == 1 ? compileCondition(scts.get(0)) 
+                : new AndMatcher<T>(compileConditions(scts));
+        } else if (isMetDeclaredBy(sc, PrimitiveSearchCondition.class)) {
+            Matcher<T> m = PropertyMatcher.create((PrimitiveSearchCondition<T>)sc);
+            if (m != null) {
+                return m;
+            }
+        }
+        return new DelegatingMatcher<T>(sc);
+    }
+    
+    private static <T> List<Matcher<T>> compileConditions(List<SearchCondition<T>> scs) {
+        List<Matcher<T>> matchers = new ArrayList<Matcher<T>>(scs.size());
+        for (SearchCondition<T> sc : scs) {
+            matchers.add(compileCondition(sc));
+        }
+        return matchers;
+    }
+    
+    private static boolean isMetDeclaredBy(SearchCondition<?> sc, Class<?> cls) {
+        if (!cls.isInstance(sc)) {
+            return false;
+        }
+        try {
+            return sc.getClass().getMethod("isMet", Object.class).getDeclaringClass() == cls;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+    
+    private interface Matcher<T> {
+        boolean matches(T pojo);
+    }
+    
+    private static final class DelegatingMatcher<T> implements Matcher<T> {
+        private final SearchCondition<T> sc;
+        
+        DelegatingMatcher(SearchCondition<T> sc) {
+            this.sc = sc;
+        }
+        
+        public boolean matches(T pojo) {
+            return sc.isMet(pojo);
+        }
+    }
+    
+    private static final class AndMatcher<T> implements Matcher<T> {
+        private final List<Matcher<T>> matchers;
+        
+        AndMatcher(List<Matcher<T>> matchers) {
+            this.matchers = matchers;
+        }
+        
+        public boolean matches(T pojo) {
+            for (int i = 0; i < matchers.size(); i++) {
+                if (!matchers.get(i).matches(pojo)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    private static final class OrMatcher<T> implements Matcher<T> {
+        private final List<Matcher<T>> matchers;
+        
+        OrMatcher(List<Matcher<T>> matchers) {
+            this.matchers = matchers;
+        }
+        
+        public boolean matches(T pojo) {
+            for (int i = 0; i < matchers.size(); i++) {
+                if (matchers.get(i).matches(pojo)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Compiled form of {@link PrimitiveSearchCondition}
+     */
+    private static final class PropertyMatcher<T> implements Matcher<T> {
+        private final ConditionType type;
+        private final Object value;
+        private final Object rValue;
+        private final TextMatch textMatch;
+        private final Method getter;
+        private final NestedGetter[] nestedGetters;
+        
+        private PropertyMatcher(PrimitiveSearchCondition<T> sc, Object rValue) {
+            this.type = sc.getConditionType();
+            this.value = sc.getPropertyValue();
+            this.rValue = rValue;
+            this.textMatch = rValue instanceof String 
+                && (type == ConditionType.EQUALS || type == ConditionType.NOT_EQUALS) 
+                ? TextMatch.create((String)rValue) : null;
+            this.getter = sc.getPropertyGetter();
+            String[] names = sc.getPropertyName().split("\\.");
+            nestedGetters = new NestedGetter[names.length - 1];
+            for (int i = 1; i < names.length; i++) {
+                nestedGetters[i - 1] = new NestedGetter(names[i]);
+            }
+        }
+        
+        static <T> PropertyMatcher<T> create(PrimitiveSearchCondition<T> sc) {
+            if (sc.getPropertyName() == null || sc.getCondition() instanceof SearchBean) {
+                return null;
+            }
+            try {
+                Object rValue = PrimitiveSearchCondition.getPrimitiveValue(sc.getPropertyName(), 
+                                                                           sc.getPropertyValue());
+                return new PropertyMatcher<T>(sc, rValue);
+            } catch (RuntimeException ex) {
+                // the condition will report the same error
+                return null;
+            }
+        }
+        
+        public boolean matches(T pojo) {
+            if (PrimitiveSearchCondition.isPrimitive(pojo)) {
+                return PrimitiveSearchCondition.compare(pojo, type, value);
+            }
+            Object lValue = getValue(pojo);
+            if (lValue == null) {
+                return false;
+            }
+            if (textMatch != null && lValue instanceof String) {
+                boolean matches = textMatch.matches((String)lValue);
+                return type == ConditionType.NOT_EQUALS ? !matches : matches;
+            }
+            return PrimitiveSearchCondition.compare(lValue, type, rValue);
+        }
+        
+        private Object getValue(T pojo) {
+            if (getter == null) {
+                return null;
+            }
+            try {
+                Object lValue = getter.invoke(pojo);
+                for (NestedGetter nested : nestedGetters) {
+                    lValue = nested.getValue(lValue);
+                }
+                return lValue;
+            } catch (Throwable ex) {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Reads a nested property, remembering the getter of the last class it has seen
+     */
+    private static final class NestedGetter {
+        private final String methodName;
+        private volatile ResolvedGetter resolved;
+        
+        NestedGetter(String name) {
+            String suffix = name.length() == 1 ? name.toUpperCase() 
+                : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            methodName = "get" + suffix;
+        }
+        
+        Object getValue(Object owner) throws Exception {
+            if (owner == null) {
+                return null;
+            }
+            ResolvedGetter r = resolved;
+            if (r == null || r.cls != owner.getClass()) {
+                r = resolve(owner.getClass());
+                resolved = r;
+            }
+            return r.method == null ? owner : r.method.invoke(owner);
+        }
+        
+        private ResolvedGetter resolve(Class<?> cls) throws NoSuchMethodException {
+            if (InjectionUtils.isPrimitive(cls)) {
+                return new ResolvedGetter(cls, null);
+            }
+            return new ResolvedGetter(cls, cls.getMethod(methodName, new Class[]{}));
+        }
+    }
+    
+    private static final class ResolvedGetter {
+        private final Class<?> cls;
+        private final Method method;
+        
+        ResolvedGetter(Class<?> cls, Method method) {
+            this.cls = cls;
+            this.method = method;
+        }
+    }
+    
+    /**
+     * Text comparison with the leading and trailing wild cards resolved upfront
+     */
+    private static final class TextMatch {
+        private final String text;
+        private final boolean starts;
+        private final boolean ends;
+        
+        private TextMatch(String text, boolean starts, boolean ends) {
+            this.text = text;
+            this.starts = starts;
+            this.ends = ends;
+        }
+        
+        static TextMatch create(String rValue) {
+            if (rValue.length() == 0) {
+                return null;
+            }
+            boolean starts = rValue.charAt(0) == '*';
+            String text = starts ? rValue.substring(1) : rValue;
+            if (text.length() == 0) {
+                return null;
+            }
+            boolean ends = text.charAt(text.length() - 1) == '*';
+            if (ends) {
+                text = text.substring(0, text.length() - 1);
+            }
+            return new TextMatch(text, starts, ends);
+        }
+        
+        boolean matches(String lValue) {
+            if (starts && ends) {
+                return lValue.contains(text);
+            } else if (starts) {
+                return lValue.endsWith(text);
+            } else if (ends) {
+                return lValue.startsWith(text);
+            } else {
+                return lValue.equals(text);
+            }
+        }
+    }
+}
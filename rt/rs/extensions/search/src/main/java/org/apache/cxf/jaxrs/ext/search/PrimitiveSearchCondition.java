@@ -107,18 +107,10 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
     }
 
     private Object getValue(String getter, T pojo) {
-        String thePropertyName;
-        int index = getter.indexOf(".");
-        if (index != -1) {
-            thePropertyName = getter.substring(0, index);
-        } else {
-            thePropertyName = getter;
-        }
-        
         Object value;
         try {
             if (beanspector != null) {
-                value = beanspector.swap(pojo).getValue(thePropertyName.toLowerCase());
+                value = beanspector.swap(pojo).getValue(getFirstPropertyName(getter).toLowerCase());
             } else {
                 value = ((SearchBean)pojo).get(getter);
             }
@@ -128,6 +120,20 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
         }
     }
     
+    /**
+     * Returns the getter of the condition class used to read the first segment of
+     * the property name, or null if the condition is a {@link SearchBean}
+     */
+    Method getPropertyGetter() {
+        return beanspector == null || propertyName == null 
+            ? null : beanspector.getGetter(getFirstPropertyName(propertyName).toLowerCase());
+    }
+    
+    private static String getFirstPropertyName(String getter) {
+        int index = getter.indexOf(".");
+        return index != -1 ? getter.substring(0, index) : getter;
+    }
+    
     public String toSQL(String table, String... columns) {
         return SearchUtils.toSQL(this, table, columns);
     }
@@ -136,12 +142,12 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
         visitor.visit(this);    
     }
    
-    private boolean isPrimitive(T pojo) {
+    static boolean isPrimitive(Object pojo) {
         return pojo.getClass().getName().startsWith("java.lang");
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private boolean compare(Object lval, ConditionType cond, Object rval) {
+    static boolean compare(Object lval, ConditionType cond, Object rval) {
         boolean compares = true;
         if (cond == ConditionType.EQUALS || cond == ConditionType.NOT_EQUALS) {
             if (rval == null) {
@@ -185,7 +191,7 @@ public class PrimitiveSearchCondition<T> implements SearchCondition<T> {
         return compares;
     }
 
-    private boolean textCompare(String lval, String rval) {
+    private static boolean textCompare(String lval, String rval) {
         // check wild cards
         boolean starts = false;
         boolean ends = false;
@@ -0,0 +1,157 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of compiled search conditions keyed by the normalized search expression and
+ * the parser configuration. Every distinct expression is parsed and compiled once;
+ * the queries built from a cached condition with 
+ * {@link CompiledSearchCondition#getQuery(Object, SearchConditionVisitor)} are
+ * cached along with it.
+ * <p>
+ * {@link SearchContextImpl} uses the cache registered as the 
+ * {@link SearchContextImpl#SEARCH_CONDITION_CACHE_PROPERTY} contextual property.
+ * Note that values relative to the current time, such as FIQL durations, are 
+ * resolved when the expression is parsed for the first time, so the cache should
+ * not be used with such expressions.
+ */
+public class SearchConditionCache {
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    
+    private final ConcurrentMap<Key, CompiledSearchCondition<?>> conditions = 
+        new ConcurrentHashMap<Key, CompiledSearchCondition<?>>();
+    private int maxSize = DEFAULT_MAX_SIZE;
+    
+    public SearchConditionCache() {
+        
+    }
+    
+    public SearchConditionCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+    
+    /**
+     * Sets the maximum number of cached conditions, the cache starts over once 
+     * it is full
+     * @param maxSize the maximum number of conditions
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public int size() {
+        return conditions.size();
+    }
+    
+    public void clear() {
+        conditions.clear();
+    }
+    
+    /**
+     * Returns the compiled condition for the expression, parsing it if it has not been
+     * cached yet. 
+     * 
+     * @param parserKey the key identifying the condition class and the parser configuration
+     * @param expression the search expression 
+     * @param parser the parser used if the expression has not been cached yet
+     * @return the compiled condition
+     * @throws SearchParseException if the expression can not be parsed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledSearchCondition<T> getCondition(Object parserKey, 
+                                                       String expression, 
+                                                       SearchConditionParser<T> parser) 
+        throws SearchParseException {
+        Key key = new Key(parserKey, normalize(expression));
+        CompiledSearchCondition<?> sc = conditions.get(key);
+        if (sc == null) {
+            sc = CompiledSearchCondition.compile(parser.parse(expression));
+            if (conditions.size() >= maxSize) {
+                conditions.clear();
+            }
+            CompiledSearchCondition<?> existing = conditions.putIfAbsent(key, sc);
+            if (existing != null) {
+                sc = existing;
+            }
+        }
+        return (CompiledSearchCondition<T>)sc;
+    }
+    
+    /**
+     * Strips the brackets enclosing the whole expression, "(a==b)" and "a==b" 
+     * are the same condition
+     */
+    static String normalize(String expression) {
+        String expr = expression;
+        while (expr.length() > 1 && expr.charAt(0) == '(' && getClosingBracket(expr) == expr.length() - 1) {
+            expr = expr.substring(1, expr.length() - 1);
+        }
+        return expr;
+    }
+    
+    private static int getClosingBracket(String expr) {
+        int level = 0;
+        for (int i = 0; i < expr.length(); i++) {
+            char c = expr.charAt(i);
+            if (c == '(') {
+                level++;
+            } else if (c == ')' && --level == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static final class Key {
+        private final Object parserKey;
+        private final String expression;
+        private final int hashCode;
+        
+        Key(Object parserKey, String expression) {
+            this.parserKey = parserKey;
+            this.expression = expression;
+            this.hashCode = 31 * (parserKey == null ? 0 : parserKey.hashCode()) + expression.hashCode();
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            return expression.equals(other.expression) 
+                && (parserKey == null ? other.parserKey == null : parserKey.equals(other.parserKey));
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.cxf.jaxrs.ext.search;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +48,7 @@ public class SearchContextImpl implements SearchContext {
     public static final String CUSTOM_SEARCH_PARSER_PROPERTY = "search.parser";
     public static final String CUSTOM_SEARCH_PARSER_CLASS_PROPERTY = "search.parser.class";
     public static final String CUSTOM_SEARCH_QUERY_PARAM_NAME = "search.query.parameter.name";
+    public static final String SEARCH_CONDITION_CACHE_PROPERTY = "search.condition.cache";
     private static final String USE_PLAIN_QUERY_PARAMETERS = "search.use.plain.queries";
     private static final String USE_ALL_QUERY_COMPONENT = "search.use.all.query.component";
     private static final String BLOCK_SEARCH_EXCEPTION = "search.block.search.exception";
@@ -92,12 +94,21 @@ public class SearchContextImpl implements SearchContext {
             throw new IllegalArgumentException(errorMessage);
         }
         
-        SearchConditionParser<T> parser = getParser(cls, beanProperties, parserProperties);
+        Map<String, String> props = getParserProperties(parserProperties);
+        Map<String, String> beanProps = getBeanProperties(beanProperties);
+        SearchConditionParser<T> parser = getParser(cls, props, beanProps);
         
         String theExpression = expression == null 
             ? getSearchExpression() : expression;
         if (theExpression != null) {
             try {
+                SearchConditionCache cache = getConditionCache();
+                if (cache != null) {
+                    Object parserId = message.getContextualProperty(CUSTOM_SEARCH_PARSER_PROPERTY);
+                    Object parserKey = Arrays.asList(cls, parserId != null ? parserId : parser.getClass(), 
+                                                     props, beanProps);
+                    return cache.getCondition(parserKey, theExpression, parser);
+                }
                 return parser.parse(theExpression);
             } catch (SearchParseException ex) {
                 if (PropertyUtils.isTrue(message.getContextualProperty(BLOCK_SEARCH_EXCEPTION))) {
@@ -178,15 +189,12 @@ public class SearchContextImpl implements SearchContext {
     
     
     
-    private <T> SearchConditionParser<T> getParser(Class<T> cls, 
-                                                   Map<String, String> beanProperties,
-                                                   Map<String, String> parserProperties) {
-        
-        Object parserProp = message.getContextualProperty(CUSTOM_SEARCH_PARSER_PROPERTY);
-        if (parserProp != null) {
-            return getCustomParser(parserProp);
-        }
-        
+    private SearchConditionCache getConditionCache() {
+        Object cache = message.getContextualProperty(SEARCH_CONDITION_CACHE_PROPERTY);
+        return cache instanceof SearchConditionCache ? (SearchConditionCache)cache : null;
+    }
+    
+    private Map<String, String> getParserProperties(Map<String, String> parserProperties) {
         Map<String, String> props = null;
         if (parserProperties == null) {
             props = new LinkedHashMap<String, String>(4);
@@ -204,13 +212,24 @@ public class SearchContextImpl implements SearchContext {
         } else {
             props = parserProperties;
         }
-        
-        Map<String, String> beanProps = null;
-            
+        return props;
+    }
+    
+    private Map<String, String> getBeanProperties(Map<String, String> beanProperties) {
         if (beanProperties == null) {    
-            beanProps = CastUtils.cast((Map<?, ?>)message.getContextualProperty(SearchUtils.BEAN_PROPERTY_MAP));
+            return CastUtils.cast((Map<?, ?>)message.getContextualProperty(SearchUtils.BEAN_PROPERTY_MAP));
         } else {
-            beanProps = beanProperties;
+            return beanProperties;
+        }
+    }
+    
+    private <T> SearchConditionParser<T> getParser(Class<T> cls, 
+                                                   Map<String, String> props,
+                                                   Map<String, String> beanProps) {
+        
+        Object parserProp = message.getContextualProperty(CUSTOM_SEARCH_PARSER_PROPERTY);
+        if (parserProp != null) {
+            return getCustomParser(parserProp);
         }
         
         String parserClassProp = (String) message.getContextualProperty(CUSTOM_SEARCH_PARSER_CLASS_PROPERTY);
@@ -20,6 +20,7 @@ package org.apache.cxf.jaxrs.ext.search;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -91,6 +92,10 @@ public final class SearchUtils {
     
     public static <T> String toSQL(SearchCondition<T> sc, String table, String... columns) {
         SQLPrinterVisitor<T> visitor = new SQLPrinterVisitor<T>(table, columns);
+        if (sc instanceof CompiledSearchCondition) {
+            Object key = Arrays.asList(SQLPrinterVisitor.class, table, Arrays.asList(columns));
+            return ((CompiledSearchCondition<T>)sc).getQuery(key, visitor);
+        }
         sc.accept(visitor);
         return visitor.getQuery();
     }
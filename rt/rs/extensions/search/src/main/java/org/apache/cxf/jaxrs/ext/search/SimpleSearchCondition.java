@@ -139,6 +139,13 @@ public class SimpleSearchCondition<T> implements SearchCondition<T> {
         }
     }
 
+    /**
+     * Returns the conditions this condition is made of, including the single one
+     */
+    List<SearchCondition<T>> getPrimitiveConditions() {
+        return scts;
+    }
+
     private List<SearchCondition<T>> createConditions(Map<String, ConditionType> getters2operators,
                                                       Map<String, String> realGetters,
                                                       Map<String, TypeInfo> propertyTypeInfo,
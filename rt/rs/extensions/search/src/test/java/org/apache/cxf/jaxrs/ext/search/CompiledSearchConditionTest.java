@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.jaxrs.ext.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cxf.jaxrs.ext.search.fiql.FiqlParser;
+import org.apache.cxf.jaxrs.ext.search.sql.SQLPrinterVisitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledSearchConditionTest extends Assert {
+    private static final String[] EXPRESSIONS = {
+        "name==amichalec",
+        "name==ami*",
+        "name==*ski",
+        "name==*cha*",
+        "name!=ami*",
+        "age=gt=30",
+        "age=le=30;name==*a*",
+        "name==foo*;(name!=*bar,age=gt=10)",
+        "(name==a*,age=lt=20);(name==*c,age!=35)",
+        "address.city==Lon*",
+        "address.city!=Dublin;age=ge=20"
+    };
+    
+    private FiqlParser<Person> parser = new FiqlParser<Person>(Person.class);
+    
+    @Test
+    public void testSameResultsAsOriginal() throws SearchParseException {
+        List<Person> people = createPeople();
+        for (String expression : EXPRESSIONS) {
+            SearchCondition<Person> original = parser.parse(expression);
+            SearchCondition<Person> compiled = CompiledSearchCondition.compile(parser.parse(expression));
+            for (Person p : people) {
+                assertEquals(expression + ", " + p, original.isMet(p), compiled.isMet(p));
+            }
+            assertEquals(expression, original.findAll(people), compiled.findAll(people));
+        }
+    }
+    
+    @Test
+    public void testNestedProperty() throws SearchParseException {
+        SearchCondition<Person> sc = CompiledSearchCondition.compile(parser.parse("address.city==Lon*"));
+        List<Person> found = sc.findAll(createPeople());
+        assertEquals(2, found.size());
+        assertEquals("amichalec", found.get(0).getName());
+        assertEquals("foobaz", found.get(1).getName());
+    }
+    
+    @Test
+    public void testCustomConditionIsDelegatedTo() {
+        List<SearchCondition<Person>> conditions = new ArrayList<SearchCondition<Person>>();
+        conditions.add(new SimpleSearchCondition<Person>(ConditionType.GREATER_THAN, new Person(null, 30, null)));
+        conditions.add(new OldPeopleCondition());
+        SearchCondition<Person> sc = CompiledSearchCondition.compile(new OrSearchCondition<Person>(conditions));
+        assertTrue(sc.isMet(new Person("a", 35, null)));
+        assertTrue(sc.isMet(new Person("b", 25, "ancient")));
+        assertFalse(sc.isMet(new Person("c", 25, null)));
+    }
+    
+    @Test
+    public void testVisitorsSeeOriginalTree() throws SearchParseException {
+        SearchCondition<Person> original = parser.parse("name==ami*;age=gt=30");
+        CompiledSearchCondition<Person> compiled = CompiledSearchCondition.compile(original);
+        assertSame(original, compiled.getOriginalCondition());
+        assertEquals(ConditionType.AND, compiled.getConditionType());
+        assertEquals(2, compiled.getSearchConditions().size());
+        assertEquals(SearchUtils.toSQL(original, "people"), SearchUtils.toSQL(compiled, "people"));
+    }
+    
+    @Test
+    public void testQueryIsBuiltOnce() throws SearchParseException {
+        CompiledSearchCondition<Person> sc = CompiledSearchCondition.compile(parser.parse("name==ami*"));
+        String sql = sc.getQuery("people", new SQLPrinterVisitor<Person>("people"));
+        assertEquals("SELECT * FROM people WHERE name LIKE 'ami%'", sql);
+        assertSame(sql, sc.getQuery("people", new SQLPrinterVisitor<Person>("people")));
+        assertSame(SearchUtils.toSQL(sc, "people", "name"), SearchUtils.toSQL(sc, "people", "name"));
+        assertNotSame(sql, sc.getQuery("persons", new SQLPrinterVisitor<Person>("persons")));
+    }
+    
+    @Test
+    public void testCache() throws SearchParseException {
+        SearchConditionCache cache = new SearchConditionCache(2);
+        Object key = Arrays.asList(Person.class, FiqlParser.class);
+        SearchCondition<Person> sc = cache.getCondition(key, "name==ami*;age=gt=30", parser);
+        assertSame(sc, cache.getCondition(key, "name==ami*;age=gt=30", parser));
+        assertSame(sc, cache.getCondition(key, "((name==ami*;age=gt=30))", parser));
+        assertNotSame(sc, cache.getCondition(Collections.singletonList(Person.class), 
+                                             "name==ami*;age=gt=30", parser));
+        assertEquals(2, cache.size());
+        cache.getCondition(key, "age=gt=30", parser);
+        assertEquals(1, cache.size());
+    }
+    
+    @Test
+    public void testNormalize() {
+        assertEquals("a==b", SearchConditionCache.normalize("a==b"));
+        assertEquals("a==b;c==d", SearchConditionCache.normalize("((a==b;c==d))"));
+        assertEquals("(a==b);(c==d)", SearchConditionCache.normalize("(a==b);(c==d)"));
+        assertEquals("(a==b,c==d);e==f", SearchConditionCache.normalize("((a==b,c==d);e==f)"));
+    }
+    
+    private static List<Person> createPeople() {
+        List<Person> people = new ArrayList<Person>();
+        people.add(new Person("amichalec", 25, "London"));
+        people.add(new Person("bkowalski", 35, "Dublin"));
+        people.add(new Person("foobaz", 12, "Londonderry"));
+        people.add(new Person("foobar", 40, null));
+        people.add(new Person("cichocki", 30, "Warsaw"));
+        people.add(new Person(null, 18, "Dublin"));
+        return people;
+    }
+    
+    private static class OldPeopleCondition extends PrimitiveSearchCondition<Person> {
+        OldPeopleCondition() {
+            super("age", 0, ConditionType.EQUALS, new Person(null, 0, null));
+        }
+        
+        @Override
+        public boolean isMet(Person pojo) {
+            return pojo.getAddress() != null && "ancient".equals(pojo.getAddress().getCity());
+        }
+    }
+    
+    public static class Person {
+        private String name;
+        private int age;
+        private Address address;
+        
+        public Person() {
+        }
+        
+        public Person(String name, int age, String city) {
+            this.name = name;
+            this.age = age;
+            if (city != null) {
+                address = new Address();
+                address.setCity(city);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+        
+        @Override
+        public String toString() {
+            return name + "/" + age + "/" + (address == null ? null : address.getCity());
+        }
+    }
+    
+    public static class Address {
+        private String city;
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+}
@@ -19,16 +19,15 @@
 
 package org.apache.cxf.ws.eventing.backend.notification;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
-import javax.jws.WebService;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.namespace.QName;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
 
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.interceptor.LoggingOutInterceptor;
@@ -37,78 +36,97 @@ import org.apache.cxf.ws.eventing.EventType;
 import org.apache.cxf.ws.eventing.backend.database.SubscriptionTicket;
 import org.apache.cxf.ws.eventing.shared.handlers.ReferenceParametersAddingHandler;
 
-/**
- * Represents the task to send a notification about a particular event to a particular subscribed client.
- * Dispatch is performed according to a provided endpoint interface.
- */
 class EventSinkInterfaceNotificationTask implements Runnable {
 
     protected static final Logger LOG = LogUtils.getLogger(EventSinkInterfaceNotificationTask.class);
 
     SubscriptionTicket target;
-    Object event;
-    Class<?> endpointInterface;
+    PreparedEvent event;
+    ConcurrentMap<Class<?>, Object> proxies;
 
-    public EventSinkInterfaceNotificationTask(SubscriptionTicket ticket, Object event, Class<?> endpointInterface) {
+    /**
+     * @param ticket the subscription to notify
+     * @param event the event
+     * @param proxies the proxies already created for this subscriber, by service or event class
+     */
+    public EventSinkInterfaceNotificationTask(SubscriptionTicket ticket, PreparedEvent event,
+                                              ConcurrentMap<Class<?>, Object> proxies) {
         this.target = ticket;
         this.event = event;
-        this.endpointInterface = endpointInterface;
-
+        this.proxies = proxies;
     }
 
     /**
      * Logic needed to actually send the notification to the subscribed client.
+     * A failed delivery is reported by a WebServiceException.
      */
     @Override
     public void run() {
-        try {
-            LOG.info("Starting notification task for subscription UUID " + target.getUuid());
-
-            Method method = null;
-            final Object proxy;
-            final Object param;
-            final Class<?> eventClass = event.getClass();
-            final Class<?>[] eventClassArray = new Class<?>[] {eventClass};
-            if (target.isWrappedDelivery()) {
-                proxy = getProxy(WrappedSink.class, eventClassArray);
-                param = new EventType();
-                ((EventType)param).getContent().add(eventClass.isAnnotationPresent(XmlRootElement.class)
-                                               ? event : convertToJAXBElement(event));
+        LOG.fine("Starting notification task for subscription UUID " + target.getUuid());
+
+        boolean wrapped = target.isWrappedDelivery();
+        Map<String, Boolean> verdicts = event.getFilterVerdicts(wrapped);
+        String filter = target.getFilterString();
+        if (filter != null && Boolean.FALSE.equals(verdicts.get(filter))) {
+            LOG.fine("Filter " + filter + " already filtered out this event.");
+            return;
+        }
+
+        final Method method;
+        final Object proxy;
+        final Object param;
+        if (wrapped) {
+            proxy = getProxy(WrappedSink.class, event.getEventClass());
+            param = event.getWrappedEvent();
+            try {
                 method = WrappedSink.class.getMethod("notifyEvent", EventType.class);
-            } else {
-                proxy = getProxy(endpointInterface);
-                // find the method to use
-                Method[] methods = endpointInterface.getMethods();
-                for (int i = 0; i < methods.length && method == null; i++) {
-                    if (Arrays.equals(methods[i].getParameterTypes(), eventClassArray)) {
-                        method = methods[i];
-                    }
-                }
-                if (method == null) {
-                    LOG.severe("Couldn't find corresponding method for event of type "
-                               + eventClass.getCanonicalName() + " in event sink interface"
-                               + endpointInterface.getCanonicalName());
-                    return;
-                }
-                param = event;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            method = event.getSinkMethod();
+            if (method == null) {
+                LOG.severe("Couldn't find corresponding method for event of type "
+                           + event.getEventClass().getCanonicalName() + " in event sink interface"
+                           + event.getEndpointInterface().getCanonicalName());
+                return;
             }
-            
+            proxy = getProxy(event.getEndpointInterface());
+            param = event.getEvent();
+        }
+
+        // the proxy is only ever used by one thread at a time
+        ((BindingProvider)proxy).getRequestContext().put(PreparedEvent.FILTER_VERDICTS, verdicts);
+        try {
             method.invoke(proxy, param);
-        } catch (Throwable e) {
-            e.printStackTrace();
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof WebServiceException
+                ? (WebServiceException)cause : new WebServiceException(cause);
+        } catch (IllegalAccessException e) {
+            throw new WebServiceException(e);
         }
     }
-    
-    @SuppressWarnings({
-        "unchecked", "rawtypes"
-    })
-    protected JAXBElement<?> convertToJAXBElement(Object evt) {
-        final Class<?> eventClass = evt.getClass();
-        String tns = endpointInterface.getAnnotation(WebService.class).targetNamespace();
-        return new JAXBElement(new QName(tns, eventClass.getName()), eventClass, evt);
+
+    /**
+     * @param sinkInterface the service class of the proxy
+     * @param eventClass additional class for the JAXB context, or null
+     */
+    protected Object getProxy(Class<?> sinkInterface, Class<?> eventClass) {
+        Class<?> key = eventClass == null ? sinkInterface : eventClass;
+        Object proxy = proxies.get(key);
+        if (proxy == null) {
+            proxy = createProxy(sinkInterface, eventClass);
+            proxies.put(key, proxy);
+        }
+        return proxy;
+    }
+
+    protected Object getProxy(Class<?> sinkInterface) {
+        return getProxy(sinkInterface, null);
     }
 
-    protected Object getProxy(Class<?> sinkInterface, Class<?>... extraClasses) {
+    protected Object createProxy(Class<?> sinkInterface, Class<?> eventClass) {
         //needed SOAP handlers
         ReferenceParametersAddingHandler handler = new
                 ReferenceParametersAddingHandler(
@@ -125,9 +143,9 @@ class EventSinkInterfaceNotificationTask implements Runnable {
             service.getOutInterceptors().add(new FilteringInterceptor(target.getFilter()));
         }
         
-        if (extraClasses != null && extraClasses.length > 0) {
+        if (eventClass != null) {
             Map<String, Object> props = new HashMap<String, Object>();
-            props.put("jaxb.additionalContextClasses", extraClasses);
+            props.put("jaxb.additionalContextClasses", new Class<?>[] {eventClass});
             service.getClientFactoryBean().getServiceFactory().setProperties(props);
         }
 
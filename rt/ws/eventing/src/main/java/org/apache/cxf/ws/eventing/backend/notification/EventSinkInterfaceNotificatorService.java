@@ -19,17 +19,75 @@
 
 package org.apache.cxf.ws.eventing.backend.notification;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.ws.eventing.backend.database.SubscriptionTicket;
 
 /**
- * A NotificatorService dispatching events according to a known event sink interface
+ * Delivers events by invoking the event sink interface, or WrappedSink for wrapped delivery.
+ * Client proxies are created once per subscriber and reused for all subsequent events.
  */
 public abstract class EventSinkInterfaceNotificatorService extends NotificatorService {
 
+    private final ConcurrentMap<UUID, ConcurrentMap<Class<?>, Object>> proxies
+        = new ConcurrentHashMap<UUID, ConcurrentMap<Class<?>, Object>>();
+    private final ConcurrentMap<Class<?>, Method> sinkMethods = new ConcurrentHashMap<Class<?>, Method>();
+
     protected abstract Class<?> getEventSinkInterface();
 
+    @Override
+    protected Object prepareEvent(Object event) {
+        return new PreparedEvent(event, getEventSinkInterface(), findSinkMethod(event.getClass()));
+    }
+
     @Override
     protected void submitNotificationTask(SubscriptionTicket ticket, Object event) {
-        service.submit(new EventSinkInterfaceNotificationTask(ticket, event, getEventSinkInterface()));
+        PreparedEvent prepared = event instanceof PreparedEvent
+            ? (PreparedEvent)event : (PreparedEvent)prepareEvent(event);
+        ConcurrentMap<Class<?>, Object> subscriberProxies = proxies.get(ticket.getUuid());
+        if (subscriberProxies == null) {
+            subscriberProxies = new ConcurrentHashMap<Class<?>, Object>();
+            ConcurrentMap<Class<?>, Object> existing = proxies.putIfAbsent(ticket.getUuid(), subscriberProxies);
+            if (existing != null) {
+                subscriberProxies = existing;
+            }
+        }
+        enqueueNotification(ticket, new EventSinkInterfaceNotificationTask(ticket, prepared, subscriberProxies));
+    }
+
+    @Override
+    protected void subscriberRemoved(UUID uuid) {
+        ConcurrentMap<Class<?>, Object> subscriberProxies = proxies.remove(uuid);
+        if (subscriberProxies != null) {
+            for (Object proxy : subscriberProxies.values()) {
+                Client client = ClientProxy.getClient(proxy);
+                if (client != null) {
+                    client.destroy();
+                }
+            }
+        }
+    }
+
+    private Method findSinkMethod(Class<?> eventClass) {
+        Method method = sinkMethods.get(eventClass);
+        if (method == null) {
+            Class<?>[] eventClassArray = new Class<?>[] {eventClass};
+            Method[] methods = getEventSinkInterface().getMethods();
+            for (int i = 0; i < methods.length && method == null; i++) {
+                if (Arrays.equals(methods[i].getParameterTypes(), eventClassArray)) {
+                    method = methods[i];
+                }
+            }
+            if (method != null) {
+                sinkMethods.put(eventClass, method);
+            }
+        }
+        return method;
     }
 }
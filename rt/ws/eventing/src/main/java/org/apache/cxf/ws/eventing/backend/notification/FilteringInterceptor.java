@@ -19,10 +19,14 @@
 
 package org.apache.cxf.ws.eventing.backend.notification;
 
+import java.util.Map;
 import java.util.logging.Logger;
 
+import javax.xml.xpath.XPathExpression;
+
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
@@ -34,10 +38,16 @@ public class FilteringInterceptor  extends AbstractPhaseInterceptor<SoapMessage>
     private static final Logger LOG = LogUtils.getLogger(FilteringInterceptor.class);
 
     private FilterType filter;
+    private String xPath;
+    private XPathExpression expression;
 
     public FilteringInterceptor(FilterType filter) {
         super(Phase.POST_MARSHAL);
         this.filter = filter;
+        if (filter != null && filter.getContent() != null && !filter.getContent().isEmpty()) {
+            xPath = (String)filter.getContent().get(0);
+            expression = FilteringUtil.compileFilter(xPath);
+        }
     }
 
 
@@ -47,8 +57,25 @@ public class FilteringInterceptor  extends AbstractPhaseInterceptor<SoapMessage>
             LOG.info("No filter for this subscription");
             return;
         }
-        javax.xml.soap.SOAPMessage msg = message.getContent(javax.xml.soap.SOAPMessage.class);
-        if (!FilteringUtil.runFilterOnMessage(msg, filter)) {
+        // verdicts already reached for the same event on behalf of other subscribers
+        Map<String, Boolean> verdicts
+            = CastUtils.cast((Map<?, ?>)message.getContextualProperty(PreparedEvent.FILTER_VERDICTS));
+        Boolean verdict = verdicts == null ? null : verdicts.get(xPath);
+        if (verdict == null) {
+            javax.xml.soap.SOAPMessage msg = message.getContent(javax.xml.soap.SOAPMessage.class);
+            if (expression == null) {
+                verdict = FilteringUtil.runFilterOnMessage(msg, filter);
+            } else {
+                // compiled expressions are not thread safe
+                synchronized (expression) {
+                    verdict = FilteringUtil.runFilterOnMessage(msg, expression, xPath);
+                }
+            }
+            if (verdicts != null) {
+                verdicts.put(xPath, verdict);
+            }
+        }
+        if (!verdict) {
             message.getInterceptorChain().abort();
         }
     }
@@ -20,13 +20,26 @@
 package org.apache.cxf.ws.eventing.backend.notification;
 
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.ws.eventing.backend.database.SubscriptionTicket;
+import org.apache.cxf.ws.eventing.backend.manager.SubscriptionManager;
 import org.apache.cxf.ws.eventing.backend.manager.SubscriptionManagerInterfaceForNotificators;
 
 
@@ -37,13 +50,24 @@ import org.apache.cxf.ws.eventing.backend.manager.SubscriptionManagerInterfaceFo
  * Suggested approach for a web container is to instantiate this class in a ServletContextListener
  * and then have it stopped using the same listener. If you don't call 'stop' upon undeployment,
  * the underlying ExecutorService will not be shut down, leaking resources.
+ * <p>
+ * Notifications queued with enqueueNotification are delivered in order and one at a time per subscriber,
+ * while different subscribers are served in parallel by the pool. A subscriber which falls more than
+ * maxPendingNotifications behind loses the excess notifications, and one which fails maxDeliveryFailures
+ * times in a row is considered dead: its subscription is ended with a DeliveryFailure.
  */
 public abstract class NotificatorService {
 
     public static final int CORE_POOL_SIZE = 15;
+    public static final int DEFAULT_MAX_PENDING_NOTIFICATIONS = 1000;
+    public static final int DEFAULT_MAX_DELIVERY_FAILURES = 5;
     protected static final Logger LOG = LogUtils.getLogger(NotificatorService.class);
     protected ExecutorService service;
 
+    private final ConcurrentMap<UUID, SubscriberQueue> queues = new ConcurrentHashMap<UUID, SubscriberQueue>();
+    private int maxPendingNotifications = DEFAULT_MAX_PENDING_NOTIFICATIONS;
+    private int maxDeliveryFailures = DEFAULT_MAX_DELIVERY_FAILURES;
+
     public NotificatorService() {
     }
 
@@ -54,23 +78,92 @@ public abstract class NotificatorService {
             throw new IllegalStateException("NotificatorService is not started. "
                     + "Please call the start() method before passing any events to it.");
         }
-        for (SubscriptionTicket ticket : obtainManager().getTickets()) {
+        Object prepared = prepareEvent(event);
+        List<SubscriptionTicket> tickets = obtainManager().getTickets();
+        for (SubscriptionTicket ticket : tickets) {
             if (!ticket.isExpired()) {
-                submitNotificationTask(ticket, event);
+                submitNotificationTask(ticket, prepared);
             } else {
                 LOG.info("Ticket expired at " + ticket.getExpires().toXMLFormat());
             }
         }
+        if (queues.size() > tickets.size()) {
+            Set<UUID> live = new HashSet<UUID>();
+            for (SubscriptionTicket ticket : tickets) {
+                live.add(ticket.getUuid());
+            }
+            for (UUID uuid : queues.keySet()) {
+                if (!live.contains(uuid) && queues.remove(uuid) != null) {
+                    subscriberRemoved(uuid);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the event once before it is handed to submitNotificationTask for each subscriber,
+     * so that work which does not depend on the subscriber is not repeated. Returns the event as is
+     * by default.
+     */
+    protected Object prepareEvent(Object event) {
+        return event;
     }
 
     protected abstract void submitNotificationTask(SubscriptionTicket ticket, Object event);
 
+    /**
+     * Queues a notification task for the subscriber of the ticket. A task signals a failed delivery
+     * by throwing a RuntimeException.
+     */
+    protected void enqueueNotification(SubscriptionTicket ticket, Runnable task) {
+        SubscriberQueue queue = queues.get(ticket.getUuid());
+        if (queue == null) {
+            queue = new SubscriberQueue(ticket.getUuid());
+            SubscriberQueue existing = queues.putIfAbsent(ticket.getUuid(), queue);
+            if (existing != null) {
+                queue = existing;
+            }
+        }
+        queue.add(task);
+    }
+
+    /**
+     * Called when a subscription has disappeared from the database, to release any
+     * resources held for its subscriber.
+     */
+    protected void subscriberRemoved(UUID uuid) {
+    }
+
     public void subscriptionEnd(SubscriptionTicket ticket, String reason, SubscriptionEndStatus status) {
         LOG.info("NotificatorService will notify about subscription end for ticket=" + ticket.getUuid()
             + "; reason=" + reason);
         service.submit(new SubscriptionEndNotificationTask(ticket, reason, status));
     }
 
+    public int getMaxPendingNotifications() {
+        return maxPendingNotifications;
+    }
+
+    /**
+     * Sets how many notifications may wait for delivery to a single subscriber before
+     * further ones are dropped.
+     */
+    public void setMaxPendingNotifications(int maxPendingNotifications) {
+        this.maxPendingNotifications = maxPendingNotifications;
+    }
+
+    public int getMaxDeliveryFailures() {
+        return maxDeliveryFailures;
+    }
+
+    /**
+     * Sets after how many consecutive failed deliveries a subscription is ended. Zero or less
+     * keeps failing subscriptions forever.
+     */
+    public void setMaxDeliveryFailures(int maxDeliveryFailures) {
+        this.maxDeliveryFailures = maxDeliveryFailures;
+    }
+
 
     /**
      * Starts this NotificatorService. You MUST run this method on every instance
@@ -87,6 +180,96 @@ public abstract class NotificatorService {
      */
     public void stop() {
         service.shutdown();
+        for (UUID uuid : queues.keySet()) {
+            if (queues.remove(uuid) != null) {
+                subscriberRemoved(uuid);
+            }
+        }
+    }
+
+    private void subscriberDead(UUID uuid) {
+        LOG.warning("Subscription " + uuid + " failed " + maxDeliveryFailures
+            + " consecutive deliveries, ending it.");
+        SubscriptionManagerInterfaceForNotificators manager = obtainManager();
+        if (manager instanceof SubscriptionManager) {
+            ((SubscriptionManager)manager).subscriptionEnd(uuid, "Event delivery failed.",
+                                                           SubscriptionEndStatus.DELIVERY_FAILURE);
+        }
+    }
+
+    /**
+     * Pending notifications of one subscriber. At most one pool task drains the queue at any time,
+     * and it delivers a single notification before yielding the thread to other subscribers.
+     */
+    private final class SubscriberQueue implements Runnable {
+        private final UUID uuid;
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean dead;
+        private int failures;
+
+        SubscriberQueue(UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        void add(Runnable task) {
+            if (dead) {
+                return;
+            }
+            if (size.incrementAndGet() > maxPendingNotifications) {
+                size.decrementAndGet();
+                LOG.warning("Subscription " + uuid + " is not keeping up, dropping notification.");
+                return;
+            }
+            pending.add(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    service.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    scheduled.set(false);
+                    LOG.log(Level.WARNING, "Could not schedule notification for subscription " + uuid, ex);
+                }
+            }
+        }
+
+        public void run() {
+            try {
+                Runnable task = pending.poll();
+                if (task != null) {
+                    size.decrementAndGet();
+                    if (!dead) {
+                        deliver(task);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (dead) {
+                    pending.clear();
+                    size.set(0);
+                } else {
+                    schedule();
+                }
+            }
+        }
+
+        private void deliver(Runnable task) {
+            try {
+                task.run();
+                failures = 0;
+            } catch (RuntimeException ex) {
+                failures++;
+                LOG.log(Level.WARNING, "Notification for subscription " + uuid + " failed.", ex);
+                if (maxDeliveryFailures > 0 && failures >= maxDeliveryFailures) {
+                    dead = true;
+                    subscriberDead(uuid);
+                }
+            }
+        }
     }
 
 }
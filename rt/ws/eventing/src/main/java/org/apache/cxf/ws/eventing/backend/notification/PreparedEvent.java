@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.eventing.backend.notification;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.jws.WebService;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.ws.eventing.EventType;
+
+/**
+ * An event together with everything about its delivery that does not depend on the subscriber.
+ * It is created once per dispatched event and shared by the notification tasks of all subscribers.
+ */
+final class PreparedEvent {
+
+    /**
+     * Key of the request context property holding the filter verdicts, by filter expression,
+     * that have already been reached for this event.
+     */
+    static final String FILTER_VERDICTS = PreparedEvent.class.getName() + ".FILTER_VERDICTS";
+
+    private final Object event;
+    private final Class<?> endpointInterface;
+    private final Method sinkMethod;
+    private final Map<String, Boolean> verdicts = new ConcurrentHashMap<String, Boolean>();
+    private final Map<String, Boolean> wrappedVerdicts = new ConcurrentHashMap<String, Boolean>();
+    private EventType wrappedEvent;
+
+    PreparedEvent(Object event, Class<?> endpointInterface, Method sinkMethod) {
+        this.event = event;
+        this.endpointInterface = endpointInterface;
+        this.sinkMethod = sinkMethod;
+    }
+
+    Object getEvent() {
+        return event;
+    }
+
+    Class<?> getEventClass() {
+        return event.getClass();
+    }
+
+    Class<?> getEndpointInterface() {
+        return endpointInterface;
+    }
+
+    /**
+     * @return the method of the event sink interface accepting the event, or null if there is none
+     */
+    Method getSinkMethod() {
+        return sinkMethod;
+    }
+
+    /**
+     * @return the filter verdicts for the given delivery mode; the SOAP body differs between
+     * wrapped and unwrapped delivery, so they are kept apart
+     */
+    Map<String, Boolean> getFilterVerdicts(boolean wrapped) {
+        return wrapped ? wrappedVerdicts : verdicts;
+    }
+
+    synchronized EventType getWrappedEvent() {
+        if (wrappedEvent == null) {
+            wrappedEvent = new EventType();
+            wrappedEvent.getContent().add(getEventClass().isAnnotationPresent(XmlRootElement.class)
+                                          ? event : convertToJAXBElement());
+        }
+        return wrappedEvent;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private JAXBElement<?> convertToJAXBElement() {
+        final Class<?> eventClass = getEventClass();
+        String tns = endpointInterface.getAnnotation(WebService.class).targetNamespace();
+        return new JAXBElement(new QName(tns, eventClass.getName()), eventClass, event);
+    }
+}
@@ -66,6 +66,31 @@ public final class FilteringUtil {
         }
     }
 
+    /**
+     * Evaluates a filter compiled by compileFilter. The expression must not be used by
+     * several threads at once.
+     */
+    public static boolean doesConformToFilter(Element elm, XPathExpression xPathExpression) {
+        try {
+            return (Boolean)xPathExpression.evaluate(elm, XPathConstants.BOOLEAN);
+        } catch (XPathExpressionException ex) {
+            LOG.severe(ex.toString());
+            return false;
+        }
+    }
+
+    /**
+     * @return the compiled filter, or null if it is not a valid XPath expression
+     */
+    public static XPathExpression compileFilter(String xPathString) {
+        try {
+            return xPathFactory.newXPath().compile(xPathString);
+        } catch (XPathExpressionException ex) {
+            LOG.severe(ex.toString());
+            return null;
+        }
+    }
+
     public static boolean isValidFilter(String xPathString) {
         if (xPathString == null) {
             return true;
@@ -80,12 +105,21 @@ public final class FilteringUtil {
     }
     
     public static boolean runFilterOnMessage(SOAPMessage msg, FilterType filter) {
+        final String xPath = (String)filter.getContent().get(0);
+        XPathExpression xPathExpression = compileFilter(xPath);
+        return xPathExpression != null && runFilterOnMessage(msg, xPathExpression, xPath);
+    }
+
+    /**
+     * Same as runFilterOnMessage(SOAPMessage, FilterType), but with a filter compiled
+     * by compileFilter.
+     */
+    public static boolean runFilterOnMessage(SOAPMessage msg, XPathExpression xPathExpression, String xPath) {
         try {
             Iterator<?> i  = msg.getSOAPBody().getChildElements();
-            final String xPath = (String)filter.getContent().get(0);
             while (i.hasNext()) {
                 Element elm = (Element)i.next();
-                if (FilteringUtil.doesConformToFilter(elm, filter)) {
+                if (FilteringUtil.doesConformToFilter(elm, xPathExpression)) {
                     LOG.info("Message passed through filter: " + xPath);
                 } else {
                     LOG.info("Filter " + xPath + " filtered out this message.");
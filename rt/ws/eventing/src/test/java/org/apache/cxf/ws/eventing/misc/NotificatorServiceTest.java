@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.eventing.misc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.ws.eventing.backend.database.SubscriptionTicket;
+import org.apache.cxf.ws.eventing.backend.manager.SubscriptionManagerImpl;
+import org.apache.cxf.ws.eventing.backend.manager.SubscriptionManagerInterfaceForNotificators;
+import org.apache.cxf.ws.eventing.backend.notification.NotificatorService;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NotificatorServiceTest {
+
+    private TestingManager manager;
+    private TestingNotificatorService service;
+
+    @Before
+    public void setUp() {
+        manager = new TestingManager();
+        service = new TestingNotificatorService(manager);
+        service.start();
+    }
+
+    @After
+    public void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    public void deliveryIsOrderedPerSubscriber() throws Exception {
+        final Map<UUID, List<Object>> received = new ConcurrentHashMap<UUID, List<Object>>();
+        final CountDownLatch done = new CountDownLatch(3 * 50);
+        for (int i = 0; i < 3; i++) {
+            received.put(manager.addTicket().getUuid(), new CopyOnWriteArrayList<Object>());
+        }
+        service.delivery = new Delivery() {
+            public void deliver(SubscriptionTicket ticket, Object event) {
+                received.get(ticket.getUuid()).add(event);
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < 50; i++) {
+            service.dispatchEvent(i);
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Object> events : received.values()) {
+            Assert.assertEquals(50, events.size());
+            for (int i = 0; i < 50; i++) {
+                Assert.assertEquals(i, events.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void slowSubscriberDropsExcessNotifications() throws Exception {
+        manager.addTicket();
+        service.setMaxPendingNotifications(2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger delivered = new AtomicInteger();
+        service.delivery = new Delivery() {
+            public void deliver(SubscriptionTicket ticket, Object event) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.incrementAndGet();
+            }
+        };
+        service.dispatchEvent(0);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 5; i++) {
+            service.dispatchEvent(i);
+        }
+        release.countDown();
+        // one notification in progress plus two queued ones
+        long deadline = System.currentTimeMillis() + 10000;
+        while (delivered.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(3, delivered.get());
+    }
+
+    @Test
+    public void deadSubscriptionIsEnded() throws Exception {
+        manager.addTicket();
+        service.setMaxDeliveryFailures(3);
+        final AtomicInteger attempts = new AtomicInteger();
+        service.delivery = new Delivery() {
+            public void deliver(SubscriptionTicket ticket, Object event) {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("subscriber is gone");
+            }
+        };
+        for (int i = 0; i < 5; i++) {
+            service.dispatchEvent(i);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!manager.getTickets().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(manager.getTickets().isEmpty());
+        Thread.sleep(100);
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    interface Delivery {
+        void deliver(SubscriptionTicket ticket, Object event);
+    }
+
+    static class TestingNotificatorService extends NotificatorService {
+        volatile Delivery delivery;
+        private final SubscriptionManagerInterfaceForNotificators manager;
+
+        TestingNotificatorService(SubscriptionManagerInterfaceForNotificators manager) {
+            this.manager = manager;
+        }
+
+        @Override
+        protected SubscriptionManagerInterfaceForNotificators obtainManager() {
+            return manager;
+        }
+
+        @Override
+        protected void submitNotificationTask(final SubscriptionTicket ticket, final Object event) {
+            enqueueNotification(ticket, new Runnable() {
+                public void run() {
+                    delivery.deliver(ticket, event);
+                }
+            });
+        }
+    }
+
+    static class TestingManager extends SubscriptionManagerImpl {
+        TestingManager() {
+            super("http://localhost/manager");
+        }
+
+        SubscriptionTicket addTicket() {
+            SubscriptionTicket ticket = new SubscriptionTicket();
+            ticket.setUuid(UUID.randomUUID());
+            ticket.setNonExpiring(true);
+            getDatabase().addTicket(ticket);
+            return ticket;
+        }
+    }
+}
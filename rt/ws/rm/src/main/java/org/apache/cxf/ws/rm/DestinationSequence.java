@@ -26,6 +26,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -399,8 +401,9 @@ public class DestinationSequence extends AbstractSequence {
             LOG.fine("Schedule immediate acknowledgment");
             scheduleImmediateAcknowledgement();
             
-            destination.getManager().getTimer().schedule(
-                new ImmediateFallbackAcknowledgment(), ap == null ? 1000L : ap.getImmediaAcksTimeout());
+            destination.getManager().getWheelTimer().schedule(
+                new SendTask(new ImmediateFallbackAcknowledgment()), 
+                ap == null ? 1000L : ap.getImmediaAcksTimeout());
            
         }
     }
@@ -438,7 +441,7 @@ public class DestinationSequence extends AbstractSequence {
         }
         DeferredAcknowledgment da = new DeferredAcknowledgment();
         deferredAcknowledgments.add(da);
-        destination.getManager().getTimer().schedule(da, delay);
+        da.schedule(destination.getManager().getWheelTimer(), delay);
         LOG.fine("Scheduled acknowledgment to be sent in " + delay + " ms");
     }
     
@@ -458,7 +461,23 @@ public class DestinationSequence extends AbstractSequence {
         }
     }
 
-    final class DeferredAcknowledgment extends TimerTask {
+    final class DeferredAcknowledgment implements Runnable {
+        
+        private HashedWheelTimer.Timeout timeout;
+        
+        void schedule(HashedWheelTimer timer, long delay) {
+            timeout = timer.schedule(new SendTask(this), delay);
+        }
+        
+        long scheduledExecutionTime() {
+            return null == timeout ? 0 : timeout.getExecutionTime();
+        }
+        
+        void cancel() {
+            if (null != timeout) {
+                timeout.cancel();
+            }
+        }
 
         public void run() {
             LOG.fine("timer task: send acknowledgment.");
@@ -480,7 +499,32 @@ public class DestinationSequence extends AbstractSequence {
         }
     }
     
-    final class ImmediateFallbackAcknowledgment extends TimerTask {
+    /**
+     * Hands an acknowledgment expiring on the wheel timer over to the manager's work queue,
+     * the timer thread must not block on the send.
+     */
+    final class SendTask implements Runnable {
+        private final Runnable task;
+        
+        SendTask(Runnable task) {
+            this.task = task;
+        }
+        
+        public void run() {
+            Executor executor = destination.getManager().getTimerTaskExecutor();
+            if (null == executor) {
+                task.run();
+                return;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ex) {
+                LogUtils.log(LOG, Level.WARNING, "ACK_INITIATION_FAILED_MSG", ex, getIdentifier().getValue());
+            }
+        }
+    }
+    
+    final class ImmediateFallbackAcknowledgment implements Runnable {
         public void run() {
             LOG.fine("timer task: send acknowledgment.");
             if (!sendAcknowledgement()) {
@@ -0,0 +1,239 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * A hashed timing wheel used to schedule retransmissions and acknowledgements.
+ * <p>
+ * Scheduling and cancelling are O(1) and never contend with the worker thread: new
+ * timeouts are handed over through a lock-free queue and cancelled timeouts are
+ * dropped lazily when the worker next visits their bucket. The price is that
+ * timeouts only fire with a resolution of one tick, which is fine for the
+ * second-range intervals used by WS-RM.
+ * <p>
+ * Expired tasks run on the single worker thread and therefore need to be short;
+ * anything expensive should be handed off to an executor.
+ */
+public class HashedWheelTimer {
+    public static final long DEFAULT_TICK_DURATION = 100L;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final Logger LOG = LogUtils.getL7dLogger(HashedWheelTimer.class);
+
+    private final long tickDuration;
+    private final int mask;
+    private final List<List<Timeout>> wheel;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<Timeout>();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean stopped;
+    private long tick;
+
+    public HashedWheelTimer(String name) {
+        this(name, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param name the name of the worker thread
+     * @param tickDuration the duration of one tick in milliseconds
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickDuration, int wheelSize) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("wheelSize out of range: " + wheelSize);
+        }
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickDuration = tickDuration;
+        mask = size - 1;
+        wheel = new ArrayList<List<Timeout>>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<Timeout>());
+        }
+        startTime = currentTime();
+        worker = new Thread(new Worker(), name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    /**
+     * Schedules the task for execution after the given delay.
+     *
+     * @param task the task
+     * @param delay the delay in milliseconds
+     * @return the handle which can be used to cancel the task
+     * @throws IllegalStateException if the timer has been stopped
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        if (stopped) {
+            throw new IllegalStateException("Timer already stopped.");
+        }
+        long d = Math.max(0L, delay);
+        Timeout timeout = new Timeout(task, currentTime() - startTime + d, System.currentTimeMillis() + d);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Schedules the task for execution at the given time.
+     *
+     * @param task the task
+     * @param time the time of execution
+     * @return the handle which can be used to cancel the task
+     * @throws IllegalStateException if the timer has been stopped
+     */
+    public Timeout schedule(Runnable task, Date time) {
+        return schedule(task, time.getTime() - System.currentTimeMillis());
+    }
+
+    /**
+     * Stops the worker thread, discarding all tasks that have not yet expired.
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    private static long currentTime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void transferPending() {
+        Timeout timeout = pending.poll();
+        while (null != timeout) {
+            if (!timeout.isCancelled()) {
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.size();
+                wheel.get((int)(Math.max(calculated, tick) & mask)).add(timeout);
+            }
+            timeout = pending.poll();
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        int retained = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.set(retained++, timeout);
+                continue;
+            }
+            timeout.expire();
+        }
+        for (int i = bucket.size() - 1; i >= retained; i--) {
+            bucket.remove(i);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        public void run() {
+            while (!stopped) {
+                long deadline = tickDuration * (tick + 1);
+                long sleep = deadline - (currentTime() - startTime);
+                if (sleep > 0) {
+                    try {
+                        Thread.sleep(sleep);
+                    } catch (InterruptedException ex) {
+                        continue;
+                    }
+                }
+                transferPending();
+                expire(wheel.get((int)(tick & mask)));
+                tick++;
+            }
+            pending.clear();
+            for (List<Timeout> bucket : wheel) {
+                bucket.clear();
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final long executionTime;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        Timeout(Runnable task, long deadline, long executionTime) {
+            this.task = task;
+            this.deadline = deadline;
+            this.executionTime = executionTime;
+        }
+
+        /**
+         * @return the time in milliseconds at which the task is due, comparable to
+         * <code>System.currentTimeMillis()</code>
+         */
+        public long getExecutionTime() {
+            return executionTime;
+        }
+
+        /**
+         * Cancels the task. A task that is already running is not interrupted.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void expire() {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "TIMER_TASK_FAILED_MSG", ex);
+            }
+        }
+    }
+}
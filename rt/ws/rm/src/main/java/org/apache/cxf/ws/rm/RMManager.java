@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -57,6 +58,9 @@ import org.apache.cxf.service.model.BindingInfo;
 import org.apache.cxf.service.model.InterfaceInfo;
 import org.apache.cxf.service.model.ServiceInfo;
 import org.apache.cxf.transport.Conduit;
+import org.apache.cxf.workqueue.AutomaticWorkQueue;
+import org.apache.cxf.workqueue.AutomaticWorkQueueImpl;
+import org.apache.cxf.workqueue.WorkQueueManager;
 import org.apache.cxf.ws.addressing.AddressingProperties;
 import org.apache.cxf.ws.addressing.ContextUtils;
 import org.apache.cxf.ws.addressing.EndpointReferenceType;
@@ -116,6 +120,10 @@ public class RMManager {
     private RetransmissionQueue retransmissionQueue;
     private Map<Endpoint, RMEndpoint> reliableEndpoints = new ConcurrentHashMap<Endpoint, RMEndpoint>();
     private AtomicReference<Timer> timer = new AtomicReference<Timer>();
+    private AtomicReference<HashedWheelTimer> wheelTimer = new AtomicReference<HashedWheelTimer>();
+    private AtomicReference<AutomaticWorkQueue> workQueue = new AtomicReference<AutomaticWorkQueue>();
+    private AutomaticWorkQueueImpl ownWorkQueue;
+    private long timerTickDuration = HashedWheelTimer.DEFAULT_TICK_DURATION;
     private RMConfiguration configuration;
     private SourcePolicyType sourcePolicy;
     private DestinationPolicyType destinationPolicy;
@@ -209,6 +217,67 @@ public class RMManager {
         return getTimer(true);
     }
 
+    private HashedWheelTimer getWheelTimer(boolean create) {
+        HashedWheelTimer ret = wheelTimer.get();
+        if (ret == null && create) {
+            HashedWheelTimer newt = new HashedWheelTimer("RMManager-WheelTimer-" + System.identityHashCode(this),
+                                                         timerTickDuration, HashedWheelTimer.DEFAULT_WHEEL_SIZE);
+            if (!wheelTimer.compareAndSet(null, newt)) {
+                newt.stop();
+            }
+        }
+        return wheelTimer.get();
+    }
+
+    /**
+     * @return the timer used to schedule retransmissions and acknowledgements
+     */
+    public HashedWheelTimer getWheelTimer() {
+        return getWheelTimer(true);
+    }
+
+    /**
+     * Returns the work queue on which tasks expiring on the wheel timer send their messages, so
+     * that a slow send never holds up the timer. This is the bus work queue named "ws-rm", the
+     * default bus work queue if there is none, or a queue owned by this manager without a bus.
+     *
+     * @return the work queue for timer initiated sends
+     */
+    public Executor getTimerTaskExecutor() {
+        AutomaticWorkQueue ret = workQueue.get();
+        if (ret == null) {
+            WorkQueueManager mgr = bus == null ? null : bus.getExtension(WorkQueueManager.class);
+            if (mgr != null) {
+                ret = mgr.getNamedWorkQueue("ws-rm");
+                if (ret == null) {
+                    ret = mgr.getAutomaticWorkQueue();
+                }
+            }
+            if (ret == null) {
+                synchronized (this) {
+                    if (ownWorkQueue == null) {
+                        ownWorkQueue = new AutomaticWorkQueueImpl("ws-rm");
+                    }
+                    ret = ownWorkQueue;
+                }
+            }
+            workQueue.compareAndSet(null, ret);
+            ret = workQueue.get();
+        }
+        return ret;
+    }
+
+    public long getTimerTickDuration() {
+        return timerTickDuration;
+    }
+
+    /**
+     * @param d the resolution in milliseconds of the retransmission and acknowledgement timer
+     */
+    public void setTimerTickDuration(long d) {
+        timerTickDuration = d;
+    }
+
     public BindingFaultFactory getBindingFaultFactory(Binding binding) {
         return new SoapFaultFactory(binding);
     }
@@ -509,6 +578,17 @@ public class RMManager {
             t.purge();
             t.cancel();
         }
+        HashedWheelTimer wt = getWheelTimer(false);
+        if (wt != null) {
+            wt.stop();
+        }
+        synchronized (this) {
+            if (ownWorkQueue != null) {
+                ownWorkQueue.shutdown(false);
+                ownWorkQueue = null;
+                workQueue.set(null);
+            }
+        }
 
         // unregistring of this managed bean from the server is done by the bus itself
     }
@@ -0,0 +1,1015 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.apache.cxf.common.i18n.Message;
+import org.apache.cxf.common.injection.NoJSR250Annotations;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.helpers.LoadingByteArrayOutputStream;
+import org.apache.cxf.ws.rm.DestinationSequence;
+import org.apache.cxf.ws.rm.ProtocolVariation;
+import org.apache.cxf.ws.rm.RMUtils;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.PersistenceUtils;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.persistence.RMStore;
+import org.apache.cxf.ws.rm.persistence.RMStoreException;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+import org.apache.cxf.ws.rm.v200702.SequenceAcknowledgement;
+
+/**
+ * An append-only, log-structured <code>RMStore</code>. Every update is appended as a checksummed record
+ * to the current segment file in the store directory. Sequence records always carry the complete
+ * sequence state, removals are written as tombstones. On <code>init()</code> the segments are replayed
+ * in order to rebuild the in-memory index; a torn record at the end of the last segment is truncated,
+ * while a damaged record in any older segment fails the initialization.
+ * <p>
+ * A background task compacts the oldest segments by re-appending their live records to the
+ * current segment and deleting them once less than <code>compactionThreshold</code> of their
+ * content is still live. When and how the log is forced to disk is controlled by the
+ * <code>syncPolicy</code>.
+ */
+@NoJSR250Annotations
+public class RMFileStore implements RMStore {
+
+    public enum SyncPolicy {
+        /** Force the log to disk before an update returns. */
+        ALWAYS,
+        /** Force the log to disk every <code>syncInterval</code> milliseconds. */
+        INTERVAL,
+        /** Leave it to the operating system. */
+        NEVER
+    }
+
+    public static final String DEFAULT_DIRECTORY = "rmstore";
+
+    private static final Logger LOG = LogUtils.getL7dLogger(RMFileStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_LENGTH = 8;
+
+    private static final byte SRC_SEQUENCE = 1;
+    private static final byte DEST_SEQUENCE = 2;
+    private static final byte REMOVE_SRC_SEQUENCE = 3;
+    private static final byte REMOVE_DEST_SEQUENCE = 4;
+    private static final byte MESSAGE = 5;
+    private static final byte REMOVE_MESSAGES = 6;
+
+    private String directory = DEFAULT_DIRECTORY;
+    private long segmentSize = 16 * 1024 * 1024;
+    private SyncPolicy syncPolicy = SyncPolicy.ALWAYS;
+    private long syncInterval = 100L;
+    private double compactionThreshold = 0.5;
+    private long compactionInterval = 10000L;
+
+    private File dir;
+    private final SortedMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment current;
+    private boolean dirty;
+
+    private final Map<String, SourceRecord> sourceSequences = new HashMap<String, SourceRecord>();
+    private final Map<String, DestinationRecord> destinationSequences = new HashMap<String, DestinationRecord>();
+    private final Map<String, SortedMap<Long, Location>> outboundMessages
+        = new HashMap<String, SortedMap<Long, Location>>();
+    private final Map<String, SortedMap<Long, Location>> inboundMessages
+        = new HashMap<String, SortedMap<Long, Location>>();
+
+    private ScheduledExecutorService scheduler;
+
+    public RMFileStore() {
+    }
+
+    // configuration
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(long segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    public void setSyncPolicy(SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+    }
+
+    public long getSyncInterval() {
+        return syncInterval;
+    }
+
+    public void setSyncInterval(long syncInterval) {
+        this.syncInterval = syncInterval;
+    }
+
+    public double getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public void setCompactionThreshold(double compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public long getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(long compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    // lifecycle
+
+    public synchronized void init() {
+        dir = new File(directory);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new RMStoreException(new Message("CREATE_DIRECTORY_FAILED_MSG", LOG, dir));
+        }
+        try {
+            recover();
+            if (current == null) {
+                current = openSegment(1);
+            }
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "RMFileStore " + dir.getName());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        if (syncPolicy == SyncPolicy.INTERVAL) {
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        sync();
+                    } catch (RMStoreException ex) {
+                        LogUtils.log(LOG, Level.SEVERE, "SYNC_FAILED_MSG", ex);
+                    }
+                }
+            }, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        }
+        if (compactionInterval > 0) {
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    try {
+                        compact();
+                    } catch (Throwable t) {
+                        LogUtils.log(LOG, Level.WARNING, "COMPACTION_FAILED_MSG", t);
+                    }
+                }
+            }, compactionInterval, compactionInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        synchronized (this) {
+            try {
+                if (current != null && syncPolicy != SyncPolicy.NEVER) {
+                    current.force();
+                }
+            } catch (IOException ex) {
+                // ignore
+            }
+            for (Segment s : segments.values()) {
+                s.close();
+            }
+            segments.clear();
+            current = null;
+        }
+    }
+
+    // RMStore interface
+
+    public synchronized void createSourceSequence(SourceSequence seq) {
+        String id = seq.getIdentifier().getValue();
+        if (sourceSequences.containsKey(id)) {
+            throw new RMStoreException(new Message("SEQUENCE_EXISTS_MSG", LOG, id));
+        }
+        SourceRecord rec = new SourceRecord();
+        rec.id = id;
+        Date expiry = seq.getExpires();
+        rec.expiry = expiry == null ? 0 : expiry.getTime();
+        Identifier osid = seq.getOfferingSequenceIdentifier();
+        rec.offeringId = osid == null ? null : osid.getValue();
+        rec.endpointId = seq.getEndpointIdentifier();
+        rec.protocol = seq.getProtocol();
+        rec.currentMessageNr = 1;
+        sourceSequences.put(id, rec);
+        writeSourceSequence(rec);
+        flush();
+    }
+
+    public synchronized void createDestinationSequence(DestinationSequence seq) {
+        String id = seq.getIdentifier().getValue();
+        if (destinationSequences.containsKey(id)) {
+            throw new RMStoreException(new Message("SEQUENCE_EXISTS_MSG", LOG, id));
+        }
+        DestinationRecord rec = new DestinationRecord();
+        rec.id = id;
+        rec.acksTo = seq.getAcksTo().getAddress().getValue();
+        rec.endpointId = seq.getEndpointIdentifier();
+        rec.protocol = seq.getProtocol();
+        destinationSequences.put(id, rec);
+        writeDestinationSequence(rec);
+        flush();
+    }
+
+    public synchronized SourceSequence getSourceSequence(Identifier sid) {
+        SourceRecord rec = sourceSequences.get(sid.getValue());
+        return rec == null ? null : rec.toSequence(sid);
+    }
+
+    public synchronized DestinationSequence getDestinationSequence(Identifier sid) {
+        DestinationRecord rec = destinationSequences.get(sid.getValue());
+        return rec == null ? null : rec.toSequence(sid);
+    }
+
+    public synchronized void removeSourceSequence(Identifier sid) {
+        SourceRecord rec = sourceSequences.remove(sid.getValue());
+        if (rec != null) {
+            release(rec.location);
+            // tombstones are never live, they only matter until the older segments are compacted
+            release(append(REMOVE_SRC_SEQUENCE, encodeId(sid.getValue())));
+            flush();
+        }
+    }
+
+    public synchronized void removeDestinationSequence(Identifier sid) {
+        DestinationRecord rec = destinationSequences.remove(sid.getValue());
+        if (rec != null) {
+            release(rec.location);
+            // tombstones are never live, they only matter until the older segments are compacted
+            release(append(REMOVE_DEST_SEQUENCE, encodeId(sid.getValue())));
+            flush();
+        }
+    }
+
+    public synchronized Collection<SourceSequence> getSourceSequences(String endpointIdentifier) {
+        Collection<SourceSequence> seqs = new ArrayList<SourceSequence>();
+        for (SourceRecord rec : sourceSequences.values()) {
+            if (endpointIdentifier.equals(rec.endpointId)) {
+                Identifier sid = new Identifier();
+                sid.setValue(rec.id);
+                seqs.add(rec.toSequence(sid));
+            }
+        }
+        return seqs;
+    }
+
+    public synchronized Collection<DestinationSequence> getDestinationSequences(String endpointIdentifier) {
+        Collection<DestinationSequence> seqs = new ArrayList<DestinationSequence>();
+        for (DestinationRecord rec : destinationSequences.values()) {
+            if (endpointIdentifier.equals(rec.endpointId)) {
+                Identifier sid = new Identifier();
+                sid.setValue(rec.id);
+                seqs.add(rec.toSequence(sid));
+            }
+        }
+        return seqs;
+    }
+
+    public synchronized Collection<RMMessage> getMessages(Identifier sid, boolean outbound) {
+        Collection<RMMessage> msgs = new ArrayList<RMMessage>();
+        SortedMap<Long, Location> locations = getMessageIndex(outbound).get(sid.getValue());
+        if (locations == null) {
+            return msgs;
+        }
+        try {
+            for (Location loc : locations.values()) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(read(loc)));
+                in.readByte();
+                in.readBoolean();
+                in.readUTF();
+                RMMessage msg = new RMMessage();
+                msg.setMessageNumber(in.readLong());
+                msg.setTo(readString(in));
+                msg.setContent(new ByteArrayInputStream(readBytes(in)));
+                int count = in.readInt();
+                List<InputStream> attachments = new ArrayList<InputStream>(count);
+                for (int i = 0; i < count; i++) {
+                    attachments.add(new ByteArrayInputStream(readBytes(in)));
+                }
+                msg.setAttachments(attachments);
+                msgs.add(msg);
+            }
+        } catch (IOException ex) {
+            LogUtils.log(LOG, Level.WARNING, outbound ? "SELECT_OUTBOUND_MSGS_FAILED_MSG"
+                : "SELECT_INBOUND_MSGS_FAILED_MSG", ex);
+        }
+        return msgs;
+    }
+
+    public synchronized void persistOutgoing(SourceSequence seq, RMMessage msg) {
+        SourceRecord rec = sourceSequences.get(seq.getIdentifier().getValue());
+        if (rec != null) {
+            rec.currentMessageNr = seq.getCurrentMessageNr();
+            rec.lastMessage = seq.isLastMessage();
+            writeSourceSequence(rec);
+        }
+        if (msg != null && msg.getContent() != null) {
+            writeMessage(seq.getIdentifier().getValue(), msg, true);
+        }
+        flush();
+    }
+
+    public synchronized void persistIncoming(DestinationSequence seq, RMMessage msg) {
+        DestinationRecord rec = destinationSequences.get(seq.getIdentifier().getValue());
+        if (rec != null) {
+            rec.lastMessageNr = seq.getLastMessageNumber();
+            try {
+                rec.acknowledgement = IOUtils.readBytesFromStream(
+                    PersistenceUtils.getInstance().serialiseAcknowledgment(seq.getAcknowledgment()));
+            } catch (IOException ex) {
+                throw new RMStoreException(ex);
+            }
+            writeDestinationSequence(rec);
+        }
+        if (msg != null && msg.getContent() != null) {
+            writeMessage(seq.getIdentifier().getValue(), msg, false);
+        }
+        flush();
+    }
+
+    public synchronized void removeMessages(Identifier sid, Collection<Long> messageNrs, boolean outbound) {
+        Map<String, SortedMap<Long, Location>> index = getMessageIndex(outbound);
+        SortedMap<Long, Location> locations = index.get(sid.getValue());
+        if (locations == null) {
+            return;
+        }
+        List<Long> removed = new ArrayList<Long>();
+        for (Long nr : messageNrs) {
+            Location loc = locations.remove(nr);
+            if (loc != null) {
+                release(loc);
+                removed.add(nr);
+            }
+        }
+        if (locations.isEmpty()) {
+            index.remove(sid.getValue());
+        }
+        if (!removed.isEmpty()) {
+            try {
+                LoadingByteArrayOutputStream bos = new LoadingByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bos);
+                out.writeBoolean(outbound);
+                out.writeUTF(sid.getValue());
+                out.writeInt(removed.size());
+                for (Long nr : removed) {
+                    out.writeLong(nr);
+                }
+                out.flush();
+                release(append(REMOVE_MESSAGES, bos.toByteArray()));
+            } catch (IOException ex) {
+                throw new RMStoreException(ex);
+            }
+            flush();
+        }
+    }
+
+    // log maintenance
+
+    /**
+     * Forces the current segment to disk if there are unsynchronized appends.
+     */
+    public synchronized void sync() {
+        if (dirty && current != null) {
+            try {
+                current.force();
+                dirty = false;
+            } catch (IOException ex) {
+                throw new RMStoreException(ex);
+            }
+        }
+    }
+
+    /**
+     * Compacts the oldest segments. A segment is only ever compacted once all older segments are gone,
+     * so the tombstones it contains can be dropped along with it.
+     */
+    public synchronized void compact() {
+        while (segments.size() > 1) {
+            Segment oldest = segments.get(segments.firstKey());
+            if (oldest == current || oldest.liveBytes > oldest.size * compactionThreshold) {
+                break;
+            }
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Compacting segment " + oldest.file + " (" + oldest.liveBytes + " of "
+                         + oldest.size + " bytes live)");
+            }
+            for (SourceRecord rec : sourceSequences.values()) {
+                if (rec.location.segment == oldest) {
+                    writeSourceSequence(rec);
+                }
+            }
+            for (DestinationRecord rec : destinationSequences.values()) {
+                if (rec.location.segment == oldest) {
+                    writeDestinationSequence(rec);
+                }
+            }
+            relocateMessages(oldest, outboundMessages);
+            relocateMessages(oldest, inboundMessages);
+            try {
+                // the relocated records must be durable before the old copies go away
+                current.force();
+                dirty = false;
+            } catch (IOException ex) {
+                throw new RMStoreException(ex);
+            }
+            segments.remove(oldest.number);
+            oldest.close();
+            if (!oldest.file.delete()) {
+                LOG.log(Level.WARNING, "DELETE_SEGMENT_FAILED_MSG", oldest.file);
+            }
+        }
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void relocateMessages(Segment segment, Map<String, SortedMap<Long, Location>> index) {
+        for (SortedMap<Long, Location> locations : index.values()) {
+            for (Map.Entry<Long, Location> entry : locations.entrySet()) {
+                if (entry.getValue().segment == segment) {
+                    try {
+                        byte[] body = read(entry.getValue());
+                        entry.setValue(appendRecord(body));
+                    } catch (IOException ex) {
+                        throw new RMStoreException(ex);
+                    }
+                }
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            String name = f.getName();
+            if (name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    long nr = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(nr, null);
+                } catch (NumberFormatException ex) {
+                    // not one of ours
+                }
+            }
+        }
+        List<Long> numbers = new ArrayList<Long>(segments.keySet());
+        for (int i = 0; i < numbers.size(); i++) {
+            Segment segment = openSegment(numbers.get(i));
+            replay(segment, i == numbers.size() - 1);
+            current = segment;
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Recovered " + sourceSequences.size() + " source and " + destinationSequences.size()
+                     + " destination sequences from " + segments.size() + " segments in " + dir);
+        }
+    }
+
+    /**
+     * Replays the records of a segment. Only the last segment can end in a record torn by a crash,
+     * the older ones were forced to disk before the log rolled over, so a bad record in one of them
+     * means the log is damaged and the records after it cannot be trusted.
+     */
+    private void replay(Segment segment, boolean last) throws IOException {
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        while (pos < segment.size) {
+            header.clear();
+            if (!segment.read(header, pos)) {
+                truncate(segment, pos, last);
+                return;
+            }
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || pos + HEADER_LENGTH + length > segment.size) {
+                truncate(segment, pos, last);
+                return;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            if (!segment.read(buf, pos + HEADER_LENGTH) || checksum(buf.array()) != crc) {
+                truncate(segment, pos, last);
+                return;
+            }
+            Location loc = new Location(segment, pos, HEADER_LENGTH + length);
+            segment.liveBytes += loc.length;
+            apply(buf.array(), loc);
+            pos += loc.length;
+        }
+    }
+
+    private void apply(byte[] body, Location loc) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+        case SRC_SEQUENCE: {
+            SourceRecord rec = new SourceRecord();
+            rec.id = in.readUTF();
+            rec.expiry = in.readLong();
+            rec.offeringId = readString(in);
+            rec.endpointId = readString(in);
+            rec.protocol = ProtocolVariation.findVariant(in.readUTF(), in.readUTF());
+            rec.currentMessageNr = in.readLong();
+            rec.lastMessage = in.readBoolean();
+            rec.location = loc;
+            SourceRecord old = sourceSequences.put(rec.id, rec);
+            if (old != null) {
+                release(old.location);
+            }
+            break;
+        }
+        case DEST_SEQUENCE: {
+            DestinationRecord rec = new DestinationRecord();
+            rec.id = in.readUTF();
+            rec.acksTo = in.readUTF();
+            rec.endpointId = readString(in);
+            rec.protocol = ProtocolVariation.findVariant(in.readUTF(), in.readUTF());
+            rec.lastMessageNr = in.readLong();
+            rec.acknowledgement = readBytes(in);
+            rec.location = loc;
+            DestinationRecord old = destinationSequences.put(rec.id, rec);
+            if (old != null) {
+                release(old.location);
+            }
+            break;
+        }
+        case REMOVE_SRC_SEQUENCE: {
+            SourceRecord old = sourceSequences.remove(in.readUTF());
+            if (old != null) {
+                release(old.location);
+            }
+            release(loc);
+            break;
+        }
+        case REMOVE_DEST_SEQUENCE: {
+            DestinationRecord old = destinationSequences.remove(in.readUTF());
+            if (old != null) {
+                release(old.location);
+            }
+            release(loc);
+            break;
+        }
+        case MESSAGE: {
+            boolean outbound = in.readBoolean();
+            String id = in.readUTF();
+            long nr = in.readLong();
+            Location old = getMessages(getMessageIndex(outbound), id).put(nr, loc);
+            if (old != null) {
+                release(old);
+            }
+            break;
+        }
+        case REMOVE_MESSAGES: {
+            boolean outbound = in.readBoolean();
+            String id = in.readUTF();
+            Map<String, SortedMap<Long, Location>> index = getMessageIndex(outbound);
+            SortedMap<Long, Location> locations = getMessages(index, id);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Location old = locations.remove(in.readLong());
+                if (old != null) {
+                    release(old);
+                }
+            }
+            if (locations.isEmpty()) {
+                index.remove(id);
+            }
+            release(loc);
+            break;
+        }
+        default:
+            throw new IOException("Unknown record type " + type + " in " + loc.segment.file);
+        }
+    }
+
+    private void truncate(Segment segment, long pos, boolean last) throws IOException {
+        if (!last) {
+            throw new RMStoreException(new Message("CORRUPT_SEGMENT_MSG", LOG, segment.file, pos));
+        }
+        LOG.log(Level.WARNING, "TRUNCATE_SEGMENT_MSG", new Object[] {segment.file, pos});
+        segment.truncate(pos);
+    }
+
+    private void writeSourceSequence(SourceRecord rec) {
+        try {
+            LoadingByteArrayOutputStream bos = new LoadingByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeUTF(rec.id);
+            out.writeLong(rec.expiry);
+            writeString(out, rec.offeringId);
+            writeString(out, rec.endpointId);
+            writeProtocol(out, rec.protocol);
+            out.writeLong(rec.currentMessageNr);
+            out.writeBoolean(rec.lastMessage);
+            out.flush();
+            Location old = rec.location;
+            rec.location = append(SRC_SEQUENCE, bos.toByteArray());
+            release(old);
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+    }
+
+    private void writeDestinationSequence(DestinationRecord rec) {
+        try {
+            LoadingByteArrayOutputStream bos = new LoadingByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeUTF(rec.id);
+            out.writeUTF(rec.acksTo);
+            writeString(out, rec.endpointId);
+            writeProtocol(out, rec.protocol);
+            out.writeLong(rec.lastMessageNr);
+            writeBytes(out, rec.acknowledgement);
+            out.flush();
+            Location old = rec.location;
+            rec.location = append(DEST_SEQUENCE, bos.toByteArray());
+            release(old);
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+    }
+
+    private void writeMessage(String id, RMMessage msg, boolean outbound) {
+        try {
+            LoadingByteArrayOutputStream bos = new LoadingByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeBoolean(outbound);
+            out.writeUTF(id);
+            out.writeLong(msg.getMessageNumber());
+            writeString(out, msg.getTo());
+            writeBytes(out, IOUtils.readBytesFromStream(msg.getContent()));
+            List<InputStream> attachments = msg.getAttachments();
+            out.writeInt(attachments.size());
+            for (InputStream is : attachments) {
+                writeBytes(out, IOUtils.readBytesFromStream(is));
+            }
+            out.flush();
+            Location loc = append(MESSAGE, bos.toByteArray());
+            Location old = getMessages(getMessageIndex(outbound), id).put(msg.getMessageNumber(), loc);
+            release(old);
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+    }
+
+    private Location append(byte type, byte[] payload) {
+        byte[] body = new byte[payload.length + 1];
+        body[0] = type;
+        System.arraycopy(payload, 0, body, 1, payload.length);
+        try {
+            return appendRecord(body);
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+    }
+
+    private Location appendRecord(byte[] body) throws IOException {
+        if (current.size > 0 && current.size + HEADER_LENGTH + body.length > segmentSize) {
+            roll();
+        }
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_LENGTH + body.length);
+        buf.putInt(body.length);
+        buf.putInt(checksum(body));
+        buf.put(body);
+        buf.flip();
+        long pos = current.size;
+        current.write(buf, pos);
+        Location loc = new Location(current, pos, HEADER_LENGTH + body.length);
+        current.size += loc.length;
+        current.liveBytes += loc.length;
+        dirty = true;
+        return loc;
+    }
+
+    private void roll() throws IOException {
+        if (syncPolicy != SyncPolicy.NEVER) {
+            current.force();
+            dirty = false;
+        }
+        current = openSegment(current.number + 1);
+    }
+
+    /**
+     * Applies the sync policy after an update.
+     */
+    private void flush() {
+        if (syncPolicy == SyncPolicy.ALWAYS) {
+            sync();
+        }
+    }
+
+    private Segment openSegment(long nr) throws IOException {
+        File f = new File(dir, String.format("%016d%s", nr, SEGMENT_SUFFIX));
+        Segment segment = new Segment(nr, f);
+        segments.put(nr, segment);
+        return segment;
+    }
+
+    private byte[] read(Location loc) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(loc.length - HEADER_LENGTH);
+        if (!loc.segment.read(buf, loc.position + HEADER_LENGTH)) {
+            throw new IOException("Unexpected end of " + loc.segment.file);
+        }
+        return buf.array();
+    }
+
+    private Map<String, SortedMap<Long, Location>> getMessageIndex(boolean outbound) {
+        return outbound ? outboundMessages : inboundMessages;
+    }
+
+    private static SortedMap<Long, Location> getMessages(Map<String, SortedMap<Long, Location>> index,
+                                                         String id) {
+        SortedMap<Long, Location> locations = index.get(id);
+        if (locations == null) {
+            locations = new TreeMap<Long, Location>();
+            index.put(id, locations);
+        }
+        return locations;
+    }
+
+    private static void release(Location loc) {
+        if (loc != null) {
+            loc.segment.liveBytes -= loc.length;
+        }
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        return (int)crc.getValue();
+    }
+
+    private static byte[] encodeId(String id) {
+        try {
+            LoadingByteArrayOutputStream bos = new LoadingByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeUTF(id);
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+    }
+
+    private static void writeProtocol(DataOutputStream out, ProtocolVariation pv) throws IOException {
+        out.writeUTF(pv.getCodec().getWSRMNamespace());
+        out.writeUTF(pv.getCodec().getWSANamespace());
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * A log file. A thread interrupted in the middle of a channel operation closes the channel
+     * for every thread, so the file is reopened and the operation repeated with the interrupt
+     * held back until it completes: a record must not be left half written.
+     */
+    private static final class Segment {
+        final long number;
+        final File file;
+        RandomAccessFile raf;
+        FileChannel channel;
+        long size;
+        long liveBytes;
+        boolean closed;
+
+        Segment(long number, File file) throws IOException {
+            this.number = number;
+            this.file = file;
+            open();
+            size = channel.size();
+        }
+
+        boolean read(final ByteBuffer buf, final long pos) throws IOException {
+            return execute(new ChannelTask<Boolean>() {
+                Boolean run(FileChannel ch) throws IOException {
+                    buf.clear();
+                    while (buf.hasRemaining()) {
+                        if (ch.read(buf, pos + buf.position()) < 0) {
+                            return Boolean.FALSE;
+                        }
+                    }
+                    return Boolean.TRUE;
+                }
+            });
+        }
+
+        void write(final ByteBuffer buf, final long pos) throws IOException {
+            execute(new ChannelTask<Void>() {
+                Void run(FileChannel ch) throws IOException {
+                    buf.rewind();
+                    while (buf.hasRemaining()) {
+                        ch.write(buf, pos + buf.position());
+                    }
+                    return null;
+                }
+            });
+        }
+
+        void force() throws IOException {
+            execute(new ChannelTask<Void>() {
+                Void run(FileChannel ch) throws IOException {
+                    ch.force(false);
+                    return null;
+                }
+            });
+        }
+
+        void truncate(final long pos) throws IOException {
+            execute(new ChannelTask<Void>() {
+                Void run(FileChannel ch) throws IOException {
+                    ch.truncate(pos);
+                    return null;
+                }
+            });
+            size = pos;
+        }
+
+        void close() {
+            closed = true;
+            try {
+                raf.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+
+        private <T> T execute(ChannelTask<T> task) throws IOException {
+            try {
+                return task.run(channel);
+            } catch (ClosedChannelException ex) {
+                if (closed) {
+                    throw ex;
+                }
+                boolean interrupted = Thread.interrupted();
+                try {
+                    LOG.log(Level.FINE, "REOPEN_SEGMENT_MSG", file);
+                    close();
+                    open();
+                    return task.run(channel);
+                } finally {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        private void open() throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            closed = false;
+        }
+    }
+
+    private abstract static class ChannelTask<T> {
+        abstract T run(FileChannel channel) throws IOException;
+    }
+
+    private static final class Location {
+        final Segment segment;
+        final long position;
+        final int length;
+
+        Location(Segment segment, long position, int length) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private static final class SourceRecord {
+        String id;
+        long expiry;
+        String offeringId;
+        String endpointId;
+        ProtocolVariation protocol;
+        long currentMessageNr;
+        boolean lastMessage;
+        Location location;
+
+        SourceSequence toSequence(Identifier sid) {
+            Identifier oi = null;
+            if (offeringId != null) {
+                oi = RMUtils.getWSRMFactory().createIdentifier();
+                oi.setValue(offeringId);
+            }
+            return new SourceSequence(sid, expiry == 0 ? null : new Date(expiry), oi,
+                                      currentMessageNr, lastMessage, protocol);
+        }
+    }
+
+    private static final class DestinationRecord {
+        String id;
+        String acksTo;
+        String endpointId;
+        ProtocolVariation protocol;
+        long lastMessageNr;
+        byte[] acknowledgement;
+        Location location;
+
+        DestinationSequence toSequence(Identifier sid) {
+            SequenceAcknowledgement ack = null;
+            if (acknowledgement != null) {
+                ack = PersistenceUtils.getInstance()
+                    .deserialiseAcknowledgment(new ByteArrayInputStream(acknowledgement));
+            }
+            return new DestinationSequence(sid, RMUtils.createReference(acksTo), lastMessageNr, ack, protocol);
+        }
+    }
+}
@@ -346,18 +346,12 @@ public class RMTxStore implements RMStore {
                  + endpointIdentifier + ")");
         }
         Connection con = verifyConnection();
-        PreparedStatement stmt = null;
         SQLException conex = null;
         try {
             beginTransaction();
-            stmt = getStatement(con, CREATE_DEST_SEQUENCE_STMT_STR); 
             
-            stmt.setString(1, sequenceIdentifier);
-            String addr = seq.getAcksTo().getAddress().getValue();
-            stmt.setString(2, addr);
-            stmt.setString(3, endpointIdentifier);
-            stmt.setString(4, protocolVersion);
-            stmt.execute();
+            createDestinationSequence(con, sequenceIdentifier, seq.getAcksTo().getAddress().getValue(),
+                                      endpointIdentifier, protocolVersion);
             
             commit(con);
         } catch (SQLException ex) {
@@ -365,7 +359,6 @@ public class RMTxStore implements RMStore {
             conex = ex;
             throw new RMStoreException(ex);
         } finally {
-            releaseResources(stmt, null);
             updateConnectionState(con, conex);
         }
     }
@@ -378,22 +371,15 @@ public class RMTxStore implements RMStore {
             LOG.fine("Creating source sequence: " + sequenceIdentifier + ", (endpoint: "
                      + endpointIdentifier + ")"); 
         }
+        Date expiry = seq.getExpires();
+        Identifier osid = seq.getOfferingSequenceIdentifier();
         Connection con = verifyConnection();
-        PreparedStatement stmt = null;
         SQLException conex = null;
         try {
             beginTransaction();
             
-            stmt = getStatement(con, CREATE_SRC_SEQUENCE_STMT_STR);
-            
-            stmt.setString(1, sequenceIdentifier);
-            Date expiry = seq.getExpires();
-            stmt.setLong(2, expiry == null ? 0 : expiry.getTime());
-            Identifier osid = seq.getOfferingSequenceIdentifier();
-            stmt.setString(3, osid == null ? null : osid.getValue());
-            stmt.setString(4, endpointIdentifier);
-            stmt.setString(5, protocolVersion);
-            stmt.execute();    
+            createSourceSequence(con, sequenceIdentifier, expiry == null ? 0 : expiry.getTime(),
+                                 osid == null ? null : osid.getValue(), endpointIdentifier, protocolVersion);
             
             commit(con);
         } catch (SQLException ex) {
@@ -401,7 +387,6 @@ public class RMTxStore implements RMStore {
             abort(con);
             throw new RMStoreException(ex);
         } finally {
-            releaseResources(stmt, null);
             updateConnectionState(con, conex);
         }
     }
@@ -483,15 +468,11 @@ public class RMTxStore implements RMStore {
 
     public void removeDestinationSequence(Identifier sid) {
         Connection con = verifyConnection();
-        PreparedStatement stmt = null;
         SQLException conex = null;
         try {
             beginTransaction();
             
-            stmt = getStatement(con, DELETE_DEST_SEQUENCE_STMT_STR);
-
-            stmt.setString(1, sid.getValue());
-            stmt.execute();
+            removeDestinationSequence(con, sid.getValue());
             
             commit(con);
             
@@ -500,7 +481,6 @@ public class RMTxStore implements RMStore {
             abort(con);
             throw new RMStoreException(ex);
         } finally {
-            releaseResources(stmt, null);
             updateConnectionState(con, conex);
         }
     }
@@ -508,15 +488,11 @@ public class RMTxStore implements RMStore {
     
     public void removeSourceSequence(Identifier sid) {
         Connection con = verifyConnection();
-        PreparedStatement stmt = null;
         SQLException conex = null;
         try {
             beginTransaction();
             
-            stmt = getStatement(con, DELETE_SRC_SEQUENCE_STMT_STR);
-
-            stmt.setString(1, sid.getValue());
-            stmt.execute();
+            removeSourceSequence(con, sid.getValue());
             
             commit(con);
             
@@ -525,7 +501,6 @@ public class RMTxStore implements RMStore {
             abort(con);
             throw new RMStoreException(ex);
         } finally {
-            releaseResources(stmt, null);
             updateConnectionState(con, conex);
         }        
     }
@@ -709,25 +684,11 @@ public class RMTxStore implements RMStore {
     
     public void removeMessages(Identifier sid, Collection<Long> messageNrs, boolean outbound) {
         Connection con = verifyConnection();
-        PreparedStatement stmt1 = null;
-        PreparedStatement stmt2 = null;
         SQLException conex = null;
         try {
-            stmt1 = getStatement(con, outbound ? DELETE_OUTBOUND_MESSAGE_STMT_STR : DELETE_INBOUND_MESSAGE_STMT_STR);
-            stmt2 = getStatement(con, outbound
-                ? DELETE_OUTBOUND_ATTACHMENTS_STMT_STR : DELETE_INBOUND_ATTACHMENTS_STMT_STR);
-
             beginTransaction();
 
-            stmt1.setString(1, sid.getValue());
-            stmt2.setString(1, sid.getValue());
-                        
-            for (Long messageNr : messageNrs) {
-                stmt2.setLong(2, messageNr);
-                stmt2.execute();
-                stmt1.setLong(2, messageNr);
-                stmt1.execute();
-            }
+            removeMessages(con, sid.getValue(), messageNrs, outbound);
             
             commit(con);
             
@@ -736,8 +697,6 @@ public class RMTxStore implements RMStore {
             abort(con);
             throw new RMStoreException(ex);
         } finally {
-            releaseResources(stmt2, null);
-            releaseResources(stmt1, null);
             updateConnectionState(con, conex);
         }
     }
@@ -774,6 +733,87 @@ public class RMTxStore implements RMStore {
     
     // helpers
     
+    protected void createSourceSequence(Connection con, String sid, long expiry, String offeringSid,
+                                        String endpointIdentifier, String protocolVersion)
+        throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = getStatement(con, CREATE_SRC_SEQUENCE_STMT_STR);
+            
+            stmt.setString(1, sid);
+            stmt.setLong(2, expiry);
+            stmt.setString(3, offeringSid);
+            stmt.setString(4, endpointIdentifier);
+            stmt.setString(5, protocolVersion);
+            stmt.execute();
+        } finally {
+            releaseResources(stmt, null);
+        }
+    }
+    
+    protected void createDestinationSequence(Connection con, String sid, String acksTo,
+                                             String endpointIdentifier, String protocolVersion)
+        throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = getStatement(con, CREATE_DEST_SEQUENCE_STMT_STR); 
+            
+            stmt.setString(1, sid);
+            stmt.setString(2, acksTo);
+            stmt.setString(3, endpointIdentifier);
+            stmt.setString(4, protocolVersion);
+            stmt.execute();
+        } finally {
+            releaseResources(stmt, null);
+        }
+    }
+    
+    protected void removeSourceSequence(Connection con, String sid) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = getStatement(con, DELETE_SRC_SEQUENCE_STMT_STR);
+            stmt.setString(1, sid);
+            stmt.execute();
+        } finally {
+            releaseResources(stmt, null);
+        }
+    }
+    
+    protected void removeDestinationSequence(Connection con, String sid) throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = getStatement(con, DELETE_DEST_SEQUENCE_STMT_STR);
+            stmt.setString(1, sid);
+            stmt.execute();
+        } finally {
+            releaseResources(stmt, null);
+        }
+    }
+    
+    protected void removeMessages(Connection con, String sid, Collection<Long> messageNrs, boolean outbound)
+        throws SQLException {
+        PreparedStatement stmt1 = null;
+        PreparedStatement stmt2 = null;
+        try {
+            stmt1 = getStatement(con, outbound ? DELETE_OUTBOUND_MESSAGE_STMT_STR : DELETE_INBOUND_MESSAGE_STMT_STR);
+            stmt2 = getStatement(con, outbound
+                ? DELETE_OUTBOUND_ATTACHMENTS_STMT_STR : DELETE_INBOUND_ATTACHMENTS_STMT_STR);
+
+            stmt1.setString(1, sid);
+            stmt2.setString(1, sid);
+                        
+            for (Long messageNr : messageNrs) {
+                stmt2.setLong(2, messageNr);
+                stmt2.execute();
+                stmt1.setLong(2, messageNr);
+                stmt1.execute();
+            }
+        } finally {
+            releaseResources(stmt2, null);
+            releaseResources(stmt1, null);
+        }
+    }
+    
     protected void storeMessage(Connection con, Identifier sid, RMMessage msg, boolean outbound)         
         throws IOException, SQLException {
         String id = sid.getValue();
@@ -833,13 +873,19 @@ public class RMTxStore implements RMStore {
     
     protected void updateSourceSequence(Connection con, SourceSequence seq) 
         throws SQLException {
+        updateSourceSequence(con, seq.getIdentifier().getValue(), seq.getCurrentMessageNr(), 
+                             seq.isLastMessage());
+    }
+    
+    protected void updateSourceSequence(Connection con, String sid, long currentMessageNr, 
+                                        boolean lastMessage) throws SQLException {
         PreparedStatement stmt = null;
         try {
             stmt = getStatement(con, UPDATE_SRC_SEQUENCE_STMT_STR);
             
-            stmt.setLong(1, seq.getCurrentMessageNr()); 
-            stmt.setString(2, seq.isLastMessage() ? "1" : "0"); 
-            stmt.setString(3, seq.getIdentifier().getValue());
+            stmt.setLong(1, currentMessageNr); 
+            stmt.setString(2, lastMessage ? "1" : "0"); 
+            stmt.setString(3, sid);
             stmt.execute();
         } finally {
             releaseResources(stmt, null);
@@ -855,15 +901,20 @@ public class RMTxStore implements RMStore {
     
     protected void updateDestinationSequence(Connection con, DestinationSequence seq) 
         throws SQLException, IOException {
+        InputStream is = PersistenceUtils.getInstance().serialiseAcknowledgment(seq.getAcknowledgment());
+        updateDestinationSequence(con, seq.getIdentifier().getValue(), seq.getLastMessageNumber(), is);
+    }
+    
+    protected void updateDestinationSequence(Connection con, String sid, long lastMessageNr, 
+                                             InputStream acknowledgment) 
+        throws SQLException, IOException {
         PreparedStatement stmt = null;
         try {
             stmt = getStatement(con, UPDATE_DEST_SEQUENCE_STMT_STR);
 
-            long lastMessageNr = seq.getLastMessageNumber();
             stmt.setLong(1, lastMessageNr); 
-            InputStream is = PersistenceUtils.getInstance().serialiseAcknowledgment(seq.getAcknowledgment());
-            stmt.setBinaryStream(2, is, is.available()); 
-            stmt.setString(3, seq.getIdentifier().getValue());
+            stmt.setBinaryStream(2, acknowledgment, acknowledgment.available()); 
+            stmt.setString(3, sid);
             stmt.execute();
         } finally {
             releaseResources(stmt, null);
@@ -1216,11 +1267,9 @@ public class RMTxStore implements RMStore {
                 if (createdConnection && nextReconnectAttempt > 0
                     && (maxReconnectAttempts < 0 || maxReconnectAttempts > reconnectAttempts)) {
                     if (System.currentTimeMillis() > nextReconnectAttempt) {
-                        // destroy the broken connection
-                        destroy();
-                        // try to reconnect
+                        // destroy the broken connection and try to reconnect
                         reconnectAttempts++;
-                        init();
+                        reconnect();
                         // reset the next reconnect attempt time
                         nextReconnectAttempt = 0;
                     } else {
@@ -1234,6 +1283,14 @@ public class RMTxStore implements RMStore {
         return con;
     }
 
+    /**
+     * Replaces the broken cached connection with a new one. Called with this store locked.
+     */
+    protected void reconnect() {
+        destroy();
+        init();
+    }
+
     protected void updateConnectionState(Connection con, SQLException e) {
         if (connection == null) {
             // close the locally created connection
@@ -0,0 +1,478 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.injection.NoJSR250Annotations;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.ws.rm.DestinationSequence;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.PersistenceUtils;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.persistence.RMStoreException;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+
+/**
+ * An <code>RMTxStore</code> that performs its updates on a dedicated writer thread. Sequence creations,
+ * acknowledgement updates, message inserts and removals are queued in the order they are issued and
+ * applied in group commits of up to <code>maxBatchSize</code> operations, so that a single transaction
+ * (and a single log force on the database side) covers many messages.
+ * <p>
+ * If <code>waitForCommit</code> is true (the default), the calling thread is blocked until the batch
+ * containing its operation has been committed, giving the same durability guarantee as
+ * <code>RMTxStore</code> while amortizing the commit cost across concurrent callers. Otherwise
+ * the caller returns immediately, the writer collects operations for up to <code>maxBatchDelay</code>
+ * milliseconds and an update is durable within that bounded delay plus the commit time.
+ * <p>
+ * With <code>keepConnection</code> set to false and a pooling <code>DataSource</code>, the writer takes
+ * one connection from the pool per batch while readers use their own pooled connections.
+ * Reads first wait for all previously queued updates to be committed.
+ */
+@NoJSR250Annotations
+public class WriteBehindRMTxStore extends RMTxStore {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(WriteBehindRMTxStore.class);
+
+    private int maxBatchSize = 100;
+    private long maxBatchDelay = 5L;
+    private int maxQueueSize = 10000;
+    private boolean waitForCommit = true;
+
+    private BlockingQueue<Operation> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    public WriteBehindRMTxStore() {
+    }
+
+    // configuration
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxBatchDelay() {
+        return maxBatchDelay;
+    }
+
+    public void setMaxBatchDelay(long maxBatchDelay) {
+        this.maxBatchDelay = maxBatchDelay;
+    }
+
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public boolean isWaitForCommit() {
+        return waitForCommit;
+    }
+
+    public void setWaitForCommit(boolean waitForCommit) {
+        this.waitForCommit = waitForCommit;
+    }
+
+    // lifecycle
+
+    @Override
+    public synchronized void init() {
+        super.init();
+        if (writer == null) {
+            queue = new LinkedBlockingQueue<Operation>(maxQueueSize);
+            running = true;
+            writer = new Thread(new Runnable() {
+                public void run() {
+                    processQueue();
+                }
+            }, "RMStore writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Thread t = null;
+        synchronized (this) {
+            t = writer;
+            writer = null;
+            running = false;
+        }
+        if (t != null) {
+            // wake up the writer, it commits what is still queued before it exits
+            queue.offer(new Operation());
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.destroy();
+    }
+
+    /**
+     * Only reopens the connection. This may run on the writer thread or on a reader holding
+     * the store lock, so the writer and the updates it has queued are left alone.
+     */
+    @Override
+    protected void reconnect() {
+        super.destroy();
+        super.init();
+    }
+
+    /**
+     * Blocks until all updates queued before this call have been committed.
+     */
+    public void flush() {
+        if (writer == null || Thread.currentThread() == writer) {
+            return;
+        }
+        Operation op = new Operation();
+        enqueue(op);
+        op.await();
+    }
+
+    // RMStore interface
+
+    @Override
+    public void createSourceSequence(SourceSequence seq) {
+        final String sid = seq.getIdentifier().getValue();
+        final String endpointIdentifier = seq.getEndpointIdentifier();
+        final String protocolVersion = encodeProtocolVersion(seq.getProtocol());
+        Date exp = seq.getExpires();
+        final long expiry = exp == null ? 0 : exp.getTime();
+        Identifier osid = seq.getOfferingSequenceIdentifier();
+        final String offeringSid = osid == null ? null : osid.getValue();
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException {
+                createSourceSequence(con, sid, expiry, offeringSid, endpointIdentifier, protocolVersion);
+            }
+        });
+    }
+
+    @Override
+    public void createDestinationSequence(DestinationSequence seq) {
+        final String sid = seq.getIdentifier().getValue();
+        final String endpointIdentifier = seq.getEndpointIdentifier();
+        final String protocolVersion = encodeProtocolVersion(seq.getProtocol());
+        final String acksTo = seq.getAcksTo().getAddress().getValue();
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException {
+                createDestinationSequence(con, sid, acksTo, endpointIdentifier, protocolVersion);
+            }
+        });
+    }
+
+    @Override
+    public void removeSourceSequence(Identifier seq) {
+        final String sid = seq.getValue();
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException {
+                removeSourceSequence(con, sid);
+            }
+        });
+    }
+
+    @Override
+    public void removeDestinationSequence(Identifier seq) {
+        final String sid = seq.getValue();
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException {
+                removeDestinationSequence(con, sid);
+            }
+        });
+    }
+
+    @Override
+    public void persistOutgoing(SourceSequence seq, RMMessage msg) {
+        final String sid = seq.getIdentifier().getValue();
+        final long currentMessageNr = seq.getCurrentMessageNr();
+        final boolean lastMessage = seq.isLastMessage();
+        final RMMessage copy = copyMessage(msg);
+        final Identifier identifier = seq.getIdentifier();
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException, IOException {
+                updateSourceSequence(con, sid, currentMessageNr, lastMessage);
+                if (copy != null) {
+                    storeMessage(con, identifier, copy, true);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void persistIncoming(DestinationSequence seq, RMMessage msg) {
+        final String sid = seq.getIdentifier().getValue();
+        final long lastMessageNr = seq.getLastMessageNumber();
+        final byte[] ack;
+        try {
+            ack = IOUtils.readBytesFromStream(
+                PersistenceUtils.getInstance().serialiseAcknowledgment(seq.getAcknowledgment()));
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+        final RMMessage copy = copyMessage(msg);
+        final Identifier identifier = seq.getIdentifier();
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException, IOException {
+                updateDestinationSequence(con, sid, lastMessageNr, new ByteArrayInputStream(ack));
+                if (copy != null) {
+                    storeMessage(con, identifier, copy, false);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void removeMessages(Identifier sid, Collection<Long> messageNrs, final boolean outbound) {
+        final String id = sid.getValue();
+        final List<Long> nrs = new ArrayList<Long>(messageNrs);
+        submit(new Operation() {
+            void execute(Connection con) throws SQLException {
+                removeMessages(con, id, nrs, outbound);
+            }
+        });
+    }
+
+    @Override
+    public SourceSequence getSourceSequence(Identifier sid) {
+        flush();
+        return super.getSourceSequence(sid);
+    }
+
+    @Override
+    public DestinationSequence getDestinationSequence(Identifier sid) {
+        flush();
+        return super.getDestinationSequence(sid);
+    }
+
+    @Override
+    public Collection<SourceSequence> getSourceSequences(String endpointIdentifier) {
+        flush();
+        return super.getSourceSequences(endpointIdentifier);
+    }
+
+    @Override
+    public Collection<DestinationSequence> getDestinationSequences(String endpointIdentifier) {
+        flush();
+        return super.getDestinationSequences(endpointIdentifier);
+    }
+
+    @Override
+    public Collection<RMMessage> getMessages(Identifier sid, boolean outbound) {
+        flush();
+        return super.getMessages(sid, outbound);
+    }
+
+    // writer
+
+    void processQueue() {
+        List<Operation> batch = new ArrayList<Operation>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Operation first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // callers blocked in a group commit should not linger, concurrent callers
+                // queue up while the previous batch is being committed anyway
+                long deadline = System.currentTimeMillis() + (waitForCommit ? 0 : maxBatchDelay);
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    Operation next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                executeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    void executeBatch(List<Operation> batch) {
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Committing batch of " + batch.size() + " store operations");
+        }
+        RMStoreException failure = execute(batch);
+        if (failure == null || batch.size() == 1) {
+            for (Operation op : batch) {
+                op.complete(failure);
+            }
+        } else {
+            // isolate the failing operation(s) so that the others still get persisted
+            for (Operation op : batch) {
+                op.complete(execute(Collections.singletonList(op)));
+            }
+        }
+    }
+
+    /**
+     * Applies the operations in a single transaction.
+     * @return null if the transaction was committed, otherwise the cause of the failure
+     */
+    RMStoreException execute(List<Operation> ops) {
+        Connection con = verifyConnection();
+        SQLException conex = null;
+        boolean autoCommit = false;
+        try {
+            autoCommit = con.getAutoCommit();
+            if (autoCommit) {
+                con.setAutoCommit(false);
+            }
+            beginTransaction();
+            for (Operation op : ops) {
+                op.execute(con);
+            }
+            commit(con);
+            return null;
+        } catch (SQLException ex) {
+            conex = ex;
+            abort(con);
+            return new RMStoreException(ex);
+        } catch (IOException ex) {
+            abort(con);
+            return new RMStoreException(ex);
+        } finally {
+            if (autoCommit) {
+                try {
+                    con.setAutoCommit(true);
+                } catch (SQLException ex) {
+                    // ignore
+                }
+            }
+            updateConnectionState(con, conex);
+        }
+    }
+
+    private void submit(Operation op) {
+        if (writer == null) {
+            // not initialized or already destroyed, fall back to a synchronous update
+            op.complete(execute(Collections.singletonList(op)));
+        } else {
+            enqueue(op);
+            if (!waitForCommit) {
+                return;
+            }
+        }
+        op.await();
+        if (op.failure != null) {
+            throw op.failure;
+        }
+    }
+
+    private void enqueue(Operation op) {
+        try {
+            queue.put(op);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RMStoreException(e);
+        }
+    }
+
+    private static RMMessage copyMessage(RMMessage msg) {
+        if (msg == null || msg.getContent() == null) {
+            return null;
+        }
+        RMMessage copy = new RMMessage();
+        copy.setMessageNumber(msg.getMessageNumber());
+        copy.setTo(msg.getTo());
+        try {
+            copy.setContent(new ByteArrayInputStream(IOUtils.readBytesFromStream(msg.getContent())));
+            List<InputStream> attachments = msg.getAttachments();
+            if (!attachments.isEmpty()) {
+                List<InputStream> copies = new ArrayList<InputStream>(attachments.size());
+                for (InputStream is : attachments) {
+                    copies.add(new ByteArrayInputStream(IOUtils.readBytesFromStream(is)));
+                }
+                copy.setAttachments(copies);
+            }
+        } catch (IOException ex) {
+            throw new RMStoreException(ex);
+        }
+        return copy;
+    }
+
+    /**
+     * A queued store update. All values it needs are captured on the calling thread
+     * as the sequence state keeps changing after the call returns. The base class itself
+     * is a no-op used to flush the queue.
+     */
+    class Operation {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile RMStoreException failure;
+
+        void execute(Connection con) throws SQLException, IOException {
+        }
+
+        void complete(RMStoreException ex) {
+            if (ex != null) {
+                failure = ex;
+                if (!waitForCommit) {
+                    // nobody is waiting for the outcome
+                    LogUtils.log(LOG, Level.SEVERE, "WRITE_BEHIND_FAILED_MSG", ex);
+                }
+            }
+            done.countDown();
+        }
+
+        void await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RMStoreException(e);
+            }
+        }
+    }
+}
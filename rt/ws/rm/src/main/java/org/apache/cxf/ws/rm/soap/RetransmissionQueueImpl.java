@@ -28,9 +28,11 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -78,6 +80,7 @@ import org.apache.cxf.ws.addressing.EndpointReferenceType;
 import org.apache.cxf.ws.addressing.soap.MAPCodec;
 import org.apache.cxf.ws.policy.AssertionInfo;
 import org.apache.cxf.ws.policy.builder.jaxb.JaxbAssertion;
+import org.apache.cxf.ws.rm.HashedWheelTimer;
 import org.apache.cxf.ws.rm.ProtocolVariation;
 import org.apache.cxf.ws.rm.RMCaptureOutInterceptor;
 import org.apache.cxf.ws.rm.RMConfiguration;
@@ -99,20 +102,25 @@ import org.apache.cxf.ws.rm.v200702.SequenceType;
 import org.apache.cxf.ws.rmp.v200502.RMAssertion;
 
 /**
- * 
+ * Keeps the unacknowledged messages of all source sequences and resends them.
+ * <p>
+ * The candidates of a sequence are guarded by the lock of their list, so that
+ * sequences do not contend with each other. A list is only ever moved between the
+ * active and the suspended map, or retired, while its lock is held; callers which
+ * look up a list and then lock it must therefore re-check the mapping.
  */
 public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     private static final Logger LOG = LogUtils.getL7dLogger(RetransmissionQueueImpl.class);
 
-    private Map<String, List<ResendCandidate>> candidates = 
-        new HashMap<String, List<ResendCandidate>>();
-    private Map<String, List<ResendCandidate>> suspendedCandidates = 
-        new HashMap<String, List<ResendCandidate>>();
+    private ConcurrentMap<String, List<ResendCandidate>> candidates = 
+        new ConcurrentHashMap<String, List<ResendCandidate>>();
+    private ConcurrentMap<String, List<ResendCandidate>> suspendedCandidates = 
+        new ConcurrentHashMap<String, List<ResendCandidate>>();
     private Resender resender;
     private RMManager manager;
 
-    private int unacknowledgedCount;
+    private AtomicInteger unacknowledgedCount = new AtomicInteger();
     
     public RetransmissionQueueImpl(RMManager m) {
         manager = m;
@@ -134,13 +142,18 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
      * @param seq the sequence under consideration
      * @return the number of unacknowledged messages for that sequence
      */
-    public synchronized int countUnacknowledged(SourceSequence seq) {
+    public int countUnacknowledged(SourceSequence seq) {
         List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
-        return sequenceCandidates == null ? 0 : sequenceCandidates.size();
+        if (null == sequenceCandidates) {
+            return 0;
+        }
+        synchronized (sequenceCandidates) {
+            return sequenceCandidates.size();
+        }
     }
 
     public int countUnacknowledged() {
-        return unacknowledgedCount;
+        return unacknowledgedCount.get();
     }
 
     /**
@@ -174,27 +187,27 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         Collection<Long> purged = new ArrayList<Long>();
         Collection<ResendCandidate> resends = new ArrayList<ResendCandidate>();
         Identifier sid = seq.getIdentifier();
-        synchronized (this) {
-            LOG.fine("Start purging resend candidates.");
-            List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
-            if (null != sequenceCandidates) {
+        LOG.fine("Start purging resend candidates.");
+        List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
+        if (null != sequenceCandidates) {
+            synchronized (sequenceCandidates) {
                 for (int i = sequenceCandidates.size() - 1; i >= 0; i--) {
                     ResendCandidate candidate = sequenceCandidates.get(i);
                     long m = candidate.getNumber();
                     if (any || seq.isAcknowledged(m)) {
                         sequenceCandidates.remove(i);
                         candidate.resolved();
-                        unacknowledgedCount--;
+                        unacknowledgedCount.decrementAndGet();
                         purged.add(m);
                         resends.add(candidate);
                     }
                 }
                 if (sequenceCandidates.isEmpty()) {
-                    candidates.remove(sid.getValue());
+                    candidates.remove(sid.getValue(), sequenceCandidates);
                 }
             }
-            LOG.fine("Completed purging resend candidates.");
         }
+        LOG.fine("Completed purging resend candidates.");
         if (purged.size() > 0) {
             RMStore store = manager.getStore();
             if (null != store) {
@@ -211,9 +224,11 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         List<Long> unacknowledged = new ArrayList<Long>();
         List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
         if (null != sequenceCandidates) {
-            for (int i = 0; i < sequenceCandidates.size(); i++) {
-                ResendCandidate candidate = sequenceCandidates.get(i);
-                unacknowledged.add(candidate.getNumber());
+            synchronized (sequenceCandidates) {
+                for (int i = 0; i < sequenceCandidates.size(); i++) {
+                    ResendCandidate candidate = sequenceCandidates.get(i);
+                    unacknowledged.add(candidate.getNumber());
+                }
             }
         }
         return unacknowledged;
@@ -222,10 +237,12 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
     public RetryStatus getRetransmissionStatus(SourceSequence seq, long num) {
         List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
         if (null != sequenceCandidates) {
-            for (int i = 0; i < sequenceCandidates.size(); i++) {
-                ResendCandidate candidate = sequenceCandidates.get(i);
-                if (num == candidate.getNumber()) {
-                    return candidate;
+            synchronized (sequenceCandidates) {
+                for (int i = 0; i < sequenceCandidates.size(); i++) {
+                    ResendCandidate candidate = sequenceCandidates.get(i);
+                    if (num == candidate.getNumber()) {
+                        return candidate;
+                    }
                 }
             }
         }
@@ -236,9 +253,11 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         Map<Long, RetryStatus> cp = new HashMap<Long, RetryStatus>();
         List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
         if (null != sequenceCandidates) {
-            for (int i = 0; i < sequenceCandidates.size(); i++) {
-                ResendCandidate candidate = sequenceCandidates.get(i);
-                cp.put(candidate.getNumber(), candidate);
+            synchronized (sequenceCandidates) {
+                for (int i = 0; i < sequenceCandidates.size(); i++) {
+                    ResendCandidate candidate = sequenceCandidates.get(i);
+                    cp.put(candidate.getNumber(), candidate);
+                }
             }
         }
         return cp;
@@ -262,15 +281,15 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
      * Stops resending messages for the specified source sequence.
      */
     public void stop(SourceSequence seq) {
-        synchronized (this) {
-            List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
-            if (null != sequenceCandidates) {
+        List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
+        if (null != sequenceCandidates) {
+            synchronized (sequenceCandidates) {
                 for (int i = sequenceCandidates.size() - 1; i >= 0; i--) {
                     ResendCandidate candidate = sequenceCandidates.get(i);
                     candidate.cancel();
                 }
-                LOG.log(Level.FINE, "Cancelled resends for sequence {0}.", seq.getIdentifier().getValue());
-            }           
+            }
+            LOG.log(Level.FINE, "Cancelled resends for sequence {0}.", seq.getIdentifier().getValue());
         }
     }
     
@@ -279,32 +298,41 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
     }
     
     public void suspend(SourceSequence seq) {
-        synchronized (this) {
-            String key = seq.getIdentifier().getValue();
-            List<ResendCandidate> sequenceCandidates = candidates.remove(key);
-            if (null != sequenceCandidates) {
+        String key = seq.getIdentifier().getValue();
+        List<ResendCandidate> sequenceCandidates = candidates.get(key);
+        if (null != sequenceCandidates) {
+            synchronized (sequenceCandidates) {
+                if (candidates.get(key) != sequenceCandidates) {
+                    return;
+                }
                 for (int i = sequenceCandidates.size() - 1; i >= 0; i--) {
                     ResendCandidate candidate = sequenceCandidates.get(i);
                     candidate.suspend();
                 }
+                // publish in the new map first so that lookups never miss the list
                 suspendedCandidates.put(key, sequenceCandidates);
-                LOG.log(Level.FINE, "Suspended resends for sequence {0}.", key);
+                candidates.remove(key, sequenceCandidates);
             }
+            LOG.log(Level.FINE, "Suspended resends for sequence {0}.", key);
         }
     }
     
     public void resume(SourceSequence seq) {
-        synchronized (this) {
-            String key = seq.getIdentifier().getValue();
-            List<ResendCandidate> sequenceCandidates = suspendedCandidates.remove(key);
-            if (null != sequenceCandidates) {
+        String key = seq.getIdentifier().getValue();
+        List<ResendCandidate> sequenceCandidates = suspendedCandidates.get(key);
+        if (null != sequenceCandidates) {
+            synchronized (sequenceCandidates) {
+                if (suspendedCandidates.get(key) != sequenceCandidates) {
+                    return;
+                }
                 for (int i = 0; i < sequenceCandidates.size(); i++) {
                     ResendCandidate candidate = sequenceCandidates.get(i);
                     candidate.resume();
                 }
                 candidates.put(key, sequenceCandidates);
-                LOG.log(Level.FINE, "Resumed resends for sequence {0}.", key);
-            }           
+                suspendedCandidates.remove(key, sequenceCandidates);
+            }
+            LOG.log(Level.FINE, "Resumed resends for sequence {0}.", key);
         }
     }
     
@@ -337,18 +365,27 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         
         ResendCandidate candidate = null;
         
-        synchronized (this) {
+        while (null == candidate) {
             List<ResendCandidate> sequenceCandidates = getSequenceCandidates(key);
             if (null == sequenceCandidates) {
                 sequenceCandidates = new ArrayList<ResendCandidate>();
-                candidates.put(key, sequenceCandidates);
+                List<ResendCandidate> existing = candidates.putIfAbsent(key, sequenceCandidates);
+                if (null != existing) {
+                    sequenceCandidates = existing;
+                }
             }
-            candidate = new ResendCandidate(message);
-            if (isSequenceSuspended(key)) {
-                candidate.suspend();
+            synchronized (sequenceCandidates) {
+                if (getSequenceCandidates(key) != sequenceCandidates) {
+                    // list was retired or replaced concurrently, retry
+                    continue;
+                }
+                candidate = new ResendCandidate(message);
+                if (isSequenceSuspended(key)) {
+                    candidate.suspend();
+                }
+                sequenceCandidates.add(candidate);
+                unacknowledgedCount.incrementAndGet();
             }
-            sequenceCandidates.add(candidate);
-            unacknowledgedCount++;
         }
         LOG.fine("Cached unacknowledged message.");
         try {
@@ -370,8 +407,8 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     /**
      * @param seq the sequence under consideration
-     * @return the list of resend candidates for that sequence
-     * @pre called with mutex held
+     * @return the list of resend candidates for that sequence, to be accessed
+     *         while holding its lock
      */
     protected List<ResendCandidate> getSequenceCandidates(SourceSequence seq) {
         return getSequenceCandidates(seq.getIdentifier().getValue());
@@ -379,8 +416,8 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     /**
      * @param key the sequence identifier under consideration
-     * @return the list of resend candidates for that sequence
-     * @pre called with mutex held
+     * @return the list of resend candidates for that sequence, to be accessed
+     *         while holding its lock
      */
     protected List<ResendCandidate> getSequenceCandidates(String key) {
         List<ResendCandidate> sc = candidates.get(key);
@@ -393,7 +430,6 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
     /**
      * @param key the sequence identifier under consideration
      * @return true if the sequence is currently suspended; false otherwise
-     * @pre called with mutex held
      */
     protected boolean isSequenceSuspended(String key) {
         return suspendedCandidates.containsKey(key);
@@ -406,7 +442,7 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         private Message message;
         private long number;
         private Date next;
-        private TimerTask nextTask;
+        private HashedWheelTimer.Timeout nextTask;
         private int retries;
         private int maxRetries;
         private long nextInterval;
@@ -444,7 +480,7 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
             if (null != rmprops) {
                 number = rmprops.getSequence().getMessageNumber();
             }
-            if (null != manager.getTimer() && maxRetries != 0) {
+            if (null != manager.getWheelTimer() && maxRetries != 0) {
                 schedule();
             }
         }
@@ -471,6 +507,13 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
                 LOG.log(Level.FINE, "Using endpoint executor {0}", executor.getClass().getName());
             }
             
+            if (executor instanceof SynchronousExecutor) {
+                // resends are initiated on the timer thread, which must never block on a send
+                Executor workQueue = manager.getTimerTaskExecutor();
+                if (null != workQueue) {
+                    executor = workQueue;
+                }
+            }
             try {
                 executor.execute(this);
             } catch (RejectedExecutionException ex) {
@@ -611,26 +654,25 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         }
 
         protected final synchronized void schedule() {
-            if (null == manager.getTimer()) {
+            HashedWheelTimer timer = manager.getWheelTimer();
+            if (null == timer) {
                 return;
             }
-            class ResendTask extends TimerTask {
+            class ResendTask implements Runnable {
                 ResendCandidate candidate;
 
                 ResendTask(ResendCandidate c) {
                     candidate = c;
                 }
 
-                @Override
                 public void run() {
                     if (!candidate.isPending()) {
                         candidate.initiate(includeAckRequested);
                     }
                 }
             }
-            nextTask = new ResendTask(this);
             try {
-                manager.getTimer().schedule(nextTask, next);
+                nextTask = timer.schedule(new ResendTask(this), next);
             } catch (IllegalStateException ex) {
                 LOG.log(Level.WARNING, "SCHEDULE_RESEND_FAILED_MSG", ex);
             }
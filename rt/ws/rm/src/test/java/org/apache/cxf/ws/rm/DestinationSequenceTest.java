@@ -58,11 +58,13 @@ public class DestinationSequenceTest extends Assert {
     private RMConfiguration config;
     private AcksPolicyType ap;
     private DestinationPolicyType dp;
+    private HashedWheelTimer wheelTimer;
  
     @Before
     public void setUp() {
         control = EasyMock.createNiceControl();
         control.makeThreadSafe(true);
+        wheelTimer = new HashedWheelTimer("DestinationSequenceTest", 10L, 64);
         factory = new ObjectFactory();
         ref = control.createMock(EndpointReferenceType.class);
         id = factory.createIdentifier();
@@ -71,6 +73,7 @@ public class DestinationSequenceTest extends Assert {
     
     @After
     public void tearDown() {
+        wheelTimer.stop();
         ref = null;
         destination = null;
         manager = null;
@@ -671,15 +674,13 @@ public class DestinationSequenceTest extends Assert {
         destination = control.createMock(Destination.class);
         manager = control.createMock(RMManager.class);
         EasyMock.expect(destination.getManager()).andReturn(manager);
-        Timer t = new Timer();
-        EasyMock.expect(manager.getTimer()).andReturn(t);
+        EasyMock.expect(manager.getWheelTimer()).andReturn(wheelTimer);
         DestinationSequence seq = new DestinationSequence(id, ref, destination,
             ProtocolVariation.RM10WSA200408);
         control.replay();
         seq.scheduleDeferredAcknowledgement(30000L);
         seq.cancelDeferredAcknowledgments();
         seq.cancelDeferredAcknowledgments();
-        t.cancel();
         control.verify();
 
     }
@@ -732,6 +733,7 @@ public class DestinationSequenceTest extends Assert {
         
         if (null != timer) {
             EasyMock.expect(manager.getTimer()).andReturn(timer).anyTimes();
+            EasyMock.expect(manager.getWheelTimer()).andReturn(wheelTimer).anyTimes();
         }
 
     }
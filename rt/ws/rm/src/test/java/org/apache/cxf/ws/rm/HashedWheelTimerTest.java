@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedWheelTimerTest extends Assert {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer("HashedWheelTimerTest", 10L, 8);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        HashedWheelTimer.Timeout timeout = timer.schedule(new CountDown(latch), 50L);
+        assertTrue(timeout.getExecutionTime() >= start + 50L);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50L);
+    }
+
+    @Test
+    public void testExpiryAfterSeveralRounds() throws Exception {
+        // the wheel covers 80ms, so this timeout has to survive a few rotations
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        timer.schedule(new CountDown(latch), new Date(start + 300L));
+        assertFalse(latch.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 300L);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        Runnable task = new Runnable() {
+            public void run() {
+                count.incrementAndGet();
+            }
+        };
+        HashedWheelTimer.Timeout cancelled = timer.schedule(task, 20L);
+        cancelled.cancel();
+        assertTrue(cancelled.isCancelled());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(new CountDown(latch), 100L);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, count.get());
+    }
+
+    @Test
+    public void testFailingTaskDoesNotStopTimer() throws Exception {
+        timer.schedule(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("expected");
+            }
+        }, 0L);
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.schedule(new CountDown(latch), 30L);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testManyTimeouts() throws Exception {
+        int count = 10000;
+        CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            timer.schedule(new CountDown(latch), i % 200);
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testScheduleAfterStop() {
+        timer.stop();
+        assertTrue(timer.isStopped());
+        try {
+            timer.schedule(new CountDown(new CountDownLatch(1)), 10L);
+            fail("Expected IllegalStateException was not thrown.");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private static class CountDown implements Runnable {
+        private final CountDownLatch latch;
+
+        CountDown(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
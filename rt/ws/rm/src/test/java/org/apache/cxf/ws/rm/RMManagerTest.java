@@ -29,6 +29,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.namespace.QName;
 
@@ -48,6 +52,8 @@ import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.service.model.InterfaceInfo;
 import org.apache.cxf.service.model.ServiceInfo;
 import org.apache.cxf.transport.Conduit;
+import org.apache.cxf.workqueue.AutomaticWorkQueue;
+import org.apache.cxf.workqueue.WorkQueueManager;
 import org.apache.cxf.ws.addressing.AddressingProperties;
 import org.apache.cxf.ws.addressing.AttributedURIType;
 import org.apache.cxf.ws.addressing.EndpointReferenceType;
@@ -101,6 +107,45 @@ public class RMManagerTest extends Assert {
         control.reset();
     }
     
+    @Test
+    public void testTimerTaskExecutor() throws Exception {
+        Bus bus = control.createMock(Bus.class);
+        bus.setExtension(EasyMock.anyObject(RMManager.class), EasyMock.eq(RMManager.class));
+        EasyMock.expectLastCall().anyTimes();
+        WorkQueueManager wqm = control.createMock(WorkQueueManager.class);
+        EasyMock.expect(bus.getExtension(WorkQueueManager.class)).andReturn(wqm);
+        AutomaticWorkQueue queue = control.createMock(AutomaticWorkQueue.class);
+        EasyMock.expect(wqm.getNamedWorkQueue("ws-rm")).andReturn(null);
+        EasyMock.expect(wqm.getAutomaticWorkQueue()).andReturn(queue);
+        control.replay();
+        manager = new RMManager();
+        manager.setBus(bus);
+        assertSame(queue, manager.getTimerTaskExecutor());
+        assertSame(queue, manager.getTimerTaskExecutor());
+        control.verify();
+    }
+
+    @Test
+    public void testTimerTaskExecutorWithoutBus() throws Exception {
+        manager = new RMManager();
+        Executor executor = manager.getTimerTaskExecutor();
+        assertNotNull(executor);
+        assertSame(executor, manager.getTimerTaskExecutor());
+
+        // timer tasks must not run on the thread which expires them
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        executor.execute(new Runnable() {
+            public void run() {
+                thread.set(Thread.currentThread());
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), thread.get());
+        manager.shutdown();
+    }
+
     @Test
     public void testInitialisation() {
         manager = new RMManager();
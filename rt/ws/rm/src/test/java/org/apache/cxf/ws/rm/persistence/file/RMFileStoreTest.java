@@ -0,0 +1,321 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.cxf.helpers.FileUtils;
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.ws.rm.DestinationSequence;
+import org.apache.cxf.ws.rm.ProtocolVariation;
+import org.apache.cxf.ws.rm.RMUtils;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.persistence.RMStoreException;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+import org.apache.cxf.ws.rm.v200702.SequenceAcknowledgement;
+import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RMFileStoreTest extends Assert {
+    private static final String ENDPOINT_ID =
+        "celtix.{http://celtix.objectweb.org/greeter_control}GreeterService/GreeterPort";
+    private static final String ACKS_TO = "http://localhost:9999/decoupled_endpoint";
+
+    private IMocksControl control;
+    private File dir;
+    private RMFileStore store;
+
+    @Before
+    public void setUp() {
+        control = EasyMock.createNiceControl();
+        dir = new File("target/rmfilestore");
+        FileUtils.removeDir(dir);
+        store = createStore();
+    }
+
+    @After
+    public void tearDown() {
+        store.destroy();
+        FileUtils.removeDir(dir);
+    }
+
+    @Test
+    public void testCreateAndRecoverSequences() throws Exception {
+        Identifier sid = createSourceSequence("source1");
+        SourceSequence ss = new SourceSequence(sid, null, null, 2, true, ProtocolVariation.RM10WSA200408);
+        store.persistOutgoing(ss, createMessage(1, "message one"));
+        store.persistOutgoing(ss, createMessage(2, "message two"));
+
+        Identifier did = createDestinationSequence("dest1");
+        SequenceAcknowledgement ack = new SequenceAcknowledgement();
+        SequenceAcknowledgement.AcknowledgementRange range = new SequenceAcknowledgement.AcknowledgementRange();
+        range.setLower(Long.valueOf(1));
+        range.setUpper(Long.valueOf(3));
+        ack.getAcknowledgementRange().add(range);
+        DestinationSequence ds = new DestinationSequence(did, RMUtils.createReference(ACKS_TO), 3, ack,
+                                                         ProtocolVariation.RM10WSA200408);
+        store.persistIncoming(ds, createMessage(3, "message three"));
+
+        store.destroy();
+        store = createStore();
+
+        Collection<SourceSequence> sss = store.getSourceSequences(ENDPOINT_ID);
+        assertEquals(1, sss.size());
+        SourceSequence recovered = sss.iterator().next();
+        assertEquals("source1", recovered.getIdentifier().getValue());
+        assertEquals(2, recovered.getCurrentMessageNr());
+        assertTrue(recovered.isLastMessage());
+
+        DestinationSequence rds = store.getDestinationSequence(did);
+        assertNotNull(rds);
+        assertEquals(3, rds.getLastMessageNumber());
+        assertEquals(ACKS_TO, rds.getAcksTo().getAddress().getValue());
+        assertEquals(3L, rds.getAcknowledgment().getAcknowledgementRange().get(0).getUpper().longValue());
+
+        Collection<RMMessage> msgs = store.getMessages(sid, true);
+        assertEquals(2, msgs.size());
+        assertEquals("message one", IOUtils.toString(msgs.iterator().next().getContent()));
+        msgs = store.getMessages(did, false);
+        assertEquals(1, msgs.size());
+        assertEquals(3, msgs.iterator().next().getMessageNumber());
+        assertTrue(store.getMessages(did, true).isEmpty());
+    }
+
+    @Test
+    public void testCreateDuplicateSequence() {
+        createSourceSequence("source1");
+        try {
+            createSourceSequence("source1");
+            fail("Expected RMStoreException was not thrown.");
+        } catch (RMStoreException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRemoveIsDurable() throws Exception {
+        Identifier sid = createSourceSequence("source1");
+        SourceSequence ss = new SourceSequence(sid, null, null, 1, false, ProtocolVariation.RM10WSA200408);
+        store.persistOutgoing(ss, createMessage(1, "message one"));
+        store.persistOutgoing(ss, createMessage(2, "message two"));
+        store.removeMessages(sid, Collections.singletonList(Long.valueOf(1)), true);
+
+        store.destroy();
+        store = createStore();
+
+        Collection<RMMessage> msgs = store.getMessages(sid, true);
+        assertEquals(1, msgs.size());
+        assertEquals(2, msgs.iterator().next().getMessageNumber());
+
+        store.removeSourceSequence(sid);
+        store.destroy();
+        store = createStore();
+        assertNull(store.getSourceSequence(sid));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        store.destroy();
+        store = new RMFileStore();
+        store.setDirectory(dir.getPath());
+        store.setSegmentSize(1024);
+        store.setCompactionInterval(0);
+        store.init();
+
+        Identifier sid = createSourceSequence("source1");
+        List<Long> nrs = new ArrayList<Long>();
+        for (int i = 1; i <= 50; i++) {
+            SourceSequence ss = new SourceSequence(sid, null, null, i, false, ProtocolVariation.RM10WSA200408);
+            store.persistOutgoing(ss, createMessage(i, "message number " + i));
+            if (i < 50) {
+                nrs.add(Long.valueOf(i));
+            }
+        }
+        int segments = store.getSegmentCount();
+        assertTrue(segments > 2);
+        store.removeMessages(sid, nrs, true);
+        store.compact();
+        assertTrue(store.getSegmentCount() < segments);
+
+        store.destroy();
+        store = createStore();
+        SourceSequence recovered = store.getSourceSequence(sid);
+        assertEquals(50, recovered.getCurrentMessageNr());
+        Collection<RMMessage> msgs = store.getMessages(sid, true);
+        assertEquals(1, msgs.size());
+        assertEquals("message number 50", IOUtils.toString(msgs.iterator().next().getContent()));
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws Exception {
+        Identifier sid = createSourceSequence("source1");
+        SourceSequence ss = new SourceSequence(sid, null, null, 1, false, ProtocolVariation.RM10WSA200408);
+        store.persistOutgoing(ss, createMessage(1, "message one"));
+        store.destroy();
+
+        // simulate a crash in the middle of an append
+        File segment = dir.listFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            raf.seek(raf.length());
+            raf.writeInt(100);
+            raf.writeInt(0);
+            raf.write(new byte[10]);
+        } finally {
+            raf.close();
+        }
+        long length = segment.length();
+
+        store = createStore();
+        assertTrue(segment.length() < length);
+        assertEquals(1, store.getMessages(sid, true).size());
+
+        ss = new SourceSequence(sid, null, null, 2, false, ProtocolVariation.RM10WSA200408);
+        store.persistOutgoing(ss, createMessage(2, "message two"));
+        store.destroy();
+        store = createStore();
+        assertEquals(2, store.getMessages(sid, true).size());
+    }
+
+    @Test
+    public void testDamagedOlderSegmentFailsRecovery() throws Exception {
+        store.destroy();
+        store = new RMFileStore();
+        store.setDirectory(dir.getPath());
+        store.setSegmentSize(1024);
+        store.setCompactionInterval(0);
+        store.init();
+
+        Identifier sid = createSourceSequence("source1");
+        for (int i = 1; i <= 20; i++) {
+            SourceSequence ss = new SourceSequence(sid, null, null, i, false, ProtocolVariation.RM10WSA200408);
+            store.persistOutgoing(ss, createMessage(i, "message number " + i));
+        }
+        assertTrue(store.getSegmentCount() > 1);
+        store.destroy();
+
+        // flip a byte in the middle of the first segment, which was complete when the log rolled over
+        File[] segments = dir.listFiles();
+        Arrays.sort(segments);
+        RandomAccessFile raf = new RandomAccessFile(segments[0], "rw");
+        try {
+            long pos = raf.length() / 2;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+        long length = segments[0].length();
+
+        store = new RMFileStore();
+        store.setDirectory(dir.getPath());
+        try {
+            store.init();
+            fail("Expected RMStoreException was not thrown.");
+        } catch (RMStoreException ex) {
+            // expected
+        }
+        store.destroy();
+        assertEquals(length, segments[0].length());
+    }
+
+    @Test
+    public void testInterruptedAppend() throws Exception {
+        Identifier sid = createSourceSequence("source1");
+        SourceSequence ss = new SourceSequence(sid, null, null, 1, false, ProtocolVariation.RM10WSA200408);
+
+        // an interrupted thread closes the channel, the store reopens it and completes the write
+        Thread.currentThread().interrupt();
+        try {
+            store.persistOutgoing(ss, createMessage(1, "message one"));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        store.persistOutgoing(ss, createMessage(2, "message two"));
+        assertEquals(2, store.getMessages(sid, true).size());
+
+        store.destroy();
+        store = createStore();
+        assertEquals(2, store.getMessages(sid, true).size());
+    }
+
+    private RMFileStore createStore() {
+        RMFileStore s = new RMFileStore();
+        s.setDirectory(dir.getPath());
+        s.init();
+        return s;
+    }
+
+    private Identifier createSourceSequence(String id) {
+        Identifier sid = new Identifier();
+        sid.setValue(id);
+        SourceSequence seq = control.createMock(SourceSequence.class);
+        EasyMock.expect(seq.getIdentifier()).andReturn(sid);
+        EasyMock.expect(seq.getExpires()).andReturn(null);
+        EasyMock.expect(seq.getOfferingSequenceIdentifier()).andReturn(null);
+        EasyMock.expect(seq.getEndpointIdentifier()).andReturn(ENDPOINT_ID);
+        EasyMock.expect(seq.getProtocol()).andReturn(ProtocolVariation.RM10WSA200408);
+        control.replay();
+        try {
+            store.createSourceSequence(seq);
+        } finally {
+            control.verify();
+            control.reset();
+        }
+        return sid;
+    }
+
+    private Identifier createDestinationSequence(String id) {
+        Identifier sid = new Identifier();
+        sid.setValue(id);
+        DestinationSequence seq = control.createMock(DestinationSequence.class);
+        EasyMock.expect(seq.getIdentifier()).andReturn(sid);
+        EasyMock.expect(seq.getAcksTo()).andReturn(RMUtils.createReference(ACKS_TO));
+        EasyMock.expect(seq.getEndpointIdentifier()).andReturn(ENDPOINT_ID);
+        EasyMock.expect(seq.getProtocol()).andReturn(ProtocolVariation.RM10WSA200408);
+        control.replay();
+        store.createDestinationSequence(seq);
+        control.verify();
+        control.reset();
+        return sid;
+    }
+
+    private static RMMessage createMessage(long nr, String content) {
+        RMMessage msg = new RMMessage();
+        msg.setMessageNumber(nr);
+        msg.setContent(new ByteArrayInputStream(content.getBytes()));
+        return msg;
+    }
+}
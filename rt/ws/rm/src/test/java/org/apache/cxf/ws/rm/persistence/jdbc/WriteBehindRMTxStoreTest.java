@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.persistence.jdbc;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.cxf.ws.rm.ProtocolVariation;
+import org.apache.cxf.ws.rm.SourceSequence;
+import org.apache.cxf.ws.rm.persistence.RMMessage;
+import org.apache.cxf.ws.rm.v200702.Identifier;
+import org.apache.derby.jdbc.EmbeddedConnectionPoolDataSource;
+import org.easymock.EasyMock;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs the store tests against the write-behind store backed by a pooled data source.
+ */
+public class WriteBehindRMTxStoreTest extends RMTxStoreTestBase {
+    @BeforeClass
+    public static void setUpOnce() {
+        RMTxStoreTestBase.setUpOnce();
+
+        RMTxStore.deleteDatabaseFiles("rmdbwb", true);
+
+        EmbeddedConnectionPoolDataSource ds = new EmbeddedConnectionPoolDataSource();
+        ds.setDatabaseName("rmdbwb");
+        ds.setCreateDatabase("create");
+
+        WriteBehindRMTxStore wbstore = new WriteBehindRMTxStore();
+        wbstore.setDataSource(ds);
+        wbstore.setKeepConnection(false);
+        wbstore.init();
+        store = wbstore;
+    }
+
+    @AfterClass
+    public static void tearDownOnce() {
+        store.destroy();
+        RMTxStore.deleteDatabaseFiles("rmdbwb", false);
+    }
+
+    @Test
+    public void testConcurrentPersistOutgoing() throws Exception {
+        final Identifier sid = new Identifier();
+        sid.setValue("sequence-wb");
+        SourceSequence seq = control.createMock(SourceSequence.class);
+        EasyMock.expect(seq.getIdentifier()).andReturn(sid).anyTimes();
+        EasyMock.expect(seq.getEndpointIdentifier()).andReturn(CLIENT_ENDPOINT_ID);
+        EasyMock.expect(seq.getProtocol()).andReturn(ProtocolVariation.RM10WSA200408);
+        control.replay();
+        store.createSourceSequence(seq);
+        control.verify();
+
+        final int count = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 1; i <= count; i++) {
+            final long nr = i;
+            executor.execute(new Runnable() {
+                public void run() {
+                    SourceSequence ss = new SourceSequence(sid, null, null, nr, false,
+                                                           ProtocolVariation.RM10WSA200408);
+                    RMMessage msg = new RMMessage();
+                    msg.setMessageNumber(nr);
+                    msg.setContent(new ByteArrayInputStream(("message " + nr).getBytes()));
+                    store.persistOutgoing(ss, msg);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        Collection<RMMessage> msgs = store.getMessages(sid, true);
+        assertEquals(count, msgs.size());
+
+        List<Long> nrs = new ArrayList<Long>();
+        for (RMMessage m : msgs) {
+            nrs.add(m.getMessageNumber());
+        }
+        store.removeMessages(sid, nrs, true);
+        assertEquals(0, store.getMessages(sid, true).size());
+        store.removeSourceSequence(sid);
+        assertNull(store.getSourceSequence(sid));
+    }
+
+    @Test(timeout = 60000)
+    public void testReconnectKeepsQueuedUpdates() throws Exception {
+        RMTxStore.deleteDatabaseFiles("rmdbwbrc", true);
+        WriteBehindRMTxStore wbstore = new WriteBehindRMTxStore();
+        wbstore.setUrl("jdbc:derby:rmdbwbrc;create=true");
+        wbstore.setWaitForCommit(false);
+        wbstore.setInitialReconnectDelay(1);
+        wbstore.init();
+        try {
+            Identifier sid = new Identifier();
+            sid.setValue("sequence-rc");
+            SourceSequence seq = control.createMock(SourceSequence.class);
+            EasyMock.expect(seq.getIdentifier()).andReturn(sid).anyTimes();
+            EasyMock.expect(seq.getEndpointIdentifier()).andReturn(CLIENT_ENDPOINT_ID);
+            EasyMock.expect(seq.getProtocol()).andReturn(ProtocolVariation.RM10WSA200408);
+            control.replay();
+            wbstore.createSourceSequence(seq);
+            wbstore.flush();
+            control.verify();
+
+            // intentionally invalidate the connection, the next batch fails and schedules a reconnect
+            try {
+                wbstore.getConnection().close();
+            } catch (SQLException ex) {
+                // ignore
+            }
+            wbstore.persistOutgoing(new SourceSequence(sid, null, null, 1, false, 
+                                                       ProtocolVariation.RM10WSA200408),
+                                    createMessage(1));
+            wbstore.flush();
+            Thread.sleep(50);
+
+            // the writer reconnects while these are queued
+            final int count = 50;
+            for (int i = 2; i <= count + 1; i++) {
+                wbstore.persistOutgoing(new SourceSequence(sid, null, null, i, false,
+                                                           ProtocolVariation.RM10WSA200408),
+                                        createMessage(i));
+            }
+            assertEquals(count, wbstore.getMessages(sid, true).size());
+            assertEquals(count + 1, wbstore.getSourceSequence(sid).getCurrentMessageNr());
+        } finally {
+            wbstore.destroy();
+            RMTxStore.deleteDatabaseFiles("rmdbwbrc", false);
+        }
+    }
+
+    private static RMMessage createMessage(long nr) {
+        RMMessage msg = new RMMessage();
+        msg.setMessageNumber(nr);
+        msg.setContent(new ByteArrayInputStream(("message " + nr).getBytes()));
+        return msg;
+    }
+
+    @Override
+    protected Connection getConnection() {
+        return store.verifyConnection();
+    }
+
+    @Override
+    protected void releaseConnection(Connection con) {
+        if (con != null) {
+            try {
+                con.close();
+            } catch (SQLException e) {
+                // ignore
+            }
+        }
+    }
+}
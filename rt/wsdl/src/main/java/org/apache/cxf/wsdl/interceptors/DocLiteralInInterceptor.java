@@ -19,7 +19,6 @@
 
 package org.apache.cxf.wsdl.interceptors;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -148,19 +147,16 @@ public class DocLiteralInInterceptor extends AbstractInDatabindingInterceptor {
                     setMessage(message, bop, client, si, msgInfo.getMessageInfo());
                 }
     
-                Collection<OperationInfo> operations = null;
-                operations = new ArrayList<OperationInfo>();
-                operations.addAll(si.getInterface().getOperations());
-    
                 if (xmlReader == null || !StaxUtils.toNextElement(xmlReader)) {
                     // empty input
-                    getBindingOperationForEmptyBody(operations, ep, exchange);
+                    getBindingOperationForEmptyBody(si.getInterface().getOperations(), ep, exchange);
                     return;
                 }
 
                 setDataReaderValidation(service, message, dr);
                 
                 int paramNum = 0;
+                Collection<OperationInfo> operations = null;
     
                 do {
                     QName elName = xmlReader.getName();
@@ -181,6 +177,10 @@ public class DocLiteralInInterceptor extends AbstractInDatabindingInterceptor {
                             p = null;
                         }
                     } else {
+                        if (operations == null) {
+                            // only the operations that can start with this element
+                            operations = getFirstPartOperations(ep, elName, client);
+                        }
                         p = findMessagePart(exchange, operations, elName, client, paramNum, message);
                     }
                     
@@ -19,6 +19,7 @@
 
 package org.apache.cxf.wsdl.interceptors;
 
+import java.io.StringReader;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -50,6 +51,7 @@ import org.apache.cxf.service.model.OperationInfo;
 import org.apache.cxf.service.model.ServiceInfo;
 import org.apache.cxf.staxutils.PartialXMLStreamReader;
 import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.ws.commons.schema.constants.Constants;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
 
@@ -259,5 +261,66 @@ public class DocLiteralInInterceptorTest extends Assert {
                                                ((DOMSource)params.get(0)).getNode().getFirstChild()));
 
     }
-    
+
+    @Test
+    public void testUnmarshalBareSelectsOperationByFirstElement() throws Exception {
+        ServiceInfo serviceInfo = new ServiceInfo();
+        InterfaceInfo interfaceInfo = new InterfaceInfo(serviceInfo, new QName(NS, "Greeter"));
+        BindingInfo bindingInfo = new BindingInfo(serviceInfo, "http://schemas.xmlsoap.org/wsdl/soap/");
+        EndpointInfo endpointInfo = new EndpointInfo(serviceInfo, "");
+        endpointInfo.setBinding(bindingInfo);
+        addBareOperation(interfaceInfo, bindingInfo, "sayHi", false);
+        BindingOperationInfo greetMe = addBareOperation(interfaceInfo, bindingInfo, "greetMe", false);
+        BindingOperationInfo any = addBareOperation(interfaceInfo, bindingInfo, "invoke", true);
+
+        Endpoint endpoint = control.createMock(Endpoint.class);
+        EasyMock.expect(endpoint.getEndpointInfo()).andReturn(endpointInfo).anyTimes();
+        Service service = control.createMock(Service.class);
+        EasyMock.expect(service.getDataBinding()).andReturn(new SourceDataBinding()).anyTimes();
+        control.replay();
+
+        Message m = createBareMessage(endpoint, service, "greetMe");
+        new DocLiteralInInterceptor().handleMessage(m);
+        assertSame(greetMe, m.getExchange().getBindingOperationInfo());
+        assertEquals(1, ((MessageContentsList)m.getContent(List.class)).size());
+
+        // an element no operation declares goes to the one taking xsd:anyType
+        m = createBareMessage(endpoint, service, "unknown");
+        new DocLiteralInInterceptor().handleMessage(m);
+        assertSame(any, m.getExchange().getBindingOperationInfo());
+        assertEquals(1, ((MessageContentsList)m.getContent(List.class)).size());
+    }
+
+    private BindingOperationInfo addBareOperation(InterfaceInfo interfaceInfo, BindingInfo bindingInfo,
+                                                  String name, boolean anyType) {
+        OperationInfo operationInfo = interfaceInfo.addOperation(new QName(NS, name));
+        MessageInfo messageInfo = operationInfo.createMessage(new QName(NS, name + "Request"), Type.INPUT);
+        MessagePartInfo part = messageInfo.addMessagePart(new QName(NS, name));
+        part.setConcreteName(new QName(NS, name));
+        if (anyType) {
+            part.setTypeQName(Constants.XSD_ANYTYPE);
+            operationInfo.setProperty("operation.is.synthetic", Boolean.TRUE);
+        } else {
+            part.setElement(true);
+            part.setElementQName(new QName(NS, name));
+        }
+        operationInfo.setInput(name + "Request", messageInfo);
+        BindingOperationInfo boi = bindingInfo.buildOperation(operationInfo.getName(), name + "Request", null);
+        bindingInfo.addOperation(boi);
+        return boi;
+    }
+
+    private Message createBareMessage(Endpoint endpoint, Service service, String element) throws Exception {
+        XMLStreamReader reader = StaxUtils.createXMLStreamReader(
+            new StringReader("<ns:" + element + " xmlns:ns=\"" + NS + "\">hello</ns:" + element + ">"));
+        assertEquals(XMLStreamConstants.START_ELEMENT, reader.nextTag());
+        Exchange exchange = new ExchangeImpl();
+        exchange.put(Endpoint.class, endpoint);
+        exchange.put(Service.class, service);
+        Message m = new MessageImpl();
+        m.setExchange(exchange);
+        m.put(Message.SCHEMA_VALIDATION_ENABLED, false);
+        m.setContent(XMLStreamReader.class, reader);
+        return m;
+    }
 }
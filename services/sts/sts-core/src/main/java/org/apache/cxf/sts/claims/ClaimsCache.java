@@ -0,0 +1,365 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.sts.claims;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.rt.security.claims.Claim;
+import org.apache.cxf.rt.security.claims.ClaimCollection;
+import org.apache.cxf.ws.security.sts.provider.STSException;
+
+/**
+ * An in-memory cache of the claim values retrieved by ClaimsHandlers, used by the ClaimsManager
+ * to avoid querying a backend such as LDAP for every token issued to the same principal.
+ * <p>
+ * Values are cached per handler, realm, principal, AppliesTo address and claim type. The time to
+ * live is looked up by claim type, then by realm, falling back to the default. Claim types for which
+ * the handler returned no value are remembered for the negative time to live. Concurrent requests for
+ * the same claims of the same principal share a single call to the handler. Requests containing
+ * claims with values are never cached, as the handler may use those values to select the result.
+ */
+public class ClaimsCache {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(ClaimsCache.class);
+
+    private final ConcurrentMap<EntryKey, Entry> entries = new ConcurrentHashMap<EntryKey, Entry>();
+    private final ConcurrentMap<LookupKey, Lookup> lookups = new ConcurrentHashMap<LookupKey, Lookup>();
+
+    private long timeToLive = 60000L;
+    private long negativeTimeToLive = 10000L;
+    private Map<String, Long> realmTimeToLive = Collections.emptyMap();
+    private Map<String, Long> claimTypeTimeToLive = Collections.emptyMap();
+    private long maxCacheItems = 10000L;
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * @param timeToLive the default time in milliseconds for which claim values are cached
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getNegativeTimeToLive() {
+        return negativeTimeToLive;
+    }
+
+    /**
+     * @param negativeTimeToLive the time in milliseconds for which it is cached that a claim has no value,
+     * 0 to disable negative caching
+     */
+    public void setNegativeTimeToLive(long negativeTimeToLive) {
+        this.negativeTimeToLive = negativeTimeToLive;
+    }
+
+    public Map<String, Long> getRealmTimeToLive() {
+        return realmTimeToLive;
+    }
+
+    /**
+     * @param realmTimeToLive the time to live in milliseconds by realm
+     */
+    public void setRealmTimeToLive(Map<String, Long> realmTimeToLive) {
+        this.realmTimeToLive = realmTimeToLive == null ? Collections.<String, Long>emptyMap() : realmTimeToLive;
+    }
+
+    public Map<String, Long> getClaimTypeTimeToLive() {
+        return claimTypeTimeToLive;
+    }
+
+    /**
+     * @param claimTypeTimeToLive the time to live in milliseconds by claim type URI, 0 to never cache
+     * the claim type
+     */
+    public void setClaimTypeTimeToLive(Map<String, Long> claimTypeTimeToLive) {
+        this.claimTypeTimeToLive = claimTypeTimeToLive == null
+            ? Collections.<String, Long>emptyMap() : claimTypeTimeToLive;
+    }
+
+    public long getMaxCacheItems() {
+        return maxCacheItems;
+    }
+
+    public void setMaxCacheItems(long maxCacheItems) {
+        this.maxCacheItems = maxCacheItems;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Retrieves the claim values from the cache, calling the handler for the claims which are not cached.
+     */
+    public ProcessedClaimCollection retrieveClaimValues(ClaimsHandler handler, ClaimCollection claims,
+                                                        ClaimsParameters parameters) {
+        Principal principal = parameters.getPrincipal();
+        if (principal == null || hasValues(claims)) {
+            return handler.retrieveClaimValues(claims, parameters);
+        }
+        Subject subject = new Subject(handler, parameters.getRealm(), principal.getName(),
+                                      parameters.getAppliesToAddress());
+        long now = System.currentTimeMillis();
+        ProcessedClaimCollection result = new ProcessedClaimCollection();
+        ClaimCollection missing = new ClaimCollection();
+        missing.setDialect(claims.getDialect());
+        for (Claim claim : claims) {
+            Entry entry = entries.get(new EntryKey(subject, claim.getClaimType()));
+            if (entry != null && entry.expires > now) {
+                addCopies(result, entry.claims);
+            } else {
+                missing.add(claim);
+            }
+        }
+        if (missing.isEmpty()) {
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Claims of '" + principal.getName() + "' retrieved from cache");
+            }
+            return result;
+        }
+        ProcessedClaimCollection fetched = lookup(handler, subject, missing, parameters);
+        if (fetched != null) {
+            addCopies(result, fetched);
+        }
+        return result;
+    }
+
+    private ProcessedClaimCollection lookup(ClaimsHandler handler, Subject subject, ClaimCollection claims,
+                                            ClaimsParameters parameters) {
+        Set<URI> claimTypes = new HashSet<URI>();
+        for (Claim claim : claims) {
+            claimTypes.add(claim.getClaimType());
+        }
+        LookupKey key = new LookupKey(subject, claimTypes);
+        Lookup lookup = new Lookup();
+        Lookup pending = lookups.putIfAbsent(key, lookup);
+        if (pending != null) {
+            return pending.await();
+        }
+        try {
+            ProcessedClaimCollection fetched = handler.retrieveClaimValues(claims, parameters);
+            store(subject, claimTypes, fetched);
+            lookup.complete(fetched, null);
+            return fetched;
+        } catch (RuntimeException ex) {
+            lookup.complete(null, ex);
+            throw ex;
+        } finally {
+            lookups.remove(key, lookup);
+        }
+    }
+
+    private void store(Subject subject, Set<URI> claimTypes, ProcessedClaimCollection fetched) {
+        long now = System.currentTimeMillis();
+        for (URI claimType : claimTypes) {
+            List<ProcessedClaim> values = new ArrayList<ProcessedClaim>(1);
+            if (fetched != null) {
+                for (ProcessedClaim claim : fetched) {
+                    if (claimType.equals(claim.getClaimType())) {
+                        values.add(claim.clone());
+                    }
+                }
+            }
+            long ttl = getTimeToLive(subject.realm, claimType);
+            if (values.isEmpty()) {
+                ttl = Math.min(ttl, negativeTimeToLive);
+            }
+            if (ttl > 0) {
+                if (entries.size() >= maxCacheItems) {
+                    evict(now);
+                }
+                entries.put(new EntryKey(subject, claimType), new Entry(values, now + ttl));
+            }
+        }
+    }
+
+    private long getTimeToLive(String realm, URI claimType) {
+        Long ttl = claimTypeTimeToLive.get(claimType.toString());
+        if (ttl == null && realm != null) {
+            ttl = realmTimeToLive.get(realm);
+        }
+        return ttl == null ? timeToLive : ttl.longValue();
+    }
+
+    private void evict(long now) {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().expires <= now) {
+                it.remove();
+            }
+        }
+        if (entries.size() >= maxCacheItems) {
+            entries.clear();
+        }
+    }
+
+    private static boolean hasValues(ClaimCollection claims) {
+        for (Claim claim : claims) {
+            if (claim.getValues() != null && !claim.getValues().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addCopies(ProcessedClaimCollection target, List<ProcessedClaim> claims) {
+        for (ProcessedClaim claim : claims) {
+            target.add(claim.clone());
+        }
+    }
+
+    private static final class Entry {
+        private final List<ProcessedClaim> claims;
+        private final long expires;
+
+        Entry(List<ProcessedClaim> claims, long expires) {
+            this.claims = claims;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * A call to a handler which is in progress, shared by the threads requesting the same claims.
+     */
+    private static final class Lookup {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private ProcessedClaimCollection result;
+        private RuntimeException failure;
+
+        void complete(ProcessedClaimCollection r, RuntimeException f) {
+            result = r;
+            failure = f;
+            done.countDown();
+        }
+
+        ProcessedClaimCollection await() {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new STSException("Interrupted while retrieving claims", STSException.REQUEST_FAILED);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return result;
+        }
+    }
+
+    private static final class Subject {
+        private final ClaimsHandler handler;
+        private final String realm;
+        private final String principal;
+        private final String appliesTo;
+
+        Subject(ClaimsHandler handler, String realm, String principal, String appliesTo) {
+            this.handler = handler;
+            this.realm = realm;
+            this.principal = principal;
+            this.appliesTo = appliesTo;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(handler);
+            result = 31 * result + (realm == null ? 0 : realm.hashCode());
+            result = 31 * result + principal.hashCode();
+            return 31 * result + (appliesTo == null ? 0 : appliesTo.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Subject)) {
+                return false;
+            }
+            Subject other = (Subject)obj;
+            return handler == other.handler && principal.equals(other.principal)
+                && (realm == null ? other.realm == null : realm.equals(other.realm))
+                && (appliesTo == null ? other.appliesTo == null : appliesTo.equals(other.appliesTo));
+        }
+    }
+
+    private static final class EntryKey {
+        private final Subject subject;
+        private final URI claimType;
+
+        EntryKey(Subject subject, URI claimType) {
+            this.subject = subject;
+            this.claimType = claimType;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * subject.hashCode() + claimType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey)obj;
+            return subject.equals(other.subject) && claimType.equals(other.claimType);
+        }
+    }
+
+    private static final class LookupKey {
+        private final Subject subject;
+        private final Set<URI> claimTypes;
+
+        LookupKey(Subject subject, Set<URI> claimTypes) {
+            this.subject = subject;
+            this.claimTypes = claimTypes;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * subject.hashCode() + claimTypes.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LookupKey)) {
+                return false;
+            }
+            LookupKey other = (LookupKey)obj;
+            return subject.equals(other.subject) && claimTypes.equals(other.claimTypes);
+        }
+    }
+}
@@ -53,6 +53,7 @@ public class ClaimsManager {
     private List<URI> supportedClaimTypes = new ArrayList<URI>();
     private boolean stopProcessingOnException = true;
     private IdentityMapper identityMapper;
+    private ClaimsCache claimsCache;
     
 
     public IdentityMapper getIdentityMapper() {
@@ -63,6 +64,17 @@ public class ClaimsManager {
         this.identityMapper = identityMapper;
     }
 
+    public ClaimsCache getClaimsCache() {
+        return claimsCache;
+    }
+
+    /**
+     * Set a cache for the claim values retrieved by the ClaimsHandlers. No claims are cached by default.
+     */
+    public void setClaimsCache(ClaimsCache claimsCache) {
+        this.claimsCache = claimsCache;
+    }
+
     public boolean isStopProcessingOnException() {
         return stopProcessingOnException;
     }
@@ -215,7 +227,11 @@ public class ClaimsManager {
                 
                 ProcessedClaimCollection claimCollection = null;
                 try {
-                    claimCollection = handler.retrieveClaimValues(supportedClaims, parameters);
+                    if (claimsCache != null) {
+                        claimCollection = claimsCache.retrieveClaimValues(handler, supportedClaims, parameters);
+                    } else {
+                        claimCollection = handler.retrieveClaimValues(supportedClaims, parameters);
+                    }
                 } catch (RuntimeException ex) {
                     LOG.log(Level.INFO, "Failed retrieving claims from ClaimsHandler "
                             + handler.getClass().getName(), ex);
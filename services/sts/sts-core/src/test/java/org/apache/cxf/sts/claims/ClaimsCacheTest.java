@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.sts.claims;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.rt.security.claims.Claim;
+import org.apache.cxf.rt.security.claims.ClaimCollection;
+import org.apache.wss4j.common.principal.CustomTokenPrincipal;
+
+public class ClaimsCacheTest extends org.junit.Assert {
+
+    private static final URI ROLE = URI.create("http://schemas.xmlsoap.org/ws/2005/05/identity/claims/role");
+
+    @org.junit.Test
+    public void testValuesAreCachedPerPrincipal() throws Exception {
+        CountingClaimsHandler handler = new CountingClaimsHandler();
+        ClaimsCache cache = new ClaimsCache();
+
+        ProcessedClaimCollection claims = cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        assertEquals(1, handler.calls.get());
+        assertEquals("alice@example.com", claims.get(0).getValues().get(0));
+
+        // callers must not be able to modify cached values
+        claims.get(0).getValues().clear();
+        claims = cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        assertEquals(1, handler.calls.get());
+        assertEquals("alice@example.com", claims.get(0).getValues().get(0));
+
+        claims = cache.retrieveClaimValues(handler, createClaims(), createParameters("bob"));
+        assertEquals(2, handler.calls.get());
+        assertEquals("bob@example.com", claims.get(0).getValues().get(0));
+
+        cache.clear();
+        cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        assertEquals(3, handler.calls.get());
+    }
+
+    @org.junit.Test
+    public void testOnlyMissingClaimsAreRetrieved() throws Exception {
+        CountingClaimsHandler handler = new CountingClaimsHandler();
+        ClaimsCache cache = new ClaimsCache();
+
+        cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        ProcessedClaimCollection claims =
+            cache.retrieveClaimValues(handler, createClaims(ClaimTypes.EMAILADDRESS, ROLE),
+                                      createParameters("alice"));
+        assertEquals(2, handler.calls.get());
+        assertEquals(Arrays.asList(ROLE), handler.lastRequested);
+        assertEquals(1, claims.size());
+        assertEquals(ClaimTypes.EMAILADDRESS, claims.get(0).getClaimType());
+    }
+
+    @org.junit.Test
+    public void testNegativeCaching() throws Exception {
+        CountingClaimsHandler handler = new CountingClaimsHandler();
+        ClaimsCache cache = new ClaimsCache();
+
+        cache.retrieveClaimValues(handler, createClaims(ROLE), createParameters("alice"));
+        cache.retrieveClaimValues(handler, createClaims(ROLE), createParameters("alice"));
+        assertEquals(1, handler.calls.get());
+
+        cache.clear();
+        cache.setNegativeTimeToLive(0);
+        cache.retrieveClaimValues(handler, createClaims(ROLE), createParameters("alice"));
+        cache.retrieveClaimValues(handler, createClaims(ROLE), createParameters("alice"));
+        assertEquals(3, handler.calls.get());
+    }
+
+    @org.junit.Test
+    public void testTimeToLiveByClaimTypeAndRealm() throws Exception {
+        CountingClaimsHandler handler = new CountingClaimsHandler();
+        ClaimsCache cache = new ClaimsCache();
+        cache.setClaimTypeTimeToLive(
+            Collections.singletonMap(ClaimTypes.EMAILADDRESS.toString(), Long.valueOf(0)));
+
+        cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        assertEquals(2, handler.calls.get());
+
+        cache.setClaimTypeTimeToLive(null);
+        cache.setRealmTimeToLive(Collections.singletonMap("A", Long.valueOf(1)));
+        cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        Thread.sleep(10);
+        cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+        assertEquals(4, handler.calls.get());
+    }
+
+    @org.junit.Test
+    public void testConcurrentRequestsShareOneLookup() throws Exception {
+        final CountingClaimsHandler handler = new CountingClaimsHandler();
+        handler.release = new CountDownLatch(1);
+        final ClaimsCache cache = new ClaimsCache();
+        final ProcessedClaimCollection[] results = new ProcessedClaimCollection[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                public void run() {
+                    results[index] = cache.retrieveClaimValues(handler, createClaims(), createParameters("alice"));
+                }
+            };
+            threads[i].start();
+        }
+        // give the other threads time to join the pending lookup
+        Thread.sleep(200);
+        handler.release.countDown();
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        assertEquals(1, handler.calls.get());
+        for (ProcessedClaimCollection result : results) {
+            assertEquals("alice@example.com", result.get(0).getValues().get(0));
+        }
+    }
+
+    @org.junit.Test
+    public void testClaimsManagerUsesCache() throws Exception {
+        CountingClaimsHandler handler = new CountingClaimsHandler();
+        ClaimsManager claimsManager = new ClaimsManager();
+        claimsManager.setClaimHandlers(Collections.<ClaimsHandler>singletonList(handler));
+        claimsManager.setClaimsCache(new ClaimsCache());
+
+        ProcessedClaimCollection claims = claimsManager.retrieveClaimValues(createClaims(), createParameters("alice"));
+        assertEquals(1, claims.size());
+        claims = claimsManager.retrieveClaimValues(createClaims(), createParameters("alice"));
+        assertEquals(1, claims.size());
+        assertEquals(1, handler.calls.get());
+    }
+
+    private static ClaimCollection createClaims(URI... claimTypes) {
+        ClaimCollection claims = new ClaimCollection();
+        if (claimTypes.length == 0) {
+            claimTypes = new URI[] {ClaimTypes.EMAILADDRESS};
+        }
+        for (URI claimType : claimTypes) {
+            Claim claim = new Claim();
+            claim.setClaimType(claimType);
+            claim.setOptional(true);
+            claims.add(claim);
+        }
+        return claims;
+    }
+
+    private static ClaimsParameters createParameters(String user) {
+        ClaimsParameters parameters = new ClaimsParameters();
+        parameters.setPrincipal(new CustomTokenPrincipal(user));
+        parameters.setRealm("A");
+        return parameters;
+    }
+
+    /**
+     * Knows the email address of every principal, and the role of nobody.
+     */
+    private static class CountingClaimsHandler implements ClaimsHandler {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile List<URI> lastRequested;
+        private volatile CountDownLatch release;
+
+        public List<URI> getSupportedClaimTypes() {
+            return Arrays.asList(ClaimTypes.EMAILADDRESS, ROLE);
+        }
+
+        public ProcessedClaimCollection retrieveClaimValues(ClaimCollection claims, ClaimsParameters parameters) {
+            calls.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            lastRequested = new ArrayList<URI>();
+            ProcessedClaimCollection result = new ProcessedClaimCollection();
+            for (Claim claim : claims) {
+                lastRequested.add(claim.getClaimType());
+                if (ClaimTypes.EMAILADDRESS.equals(claim.getClaimType())) {
+                    ProcessedClaim c = new ProcessedClaim();
+                    c.setClaimType(claim.getClaimType());
+                    c.addValue(parameters.getPrincipal().getName() + "@example.com");
+                    result.add(c);
+                }
+            }
+            return result;
+        }
+    }
+}